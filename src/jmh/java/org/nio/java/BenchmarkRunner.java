@@ -0,0 +1,28 @@
+package org.nio.java;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 带 GC 分析器运行基准测试，输出吞吐量、延迟分位数与每次操作的分配字节数（gc.alloc.rate.norm），
+ * 结果另存为 jmh-result.json，便于与上一次结果比对
+ * <p>
+ * java -cp target/benchmarks.jar org.nio.java.BenchmarkRunner [正则，默认全部]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ".*Benchmark.*")
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
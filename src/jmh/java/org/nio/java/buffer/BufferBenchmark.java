@@ -0,0 +1,75 @@
+package org.nio.java.buffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 非直接缓冲区与直接缓冲区（TestBuffer.test03）的存取与分配开销
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferBenchmark {
+
+    @Param({"1024", "65536"})
+    private int size;
+
+    @Param({"heap", "direct"})
+    private String type;
+
+    private ByteBuffer buffer;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        buffer = "direct".equals(type) ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        bytes = new byte[size];
+    }
+
+    //批量 put(byte[]) 再 get(byte[])
+    @Benchmark
+    public byte bulkPutGet() {
+        buffer.clear();
+        buffer.put(bytes);
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes[size - 1];
+    }
+
+    //按绝对位置逐个 putLong()/getLong()
+    @Benchmark
+    public long putGetLong() {
+        int longs = size >>> 3;
+        for (int i = 0; i < longs; i++) {
+            buffer.putLong(i << 3, i);
+        }
+        long sum = 0;
+        for (int i = 0; i < longs; i++) {
+            sum += buffer.getLong(i << 3);
+        }
+        return sum;
+    }
+
+    //分配开销，直接缓冲区要清零并登记 Cleaner
+    @Benchmark
+    public void allocate(Blackhole blackhole) {
+        blackhole.consume("direct".equals(type) ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size));
+    }
+}
@@ -0,0 +1,96 @@
+package org.nio.java.buffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 同一条事件（时间戳、序号、来源、类型、一段文本与 8 个采样值）编码再解码一次的开销：
+ * EventRecord 享元直接读写直接缓冲区，对比 DataOutputStream/DataInputStream 与字符串拼接（TestNonBlockingUdp 的做法）
+ * <p>
+ * 用 BenchmarkRunner 运行可以看到 gc.alloc.rate.norm，享元一栏应为 0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordCodecBenchmark {
+
+    private static final String CONTENT = "空灭境 event payload";
+
+    private final long[] samples = {1, 2, 3, 4, 5, 6, 7, 8};
+    private final long[] decoded = new long[8];
+    private final StringBuilder text = new StringBuilder(64);
+    private final EventRecord record = new EventRecord();
+    private ByteBuffer buffer;
+    private long sequence;
+
+    @Setup
+    public void setup() {
+        buffer = ByteBuffer.allocateDirect(1024);
+    }
+
+    @Benchmark
+    public long flyweight() {
+        long i = sequence++;
+        record.wrapForEncode(buffer, 0).timestampNanos(i).sequence(i).sourceId(7).type((short) 1)
+                .text(CONTENT).samples(samples, 0, samples.length);
+        record.wrapForDecode(buffer, 0);
+        long sum = record.timestampNanos() + record.sequence() + record.sourceId() + record.type();
+        text.setLength(0);
+        record.getText(text);
+        return sum + text.length() + record.getSamples(decoded);
+    }
+
+    @Benchmark
+    public long dataStream() throws IOException {
+        long i = sequence++;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(i);
+        out.writeLong(i);
+        out.writeInt(7);
+        out.writeShort(1);
+        out.writeUTF(CONTENT);
+        out.writeInt(samples.length);
+        for (long sample : samples) {
+            out.writeLong(sample);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        long sum = in.readLong() + in.readLong() + in.readInt() + in.readShort() + in.readUTF().length();
+        int count = in.readInt();
+        for (int j = 0; j < count; j++) {
+            decoded[j] = in.readLong();
+        }
+        return sum + count;
+    }
+
+    //字符串拼接没有采样值，只编码定长字段与文本
+    @Benchmark
+    public long string() {
+        long i = sequence++;
+        byte[] message = (i + ":" + i + ":7:1:" + CONTENT).getBytes(StandardCharsets.UTF_8);
+        String[] fields = new String(message, StandardCharsets.UTF_8).split(":", 5);
+        return Long.parseLong(fields[0]) + Long.parseLong(fields[1]) + Integer.parseInt(fields[2])
+                + Short.parseShort(fields[3]) + fields[4].length();
+    }
+}
@@ -0,0 +1,133 @@
+package org.nio.java.channel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * TestChannel.test05 的编解码：每次新建编码器/解码器、复用编码器/解码器、Charset.encode()
+ * 与 CharsetCodecs/StreamingDecoder 的对比
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharsetBenchmark {
+
+    private static final String CHINESE = "无善无恶心之体，\n" +
+            "有善有恶意之动。\n" +
+            "知善知恶是良知，\n" +
+            "为善去恶是格物。";
+
+    private static final String ASCII = "GET /pic/20170407_070822000_iOS.png HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n";
+
+    @Param({"chinese", "ascii"})
+    private String textType;
+
+    private String text;
+
+    private CharBuffer chars;
+    private ByteBuffer bytes;
+    private CharsetEncoder encoder;
+    private CharsetDecoder decoder;
+    private ByteBuffer encodeTarget;
+    private CharBuffer decodeTarget;
+    private StreamingDecoder streamingDecoder;
+
+    @Setup
+    public void setup() throws CharacterCodingException {
+        text = "ascii".equals(textType) ? ASCII : CHINESE;
+        Charset charset = Charset.forName("UTF-8");
+        chars = CharBuffer.wrap(text);
+        bytes = charset.newEncoder().encode(CharBuffer.wrap(text));
+        encoder = charset.newEncoder();
+        decoder = charset.newDecoder();
+        encodeTarget = ByteBuffer.allocate(text.length() * 3);
+        decodeTarget = CharBuffer.allocate(text.length());
+        streamingDecoder = new StreamingDecoder(StandardCharsets.UTF_8);
+    }
+
+    //test05 的写法：每次 forName() + newEncoder()，encode() 返回新的 ByteBuffer
+    @Benchmark
+    public ByteBuffer encodeNewEncoder() throws CharacterCodingException {
+        chars.rewind();
+        return Charset.forName("utf-8").newEncoder().encode(chars);
+    }
+
+    @Benchmark
+    public CharBuffer decodeNewDecoder() throws CharacterCodingException {
+        bytes.rewind();
+        return Charset.forName("utf-8").newDecoder().decode(bytes);
+    }
+
+    //String.getBytes()
+    @Benchmark
+    public byte[] stringGetBytes() {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    //Charset.encode(String)：内部每次新建 CharBuffer 与结果 ByteBuffer
+    @Benchmark
+    public ByteBuffer charsetEncode() {
+        return StandardCharsets.UTF_8.encode(text);
+    }
+
+    //CharsetCodecs：线程缓存的编码器、ASCII 快速路径，编码到复用的缓冲区
+    @Benchmark
+    public int codecsEncode() {
+        encodeTarget.clear();
+        CharsetCodecs.encode(text, encodeTarget, StandardCharsets.UTF_8);
+        return encodeTarget.position();
+    }
+
+    //StreamingDecoder：ASCII 快速路径，解码到复用的缓冲区
+    @Benchmark
+    public int streamingDecode() {
+        bytes.rewind();
+        decodeTarget.clear();
+        streamingDecoder.decode(bytes, decodeTarget);
+        return decodeTarget.position();
+    }
+
+    //复用编码器，编码到复用的缓冲区
+    @Benchmark
+    public int encodeReused() {
+        chars.rewind();
+        encodeTarget.clear();
+        encoder.reset();
+        CoderResult result = encoder.encode(chars, encodeTarget, true);
+        encoder.flush(encodeTarget);
+        return result.isError() ? -1 : encodeTarget.position();
+    }
+
+    @Benchmark
+    public int decodeReused() {
+        bytes.rewind();
+        decodeTarget.clear();
+        decoder.reset();
+        CoderResult result = decoder.decode(bytes, decodeTarget, true);
+        decoder.flush(decodeTarget);
+        return result.isError() ? -1 : decodeTarget.position();
+    }
+}
@@ -0,0 +1,157 @@
+package org.nio.java.channel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * TestChannel 中四种复制方式与 FileCopier 的对比，单位为每次复制的毫秒数
+ * <p>
+ * 默认文件大小为 1k/1m/64m，完整对比用 -p size=1k,1m,64m,1g,8g，临时目录用 -jvmArgs -Djava.io.tmpdir=... 指定
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileCopyBenchmark {
+
+    @Param({"1k", "1m", "64m"})
+    private String size;
+
+    private Path dir;
+    private Path source;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("copy-bench");
+        source = dir.resolve("source");
+        target = dir.resolve("target");
+        long length = TestFileCopier.parseSize(size);
+        byte[] block = new byte[1024 * 1024];
+        ThreadLocalRandom.current().nextBytes(block);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(block);
+            long written = 0;
+            while (written < length) {
+                buffer.clear();
+                buffer.limit((int) Math.min(block.length, length - written));
+                written += channel.write(buffer);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(dir);
+    }
+
+    //TestChannel.test01：1KB 非直接缓冲区
+    @Benchmark
+    public long heapBuffer() throws IOException {
+        try (FileChannel inChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel outChannel = openTarget()) {
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            long total = 0;
+            while (inChannel.read(buffer) != -1) {
+                buffer.flip();
+                total += outChannel.write(buffer);
+                buffer.clear();
+            }
+            return total;
+        }
+    }
+
+    //TestChannel.test02：整个文件映射后经 byte[] 复制，超过 2GB 会失败
+    @Benchmark
+    public long mappedByteArray() throws IOException {
+        try (FileChannel inChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel outChannel = openTarget()) {
+            MappedByteBuffer in = inChannel.map(FileChannel.MapMode.READ_ONLY, 0, inChannel.size());
+            MappedByteBuffer out = outChannel.map(FileChannel.MapMode.READ_WRITE, 0, inChannel.size());
+            byte[] bytes = new byte[in.limit()];
+            in.get(bytes);
+            out.put(bytes);
+            return bytes.length;
+        }
+    }
+
+    //TestChannel.test03：单次 transferFrom()
+    @Benchmark
+    public long transferFromOnce() throws IOException {
+        try (FileChannel inChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel outChannel = openTarget()) {
+            return outChannel.transferFrom(inChannel, 0, inChannel.size());
+        }
+    }
+
+    //TestChannel.test04：100B + 1KB 分散读取、聚集写入
+    @Benchmark
+    public long scatterGather() throws IOException {
+        try (FileChannel inChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel outChannel = openTarget()) {
+            ByteBuffer[] buffers = {ByteBuffer.allocate(100), ByteBuffer.allocate(1024)};
+            long total = 0;
+            while (inChannel.read(buffers) != -1) {
+                for (ByteBuffer buffer : buffers) {
+                    buffer.flip();
+                }
+                total += outChannel.write(buffers);
+                for (ByteBuffer buffer : buffers) {
+                    buffer.clear();
+                }
+            }
+            return total;
+        }
+    }
+
+    @Benchmark
+    public long copierBuffered() throws IOException {
+        return FileCopier.copy(source, target, FileCopier.Strategy.BUFFERED);
+    }
+
+    @Benchmark
+    public long copierMapped() throws IOException {
+        return FileCopier.copy(source, target, FileCopier.Strategy.MAPPED);
+    }
+
+    @Benchmark
+    public long copierTransfer() throws IOException {
+        return FileCopier.copy(source, target, FileCopier.Strategy.TRANSFER);
+    }
+
+    @Benchmark
+    public long copierAdaptive() throws IOException {
+        return FileCopier.copy(source, target);
+    }
+
+    private FileChannel openTarget() throws IOException {
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
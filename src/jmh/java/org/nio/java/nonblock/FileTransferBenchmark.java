@@ -0,0 +1,146 @@
+package org.nio.java.nonblock;
+
+import org.nio.java.channel.FileFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 回环地址上传输一个文件：TestBlockingNIO 的 1KB 堆缓冲区循环 与 FileTransferSender/Receiver 的对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileTransferBenchmark {
+
+    @Param({"1048576", "67108864"})
+    private long size;
+
+    private Path sourceDir;
+    private Path targetDir;
+    private Path source;
+    private ServerSocketChannel bufferedServer;
+    private ServerSocketChannel protocolServer;
+    private Thread bufferedThread;
+    private Thread protocolThread;
+
+    @Setup
+    public void setup() throws IOException {
+        sourceDir = Files.createTempDirectory("transfer-src");
+        targetDir = Files.createTempDirectory("transfer-dst");
+        source = FileFixtures.createFile(sourceDir.resolve("source.bin"), size);
+
+        bufferedServer = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        protocolServer = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        bufferedThread = new Thread(this::bufferedServe, "buffered-server");
+        protocolThread = new Thread(this::protocolServe, "protocol-server");
+        bufferedThread.start();
+        protocolThread.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        bufferedServer.close();
+        protocolServer.close();
+        bufferedThread.join();
+        protocolThread.join();
+        FileFixtures.deleteDirectory(sourceDir);
+        FileFixtures.deleteDirectory(targetDir);
+    }
+
+    //TestBlockingNIO.client()：1KB 堆缓冲区读文件、写套接字，shutdownOutput() 后等待服务端关闭
+    @Benchmark
+    public long buffered() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(bufferedServer.getLocalAddress());
+             FileChannel inChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            long total = 0;
+            while (inChannel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += channel.write(buffer);
+                }
+                buffer.clear();
+            }
+            channel.shutdownOutput();
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.clear();
+            }
+            return total;
+        }
+    }
+
+    @Benchmark
+    public long protocol() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(protocolServer.getLocalAddress())) {
+            FileTransferSender sender = new FileTransferSender(channel);
+            long sent = sender.send(source, "protocol.bin");
+            sender.finish();
+            return sent;
+        }
+    }
+
+    //TestBlockingNIO.server() 的接收方式
+    private void bufferedServe() {
+        try {
+            while (true) {
+                try (SocketChannel channel = bufferedServer.accept();
+                     FileChannel outChannel = FileChannel.open(targetDir.resolve("buffered.bin"),
+                             StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                             StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(1024);
+                    while (channel.read(buffer) != -1) {
+                        buffer.flip();
+                        outChannel.write(buffer);
+                        buffer.clear();
+                    }
+                }
+            }
+        } catch (ClosedChannelException e) {
+            //基准测试结束
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void protocolServe() {
+        FileTransferReceiver receiver = new FileTransferReceiver(targetDir);
+        try {
+            while (true) {
+                try (SocketChannel channel = protocolServer.accept()) {
+                    receiver.receiveAll(channel);
+                }
+            }
+        } catch (ClosedChannelException e) {
+            //基准测试结束
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
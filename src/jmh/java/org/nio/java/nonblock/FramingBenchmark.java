@@ -0,0 +1,101 @@
+package org.nio.java.nonblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 小消息分帧：FrameDecoder 以只读视图批量交出帧，对比每个帧拷贝到新数组的做法
+ * <p>
+ * 输入是 FRAMES 个 payload 字节的帧，按 chunk 字节切分后依次解码，模拟一次 read() 读到的数据量
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FramingBenchmark {
+
+    private static final int FRAMES = 1024;
+
+    @Param({"16", "256"})
+    private int payload;
+
+    @Param({"1500", "65536"})
+    private int chunk;
+
+    private ByteBuffer stream;
+    private FrameDecoder decoder;
+    private Blackhole blackhole;
+    private final FrameDecoder.FrameListener consume = frame -> blackhole.consume(frame.get(frame.position()));
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        stream = ByteBuffer.allocateDirect(FRAMES * (payload + LengthPrefix.MAX_HEADER_LENGTH));
+        for (int i = 0; i < FRAMES; i++) {
+            stream.put(LengthPrefix.VARINT.encode(ByteBuffer.allocate(payload)));
+        }
+        stream.flip();
+        decoder = new FrameDecoder(LengthPrefix.VARINT, 1024 * 1024);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void frameDecoder() throws IOException {
+        ByteBuffer in = stream.duplicate();
+        int end = in.limit();
+        while (in.position() < end) {
+            in.limit(Math.min(end, in.position() + chunk));
+            decoder.decode(in, consume);
+        }
+    }
+
+    //常见写法：每个 read() 的数据追加到累积缓冲区，每个帧拷贝到新数组
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void copyPerFrame(CopyState state) throws IOException {
+        ByteBuffer in = stream.duplicate();
+        ByteBuffer cumulation = state.cumulation;
+        cumulation.clear();
+        int end = in.limit();
+        while (in.position() < end) {
+            in.limit(Math.min(end, in.position() + chunk));
+            cumulation.put(in);
+            cumulation.flip();
+            while (true) {
+                int start = cumulation.position();
+                int length = LengthPrefix.VARINT.readLength(cumulation);
+                if (length < 0 || cumulation.remaining() < length) {
+                    cumulation.position(start);
+                    break;
+                }
+                byte[] frame = new byte[length];
+                cumulation.get(frame);
+                blackhole.consume(frame);
+            }
+            cumulation.compact();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CopyState {
+        ByteBuffer cumulation = ByteBuffer.allocate(128 * 1024);
+    }
+}
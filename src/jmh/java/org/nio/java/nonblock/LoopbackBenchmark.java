@@ -0,0 +1,146 @@
+package org.nio.java.nonblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 回环地址上的请求-响应往返：TCP 按 TestBlockingNIO 的阻塞方式，UDP 按 TestNonBlockingUdp 的数据报方式，
+ * 对端是一个原样回写的线程
+ * <p>
+ * 同时统计吞吐量与延迟分位数（SampleTime）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopbackBenchmark {
+
+    @Param({"64", "1024"})
+    private int messageSize;
+
+    private ServerSocketChannel tcpServer;
+    private SocketChannel tcpClient;
+    private DatagramChannel udpServer;
+    private DatagramChannel udpClient;
+    private Thread tcpEcho;
+    private Thread udpEcho;
+    private ByteBuffer tcpBuffer;
+    private ByteBuffer udpBuffer;
+
+    @Setup
+    public void setup() throws IOException {
+        tcpServer = ServerSocketChannel.open();
+        tcpServer.bind(new InetSocketAddress("127.0.0.1", 0));
+        tcpClient = SocketChannel.open(tcpServer.getLocalAddress());
+        tcpClient.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SocketChannel accepted = tcpServer.accept();
+        accepted.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        tcpEcho = new Thread(() -> echoTcp(accepted), "tcp-echo");
+        tcpEcho.start();
+
+        udpServer = DatagramChannel.open();
+        udpServer.bind(new InetSocketAddress("127.0.0.1", 0));
+        udpClient = DatagramChannel.open();
+        udpClient.connect(udpServer.getLocalAddress());
+        udpEcho = new Thread(this::echoUdp, "udp-echo");
+        udpEcho.start();
+
+        tcpBuffer = ByteBuffer.allocateDirect(messageSize);
+        udpBuffer = ByteBuffer.allocateDirect(messageSize);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        tcpClient.close();
+        tcpServer.close();
+        udpClient.close();
+        udpServer.close();
+        tcpEcho.join();
+        udpEcho.join();
+    }
+
+    @Benchmark
+    public int tcpRoundTrip() throws IOException {
+        tcpBuffer.clear();
+        while (tcpBuffer.hasRemaining()) {
+            tcpClient.write(tcpBuffer);
+        }
+        tcpBuffer.clear();
+        while (tcpBuffer.hasRemaining()) {
+            if (tcpClient.read(tcpBuffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        return tcpBuffer.position();
+    }
+
+    @Benchmark
+    public int udpRoundTrip() throws IOException {
+        udpBuffer.clear();
+        udpClient.write(udpBuffer);
+        udpBuffer.clear();
+        return udpClient.read(udpBuffer);
+    }
+
+    private void echoTcp(SocketChannel channel) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            //客户端关闭
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void echoUdp() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try {
+            while (true) {
+                buffer.clear();
+                SocketAddress from = udpServer.receive(buffer);
+                buffer.flip();
+                udpServer.send(buffer, from);
+            }
+        } catch (ClosedChannelException e) {
+            //基准测试结束
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
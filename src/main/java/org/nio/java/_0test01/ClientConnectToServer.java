@@ -1,5 +1,6 @@
 package org.nio.java._0test01;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.channels.SelectionKey;
@@ -9,12 +10,15 @@ import java.util.Iterator;
 
 /**
  * Created by XJX on 2017/3/13.
+ * 单次非阻塞连接示例；需要连接池、流水线与超时的场景使用 nonblock.NioClient
  */
 public class ClientConnectToServer {
 
+    private static final long CONNECT_TIMEOUT_MILLIS = 3000;
+
     public static void main(String[] args) {
 //        ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<String>();
-//        ExecutorService executorService = ExecutorServiceSingleton.getInstance();
+//        ExecutorService executorService = ExecutorRegistry.getDefault().executor(ExecutorPurpose.IO_OFFLOAD);
 
         SocketChannel channel = null;
         Selector selector = null;
@@ -22,18 +26,42 @@ public class ClientConnectToServer {
         try {
             channel = SocketChannel.open();
             channel.configureBlocking(false);
-            channel.connect(new InetSocketAddress("120.55.94.78", 9999));
+            if (channel.connect(new InetSocketAddress("120.55.94.78", 9999))) {
+                //本机连接可能立即完成
+                System.out.println("已连接：" + channel.getRemoteAddress());
+                return;
+            }
             selector = Selector.open();
             channel.register(selector, SelectionKey.OP_CONNECT);
-            //selector.select();
+            //OP_CONNECT 就绪只表示连接有了结果，必须调用 finishConnect() 才算完成（失败时在这里抛出异常）
+            if (selector.select(CONNECT_TIMEOUT_MILLIS) == 0) {
+                System.out.println("连接超时");
+                return;
+            }
             Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
             while (iterator.hasNext()) {
                 SelectionKey key = iterator.next();
                 iterator.remove();
-
+                if (key.isConnectable() && channel.finishConnect()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    System.out.println("已连接：" + channel.getRemoteAddress());
+                }
             }
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            close(channel);
+            close(selector);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 }
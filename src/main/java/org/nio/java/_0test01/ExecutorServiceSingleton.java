@@ -1,22 +1,24 @@
 package org.nio.java._0test01;
 
+import org.nio.java.executor.ExecutorPurpose;
+import org.nio.java.executor.ExecutorRegistry;
+
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * 以单例设计模式创建线程池，减少创建线程所需的开销
  * Created by XJX on 2017/3/13.
+ *
+ * @deprecated 按用途使用 ExecutorRegistry.getDefault().executor(ExecutorPurpose)，
+ * 本类只是 IO_OFFLOAD 线程池的别名（有界队列，队列满时抛出 RejectedExecutionException）
  */
+@Deprecated
 public class ExecutorServiceSingleton {
 
     private ExecutorServiceSingleton() {
     }
 
-    private static class ExecutorServiceFactory {
-        private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(20);
-    }
-
     public static final ExecutorService getInstance() {
-        return ExecutorServiceFactory.INSTANCE;
+        return ExecutorRegistry.getDefault().executor(ExecutorPurpose.IO_OFFLOAD);
     }
 }
@@ -0,0 +1,428 @@
+package org.nio.java.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 直接缓冲区池：
+ * <p>
+ * 一、按 2 的幂划分规格（size class），acquire(size) 返回不小于 size 的最小规格的直接缓冲区，
+ * position 为 0，limit 为 size。超过最大规格的请求直接 allocateDirect()，release() 时丢弃
+ * <p>
+ * 二、两级缓存：
+ * 线程本地缓存：每个线程每个规格缓存少量缓冲区，acquire/release 在同一线程时无需任何同步
+ * 共享缓存（arena）：线程本地缓存未命中或已满时使用，每个规格一个加锁的数组栈，容量按字节数限制
+ * <p>
+ * 三、泄漏检测：setLeakTracking(true) 后记录每个未归还缓冲区的申请位置，
+ * 通过 outstandingAllocations() 取得；关闭时只统计 acquire/release 次数，不产生额外分配。
+ * 开启之前申请的缓冲区照常归还，只是不出现在 outstandingAllocations() 中
+ * <p>
+ * 四、重复归还：开启泄漏检测后，缓存中的空闲缓冲区还按对象身份记录在分段加锁的集合中，
+ * 归还一个已在缓存中的缓冲区抛出 IllegalStateException. 这会给每次 acquire/release 加一次锁，
+ * 因此只在泄漏检测（调试）时开启；关闭时重复归还不会被发现，同一个缓冲区可能被缓存两次、分给两个使用者.
+ * 应在没有并发 acquire/release 时（例如启动时、测试中）切换
+ * <p>
+ * 稳定状态下（缓冲区都能及时归还），acquire/release 不分配任何对象
+ */
+public final class BufferPool {
+
+    private static final int DEFAULT_MIN_SIZE = 512;
+    private static final int DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+    private static final long DEFAULT_MAX_POOLED_BYTES_PER_CLASS = 16L * 1024 * 1024;
+    private static final int THREAD_CACHE_BYTES = 1024 * 1024;
+    private static final int THREAD_CACHE_MAX_COUNT = 16;
+
+    private final int minShift;
+    private final int maxSize;
+    private final Arena[] arenas;
+    private final int[] threadCacheCapacity;
+    private final ThreadLocal<ThreadCache> threadCache;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder threadCacheHits = new LongAdder();
+    private final LongAdder arenaHits = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder unpooledAllocations = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    private volatile boolean leakTracking;
+    private final Map<ByteBuffer, Throwable> outstanding = Collections.synchronizedMap(
+            new IdentityHashMap<ByteBuffer, Throwable>());
+    private final FreeSet free = new FreeSet();
+
+    private BufferPool() {
+        this(DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_MAX_POOLED_BYTES_PER_CLASS);
+    }
+
+    /**
+     * @param minSize                最小规格，向上取整到 2 的幂
+     * @param maxSize                最大规格，向上取整到 2 的幂
+     * @param maxPooledBytesPerClass 每个规格在共享缓存中最多保留的字节数
+     */
+    public BufferPool(int minSize, int maxSize, long maxPooledBytesPerClass) {
+        if (minSize <= 0 || maxSize < minSize) {
+            throw new IllegalArgumentException("invalid size range: " + minSize + ".." + maxSize);
+        }
+        this.minShift = ceilLog2(minSize);
+        int maxShift = ceilLog2(maxSize);
+        this.maxSize = 1 << maxShift;
+        int classes = maxShift - minShift + 1;
+        this.arenas = new Arena[classes];
+        this.threadCacheCapacity = new int[classes];
+        for (int i = 0; i < classes; i++) {
+            int size = 1 << (minShift + i);
+            arenas[i] = new Arena((int) Math.max(1, maxPooledBytesPerClass / size));
+            threadCacheCapacity[i] = Math.min(THREAD_CACHE_MAX_COUNT, Math.max(1, THREAD_CACHE_BYTES / size));
+        }
+        this.threadCache = ThreadLocal.withInitial(() -> new ThreadCache(threadCacheCapacity));
+    }
+
+    private static class BufferPoolFactory {
+        private static final BufferPool INSTANCE = new BufferPool();
+    }
+
+    /**
+     * 进程内共享的默认缓冲区池.
+     */
+    public static BufferPool getDefault() {
+        return BufferPoolFactory.INSTANCE;
+    }
+
+    /**
+     * 申请一个容量不小于 size 的直接缓冲区，position 为 0，limit 为 size.
+     */
+    public ByteBuffer acquire(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("negative size: " + size);
+        }
+        acquired.increment();
+        ByteBuffer buffer;
+        if (size > maxSize) {
+            unpooledAllocations.increment();
+            buffer = allocate(size);
+        } else {
+            int index = sizeClass(size);
+            buffer = threadCache.get().poll(index);
+            if (buffer != null) {
+                threadCacheHits.increment();
+                unmarkFree(buffer);
+            } else if ((buffer = arenas[index].poll()) != null) {
+                arenaHits.increment();
+                unmarkFree(buffer);
+            } else {
+                buffer = allocate(1 << (minShift + index));
+            }
+        }
+        buffer.limit(size);
+        if (leakTracking) {
+            outstanding.put(buffer, new Throwable("buffer acquired here, capacity " + buffer.capacity()));
+        }
+        return buffer;
+    }
+
+    /**
+     * 归还 acquire() 得到的缓冲区，归还后调用方不能再使用它.
+     * 不能归还 slice()/duplicate() 得到的视图.
+     *
+     * @throws IllegalArgumentException 不是本池规格的直接缓冲区
+     * @throws IllegalStateException    开启泄漏检测时，缓冲区已经归还过（仍在缓存中）
+     */
+    public void release(ByteBuffer buffer) {
+        //先校验，校验失败时计数、泄漏记录与缓存都不变
+        int capacity = buffer.capacity();
+        boolean pooled = capacity <= maxSize;
+        int index = pooled ? sizeClass(capacity) : -1;
+        if (!buffer.isDirect() || pooled && 1 << (minShift + index) != capacity) {
+            throw new IllegalArgumentException("not a pooled buffer: " + buffer);
+        }
+        boolean tracking = leakTracking;
+        if (pooled && tracking && !free.add(buffer)) {
+            throw new IllegalStateException("buffer released twice: " + buffer);
+        }
+        released.increment();
+        if (tracking) {
+            //开启泄漏检测之前申请的缓冲区不在记录中，照常归还
+            outstanding.remove(buffer);
+        }
+        if (!pooled) {
+            return;
+        }
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (!threadCache.get().offer(index, buffer) && !arenas[index].offer(buffer)) {
+            unmarkFree(buffer);
+            discarded.increment();
+        }
+    }
+
+    /**
+     * 把当前线程缓存的缓冲区交还共享缓存，线程即将结束时调用.
+     */
+    public void trimThreadCache() {
+        ThreadCache cache = threadCache.get();
+        for (int i = 0; i < arenas.length; i++) {
+            ByteBuffer buffer;
+            while ((buffer = cache.poll(i)) != null) {
+                if (!arenas[i].offer(buffer)) {
+                    unmarkFree(buffer);
+                    discarded.increment();
+                }
+            }
+        }
+        threadCache.remove();
+    }
+
+    /**
+     * 开启或关闭泄漏检测与重复归还检测. 两次切换之间归还的缓冲区才会被检测，切换时清空之前的记录.
+     */
+    public void setLeakTracking(boolean leakTracking) {
+        this.leakTracking = leakTracking;
+        free.clear();
+        if (!leakTracking) {
+            outstanding.clear();
+        }
+    }
+
+    /**
+     * 开启泄漏检测后仍未归还的缓冲区的申请位置.
+     */
+    public List<Throwable> outstandingAllocations() {
+        synchronized (outstanding) {
+            return new ArrayList<>(outstanding.values());
+        }
+    }
+
+    public long acquiredCount() {
+        return acquired.sum();
+    }
+
+    public long releasedCount() {
+        return released.sum();
+    }
+
+    /**
+     * 已申请未归还的缓冲区个数，稳定状态下应当保持不变，持续增长说明有泄漏.
+     */
+    public long outstandingCount() {
+        return acquired.sum() - released.sum();
+    }
+
+    public long threadCacheHits() {
+        return threadCacheHits.sum();
+    }
+
+    public long arenaHits() {
+        return arenaHits.sum();
+    }
+
+    /**
+     * 真正调用 allocateDirect() 的次数.
+     */
+    public long allocationCount() {
+        return allocations.sum();
+    }
+
+    public long allocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    public long unpooledAllocations() {
+        return unpooledAllocations.sum();
+    }
+
+    /**
+     * 缓存已满而被丢弃的缓冲区个数，持续增长说明共享缓存容量偏小.
+     */
+    public long discardedCount() {
+        return discarded.sum();
+    }
+
+    /**
+     * 共享缓存中各规格空闲缓冲区的字节数之和，不含线程本地缓存.
+     */
+    public long pooledBytes() {
+        long bytes = 0;
+        for (int i = 0; i < arenas.length; i++) {
+            bytes += (long) arenas[i].size() << (minShift + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * 第 index 个规格的共享缓存占用情况：已缓存个数 / 上限.
+     */
+    public String occupancy(int index) {
+        return arenas[index].size() + "/" + arenas[index].capacity();
+    }
+
+    public int sizeClassCount() {
+        return arenas.length;
+    }
+
+    public int sizeOfClass(int index) {
+        return 1 << (minShift + index);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("BufferPool[acquired=").append(acquiredCount())
+                .append(", outstanding=").append(outstandingCount())
+                .append(", threadCacheHits=").append(threadCacheHits())
+                .append(", arenaHits=").append(arenaHits())
+                .append(", allocations=").append(allocationCount())
+                .append(", allocatedBytes=").append(allocatedBytes())
+                .append(", pooledBytes=").append(pooledBytes())
+                .append(", unpooled=").append(unpooledAllocations())
+                .append(", discarded=").append(discardedCount())
+                .append(", occupancy={");
+        for (int i = 0; i < arenas.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(sizeOfClass(i)).append('=').append(occupancy(i));
+        }
+        return sb.append("}]").toString();
+    }
+
+    //缓冲区离开缓存（被取走或被丢弃），只在泄漏检测时记录过
+    private void unmarkFree(ByteBuffer buffer) {
+        if (leakTracking) {
+            free.remove(buffer);
+        }
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        allocations.increment();
+        allocatedBytes.add(capacity);
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    private int sizeClass(int size) {
+        return size <= (1 << minShift) ? 0 : ceilLog2(size) - minShift;
+    }
+
+    private static int ceilLog2(int value) {
+        return value <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(value - 1);
+    }
+
+    //共享缓存：加锁的数组栈，后进先出，刚归还的缓冲区更可能还在 CPU 缓存中
+    private static final class Arena {
+        private final ByteBuffer[] stack;
+        private int size;
+
+        Arena(int capacity) {
+            this.stack = new ByteBuffer[capacity];
+        }
+
+        synchronized ByteBuffer poll() {
+            if (size == 0) {
+                return null;
+            }
+            ByteBuffer buffer = stack[--size];
+            stack[size] = null;
+            return buffer;
+        }
+
+        synchronized boolean offer(ByteBuffer buffer) {
+            if (size == stack.length) {
+                return false;
+            }
+            stack[size++] = buffer;
+            return true;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        int capacity() {
+            return stack.length;
+        }
+    }
+
+    //缓存中的空闲缓冲区，按对象身份分段加锁；IdentityHashMap 开放寻址，插入删除不分配节点对象
+    private static final class FreeSet {
+        private static final int SEGMENTS = 16;
+
+        private final Segment[] segments = new Segment[SEGMENTS];
+
+        FreeSet() {
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment();
+            }
+        }
+
+        //已在集合中时返回 false
+        boolean add(ByteBuffer buffer) {
+            Segment segment = segment(buffer);
+            synchronized (segment) {
+                return segment.buffers.put(buffer, Boolean.TRUE) == null;
+            }
+        }
+
+        void remove(ByteBuffer buffer) {
+            Segment segment = segment(buffer);
+            synchronized (segment) {
+                segment.buffers.remove(buffer);
+            }
+        }
+
+        void clear() {
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    segment.buffers.clear();
+                }
+            }
+        }
+
+        private Segment segment(ByteBuffer buffer) {
+            return segments[System.identityHashCode(buffer) & (SEGMENTS - 1)];
+        }
+    }
+
+    private static final class Segment {
+        final IdentityHashMap<ByteBuffer, Boolean> buffers = new IdentityHashMap<>();
+    }
+
+    //线程本地缓存，只被所属线程访问
+    private static final class ThreadCache {
+        private final ByteBuffer[][] stacks;
+        private final int[] sizes;
+
+        ThreadCache(int[] capacity) {
+            stacks = new ByteBuffer[capacity.length][];
+            sizes = new int[capacity.length];
+            for (int i = 0; i < capacity.length; i++) {
+                stacks[i] = new ByteBuffer[capacity[i]];
+            }
+        }
+
+        ByteBuffer poll(int index) {
+            if (sizes[index] == 0) {
+                return null;
+            }
+            ByteBuffer[] stack = stacks[index];
+            ByteBuffer buffer = stack[--sizes[index]];
+            stack[sizes[index]] = null;
+            return buffer;
+        }
+
+        boolean offer(int index, ByteBuffer buffer) {
+            ByteBuffer[] stack = stacks[index];
+            if (sizes[index] == stack.length) {
+                return false;
+            }
+            stack[sizes[index]++] = buffer;
+            return true;
+        }
+    }
+}
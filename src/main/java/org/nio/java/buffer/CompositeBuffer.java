@@ -0,0 +1,430 @@
+package org.nio.java.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 把多个 ByteBuffer 当作一段连续的只读区域，非线程安全：
+ * <p>
+ * 一、addComponent() 只保存组件剩余部分的 slice()，与原缓冲区共享内容、不拷贝，
+ * 原缓冲区之后的 position/limit 变化不影响组合缓冲区；协议头（堆缓冲区）、消息体（直接缓冲区）
+ * 与文件区域（MappedFile.slice()）可以直接拼在一起
+ * <p>
+ * 二、索引是整个区域中的逻辑下标：get/getShort/getInt/getLong 落在一个组件内时直接读该组件，
+ * 跨越组件边界时逐字节拼出；顺序读取时记住上一次命中的组件，不必每次二分查找
+ * <p>
+ * 三、slice() 返回共享内容的新 CompositeBuffer；indexOf() 查找分隔符，分隔符可以跨越组件边界
+ * <p>
+ * 四、write(GatheringByteChannel) 把 position 之后的全部组件用一次聚集写入写出，
+ * 每个组件的写视图只创建一次，重复写（例如非阻塞通道只写出一部分）不分配对象
+ */
+public final class CompositeBuffer {
+
+    private static final int INITIAL_COMPONENTS = 4;
+
+    private ByteBuffer[] components = new ByteBuffer[INITIAL_COMPONENTS];
+    //ends[i] 为第 i 个组件之后的逻辑下标，即前 i + 1 个组件的总长度
+    private int[] ends = new int[INITIAL_COMPONENTS];
+    private ByteBuffer[] writeViews = new ByteBuffer[INITIAL_COMPONENTS];
+    private int count;
+    private int length;
+
+    private int position;
+    private int lastComponent;
+    private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+    public CompositeBuffer() {
+    }
+
+    /**
+     * 依次添加 buffers 中每个缓冲区的剩余部分.
+     */
+    public CompositeBuffer(ByteBuffer... buffers) {
+        for (ByteBuffer buffer : buffers) {
+            addComponent(buffer);
+        }
+    }
+
+    /**
+     * 在末尾追加 buffer 的剩余部分（position 到 limit），不拷贝、不改变 buffer 的 position，空缓冲区被忽略.
+     */
+    public CompositeBuffer addComponent(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return this;
+        }
+        if (Integer.MAX_VALUE - length < buffer.remaining()) {
+            throw new IllegalArgumentException("composite length exceeds " + Integer.MAX_VALUE);
+        }
+        if (count == components.length) {
+            grow();
+        }
+        ByteBuffer slice = buffer.slice().order(order);
+        components[count] = slice;
+        length += slice.remaining();
+        ends[count] = length;
+        count++;
+        return this;
+    }
+
+    /**
+     * 组件个数.
+     */
+    public int componentCount() {
+        return count;
+    }
+
+    /**
+     * 第 i 个组件（共享内容的 slice，position 为 0）.
+     */
+    public ByteBuffer component(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("component " + i + " of " + count);
+        }
+        return components[i].duplicate().order(order);
+    }
+
+    /**
+     * 所有组件的总字节数.
+     */
+    public int length() {
+        return length;
+    }
+
+    public int position() {
+        return position;
+    }
+
+    public CompositeBuffer position(int position) {
+        if (position < 0 || position > length) {
+            throw new IndexOutOfBoundsException("position " + position + " out of [0, " + length + "]");
+        }
+        this.position = position;
+        return this;
+    }
+
+    public int remaining() {
+        return length - position;
+    }
+
+    public boolean hasRemaining() {
+        return position < length;
+    }
+
+    public ByteOrder order() {
+        return order;
+    }
+
+    /**
+     * 多字节读取使用的字节序，默认大端.
+     */
+    public CompositeBuffer order(ByteOrder order) {
+        this.order = order;
+        for (int i = 0; i < count; i++) {
+            components[i].order(order);
+        }
+        return this;
+    }
+
+    public byte get(int index) {
+        checkIndex(index, 1);
+        int i = componentIndex(index);
+        return components[i].get(index - start(i));
+    }
+
+    public short getShort(int index) {
+        checkIndex(index, 2);
+        int i = componentIndex(index);
+        int offset = index - start(i);
+        if (offset + 2 <= components[i].limit()) {
+            return components[i].getShort(offset);
+        }
+        return (short) getAcross(index, 2);
+    }
+
+    public int getInt(int index) {
+        checkIndex(index, 4);
+        int i = componentIndex(index);
+        int offset = index - start(i);
+        if (offset + 4 <= components[i].limit()) {
+            return components[i].getInt(offset);
+        }
+        return (int) getAcross(index, 4);
+    }
+
+    public long getLong(int index) {
+        checkIndex(index, 8);
+        int i = componentIndex(index);
+        int offset = index - start(i);
+        if (offset + 8 <= components[i].limit()) {
+            return components[i].getLong(offset);
+        }
+        return getAcross(index, 8);
+    }
+
+    public byte get() {
+        byte value = get(position);
+        position++;
+        return value;
+    }
+
+    public short getShort() {
+        short value = getShort(position);
+        position += 2;
+        return value;
+    }
+
+    public int getInt() {
+        int value = getInt(position);
+        position += 4;
+        return value;
+    }
+
+    public long getLong() {
+        long value = getLong(position);
+        position += 8;
+        return value;
+    }
+
+    /**
+     * 从 index 开始复制 dst.remaining() 个字节到 dst.
+     */
+    public CompositeBuffer get(int index, ByteBuffer dst) {
+        int n = dst.remaining();
+        checkIndex(index, n);
+        int i = componentIndex(index);
+        while (n > 0) {
+            ByteBuffer component = components[i].duplicate();
+            int offset = index - start(i);
+            int chunk = Math.min(n, component.limit() - offset);
+            component.position(offset);
+            component.limit(offset + chunk);
+            dst.put(component);
+            index += chunk;
+            n -= chunk;
+            i++;
+        }
+        return this;
+    }
+
+    /**
+     * 从 index 开始复制 length 个字节到 dst[offset..].
+     */
+    public CompositeBuffer get(int index, byte[] dst, int offset, int length) {
+        return get(index, ByteBuffer.wrap(dst, offset, length));
+    }
+
+    /**
+     * 从 index 开始、长度为 length 的子区域，与本缓冲区共享内容，position 为 0，字节序相同.
+     */
+    public CompositeBuffer slice(int index, int length) {
+        checkIndex(index, length);
+        CompositeBuffer slice = new CompositeBuffer().order(order);
+        if (length == 0) {
+            return slice;
+        }
+        int i = componentIndex(index);
+        int end = index + length;
+        while (index < end) {
+            ByteBuffer component = components[i].duplicate();
+            int offset = index - start(i);
+            int chunk = Math.min(end - index, component.limit() - offset);
+            component.position(offset);
+            component.limit(offset + chunk);
+            slice.addComponent(component);
+            index += chunk;
+            i++;
+        }
+        return slice;
+    }
+
+    /**
+     * position 之后剩余部分的子区域.
+     */
+    public CompositeBuffer slice() {
+        return slice(position, remaining());
+    }
+
+    /**
+     * [from, to) 中第一个等于 value 的字节的下标，找不到返回 -1.
+     */
+    public int indexOf(byte value, int from, int to) {
+        from = Math.max(from, 0);
+        to = Math.min(to, length);
+        if (from >= to) {
+            return -1;
+        }
+        for (int i = componentIndex(from); i < count && start(i) < to; i++) {
+            ByteBuffer component = components[i];
+            int start = start(i);
+            int end = Math.min(to, ends[i]) - start;
+            for (int j = Math.max(from - start, 0); j < end; j++) {
+                if (component.get(j) == value) {
+                    lastComponent = i;
+                    return start + j;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * from 之后第一次出现 delimiter 的起始下标，delimiter 可以跨越组件边界，找不到返回 -1.
+     */
+    public int indexOf(byte[] delimiter, int from) {
+        if (delimiter.length == 0) {
+            throw new IllegalArgumentException("empty delimiter");
+        }
+        int last = length - delimiter.length;
+        int index = from;
+        while (index <= last) {
+            index = indexOf(delimiter[0], index, last + 1);
+            if (index < 0) {
+                return -1;
+            }
+            if (matches(index, delimiter)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * 把 position 之后的字节聚集写入 channel，position 前进实际写出的字节数.
+     *
+     * @return 写出的字节数，非阻塞通道可能只写出一部分
+     */
+    public long write(GatheringByteChannel channel) throws IOException {
+        if (!hasRemaining()) {
+            return 0;
+        }
+        int first = componentIndex(position);
+        for (int i = first; i < count; i++) {
+            ByteBuffer view = writeViews[i];
+            if (view == null) {
+                view = components[i].duplicate();
+                writeViews[i] = view;
+            }
+            view.clear();
+        }
+        writeViews[first].position(position - start(first));
+        long n = channel.write(writeViews, first, count - first);
+        position += (int) n;
+        return n;
+    }
+
+    /**
+     * position 之后剩余部分对应的缓冲区数组（共享内容的视图），用于交给其他接受 ByteBuffer[] 的接口.
+     */
+    public ByteBuffer[] nioBuffers() {
+        if (!hasRemaining()) {
+            return new ByteBuffer[0];
+        }
+        int first = componentIndex(position);
+        ByteBuffer[] buffers = new ByteBuffer[count - first];
+        for (int i = first; i < count; i++) {
+            buffers[i - first] = components[i].duplicate().order(order);
+        }
+        buffers[0].position(position - start(first));
+        return buffers;
+    }
+
+    /**
+     * position 之后的字节按 charset 解码；只有一个组件且为堆缓冲区时不拷贝.
+     */
+    public String toString(Charset charset) {
+        if (!hasRemaining()) {
+            return "";
+        }
+        int i = componentIndex(position);
+        ByteBuffer component = components[i];
+        if (ends[i] == length && component.hasArray()) {
+            return new String(component.array(), component.arrayOffset() + position - start(i), remaining(), charset);
+        }
+        byte[] bytes = new byte[remaining()];
+        get(position, bytes, 0, bytes.length);
+        return new String(bytes, charset);
+    }
+
+    @Override
+    public String toString() {
+        return "CompositeBuffer[pos=" + position + " len=" + length + " components=" + count + "]";
+    }
+
+    private boolean matches(int index, byte[] delimiter) {
+        for (int j = 1; j < delimiter.length; j++) {
+            if (get(index + j) != delimiter[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //跨越组件边界的多字节值，按字节序逐字节拼出
+    private long getAcross(int index, int size) {
+        long value = 0;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int j = 0; j < size; j++) {
+                value = value << 8 | (get(index + j) & 0xFF);
+            }
+        } else {
+            for (int j = size - 1; j >= 0; j--) {
+                value = value << 8 | (get(index + j) & 0xFF);
+            }
+        }
+        return value;
+    }
+
+    //index 所在的组件，先看上一次命中的组件及其后一个，再二分查找
+    private int componentIndex(int index) {
+        int last = lastComponent;
+        if (last < count && index >= start(last)) {
+            if (index < ends[last]) {
+                return last;
+            }
+            if (last + 1 < count && index < ends[last + 1]) {
+                lastComponent = last + 1;
+                return last + 1;
+            }
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] <= index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        lastComponent = low;
+        return low;
+    }
+
+    private int start(int i) {
+        return i == 0 ? 0 : ends[i - 1];
+    }
+
+    private void checkIndex(int index, int size) {
+        if (index < 0 || size < 0 || index > length - size) {
+            throw new IndexOutOfBoundsException("index " + index + " size " + size + " exceeds length " + length);
+        }
+    }
+
+    private void grow() {
+        int capacity = components.length * 2;
+        ByteBuffer[] larger = new ByteBuffer[capacity];
+        System.arraycopy(components, 0, larger, 0, count);
+        components = larger;
+        int[] largerEnds = new int[capacity];
+        System.arraycopy(ends, 0, largerEnds, 0, count);
+        ends = largerEnds;
+        ByteBuffer[] largerViews = new ByteBuffer[capacity];
+        System.arraycopy(writeViews, 0, largerViews, 0, count);
+        writeViews = largerViews;
+    }
+}
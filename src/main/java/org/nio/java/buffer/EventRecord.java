@@ -0,0 +1,135 @@
+package org.nio.java.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 事件记录的享元，代替 TestNonBlockingUdp 中 "时间:\n内容" 的字符串与 SocketTest 中 writeUTF() 的报文
+ * <p>
+ * 布局（templateId = 1，version = 1，小端）：
+ * <pre>
+ * 偏移  长度  字段
+ * 0     8     timestampNanos  long
+ * 8     8     sequence        long
+ * 16    4     sourceId        int
+ * 20    2     type            short
+ * 22    2     （保留，对齐到 8 字节）
+ * 24          text            [4 字节长度][UTF-8]
+ *             samples         [4 字节个数][对齐到 8][long...]
+ * </pre>
+ * 编码：wrapForEncode() 后按任意顺序设置定长字段，再依次调用 text()、samples()；
+ * 解码：wrapForDecode() 后随意读取定长字段，变长字段按 text、samples 的顺序读取
+ */
+public class EventRecord extends Flyweight {
+
+    public static final int TEMPLATE_ID = 1;
+    public static final int VERSION = 1;
+    public static final int BLOCK_LENGTH = 24;
+
+    private static final int TIMESTAMP_OFFSET = 0;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int SOURCE_ID_OFFSET = 16;
+    private static final int TYPE_OFFSET = 20;
+
+    @Override
+    public int templateId() {
+        return TEMPLATE_ID;
+    }
+
+    @Override
+    public int blockLength() {
+        return BLOCK_LENGTH;
+    }
+
+    @Override
+    public int version() {
+        return VERSION;
+    }
+
+    @Override
+    public EventRecord wrapForEncode(ByteBuffer buffer, int offset) {
+        super.wrapForEncode(buffer, offset);
+        this.buffer.putShort(block + TYPE_OFFSET + 2, (short) 0);
+        return this;
+    }
+
+    @Override
+    public EventRecord wrapForDecode(ByteBuffer buffer, int offset) {
+        super.wrapForDecode(buffer, offset);
+        return this;
+    }
+
+    public long timestampNanos() {
+        return buffer.getLong(block + TIMESTAMP_OFFSET);
+    }
+
+    public EventRecord timestampNanos(long value) {
+        buffer.putLong(block + TIMESTAMP_OFFSET, value);
+        return this;
+    }
+
+    public long sequence() {
+        return buffer.getLong(block + SEQUENCE_OFFSET);
+    }
+
+    public EventRecord sequence(long value) {
+        buffer.putLong(block + SEQUENCE_OFFSET, value);
+        return this;
+    }
+
+    public int sourceId() {
+        return buffer.getInt(block + SOURCE_ID_OFFSET);
+    }
+
+    public EventRecord sourceId(int value) {
+        buffer.putInt(block + SOURCE_ID_OFFSET, value);
+        return this;
+    }
+
+    public short type() {
+        return buffer.getShort(block + TYPE_OFFSET);
+    }
+
+    public EventRecord type(short value) {
+        buffer.putShort(block + TYPE_OFFSET, value);
+        return this;
+    }
+
+    /**
+     * 第一个变长字段.
+     */
+    public EventRecord text(CharSequence value) {
+        putVarString(value);
+        return this;
+    }
+
+    /**
+     * 第一个变长字段，追加到 dst.
+     */
+    public EventRecord getText(StringBuilder dst) {
+        getVarString(dst);
+        return this;
+    }
+
+    /**
+     * 第二个变长字段.
+     */
+    public EventRecord samples(long[] values, int from, int count) {
+        putLongArray(values, from, count);
+        return this;
+    }
+
+    /**
+     * 第二个变长字段的元素个数，在读完 text 之后调用.
+     */
+    public int samplesCount() {
+        return varLength();
+    }
+
+    /**
+     * 第二个变长字段，复制到 dst，返回元素个数.
+     */
+    public int getSamples(long[] dst) {
+        return getLongArray(dst);
+    }
+}
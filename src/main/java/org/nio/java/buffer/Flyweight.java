@@ -0,0 +1,406 @@
+package org.nio.java.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 二进制记录的享元基类：不把消息解码成对象，而是直接在（直接）缓冲区的固定偏移量上读写基本类型字段，
+ * 同一个享元对象可以反复 wrap 到不同的位置，编解码过程不分配对象
+ * <p>
+ * 一、记录布局：8 字节记录头 [templateId u16][version u16][blockLength u16][保留 u16]，
+ * 之后是 blockLength 字节的定长块（基本类型字段，偏移量在子类中写死），再之后是变长字段
+ * <p>
+ * 二、变长字段按声明顺序依次排列，只能按顺序写入、按顺序读取（与 SBE 相同）：
+ * 字符串与字节串为 [4 字节长度][数据]；基本类型数组为 [4 字节个数][对齐填充][元素]，
+ * 元素按自身大小对齐，通过 IntBuffer / LongBuffer / DoubleBuffer 视图批量复制
+ * <p>
+ * 三、字节序固定为小端（x86 与 ARM 的本机字节序，读写不需要交换字节）. 读写通过缓冲区的一个小端 duplicate() 进行，
+ * 不改变调用方缓冲区的字节序；duplicate() 按缓冲区缓存，反复 wrap 同一个缓冲区不分配对象
+ * <p>
+ * 四、解码时读取不超过缓冲区的 limit，编码时写入不超过 limit，越界抛出 IndexOutOfBoundsException；
+ * 定长块比本版本长的记录（新版本追加了字段）按记录头中的 blockLength 跳过多出的部分
+ * <p>
+ * 不是线程安全的，每个线程使用自己的享元对象
+ */
+public abstract class Flyweight {
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * 记录头长度.
+     */
+    public static final int HEADER_LENGTH = 8;
+
+    private static final int TEMPLATE_ID_OFFSET = 0;
+    private static final int VERSION_OFFSET = 2;
+    private static final int BLOCK_LENGTH_OFFSET = 4;
+
+    //调用方的缓冲区与它的小端视图，子类通过 buffer 读写定长块
+    private ByteBuffer source;
+    protected ByteBuffer buffer;
+    //记录的起始位置与定长块的起始位置
+    protected int offset;
+    protected int block;
+    //下一个变长字段的位置，也是目前为止记录的结尾
+    private int limit;
+
+    //按缓冲区缓存的类型视图，换了缓冲区才重新创建
+    private ByteBuffer viewOwner;
+    private IntBuffer intView;
+    private LongBuffer longView;
+    private DoubleBuffer doubleView;
+
+    /**
+     * 记录类型，写在记录头中，解码时校验.
+     */
+    public abstract int templateId();
+
+    /**
+     * 本版本定长块的字节数.
+     */
+    public abstract int blockLength();
+
+    /**
+     * 本版本的编号，新版本只能在定长块末尾追加字段、在变长字段末尾追加字段.
+     */
+    public abstract int version();
+
+    /**
+     * 在 offset 处写入记录头，准备按顺序写入字段.
+     */
+    public Flyweight wrapForEncode(ByteBuffer buffer, int offset) {
+        attach(buffer, offset);
+        checkLimit(offset + HEADER_LENGTH + blockLength());
+        this.buffer.putShort(offset + TEMPLATE_ID_OFFSET, (short) templateId());
+        this.buffer.putShort(offset + VERSION_OFFSET, (short) version());
+        this.buffer.putShort(offset + BLOCK_LENGTH_OFFSET, (short) blockLength());
+        this.buffer.putShort(offset + BLOCK_LENGTH_OFFSET + 2, (short) 0);
+        block = offset + HEADER_LENGTH;
+        limit = block + blockLength();
+        return this;
+    }
+
+    /**
+     * 读取 offset 处的记录头，校验记录类型，准备读取字段.
+     *
+     * @throws IllegalArgumentException 记录类型不符
+     */
+    public Flyweight wrapForDecode(ByteBuffer buffer, int offset) {
+        attach(buffer, offset);
+        checkLimit(offset + HEADER_LENGTH);
+        int templateId = this.buffer.getShort(offset + TEMPLATE_ID_OFFSET) & 0xFFFF;
+        if (templateId != templateId()) {
+            throw new IllegalArgumentException("expected template " + templateId() + " but was " + templateId);
+        }
+        int actualBlockLength = this.buffer.getShort(offset + BLOCK_LENGTH_OFFSET) & 0xFFFF;
+        if (actualBlockLength < blockLength()) {
+            throw new IllegalArgumentException("block of " + actualBlockLength + " bytes is shorter than "
+                    + blockLength());
+        }
+        block = offset + HEADER_LENGTH;
+        limit = block + actualBlockLength;
+        checkLimit(limit);
+        return this;
+    }
+
+    /**
+     * 读取 offset 处记录头中的记录类型，用来决定用哪个享元解码. 不改变 buffer 的字节序.
+     */
+    public static int templateIdAt(ByteBuffer buffer, int offset) {
+        //按小端逐字节拼出，调用方的缓冲区可能是大端的（例如 BufferPool 中取出的）
+        return buffer.get(offset + TEMPLATE_ID_OFFSET) & 0xFF
+                | (buffer.get(offset + TEMPLATE_ID_OFFSET + 1) & 0xFF) << 8;
+    }
+
+    /**
+     * 记录已写入（或已读到）部分的长度. 全部变长字段写完后即整条记录的长度，下一条记录从 offset + encodedLength() 开始.
+     */
+    public int encodedLength() {
+        return limit - offset;
+    }
+
+    /**
+     * wrap 时传入的缓冲区.
+     */
+    public ByteBuffer buffer() {
+        return source;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    // ---------------------------------------------------------------- 变长字段，按声明顺序调用
+
+    /**
+     * 以 UTF-8 写入字符串，逐字符编码，不分配对象.
+     */
+    protected void putVarString(CharSequence value) {
+        int start = limit + 4;
+        int position = start;
+        int length = value.length();
+        checkLimit(start + length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                checkLimit(position + 1);
+                buffer.put(position++, (byte) c);
+            } else if (c < 0x800) {
+                checkLimit(position + 2);
+                buffer.put(position++, (byte) (0xC0 | (c >> 6)));
+                buffer.put(position++, (byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                checkLimit(position + 4);
+                buffer.put(position++, (byte) (0xF0 | (codePoint >> 18)));
+                buffer.put(position++, (byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put(position++, (byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put(position++, (byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                //孤立的代理字符与 String.getBytes(UTF_8) 一样替换为 '?'
+                char out = Character.isSurrogate(c) ? '?' : c;
+                checkLimit(position + 3);
+                if (out < 0x80) {
+                    buffer.put(position++, (byte) out);
+                } else {
+                    buffer.put(position++, (byte) (0xE0 | (out >> 12)));
+                    buffer.put(position++, (byte) (0x80 | ((out >> 6) & 0x3F)));
+                    buffer.put(position++, (byte) (0x80 | (out & 0x3F)));
+                }
+            }
+        }
+        buffer.putInt(limit, position - start);
+        limit = position;
+    }
+
+    /**
+     * 把 UTF-8 字符串解码追加到 dst，dst 容量足够时不分配对象.
+     */
+    protected void getVarString(StringBuilder dst) {
+        int length = varLength();
+        int position = limit + 4;
+        int end = position + length;
+        checkLimit(end);
+        while (position < end) {
+            int b = buffer.get(position++);
+            if (b >= 0) {
+                dst.append((char) b);
+            } else if ((b & 0xE0) == 0xC0) {
+                dst.append((char) (((b & 0x1F) << 6) | (buffer.get(position++) & 0x3F)));
+            } else if ((b & 0xF0) == 0xE0) {
+                dst.append((char) (((b & 0x0F) << 12) | ((buffer.get(position++) & 0x3F) << 6)
+                        | (buffer.get(position++) & 0x3F)));
+            } else {
+                int codePoint = ((b & 0x07) << 18) | ((buffer.get(position++) & 0x3F) << 12)
+                        | ((buffer.get(position++) & 0x3F) << 6) | (buffer.get(position++) & 0x3F);
+                dst.append(Character.highSurrogate(codePoint)).append(Character.lowSurrogate(codePoint));
+            }
+        }
+        limit = end;
+    }
+
+    /**
+     * 写入 src 中剩余的字节，src 的 position 移到 limit.
+     */
+    protected void putVarBytes(ByteBuffer src) {
+        int length = src.remaining();
+        checkLimit(limit + 4 + length);
+        buffer.putInt(limit, length);
+        //Java 8 没有绝对位置的批量 put，临时移动 position 再恢复，不创建 duplicate()
+        int position = buffer.position();
+        buffer.position(limit + 4);
+        buffer.put(src);
+        buffer.position(position);
+        limit += 4 + length;
+    }
+
+    /**
+     * 把当前字节串复制到 dst，返回长度；dst 放不下时抛出 IndexOutOfBoundsException，位置不变.
+     */
+    protected int getVarBytes(ByteBuffer dst) {
+        int length = varLength();
+        if (length > dst.remaining()) {
+            throw new IndexOutOfBoundsException(length + " bytes do not fit in " + dst.remaining());
+        }
+        checkLimit(limit + 4 + length);
+        int position = buffer.position();
+        int bufferLimit = buffer.limit();
+        buffer.limit(limit + 4 + length);
+        buffer.position(limit + 4);
+        dst.put(buffer);
+        buffer.limit(bufferLimit);
+        buffer.position(position);
+        limit += 4 + length;
+        return length;
+    }
+
+    /**
+     * 字节串的只读视图，指向缓冲区本身，不复制（会分配一个视图对象）.
+     */
+    protected ByteBuffer getVarBytes() {
+        int length = varLength();
+        checkLimit(limit + 4 + length);
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.limit(limit + 4 + length);
+        view.position(limit + 4);
+        limit += 4 + length;
+        return view;
+    }
+
+    /**
+     * 跳过当前变长字段，不读取.
+     */
+    protected void skipVarField() {
+        limit += 4 + varLength();
+    }
+
+    protected void putIntArray(int[] src, int from, int count) {
+        int start = arrayStart(count, 4);
+        IntBuffer view = intView();
+        view.position(start >> 2);
+        view.put(src, from, count);
+        limit = start + count * 4;
+    }
+
+    /**
+     * 读出当前数组字段到 dst，返回元素个数；dst 放不下时抛出 IndexOutOfBoundsException，位置不变.
+     */
+    protected int getIntArray(int[] dst) {
+        int count = checkArray(dst.length, 4);
+        int start = align(limit + 4, 4);
+        IntBuffer view = intView();
+        view.position(start >> 2);
+        view.get(dst, 0, count);
+        limit = start + count * 4;
+        return count;
+    }
+
+    protected void putLongArray(long[] src, int from, int count) {
+        int start = arrayStart(count, 8);
+        LongBuffer view = longView();
+        view.position(start >> 3);
+        view.put(src, from, count);
+        limit = start + count * 8;
+    }
+
+    protected int getLongArray(long[] dst) {
+        int count = checkArray(dst.length, 8);
+        int start = align(limit + 4, 8);
+        LongBuffer view = longView();
+        view.position(start >> 3);
+        view.get(dst, 0, count);
+        limit = start + count * 8;
+        return count;
+    }
+
+    protected void putDoubleArray(double[] src, int from, int count) {
+        int start = arrayStart(count, 8);
+        DoubleBuffer view = doubleView();
+        view.position(start >> 3);
+        view.put(src, from, count);
+        limit = start + count * 8;
+    }
+
+    protected int getDoubleArray(double[] dst) {
+        int count = checkArray(dst.length, 8);
+        int start = align(limit + 4, 8);
+        DoubleBuffer view = doubleView();
+        view.position(start >> 3);
+        view.get(dst, 0, count);
+        limit = start + count * 8;
+        return count;
+    }
+
+    /**
+     * 当前变长字段（字符串、字节串或数组）的长度或元素个数，不移动位置.
+     */
+    protected int varLength() {
+        checkLimit(limit + 4);
+        int length = buffer.getInt(limit);
+        if (length < 0) {
+            throw new IllegalArgumentException("negative length " + length + " at " + limit);
+        }
+        return length;
+    }
+
+    // ---------------------------------------------------------------- 内部
+
+    private void attach(ByteBuffer buffer, int offset) {
+        if (offset < 0) {
+            throw new IndexOutOfBoundsException("negative offset: " + offset);
+        }
+        if (source != buffer) {
+            source = buffer;
+            this.buffer = buffer.duplicate().order(BYTE_ORDER);
+        } else {
+            //两次 wrap 之间调用方可能调整了 limit（例如按记录长度截断）
+            this.buffer.limit(buffer.limit());
+        }
+        this.offset = offset;
+    }
+
+    //写入数组个数，返回元素的起始位置（按元素大小对齐）
+    private int arrayStart(int count, int elementSize) {
+        int start = align(limit + 4, elementSize);
+        checkLimit(start + count * elementSize);
+        buffer.putInt(limit, count);
+        return start;
+    }
+
+    private int checkArray(int capacity, int elementSize) {
+        int count = varLength();
+        if (count > capacity) {
+            throw new IndexOutOfBoundsException("array of " + count + " elements does not fit in " + capacity);
+        }
+        checkLimit(align(limit + 4, elementSize) + count * elementSize);
+        return count;
+    }
+
+    private void checkLimit(int end) {
+        if (end > buffer.limit()) {
+            throw new IndexOutOfBoundsException("record needs " + end + " bytes but buffer limit is " + buffer.limit());
+        }
+    }
+
+    private static int align(int position, int alignment) {
+        return (position + alignment - 1) & -alignment;
+    }
+
+    //视图从缓冲区下标 0 开始、覆盖整个容量，元素下标 = 字节下标 / 元素大小
+    private ByteBuffer viewSource() {
+        if (viewOwner != buffer) {
+            viewOwner = buffer;
+            intView = null;
+            longView = null;
+            doubleView = null;
+        }
+        ByteBuffer source = buffer.duplicate();
+        source.clear();
+        return source.order(BYTE_ORDER);
+    }
+
+    private IntBuffer intView() {
+        if (viewOwner != buffer || intView == null) {
+            intView = viewSource().asIntBuffer();
+        }
+        return intView;
+    }
+
+    private LongBuffer longView() {
+        if (viewOwner != buffer || longView == null) {
+            longView = viewSource().asLongBuffer();
+        }
+        return longView;
+    }
+
+    private DoubleBuffer doubleView() {
+        if (viewOwner != buffer || doubleView == null) {
+            doubleView = viewSource().asDoubleBuffer();
+        }
+        return doubleView;
+    }
+}
@@ -0,0 +1,149 @@
+package org.nio.java.buffer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 直接缓冲区池：规格、稳定状态零分配、泄漏检测、重复归还
+ */
+public class TestBufferPool {
+
+    //规格向上取整到 2 的幂，limit 为申请的大小
+    @Test
+    public void test01() {
+        BufferPool pool = new BufferPool(512, 64 * 1024, 1024 * 1024);
+        ByteBuffer buffer = pool.acquire(1000);
+        System.out.println("容量：" + buffer.capacity());
+        System.out.println("界限：" + buffer.limit());
+        assertTrue(buffer.isDirect());
+        assertEquals(1024, buffer.capacity());
+        assertEquals(1000, buffer.limit());
+        pool.release(buffer);
+
+        //超过最大规格不入池
+        ByteBuffer large = pool.acquire(128 * 1024);
+        pool.release(large);
+        System.out.println(pool);
+        assertEquals(1, pool.unpooledAllocations());
+        assertEquals(0, pool.outstandingCount());
+    }
+
+    //稳定状态下反复 acquire/release 不再调用 allocateDirect()
+    @Test
+    public void test02() {
+        BufferPool pool = new BufferPool(512, 4 * 1024 * 1024, 16 * 1024 * 1024);
+        int rounds = 1000000;
+
+        Instant start = Instant.now();
+        for (int i = 0; i < rounds; i++) {
+            ByteBuffer buffer = pool.acquire(1024);
+            buffer.putLong(0, i);
+            pool.release(buffer);
+        }
+        System.out.println("缓冲区池耗时：" + Duration.between(start, Instant.now()).toMillis());
+
+        start = Instant.now();
+        for (int i = 0; i < rounds; i++) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+            buffer.putLong(0, i);
+        }
+        System.out.println("allocateDirect 耗时：" + Duration.between(start, Instant.now()).toMillis());
+
+        System.out.println(pool);
+        assertEquals(1, pool.allocationCount());
+    }
+
+    //多线程：跨线程归还的缓冲区进入共享缓存，仍能被复用
+    @Test
+    public void test03() throws InterruptedException {
+        BufferPool pool = new BufferPool(512, 4 * 1024 * 1024, 16 * 1024 * 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    ByteBuffer buffer = pool.acquire(512 << (i % 8));
+                    pool.release(buffer);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.println(pool);
+        assertEquals(0, pool.outstandingCount());
+    }
+
+    //泄漏检测：记录未归还缓冲区的申请位置
+    @Test
+    public void test04() {
+        BufferPool pool = new BufferPool(512, 64 * 1024, 1024 * 1024);
+        pool.setLeakTracking(true);
+        pool.acquire(2048);
+        ByteBuffer released = pool.acquire(4096);
+        pool.release(released);
+
+        for (Throwable leak : pool.outstandingAllocations()) {
+            leak.printStackTrace();
+        }
+        assertEquals(1, pool.outstandingAllocations().size());
+
+        try {
+            pool.release(released);
+            fail("released twice");
+        } catch (IllegalStateException e) {
+            System.out.println("重复归还：" + e.getMessage());
+        }
+    }
+
+    //开启泄漏检测后拒绝重复归还，缓冲区只被缓存一次；校验失败不改变计数；
+    //开启泄漏检测之前申请的缓冲区之后仍能正常归还
+    @Test
+    public void test05() {
+        BufferPool pool = new BufferPool(512, 64 * 1024, 1024 * 1024);
+        ByteBuffer early = pool.acquire(1024);
+        pool.setLeakTracking(true);
+        ByteBuffer buffer = pool.acquire(1024);
+        pool.release(buffer);
+        try {
+            pool.release(buffer);
+            fail("released twice");
+        } catch (IllegalStateException e) {
+            System.out.println("重复归还：" + e.getMessage());
+        }
+        assertEquals(1, pool.releasedCount());
+        ByteBuffer first = pool.acquire(1024);
+        ByteBuffer second = pool.acquire(1024);
+        assertTrue(first != second);
+
+        try {
+            pool.release(ByteBuffer.allocateDirect(1000));
+            fail("foreign capacity");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+        try {
+            pool.release(ByteBuffer.allocate(1024));
+            fail("heap buffer");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+        assertEquals(1, pool.releasedCount());
+        assertEquals(3, pool.outstandingCount());
+
+        pool.release(early);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(0, pool.outstandingCount());
+        assertTrue(pool.outstandingAllocations().isEmpty());
+    }
+}
@@ -0,0 +1,182 @@
+package org.nio.java.buffer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 组合缓冲区：跨组件边界的多字节读取与单个 ByteBuffer 一致、切片与分隔符查找、
+ * 协议头 + 消息体 + 文件区域一次聚集写出，以及共享内容不拷贝
+ */
+public class TestCompositeBuffer {
+
+    //71 字节拆成长度 1、2、3…… 的组件，每个下标上的读取结果与同样内容的单个缓冲区相同，两种字节序
+    @Test
+    public void test01() {
+        byte[] data = new byte[71];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 37 + 11);
+        }
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            CompositeBuffer composite = new CompositeBuffer().order(order);
+            int offset = 0;
+            for (int size = 1; offset < data.length; size++) {
+                int n = Math.min(size, data.length - offset);
+                //堆缓冲区与直接缓冲区交替
+                ByteBuffer component = size % 2 == 0 ? ByteBuffer.allocateDirect(n) : ByteBuffer.allocate(n);
+                component.put(data, offset, n).flip();
+                composite.addComponent(component);
+                offset += n;
+            }
+            composite.addComponent(ByteBuffer.allocate(0));
+            assertEquals(12, composite.componentCount());
+            assertEquals(data.length, composite.length());
+
+            ByteBuffer expected = ByteBuffer.wrap(data).order(order);
+            for (int i = 0; i < data.length; i++) {
+                assertEquals(expected.get(i), composite.get(i));
+                if (i + 2 <= data.length) {
+                    assertEquals(expected.getShort(i), composite.getShort(i));
+                }
+                if (i + 4 <= data.length) {
+                    assertEquals(expected.getInt(i), composite.getInt(i));
+                }
+                if (i + 8 <= data.length) {
+                    assertEquals(expected.getLong(i), composite.getLong(i));
+                }
+            }
+            //相对读取
+            while (composite.remaining() >= 8) {
+                assertEquals(expected.getLong(), composite.getLong());
+            }
+            assertEquals(expected.getInt(), composite.getInt());
+            assertEquals(expected.getShort(), composite.getShort());
+            assertEquals(expected.get(), composite.get());
+            assertFalse(composite.hasRemaining());
+            try {
+                composite.getLong(data.length - 7);
+                fail("read past the end");
+            } catch (IndexOutOfBoundsException e) {
+                System.out.println(e.getMessage());
+            }
+
+            byte[] copy = new byte[data.length];
+            composite.get(0, copy, 0, copy.length);
+            assertArrayEquals(data, copy);
+        }
+    }
+
+    //分散读取得到的协议头与消息体：查找跨越组件边界的 "\r\n\r\n"，切出各部分；切片与原缓冲区共享内容
+    @Test
+    public void test02() {
+        String message = "GET /index HTTP/1.1\r\nHost: localhost\r\n\r\n空灭境 body";
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        int headerEnd = message.indexOf("\r\n\r\n");
+        //在分隔符中间拆开
+        ByteBuffer buffer1 = ByteBuffer.wrap(bytes, 0, headerEnd + 2);
+        ByteBuffer buffer2 = ByteBuffer.allocateDirect(bytes.length - headerEnd - 2);
+        buffer2.put(bytes, headerEnd + 2, buffer2.capacity()).flip();
+        CompositeBuffer composite = new CompositeBuffer(buffer1, buffer2);
+        assertEquals(0, buffer1.position());
+
+        byte[] crlf = {'\r', '\n'};
+        byte[] delimiter = {'\r', '\n', '\r', '\n'};
+        assertEquals(headerEnd, composite.indexOf(delimiter, 0));
+        assertEquals(message.indexOf("\r\n"), composite.indexOf(crlf, 0));
+        assertEquals(-1, composite.indexOf(delimiter, headerEnd + 1));
+        assertEquals(message.indexOf(':'), composite.indexOf((byte) ':', 0, composite.length()));
+        assertEquals(-1, composite.indexOf((byte) ':', 0, message.indexOf(':')));
+
+        CompositeBuffer header = composite.slice(0, headerEnd);
+        CompositeBuffer body = composite.slice(headerEnd + delimiter.length, composite.length() - headerEnd - 4);
+        assertEquals(message.substring(0, headerEnd), header.toString(StandardCharsets.UTF_8));
+        assertEquals("空灭境 body", body.toString(StandardCharsets.UTF_8));
+        assertEquals(2, composite.slice(headerEnd, 4).componentCount());
+
+        //修改原缓冲区，组合缓冲区与切片都能看到
+        bytes[0] = 'P';
+        buffer2.put(buffer2.limit() - 1, (byte) 'Y');
+        assertEquals('P', header.get(0));
+        assertEquals("空灭境 bodY", body.toString(StandardCharsets.UTF_8));
+        //之后改变原缓冲区的 position/limit 不影响组合缓冲区
+        buffer1.position(3);
+        buffer2.clear();
+        assertEquals(bytes.length, composite.length());
+    }
+
+    //协议头（堆）+ 消息体（直接）+ 文件区域（映射）一次聚集写入；非阻塞管道只写出一部分时从 position 继续
+    @Test
+    public void test03() throws IOException {
+        Path file = Files.createTempFile("composite", ".bin");
+        Path out = Files.createTempFile("composite", ".out");
+        try {
+            //比管道的内核缓冲区大，非阻塞写入必然只写出一部分
+            byte[] region = new byte[256 * 1024];
+            for (int i = 0; i < region.length; i++) {
+                region[i] = (byte) i;
+            }
+            Files.write(file, region);
+            ByteBuffer header = ByteBuffer.allocate(8).putInt(0xCAFEBABE).putInt(region.length - 100);
+            header.flip();
+            ByteBuffer body = ByteBuffer.allocateDirect(3).put(new byte[]{1, 2, 3});
+            body.flip();
+            CompositeBuffer composite;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 100, region.length - 100);
+                composite = new CompositeBuffer(header, body, mapped);
+            }
+            assertEquals(0xCAFEBABE, composite.getInt(0));
+            assertEquals(100, composite.get(11) & 0xFF);
+
+            try (FileChannel channel = FileChannel.open(out, StandardOpenOption.WRITE)) {
+                assertEquals(composite.length(), composite.write(channel));
+            }
+            assertFalse(composite.hasRemaining());
+            byte[] written = Files.readAllBytes(out);
+            byte[] expected = new byte[composite.length()];
+            composite.get(0, expected, 0, expected.length);
+            assertArrayEquals(expected, written);
+
+            //非阻塞管道：每次只写出一部分，读走之后再从 position 继续
+            composite.position(5);
+            Pipe pipe = Pipe.open();
+            pipe.sink().configureBlocking(false);
+            ByteBuffer received = ByteBuffer.allocate(composite.length());
+            int writes = 0;
+            try {
+                while (composite.hasRemaining()) {
+                    composite.write(pipe.sink());
+                    writes++;
+                    while (received.position() < composite.position() - 5) {
+                        pipe.source().read(received);
+                    }
+                }
+            } finally {
+                pipe.sink().close();
+                pipe.source().close();
+            }
+            received.flip();
+            System.out.println("pipe writes: " + writes);
+            assertTrue(writes > 1);
+            assertEquals(ByteBuffer.wrap(expected, 5, expected.length - 5), received);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(out);
+        }
+    }
+}
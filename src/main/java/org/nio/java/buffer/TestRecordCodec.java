@@ -0,0 +1,275 @@
+package org.nio.java.buffer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 享元记录编解码：连续多条记录往返一致、字节序与 UTF-8 与 String.getBytes() 相同、各种越界与类型错误、
+ * 新版本追加字段后旧享元仍能读取，以及与 DataOutputStream / 字符串拼接的分配量和耗时对比
+ */
+public class TestRecordCodec {
+
+    private static final int HEADER_AND_BLOCK = Flyweight.HEADER_LENGTH + EventRecord.BLOCK_LENGTH;
+    private static final String[] TEXTS = {"", "hello", "空灭境", "emoji 😀 ok", "a\uD800b"};
+
+    //一个缓冲区里连续编码 5 条记录，再依次解码
+    @Test
+    public void test01() {
+        BufferPool pool = new BufferPool(512, 4 * 1024 * 1024, 16L * 1024 * 1024);
+        ByteBuffer buffer = pool.acquire(4096);
+        EventRecord record = new EventRecord();
+        int offset = 0;
+        for (int i = 0; i < TEXTS.length; i++) {
+            long[] samples = new long[i * 3];
+            for (int j = 0; j < samples.length; j++) {
+                samples[j] = (long) i << 40 | j;
+            }
+            record.wrapForEncode(buffer, offset)
+                    .timestampNanos(1_000_000_000L * i).sequence(i).sourceId(-i).type((short) (i + 7))
+                    .text(TEXTS[i]).samples(samples, 0, samples.length);
+            offset += record.encodedLength();
+        }
+        //记录头为小端：templateId = 1 的低字节在前；编码不改变调用方（大端）缓冲区的字节序
+        assertEquals(1, buffer.get(0));
+        assertEquals(0, buffer.get(1));
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+        buffer.limit(offset);
+        //templateIdAt() 只读取，不改变调用方缓冲区的字节序
+        ByteBuffer bigEndian = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        assertEquals(EventRecord.TEMPLATE_ID, Flyweight.templateIdAt(bigEndian, 0));
+        assertEquals(ByteOrder.BIG_ENDIAN, bigEndian.order());
+
+        StringBuilder text = new StringBuilder();
+        long[] samples = new long[16];
+        offset = 0;
+        for (int i = 0; i < TEXTS.length; i++) {
+            assertEquals(EventRecord.TEMPLATE_ID, Flyweight.templateIdAt(buffer, offset));
+            record.wrapForDecode(buffer, offset);
+            assertEquals(1_000_000_000L * i, record.timestampNanos());
+            assertEquals(i, record.sequence());
+            assertEquals(-i, record.sourceId());
+            assertEquals(i + 7, record.type());
+            text.setLength(0);
+            record.getText(text);
+            //与 String 的 UTF-8 编解码结果一致（孤立的代理字符变成 '?'）
+            assertEquals(new String(TEXTS[i].getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+                    text.toString());
+            assertEquals(i * 3, record.samplesCount());
+            int count = record.getSamples(samples);
+            for (int j = 0; j < count; j++) {
+                assertEquals((long) i << 40 | j, samples[j]);
+            }
+            offset += record.encodedLength();
+        }
+        assertEquals(buffer.limit(), offset);
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+        pool.release(buffer);
+        assertEquals(ByteOrder.BIG_ENDIAN, pool.acquire(4096).order());
+    }
+
+    //类型不符、记录被截断、数组放不下
+    @Test
+    public void test02() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        EventRecord record = new EventRecord().wrapForEncode(buffer, 0);
+        record.sequence(1).text("truncated").samples(new long[]{1, 2, 3}, 0, 3);
+        int length = record.encodedLength();
+
+        Flyweight other = new Flyweight() {
+            @Override
+            public int templateId() {
+                return 2;
+            }
+
+            @Override
+            public int blockLength() {
+                return 0;
+            }
+
+            @Override
+            public int version() {
+                return 1;
+            }
+        };
+        try {
+            other.wrapForDecode(buffer, 0);
+            fail("template 1 should not decode as 2");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+
+        buffer.limit(length - 1);
+        record.wrapForDecode(buffer, 0).getText(new StringBuilder());
+        try {
+            record.getSamples(new long[3]);
+            fail("last sample is cut off");
+        } catch (IndexOutOfBoundsException e) {
+            System.out.println(e.getMessage());
+        }
+
+        buffer.limit(length);
+        record.wrapForDecode(buffer, 0).getText(new StringBuilder());
+        try {
+            record.getSamples(new long[2]);
+            fail("3 samples do not fit in 2");
+        } catch (IndexOutOfBoundsException e) {
+            System.out.println(e.getMessage());
+        }
+        assertEquals(3, record.getSamples(new long[3]));
+
+        buffer.clear();
+        buffer.limit(HEADER_AND_BLOCK - 1);
+        try {
+            new EventRecord().wrapForEncode(buffer, 0);
+            fail("block does not fit");
+        } catch (IndexOutOfBoundsException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    //新版本在定长块末尾追加了 8 字节字段：旧享元按记录头中的 blockLength 跳过，变长字段照常读取
+    @Test
+    public void test03() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        Flyweight v2 = new EventRecord() {
+            @Override
+            public int blockLength() {
+                return BLOCK_LENGTH + 8;
+            }
+
+            @Override
+            public int version() {
+                return 2;
+            }
+        };
+        v2.wrapForEncode(buffer, 0);
+        buffer.putLong(v2.offset() + Flyweight.HEADER_LENGTH + EventRecord.BLOCK_LENGTH, -1L);
+        ((EventRecord) v2).sequence(42).text("v2");
+
+        EventRecord v1 = new EventRecord().wrapForDecode(buffer, 0);
+        assertEquals(42, v1.sequence());
+        StringBuilder text = new StringBuilder();
+        v1.getText(text);
+        assertEquals("v2", text.toString());
+    }
+
+    //10 万次编码 + 解码：享元不分配对象；对照 DataOutputStream.writeUTF() 与 TestNonBlockingUdp 的字符串拼接
+    @Test
+    public void test04() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int rounds = 100_000;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        EventRecord record = new EventRecord();
+        StringBuilder text = new StringBuilder(64);
+        long[] samples = {1, 2, 3, 4, 5, 6, 7, 8};
+        long[] decoded = new long[8];
+        String content = "空灭境 event payload";
+
+        System.out.println("codec\t\tns/op\tbytes allocated/op\tencoded bytes");
+        long checksum = 0;
+        for (int pass = 0; pass < 3; pass++) {
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                record.wrapForEncode(buffer, 0).timestampNanos(i).sequence(i).sourceId(7).type((short) 1)
+                        .text(content).samples(samples, 0, samples.length);
+                record.wrapForDecode(buffer, 0);
+                checksum += record.timestampNanos() + record.sequence() + record.sourceId();
+                text.setLength(0);
+                record.getText(text);
+                checksum += text.length() + record.getSamples(decoded);
+            }
+            long nanos = System.nanoTime() - start;
+            long bytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+            if (pass == 2) {
+                System.out.printf("flyweight\t%d\t%d\t\t\t%d%n", nanos / rounds, bytes / rounds, record.encodedLength());
+                //预热之后整个循环不应分配对象，留一点余量给计时与 JIT 本身
+                assertTrue(bytes < 64 * 1024);
+            }
+
+            allocated = threads.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            int encoded = 0;
+            for (int i = 0; i < rounds; i++) {
+                ByteArrayOutputStream bytesOut = new ByteArrayOutputStream(128);
+                DataOutputStream out = new DataOutputStream(bytesOut);
+                out.writeLong(i);
+                out.writeLong(i);
+                out.writeInt(7);
+                out.writeShort(1);
+                out.writeUTF(content);
+                out.writeInt(samples.length);
+                for (long sample : samples) {
+                    out.writeLong(sample);
+                }
+                byte[] message = bytesOut.toByteArray();
+                encoded = message.length;
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+                checksum += in.readLong() + in.readLong() + in.readInt() + in.readShort();
+                checksum += in.readUTF().length();
+                int count = in.readInt();
+                for (int j = 0; j < count; j++) {
+                    decoded[j] = in.readLong();
+                }
+                checksum += count;
+            }
+            nanos = System.nanoTime() - start;
+            bytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+            if (pass == 2) {
+                System.out.printf("DataStream\t%d\t%d\t\t\t%d%n", nanos / rounds, bytes / rounds, encoded);
+            }
+
+            allocated = threads.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                byte[] message = (i + ":" + i + ":7:1:" + content).getBytes(StandardCharsets.UTF_8);
+                encoded = message.length;
+                String[] fields = new String(message, StandardCharsets.UTF_8).split(":", 5);
+                checksum += Long.parseLong(fields[0]) + Long.parseLong(fields[1]) + Integer.parseInt(fields[2])
+                        + fields[4].length();
+            }
+            nanos = System.nanoTime() - start;
+            bytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+            if (pass == 2) {
+                System.out.printf("String\t\t%d\t%d\t\t\t%d (no samples)%n", nanos / rounds, bytes / rounds, encoded);
+            }
+        }
+        assertTrue(checksum != 0);
+        assertArrayEquals(samples, decoded);
+    }
+
+    //wrap 大端或小端的缓冲区都不改变它的字节序，字段一律按小端存放；buffer() 返回调用方的缓冲区
+    @Test
+    public void test05() {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ByteBuffer buffer = ByteBuffer.allocate(256).order(order);
+            EventRecord record = new EventRecord().wrapForEncode(buffer, 0).sequence(0x0102030405060708L);
+            assertEquals(order, buffer.order());
+            assertSame(buffer, record.buffer());
+            //sequence 在定长块的第 8 个字节
+            assertEquals(0x0102030405060708L,
+                    buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getLong(Flyweight.HEADER_LENGTH + 8));
+
+            record.wrapForDecode(buffer, 0);
+            assertEquals(order, buffer.order());
+            assertEquals(0x0102030405060708L, record.sequence());
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.nio.java.channel;
+
+import org.nio.java.buffer.BufferPool;
+import org.nio.java.executor.ExecutorPurpose;
+import org.nio.java.executor.ExecutorRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 异步顺序写文件：事件循环线程只把缓冲区放进队列，真正的 write() 在写文件线程池上执行，磁盘变慢不会拖住网络读写
+ * <p>
+ * 1. 每个文件同一时刻最多一个写任务在执行，它一次取走队列中的全部缓冲区，用一次聚集写入 write(ByteBuffer[]) 写出，
+ * 再一次性归还这批缓冲区、完成这批之前提交的 flush()，即完成批处理；数据与回调都严格按提交顺序
+ * <p>
+ * 2. 在途字节超过高水位时 isWritable() 为 false，write() 也返回 false，调用方应暂停从网络读取（如
+ * Connection.pauseReading()）；降到低水位以下时在写文件线程上回调 writabilityListener，由它恢复读取
+ * <p>
+ * 3. write() 接管缓冲区，写完后归还 BufferPool；事件循环的读缓冲区是共享的，要先复制到 acquire() 得到的缓冲区
+ * <p>
+ * 没有用 AsynchronousFileChannel：它在 Linux 上同样是线程池里的 pwrite()，每个缓冲区一次系统调用、一次回调，
+ * 不能聚集写入，也不保证回调的顺序
+ */
+public class AsyncFileWriter implements Closeable {
+
+    //一次聚集写入的最大缓冲区个数，Linux 的 IOV_MAX 为 1024
+    private static final int MAX_GATHER = 1024;
+
+    private final FileChannel channel;
+    private final Executor executor;
+    private final BufferPool bufferPool;
+    private final long highWaterMark;
+    private final long lowWaterMark;
+
+    //队列元素是 ByteBuffer 或 Flush，只在持有 lock 时访问
+    private final Object lock = new Object();
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private long pendingBytes;
+    private volatile boolean writable = true;
+    private boolean draining;
+    private boolean closed;
+    private IOException failure;
+
+    private volatile Runnable writabilityListener;
+
+    //只在写任务中修改
+    private volatile long bytesWritten;
+    private volatile long writeCalls;
+    private volatile long batches;
+
+    /**
+     * @param executor 执行写任务的线程池，写任务会阻塞在磁盘上，不能是事件循环线程，也不能在队列满时由提交者执行；
+     *                 拒绝执行（RejectedExecutionException）时写入器以失败结束
+     */
+    public AsyncFileWriter(Path file, long highWaterMark, long lowWaterMark, Executor executor,
+                           BufferPool bufferPool) throws IOException {
+        if (lowWaterMark < 0 || highWaterMark < lowWaterMark) {
+            throw new IllegalArgumentException("invalid water marks: low " + lowWaterMark + ", high "
+                    + highWaterMark);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.executor = executor;
+        this.bufferPool = bufferPool;
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = lowWaterMark;
+    }
+
+    /**
+     * 高水位 4MB、低水位 1MB，在 ASYNC_FILE_WRITE 线程池上写入. 不用 FILE_WRITE：它的队列满时由提交者执行，
+     * 写任务就会在事件循环线程上阻塞在磁盘上.
+     */
+    public static AsyncFileWriter open(Path file) throws IOException {
+        return new AsyncFileWriter(file, 4 * 1024 * 1024, 1024 * 1024,
+                ExecutorRegistry.getDefault().executor(ExecutorPurpose.ASYNC_FILE_WRITE), BufferPool.getDefault());
+    }
+
+    /**
+     * 在途字节从高水位降到低水位以下时回调，在写文件线程上执行.
+     */
+    public void setWritabilityListener(Runnable writabilityListener) {
+        this.writabilityListener = writabilityListener;
+    }
+
+    /**
+     * 追加 buffer 中剩余的数据. 缓冲区由写入器接管，写完后归还 BufferPool，调用方不能再使用.
+     *
+     * @return 在途字节是否仍低于高水位，返回 false 时应暂停产生数据
+     * @throws IOException 之前的写入已经失败，或已关闭
+     */
+    public boolean write(ByteBuffer buffer) throws IOException {
+        boolean schedule;
+        boolean result;
+        synchronized (lock) {
+            if (failure != null || closed) {
+                bufferPool.release(buffer);
+                throw failure != null ? failure : new IOException("writer closed");
+            }
+            queue.addLast(buffer);
+            pendingBytes += buffer.remaining();
+            if (pendingBytes > highWaterMark) {
+                writable = false;
+            }
+            result = writable;
+            schedule = !draining;
+            draining = true;
+        }
+        if (schedule) {
+            IOException error = schedule();
+            if (error != null) {
+                throw error;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 之前 write() 的数据全部写入文件后完成.
+     *
+     * @param force 为 true 时还要调用 force()，数据落到磁盘后才完成
+     */
+    public CompletableFuture<Void> flush(boolean force) {
+        return enqueue(new Flush(force, false));
+    }
+
+    /**
+     * 写完队列中的数据后关闭文件，不阻塞调用线程，可以在事件循环线程上调用.
+     */
+    public CompletableFuture<Void> closeAsync() {
+        return enqueue(new Flush(false, true));
+    }
+
+    /**
+     * 等待队列中的数据写完并关闭文件.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            closeAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * 已提交但尚未写入文件的字节数.
+     */
+    public long pendingBytes() {
+        synchronized (lock) {
+            return pendingBytes;
+        }
+    }
+
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * 聚集写入 write() 的调用次数.
+     */
+    public long writeCalls() {
+        return writeCalls;
+    }
+
+    /**
+     * 写任务处理的批数，每批一次性归还缓冲区、完成 flush()，与提交的缓冲区个数之比即批处理的效果.
+     */
+    public long batches() {
+        return batches;
+    }
+
+    private CompletableFuture<Void> enqueue(Flush flush) {
+        boolean schedule;
+        synchronized (lock) {
+            if (closed) {
+                flush.future.completeExceptionally(new IOException("writer closed"));
+                return flush.future;
+            }
+            closed = flush.close;
+            queue.addLast(flush);
+            schedule = !draining;
+            draining = true;
+        }
+        if (schedule) {
+            //被拒绝时 flush.future 已经以失败结束
+            schedule();
+        }
+        return flush.future;
+    }
+
+    //提交写任务；线程池拒绝时写入器以失败结束：清除 draining，丢弃队列中的数据并结束其中的 flush
+    private IOException schedule() {
+        try {
+            executor.execute(this::drain);
+            return null;
+        } catch (RejectedExecutionException e) {
+            IOException error;
+            List<Object> dropped;
+            synchronized (lock) {
+                if (failure == null) {
+                    failure = new IOException("write task rejected", e);
+                }
+                error = failure;
+                draining = false;
+                dropped = new ArrayList<>(queue);
+                queue.clear();
+                pendingBytes = 0;
+                writable = true;
+            }
+            List<Flush> flushes = new ArrayList<>();
+            for (Object item : dropped) {
+                if (item instanceof Flush) {
+                    flushes.add((Flush) item);
+                } else {
+                    bufferPool.release((ByteBuffer) item);
+                }
+            }
+            //关闭照常进行
+            completeFlushes(flushes, error);
+            for (Flush flush : flushes) {
+                flush.complete(error);
+            }
+            return error;
+        }
+    }
+
+    //写任务：一批一批地取走队列，直到队列为空
+    private void drain() {
+        ByteBuffer[] batch = new ByteBuffer[16];
+        List<Flush> flushes = new ArrayList<>();
+        while (true) {
+            int count = 0;
+            long bytes = 0;
+            IOException error;
+            synchronized (lock) {
+                Object item;
+                //一批要么全是数据，要么全是 flush 标记：数据批到标记为止，连续的标记合成一批
+                while (count < MAX_GATHER && (item = queue.peekFirst()) != null) {
+                    if (item instanceof Flush) {
+                        if (count > 0) {
+                            break;
+                        }
+                        flushes.add((Flush) queue.pollFirst());
+                    } else {
+                        if (!flushes.isEmpty()) {
+                            break;
+                        }
+                        if (count == batch.length) {
+                            batch = Arrays.copyOf(batch, count * 2);
+                        }
+                        batch[count++] = (ByteBuffer) queue.pollFirst();
+                    }
+                }
+                if (count == 0 && flushes.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                error = failure;
+            }
+            for (int i = 0; i < count; i++) {
+                bytes += batch[i].remaining();
+            }
+            if (count > 0) {
+                if (error == null) {
+                    error = writeBatch(batch, count, bytes);
+                }
+                for (int i = 0; i < count; i++) {
+                    bufferPool.release(batch[i]);
+                    batch[i] = null;
+                }
+                batches++;
+            } else {
+                error = completeFlushes(flushes, error);
+            }
+            boolean becameWritable;
+            synchronized (lock) {
+                pendingBytes -= bytes;
+                if (failure == null) {
+                    failure = error;
+                }
+                becameWritable = !writable && pendingBytes < lowWaterMark;
+                if (becameWritable) {
+                    writable = true;
+                }
+            }
+            if (count == 0) {
+                for (Flush flush : flushes) {
+                    flush.complete(error);
+                }
+                flushes.clear();
+            }
+            Runnable listener = writabilityListener;
+            if (becameWritable && listener != null) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private IOException writeBatch(ByteBuffer[] batch, int count, long bytes) {
+        try {
+            long remaining = bytes;
+            int offset = 0;
+            while (remaining > 0) {
+                remaining -= channel.write(batch, offset, count - offset);
+                writeCalls++;
+                while (offset < count && !batch[offset].hasRemaining()) {
+                    offset++;
+                }
+            }
+            bytesWritten += bytes;
+            return null;
+        } catch (IOException e) {
+            return e;
+        }
+    }
+
+    //之前的写入失败时不再 force()，但关闭照常进行
+    private IOException completeFlushes(List<Flush> flushes, IOException error) {
+        boolean force = false;
+        boolean close = false;
+        for (Flush flush : flushes) {
+            force |= flush.force;
+            close |= flush.close;
+        }
+        try {
+            if (force && error == null) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+        try {
+            if (close) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+        return error;
+    }
+
+    private static final class Flush {
+
+        final boolean force;
+        final boolean close;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Flush(boolean force, boolean close) {
+            this.force = force;
+            this.close = close;
+        }
+
+        void complete(IOException error) {
+            if (error == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.nio.java.channel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 阻塞通道的读满、写完，文件传输协议与 SocketTransport 等阻塞传输共用
+ */
+public final class ChannelIO {
+
+    private ChannelIO() {
+    }
+
+    /**
+     * 读满 buffer.
+     *
+     * @return 还没读到任何字节就遇到流结束时返回 false
+     * @throws EOFException 读到一半遇到流结束
+     */
+    public static boolean readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        boolean empty = buffer.position() == 0;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (empty && buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("stream ended with " + buffer.remaining() + " bytes missing");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 写完 buffer 剩余的字节.
+     */
+    public static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 用聚集写入写完 buffers 中全部剩余的字节，跳过已写完的缓冲区.
+     */
+    public static void writeFully(GatheringByteChannel channel, ByteBuffer[] buffers) throws IOException {
+        int first = 0;
+        while (first < buffers.length) {
+            if (!buffers[first].hasRemaining()) {
+                first++;
+                continue;
+            }
+            channel.write(buffers, first, buffers.length - first);
+        }
+    }
+}
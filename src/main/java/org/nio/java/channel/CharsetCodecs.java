@@ -0,0 +1,186 @@
+package org.nio.java.channel;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 字符集编解码工具：
+ * <p>
+ * 一、每个线程按字符集缓存一个编码器和一个解码器，避免每次 Charset.forName() + newEncoder()/newDecoder()
+ * <p>
+ * 二、编码到调用方提供的 ByteBuffer，不像 CharsetEncoder.encode(CharBuffer) 那样每次返回新的缓冲区
+ * <p>
+ * 三、UTF-8、US-ASCII、ISO-8859-1 中 0~127 的字符编码相同，先按单字节直接拷贝，遇到非 ASCII 字符才交给编码器
+ * <p>
+ * 非法输入与无法映射的字符一律替换为替换字符，不抛出异常
+ */
+public final class CharsetCodecs {
+
+    private static final ThreadLocal<Map<Charset, CharsetEncoder>> ENCODERS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<Charset, CharsetDecoder>> DECODERS = ThreadLocal.withInitial(HashMap::new);
+
+    private CharsetCodecs() {
+    }
+
+    /**
+     * 当前线程缓存的编码器，已 reset()，只能在当前线程使用.
+     */
+    public static CharsetEncoder encoder(Charset charset) {
+        Map<Charset, CharsetEncoder> encoders = ENCODERS.get();
+        CharsetEncoder encoder = encoders.get(charset);
+        if (encoder == null) {
+            encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            encoders.put(charset, encoder);
+        }
+        return encoder.reset();
+    }
+
+    /**
+     * 当前线程缓存的解码器，已 reset()，只能在当前线程使用.
+     */
+    public static CharsetDecoder decoder(Charset charset) {
+        Map<Charset, CharsetDecoder> decoders = DECODERS.get();
+        CharsetDecoder decoder = decoders.get(charset);
+        if (decoder == null) {
+            decoder = newDecoder(charset);
+            decoders.put(charset, decoder);
+        }
+        return decoder.reset();
+    }
+
+    /**
+     * 把 src 全部编码到 dst.
+     *
+     * @return UNDERFLOW 表示全部编码完成；OVERFLOW 表示 dst 空间不足，此时 dst 中的内容不完整
+     */
+    public static CoderResult encode(CharSequence src, ByteBuffer dst, Charset charset) {
+        int start = isAsciiCompatible(charset) ? encodeAscii(src, dst) : 0;
+        if (start == src.length()) {
+            return CoderResult.UNDERFLOW;
+        }
+        return encode(CharBuffer.wrap(src, start, src.length()), dst, charset);
+    }
+
+    /**
+     * 把 src 剩余的字符编码到 dst. 返回 OVERFLOW 时 src 停在未编码的位置，腾出 dst 空间后可以继续调用.
+     */
+    public static CoderResult encode(CharBuffer src, ByteBuffer dst, Charset charset) {
+        if (isAsciiCompatible(charset)) {
+            encodeAscii(src, dst);
+            if (!src.hasRemaining()) {
+                return CoderResult.UNDERFLOW;
+            }
+        }
+        CharsetEncoder encoder = encoder(charset);
+        CoderResult result = encoder.encode(src, dst, true);
+        if (result.isUnderflow()) {
+            result = encoder.flush(dst);
+        }
+        return result;
+    }
+
+    /**
+     * 把 src 剩余的字节一次性解码成字符串，src 必须以完整的字符结尾；分段到达的数据用 StreamingDecoder.
+     */
+    public static String decode(ByteBuffer src, Charset charset) {
+        if (src.hasArray() && isAsciiCompatible(charset)) {
+            //这几种字符集 new String() 有专门的快速路径
+            String s = new String(src.array(), src.arrayOffset() + src.position(), src.remaining(), charset);
+            src.position(src.limit());
+            return s;
+        }
+        try {
+            return decoder(charset).decode(src).toString();
+        } catch (CharacterCodingException e) {
+            //错误处理方式为 REPLACE，不会发生
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static CharsetDecoder newDecoder(Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    static boolean isAsciiCompatible(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    //逐个拷贝 ASCII 字符，返回第一个非 ASCII 字符的下标
+    private static int encodeAscii(CharSequence src, ByteBuffer dst) {
+        int length = Math.min(src.length(), dst.remaining());
+        int position = dst.position();
+        int i = 0;
+        if (dst.hasArray()) {
+            byte[] array = dst.array();
+            int offset = dst.arrayOffset() + position;
+            for (; i < length; i++) {
+                char c = src.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                array[offset + i] = (byte) c;
+            }
+        } else {
+            for (; i < length; i++) {
+                char c = src.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                dst.put(position + i, (byte) c);
+            }
+        }
+        dst.position(position + i);
+        return i;
+    }
+
+    private static void encodeAscii(CharBuffer src, ByteBuffer dst) {
+        int n = encodeAscii((CharSequence) src, dst);
+        src.position(src.position() + n);
+    }
+
+    //逐个拷贝 ASCII 字节，遇到第一个非 ASCII 字节停止
+    static void decodeAscii(ByteBuffer src, CharBuffer dst) {
+        int length = Math.min(src.remaining(), dst.remaining());
+        int in = src.position();
+        int out = dst.position();
+        int i = 0;
+        if (src.hasArray() && dst.hasArray()) {
+            byte[] bytes = src.array();
+            char[] chars = dst.array();
+            int inOffset = src.arrayOffset() + in;
+            int outOffset = dst.arrayOffset() + out;
+            for (; i < length; i++) {
+                byte b = bytes[inOffset + i];
+                if (b < 0) {
+                    break;
+                }
+                chars[outOffset + i] = (char) b;
+            }
+        } else {
+            for (; i < length; i++) {
+                byte b = src.get(in + i);
+                if (b < 0) {
+                    break;
+                }
+                dst.put(out + i, (char) b);
+            }
+        }
+        src.position(in + i);
+        dst.position(out + i);
+    }
+}
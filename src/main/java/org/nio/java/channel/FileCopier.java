@@ -0,0 +1,272 @@
+package org.nio.java.channel;
+
+import org.nio.java.buffer.BufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 文件复制，按文件系统类型在三种方式中选择：
+ * <p>
+ * 1. BUFFERED：池化直接缓冲区循环 read()/write()，网络文件系统使用
+ * <p>
+ * 2. TRANSFER：循环调用 transferTo()，由内核完成复制（Linux 上为 sendfile），数据不经过用户空间。
+ * 单次 transferTo()/transferFrom() 可能只传输一部分，必须循环到全部完成
+ * <p>
+ * 3. MAPPED：按固定大小的窗口分段映射源文件与目标文件，窗口之间直接 put()，
+ * 不经过堆上的 byte[]，也没有单次 map() 不能超过 2GB 的限制。每个窗口用完立即解除映射，
+ * 不等 GC 回收，复制大文件时虚拟地址空间不会累积；全部写完后 force() 目标文件
+ * <p>
+ * TestFileCopier.test02 在 ext4 与 tmpfs 上的对比结果：从 16KB 到 64MB，TRANSFER 都是 MAPPED 的 2~7 倍、
+ * 1KB 堆缓冲区的 7~20 倍；1KB 文件各方式都被 open()/close() 的开销淹没，差别在误差范围内。
+ * 因此本地文件系统不论文件大小一律使用 TRANSFER，MAPPED 只在调用方明确指定时使用
+ */
+public final class FileCopier {
+
+    public enum Strategy {
+        BUFFERED, TRANSFER, MAPPED
+    }
+
+    static final int BUFFER_SIZE = 256 * 1024;
+
+    //分段映射的窗口大小
+    static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    //单次 transferTo() 的最大字节数，部分平台单次调用超过 2GB 会被截断
+    private static final long TRANSFER_CHUNK_SIZE = 1L << 30;
+
+    //连续这么多次调用没有进展就不再重试，避免在一个核上无限空转
+    private static final int MAX_STALLS = 16;
+
+    private static final Set<String> NETWORK_FILE_SYSTEMS = new HashSet<>(Arrays.asList(
+            "nfs", "nfs4", "cifs", "smb", "smbfs", "smb2", "fuse.sshfs", "9p"));
+
+    private FileCopier() {
+    }
+
+    /**
+     * 按 choose() 选出的方式复制文件，目标文件已存在时覆盖.
+     *
+     * @return 复制的字节数
+     */
+    public static long copy(Path source, Path target) throws IOException {
+        return copy(source, target, choose(Files.getFileStore(source)));
+    }
+
+    /**
+     * 用指定方式复制文件，目标文件已存在时覆盖.
+     *
+     * @return 复制的字节数
+     */
+    public static long copy(Path source, Path target, Strategy strategy) throws IOException {
+        FileChannel inChannel = null;
+        FileChannel outChannel = null;
+        try {
+            inChannel = FileChannel.open(source, StandardOpenOption.READ);
+            //MAPPED 以 READ_WRITE 映射目标文件，要求通道可读
+            outChannel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            long size = inChannel.size();
+            switch (strategy) {
+                case BUFFERED:
+                    return copyBuffered(inChannel, outChannel, size);
+                case MAPPED:
+                    return copyMapped(inChannel, outChannel, size);
+                case TRANSFER:
+                default:
+                    return transferTo(inChannel, 0, size, outChannel);
+            }
+        } finally {
+            if (outChannel != null) {
+                outChannel.close();
+            }
+            if (inChannel != null) {
+                inChannel.close();
+            }
+        }
+    }
+
+    /**
+     * 选择复制方式：网络文件系统用 BUFFERED，其余用 TRANSFER.
+     */
+    public static Strategy choose(FileStore store) {
+        String type = store == null ? "" : store.type().toLowerCase(Locale.ROOT);
+        if (NETWORK_FILE_SYSTEMS.contains(type)) {
+            //网络文件系统上 sendfile 与 mmap 都会退化为小块读写，用大缓冲区减少往返次数
+            return Strategy.BUFFERED;
+        }
+        return Strategy.TRANSFER;
+    }
+
+    /**
+     * 把 inChannel 从 position 开始的 count 个字节全部传输到 target，target 必须是阻塞模式.
+     * transferTo() 连续 MAX_STALLS 次没有进展时，剩余部分改用池化缓冲区 read()/write().
+     *
+     * @throws IllegalArgumentException target 是非阻塞模式的通道，写满时只能原地空转
+     * @throws EOFException             源文件在传输过程中被截断
+     * @throws IOException              target 连续 MAX_STALLS 次不接收任何数据
+     */
+    public static long transferTo(FileChannel inChannel, long position, long count, WritableByteChannel target)
+            throws IOException {
+        if (target instanceof SelectableChannel && !((SelectableChannel) target).isBlocking()) {
+            throw new IllegalArgumentException("target must be in blocking mode: " + target);
+        }
+        long transferred = 0;
+        int stalls = 0;
+        while (transferred < count) {
+            long n = inChannel.transferTo(position + transferred,
+                    Math.min(count - transferred, TRANSFER_CHUNK_SIZE), target);
+            if (n > 0) {
+                transferred += n;
+                stalls = 0;
+                continue;
+            }
+            if (position + transferred >= inChannel.size()) {
+                throw new EOFException("source truncated at " + (position + transferred));
+            }
+            if (++stalls >= MAX_STALLS) {
+                return transferred + writeBuffered(inChannel, position + transferred, count - transferred, target);
+            }
+            Thread.yield();
+        }
+        return transferred;
+    }
+
+    /**
+     * 从 source 读取 count 个字节，全部写入 outChannel 的 position 处，source 必须是阻塞模式.
+     *
+     * @throws IllegalArgumentException source 是非阻塞模式的通道，没有数据时只能原地空转
+     * @throws EOFException             source 在读满 count 个字节之前结束
+     * @throws IOException              source 连续 MAX_STALLS 次读不到数据
+     */
+    public static long transferFrom(ReadableByteChannel source, FileChannel outChannel, long position, long count)
+            throws IOException {
+        if (source instanceof SelectableChannel && !((SelectableChannel) source).isBlocking()) {
+            throw new IllegalArgumentException("source must be in blocking mode: " + source);
+        }
+        long transferred = 0;
+        while (transferred < count) {
+            long n = outChannel.transferFrom(source, position + transferred,
+                    Math.min(count - transferred, TRANSFER_CHUNK_SIZE));
+            if (n <= 0) {
+                //transferFrom() 无法区分流结束与暂时无数据，用一次 read() 确认
+                if (!readOne(source, outChannel, position + transferred)) {
+                    throw new EOFException("source ended after " + transferred + " of " + count + " bytes");
+                }
+                n = 1;
+            }
+            transferred += n;
+        }
+        return transferred;
+    }
+
+    static long copyBuffered(FileChannel inChannel, FileChannel outChannel, long size) throws IOException {
+        ByteBuffer buffer = BufferPool.getDefault().acquire(BUFFER_SIZE);
+        try {
+            long position = 0;
+            while (position < size) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), size - position));
+                int n = inChannel.read(buffer, position);
+                if (n < 0) {
+                    throw new EOFException("source truncated at " + position);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    position += outChannel.write(buffer, position);
+                }
+            }
+            return position;
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+    }
+
+    static long copyMapped(FileChannel inChannel, FileChannel outChannel, long size) throws IOException {
+        long position = 0;
+        while (position < size) {
+            long window = Math.min(MAP_WINDOW_SIZE, size - position);
+            MappedByteBuffer in = inChannel.map(FileChannel.MapMode.READ_ONLY, position, window);
+            MappedByteBuffer out = null;
+            try {
+                out = outChannel.map(FileChannel.MapMode.READ_WRITE, position, window);
+                out.put(in);
+            } finally {
+                //解除映射不丢弃脏页，它们留在页缓存中，由最后的 force() 写回
+                MappedFile.unmap(in);
+                if (out != null) {
+                    MappedFile.unmap(out);
+                }
+            }
+            position += window;
+        }
+        outChannel.force(false);
+        return position;
+    }
+
+    //transferTo() 没有进展时的后备方式：从 inChannel 读到池化缓冲区，再写到 target
+    private static long writeBuffered(FileChannel inChannel, long position, long count, WritableByteChannel target)
+            throws IOException {
+        ByteBuffer buffer = BufferPool.getDefault().acquire(BUFFER_SIZE);
+        try {
+            long written = 0;
+            while (written < count) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), count - written));
+                if (inChannel.read(buffer, position + written) < 0) {
+                    throw new EOFException("source truncated at " + (position + written));
+                }
+                buffer.flip();
+                int stalls = 0;
+                while (buffer.hasRemaining()) {
+                    int n = target.write(buffer);
+                    if (n > 0) {
+                        written += n;
+                        stalls = 0;
+                    } else if (++stalls >= MAX_STALLS) {
+                        throw new IOException("target accepted no data after " + MAX_STALLS + " writes: " + target);
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }
+            return written;
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+    }
+
+    private static boolean readOne(ReadableByteChannel source, FileChannel outChannel, long position)
+            throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        int n;
+        int stalls = 0;
+        while ((n = source.read(one)) == 0) {
+            if (++stalls >= MAX_STALLS) {
+                throw new IOException("source returned no data after " + MAX_STALLS + " reads: " + source);
+            }
+            Thread.yield();
+        }
+        if (n < 0) {
+            return false;
+        }
+        one.flip();
+        outChannel.write(one, position);
+        return true;
+    }
+}
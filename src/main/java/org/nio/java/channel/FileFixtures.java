@@ -0,0 +1,61 @@
+package org.nio.java.channel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 测试与基准测试共用的文件夹具：生成指定大小的随机内容文件、删除临时目录
+ */
+public final class FileFixtures {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private FileFixtures() {
+    }
+
+    /**
+     * 创建（或覆盖开头部分）path，写入 size 个随机字节. 每个 1MB 的块内容都不同，
+     * 整块错位、重复或丢失都会让校验和与逐字节比较失败.
+     */
+    public static Path createFile(Path path, long size) throws IOException {
+        ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            for (long position = 0; position < size; position += block.limit()) {
+                block.clear();
+                while (block.hasRemaining()) {
+                    block.putLong(ThreadLocalRandom.current().nextLong());
+                }
+                block.clear();
+                block.limit((int) Math.min(block.capacity(), size - position));
+                while (block.hasRemaining()) {
+                    channel.write(block);
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * 删除 dir 及其中的文件（不递归子目录），dir 不存在时什么也不做.
+     */
+    public static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        Path[] files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.toArray(Path[]::new);
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+}
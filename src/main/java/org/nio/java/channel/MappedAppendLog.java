@@ -0,0 +1,485 @@
+package org.nio.java.channel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 分段的内存映射追加日志，用来保存大量并发上传的数据：
+ * <p>
+ * 一、所有上传写入同一组段文件（默认每段 64MB，文件名为段的起始偏移量），每段只映射一次，
+ * 不再为每个连接或每次读就绪 FileChannel.open()，各上传也不会互相覆盖
+ * <p>
+ * 二、写入先移动段的尾指针预留空间（reserve），各线程在互不重叠的区域内并发拷贝；
+ * 当前段放不下时切换到新段，旧段剩余的空间留空. 预留是加锁的：尾指针与预留标记（见三）必须在同一个
+ * 临界区内写入，只用原子变量移动尾指针时，前一条预留的标记可能晚于后一条记录的提交与 force()，
+ * 恢复时会在这个空洞处截断. 锁内只有两次写入与一次加法，数据拷贝在锁外进行
+ * <p>
+ * 三、每个记录为 [4 字节长度][8 字节上传 ID][数据]. 预留时在移动尾指针的同时写入负的长度，
+ * 提交时改写为正的长度作为提交标记：打开已有目录时顺序扫描各段，跳过未提交的记录（崩溃或被放弃的预留），
+ * 重建上传 ID 到 (偏移量, 长度) 的索引，它后面已提交、已落盘的记录不会被截断或覆盖
+ * <p>
+ * 四、组提交：commit() 不立即 force()，而是由刷盘线程把一段时间内的全部提交请求合并成一次 force()
+ * <p>
+ * 所有公开方法都是线程安全的
+ */
+public class MappedAppendLog implements Closeable {
+
+    /**
+     * 记录头长度：4 字节数据长度 + 8 字节上传 ID.
+     */
+    public static final int HEADER_LENGTH = 12;
+
+    private static final String SUFFIX = ".log";
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long DEFAULT_FORCE_INTERVAL_MILLIS = 10;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long forceIntervalMillis;
+
+    //段号（起始偏移量 / segmentSize）到段
+    private final ConcurrentMap<Long, Segment> segments = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Upload> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong nextUploadId = new AtomicLong(1);
+    private volatile Segment active;
+
+    //上次 force() 之后写入过的段
+    private final Set<Segment> dirty = ConcurrentHashMap.newKeySet();
+    private final List<CompletableFuture<Void>> commitWaiters = new ArrayList<>();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private final LongAdder appendedBytes = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder forces = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    public MappedAppendLog(Path dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_SIZE, DEFAULT_FORCE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param segmentSize         每段的字节数，单条记录（含记录头）不能超过它，更长的数据由 append() 拆成多条记录
+     * @param forceIntervalMillis 刷盘线程合并提交请求的最长等待时间
+     */
+    public MappedAppendLog(Path dir, int segmentSize, long forceIntervalMillis) throws IOException {
+        if (segmentSize <= HEADER_LENGTH) {
+            throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.forceIntervalMillis = forceIntervalMillis;
+        Files.createDirectories(dir);
+        recover();
+        flusher = new Thread(this::flushLoop, "append-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 分配一个新的上传 ID，打开已有目录时从已存在的最大 ID 之后开始.
+     */
+    public long newUploadId() {
+        return nextUploadId.getAndIncrement();
+    }
+
+    /**
+     * 把 data 剩余的字节追加为 uploadId 的下一段数据，data 的 position 移到 limit.
+     * 超过单条记录容量的数据拆成多条记录.
+     */
+    public void append(long uploadId, ByteBuffer data) throws IOException {
+        int maxPayload = segmentSize - HEADER_LENGTH;
+        while (data.hasRemaining()) {
+            int n = Math.min(data.remaining(), maxPayload);
+            Reservation reservation = reserve(uploadId, n);
+            int limit = data.limit();
+            data.limit(data.position() + n);
+            reservation.buffer().put(data);
+            data.limit(limit);
+            reservation.commit();
+        }
+    }
+
+    /**
+     * 预留一条 length 字节的记录. 调用方把数据写入 Reservation.buffer() 后必须调用 commit()，
+     * 例如直接从 SocketChannel.read() 到映射区域，省去一次拷贝. 未提交就放弃的预留（例如 read() 抛出异常）
+     * 成为空洞，恢复时跳过，不影响它后面的记录.
+     */
+    public Reservation reserve(long uploadId, int length) throws IOException {
+        if (length <= 0 || length > segmentSize - HEADER_LENGTH) {
+            throw new IllegalArgumentException("invalid record length: " + length);
+        }
+        int total = HEADER_LENGTH + length;
+        while (true) {
+            if (closed) {
+                throw new IOException("log closed");
+            }
+            Segment segment = active;
+            //预留标记与尾指针在同一个锁内写入：后面的记录提交并 force() 时，前面每条预留的长度都已在映射区域中，
+            //恢复时总能跳过未提交的记录，而不是在它那里截断
+            synchronized (segment) {
+                int position = segment.tail;
+                if (position <= segmentSize - total) {
+                    segment.buffer.putLong(position + 4, uploadId);
+                    segment.buffer.putInt(position, -length);
+                    segment.tail = position + total;
+                    return new Reservation(segment, position, uploadId, length);
+                }
+            }
+            //当前段放不下，切换新段后重试
+            roll(segment);
+        }
+    }
+
+    /**
+     * 组提交：等待此前已 commit 的记录全部 force() 到磁盘.
+     */
+    public CompletableFuture<Void> commit() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (commitWaiters) {
+            if (closed) {
+                future.completeExceptionally(new IOException("log closed"));
+                return future;
+            }
+            commitWaiters.add(future);
+            commitWaiters.notifyAll();
+        }
+        commits.increment();
+        return future;
+    }
+
+    /**
+     * 上传的各段数据，按写入顺序.
+     */
+    public List<Extent> extents(long uploadId) {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null) {
+            return Collections.emptyList();
+        }
+        synchronized (upload) {
+            return new ArrayList<>(upload.extents);
+        }
+    }
+
+    /**
+     * 上传的总字节数.
+     */
+    public long size(long uploadId) {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null) {
+            return 0;
+        }
+        synchronized (upload) {
+            return upload.size;
+        }
+    }
+
+    public Set<Long> uploadIds() {
+        return Collections.unmodifiableSet(uploads.keySet());
+    }
+
+    /**
+     * 一段数据的只读视图，直接指向映射区域.
+     */
+    public ByteBuffer read(Extent extent) {
+        Segment segment = segments.get(extent.offset / segmentSize);
+        if (segment == null) {
+            throw new IllegalArgumentException("no segment for offset " + extent.offset);
+        }
+        ByteBuffer view = segment.buffer.asReadOnlyBuffer();
+        int position = (int) (extent.offset % segmentSize);
+        view.position(position);
+        view.limit(position + extent.length);
+        return view;
+    }
+
+    /**
+     * 把整个上传按顺序写到 target.
+     *
+     * @return 写出的字节数
+     */
+    public long transferTo(long uploadId, WritableByteChannel target) throws IOException {
+        long total = 0;
+        for (Extent extent : extents(uploadId)) {
+            ByteBuffer view = read(extent);
+            while (view.hasRemaining()) {
+                total += target.write(view);
+            }
+        }
+        return total;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long appendedBytes() {
+        return appendedBytes.sum();
+    }
+
+    public long commitCount() {
+        return commits.sum();
+    }
+
+    /**
+     * 实际 force() 的次数，commitCount() / forceCount() 即平均每次刷盘合并的提交数.
+     */
+    public long forceCount() {
+        return forces.sum();
+    }
+
+    /**
+     * 打开已有目录时跳过的未提交记录数.
+     */
+    public long skippedRecords() {
+        return skipped.sum();
+    }
+
+    /**
+     * 刷盘并停止刷盘线程，之后 reserve()/append() 抛出 IOException.
+     * <p>
+     * 不主动解除段的映射：其它线程可能正在 append() 或向 Reservation.buffer() 写入，
+     * 读者也可能还持有 read() 返回的视图，解除映射后再访问会使 JVM 崩溃. 映射随段对象一起由 GC 释放.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (commitWaiters) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            commitWaiters.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        forceDirty();
+    }
+
+    private synchronized void roll(Segment full) throws IOException {
+        if (active != full) {
+            //其它线程已经切换过
+            return;
+        }
+        long number = full.number + 1;
+        Segment segment = openSegment(number);
+        segments.put(number, segment);
+        active = segment;
+    }
+
+    private Segment openSegment(long number) throws IOException {
+        Path file = dir.resolve(String.format("%020d%s", number * segmentSize, SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            //映射建立后与通道无关，关闭通道不影响映射
+            return new Segment(number, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    //按段号顺序扫描已有的段，重建索引并确定尾指针
+    private void recover() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())) / segmentSize);
+            }
+        }
+        Collections.sort(numbers);
+        long maxUploadId = 0;
+        Segment last = null;
+        for (long number : numbers) {
+            Segment segment = openSegment(number);
+            segments.put(number, segment);
+            int position = 0;
+            while (position <= segmentSize - HEADER_LENGTH) {
+                int length = segment.buffer.getInt(position);
+                int size = Math.abs(length);
+                if (length == 0 || length == Integer.MIN_VALUE || size > segmentSize - HEADER_LENGTH - position) {
+                    //0 表示后面没有预留过的记录（未写入或段尾留空）
+                    break;
+                }
+                if (length < 0) {
+                    //已预留但未提交，跳过
+                    skipped.increment();
+                    position += HEADER_LENGTH + size;
+                    continue;
+                }
+                long uploadId = segment.buffer.getLong(position + 4);
+                index(uploadId, new Extent(number * segmentSize + position + HEADER_LENGTH, length));
+                maxUploadId = Math.max(maxUploadId, uploadId);
+                position += HEADER_LENGTH + length;
+            }
+            segment.tail = position;
+            last = segment;
+        }
+        nextUploadId.set(maxUploadId + 1);
+        if (last == null) {
+            last = openSegment(0);
+            segments.put(0L, last);
+        }
+        active = last;
+    }
+
+    private void index(long uploadId, Extent extent) {
+        Upload upload = uploads.computeIfAbsent(uploadId, id -> new Upload());
+        synchronized (upload) {
+            upload.extents.add(extent);
+            upload.size += extent.length;
+        }
+    }
+
+    private void flushLoop() {
+        List<CompletableFuture<Void>> batch = new ArrayList<>();
+        while (true) {
+            synchronized (commitWaiters) {
+                if (commitWaiters.isEmpty() && !closed) {
+                    try {
+                        commitWaiters.wait(forceIntervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                batch.addAll(commitWaiters);
+                commitWaiters.clear();
+            }
+            IOException failure = null;
+            if (!batch.isEmpty() || !dirty.isEmpty()) {
+                try {
+                    forceDirty();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            for (CompletableFuture<Void> waiter : batch) {
+                if (failure == null) {
+                    waiter.complete(null);
+                } else {
+                    waiter.completeExceptionally(failure);
+                }
+            }
+            batch.clear();
+            if (closed) {
+                return;
+            }
+        }
+    }
+
+    private void forceDirty() throws IOException {
+        for (Segment segment : dirty) {
+            //先移出再 force，force 期间的新写入会重新标记
+            dirty.remove(segment);
+            segment.buffer.force();
+        }
+        forces.increment();
+    }
+
+    /**
+     * 一条已预留的记录.
+     */
+    public final class Reservation {
+
+        private final Segment segment;
+        private final int position;
+        private final long uploadId;
+        private final int length;
+        private final ByteBuffer buffer;
+        private boolean committed;
+
+        private Reservation(Segment segment, int position, long uploadId, int length) {
+            this.segment = segment;
+            this.position = position;
+            this.uploadId = uploadId;
+            this.length = length;
+            ByteBuffer view = segment.buffer.duplicate();
+            view.position(position + HEADER_LENGTH);
+            view.limit(position + HEADER_LENGTH + length);
+            this.buffer = view.slice();
+        }
+
+        /**
+         * 记录数据区，必须恰好写满 length 个字节.
+         */
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        /**
+         * 写入记录头并加入索引；数据区未写满时抛出 IllegalStateException.
+         */
+        public void commit() {
+            if (committed) {
+                return;
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalStateException("reservation not filled: " + buffer.remaining() + " bytes left");
+            }
+            committed = true;
+            //上传 ID 已在预留时写入；长度改为正数即表示整条记录已写完
+            segment.buffer.putInt(position, length);
+            dirty.add(segment);
+            index(uploadId, new Extent(segment.number * segmentSize + position + HEADER_LENGTH, length));
+            appendedBytes.add(length);
+        }
+    }
+
+    /**
+     * 上传的一段数据在日志中的位置.
+     */
+    public static final class Extent {
+
+        /**
+         * 数据（不含记录头）在整个日志中的偏移量.
+         */
+        public final long offset;
+        public final int length;
+
+        Extent(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public String toString() {
+            return "Extent[" + offset + ", " + length + "]";
+        }
+    }
+
+    private static final class Upload {
+        final List<Extent> extents = new ArrayList<>();
+        long size;
+    }
+
+    private static final class Segment {
+
+        final long number;
+        final MappedByteBuffer buffer;
+        //下一条记录的位置，在段的锁内读写；恢复时在构造函数中设置，之后通过 volatile 的 active 发布
+        int tail;
+
+        Segment(long number, MappedByteBuffer buffer) {
+            this.number = number;
+            this.buffer = buffer;
+        }
+    }
+}
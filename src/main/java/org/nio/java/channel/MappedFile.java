@@ -0,0 +1,409 @@
+package org.nio.java.channel;
+
+import org.nio.java.executor.ExecutorPurpose;
+import org.nio.java.executor.ExecutorRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 只读的大文件内存映射，按 long 偏移量读取基本类型与字节区间，文件可以超过 2GB：
+ * <p>
+ * 一、文件按固定大小的窗口（默认 64MB）分段映射，同时最多保留 maxWindows 个窗口，
+ * 用得最少的窗口被换出时立即解除映射，扫描多 GB 的文件既不复制到堆上，也不会占满地址空间
+ * <p>
+ * 二、跨窗口边界的基本类型与字节区间由多个窗口拼接
+ * <p>
+ * 三、Java 没有 madvise()，SEQUENTIAL 提示下访问一个窗口时提前映射下一个窗口，
+ * 并在后台线程 load() 把它的页面读入内存，代替 MADV_SEQUENTIAL / MADV_WILLNEED
+ * <p>
+ * 不是线程安全的。窗口解除映射后再访问它的视图会使 JVM 崩溃，
+ * 因此 slice() 返回的视图只能在下一次访问其它窗口或 close() 之前使用
+ */
+public class MappedFile implements Closeable {
+
+    public enum AccessHint {
+        /**
+         * 不做预读.
+         */
+        NORMAL,
+        /**
+         * 顺序扫描，后台预读下一个窗口. 只对不在页缓存中的冷文件有用，
+         * 页面已缓存时（TestMappedFile.test03 在单核机器上）预读只是额外开销，比 NORMAL 慢约 25%
+         */
+        SEQUENTIAL
+    }
+
+    public static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final int DEFAULT_MAX_WINDOWS = 4;
+
+    private static final Unmapper UNMAPPER = Unmapper.find();
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final int maxWindows;
+    private final AccessHint hint;
+
+    //按访问顺序排列，最久未用的在前
+    private final LinkedHashMap<Long, Window> windows = new LinkedHashMap<>(16, 0.75f, true);
+    private Window current;
+
+    private long mapCount;
+    private long unmapCount;
+
+    public static MappedFile open(Path path) throws IOException {
+        return new MappedFile(path, DEFAULT_WINDOW_SIZE, DEFAULT_MAX_WINDOWS, AccessHint.NORMAL);
+    }
+
+    public static MappedFile open(Path path, AccessHint hint) throws IOException {
+        return new MappedFile(path, DEFAULT_WINDOW_SIZE, DEFAULT_MAX_WINDOWS, hint);
+    }
+
+    /**
+     * @param windowSize 每个窗口映射的字节数，不超过 Integer.MAX_VALUE
+     * @param maxWindows 同时保留的窗口数，至少为 2（当前窗口与预读的下一个窗口）
+     */
+    public MappedFile(Path path, long windowSize, int maxWindows, AccessHint hint) throws IOException {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid windowSize: " + windowSize);
+        }
+        if (maxWindows < 2) {
+            throw new IllegalArgumentException("maxWindows must be at least 2: " + maxWindows);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.maxWindows = maxWindows;
+        this.hint = hint;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public byte get(long position) throws IOException {
+        checkIndex(position, 1);
+        Window window = window(position);
+        return window.buffer.get((int) (position - window.base));
+    }
+
+    public short getShort(long position) throws IOException {
+        return (short) getNumber(position, 2);
+    }
+
+    public int getInt(long position) throws IOException {
+        return (int) getNumber(position, 4);
+    }
+
+    public long getLong(long position) throws IOException {
+        return getNumber(position, 8);
+    }
+
+    /**
+     * 从 position 开始读入 dst 剩余的空间，文件剩余的字节不够时只读到文件末尾.
+     *
+     * @return 读入的字节数，position 不小于文件大小时返回 -1
+     */
+    public int read(long position, ByteBuffer dst) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("negative position: " + position);
+        }
+        if (position >= size) {
+            return -1;
+        }
+        int total = 0;
+        while (dst.hasRemaining() && position < size) {
+            ByteBuffer view = view(position, dst.remaining());
+            total += view.remaining();
+            position += view.remaining();
+            dst.put(view);
+        }
+        return total;
+    }
+
+    /**
+     * 把 [position, position + count) 写到 target，数据直接从映射区域写出，不经过堆.
+     *
+     * @return 写出的字节数
+     */
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        checkIndex(position, count);
+        long end = position + count;
+        while (position < end) {
+            ByteBuffer view = view(position, (int) Math.min(end - position, Integer.MAX_VALUE));
+            while (view.hasRemaining()) {
+                position += target.write(view);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * [position, position + length) 的只读视图，区间必须在同一个窗口内，否则抛出 IllegalArgumentException.
+     */
+    public ByteBuffer slice(long position, int length) throws IOException {
+        checkIndex(position, length);
+        ByteBuffer view = view(position, length);
+        if (view.remaining() < length) {
+            throw new IllegalArgumentException("range crosses window boundary: " + position + "+" + length);
+        }
+        return view.slice();
+    }
+
+    /**
+     * 累计映射的窗口数.
+     */
+    public long mapCount() {
+        return mapCount;
+    }
+
+    /**
+     * 累计解除映射的窗口数.
+     */
+    public long unmapCount() {
+        return unmapCount;
+    }
+
+    /**
+     * 当前保留的窗口数，不超过 maxWindows.
+     */
+    public int mappedWindows() {
+        return windows.size();
+    }
+
+    /**
+     * 解除全部窗口的映射并关闭文件.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Window window : windows.values()) {
+            unmap(window);
+        }
+        windows.clear();
+        current = null;
+        channel.close();
+    }
+
+    /**
+     * 立即解除映射，不等 GC 回收 MappedByteBuffer. 之后再访问 buffer 或它的视图会使 JVM 崩溃.
+     *
+     * @return 当前 JVM 不支持时返回 false，映射在 buffer 被回收时释放
+     */
+    public static boolean unmap(MappedByteBuffer buffer) {
+        return UNMAPPER != null && UNMAPPER.unmap(buffer);
+    }
+
+    //按大端序逐字节读取，窗口内走 ByteBuffer 的快速路径
+    private long getNumber(long position, int length) throws IOException {
+        checkIndex(position, length);
+        Window window = window(position);
+        int offset = (int) (position - window.base);
+        if (offset + length <= window.buffer.limit()) {
+            switch (length) {
+                case 2:
+                    return window.buffer.getShort(offset);
+                case 4:
+                    return window.buffer.getInt(offset);
+                default:
+                    return window.buffer.getLong(offset);
+            }
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (get(position + i) & 0xff);
+        }
+        return value;
+    }
+
+    //从 position 开始、不超过所在窗口末尾的视图
+    private ByteBuffer view(long position, int length) throws IOException {
+        Window window = window(position);
+        int offset = (int) (position - window.base);
+        ByteBuffer view = window.buffer.duplicate();
+        view.position(offset);
+        view.limit((int) Math.min((long) offset + length, window.buffer.limit()));
+        return view;
+    }
+
+    private Window window(long position) throws IOException {
+        Window window = current;
+        if (window != null && position >= window.base && position - window.base < window.buffer.limit()) {
+            return window;
+        }
+        long index = position / windowSize;
+        window = windows.get(index);
+        if (window == null) {
+            window = map(index);
+        }
+        current = window;
+        if (hint == AccessHint.SEQUENTIAL && (index + 1) * windowSize < size && !windows.containsKey(index + 1)) {
+            prefetch(map(index + 1));
+            //预读的窗口不应把当前窗口挤到最久未用
+            windows.get(index);
+        }
+        return window;
+    }
+
+    private Window map(long index) throws IOException {
+        long base = index * windowSize;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(windowSize, size - base));
+        Window window = new Window(base, buffer);
+        windows.put(index, window);
+        mapCount++;
+        Iterator<Window> iterator = windows.values().iterator();
+        while (windows.size() > maxWindows) {
+            Window eldest = iterator.next();
+            iterator.remove();
+            unmap(eldest);
+        }
+        return window;
+    }
+
+    private void prefetch(Window window) {
+        Prefetch prefetch = new Prefetch(window.buffer);
+        try {
+            ExecutorRegistry.getDefault().executor(ExecutorPurpose.IO_OFFLOAD).execute(prefetch);
+            window.prefetch = prefetch;
+        } catch (RejectedExecutionException e) {
+            //线程池忙时放弃预读，不影响正确性
+        }
+    }
+
+    private void unmap(Window window) {
+        if (window == current) {
+            current = null;
+        }
+        //后台线程可能还在 load()，必须等它结束才能解除映射
+        if (window.prefetch != null) {
+            window.prefetch.cancelOrAwait();
+        }
+        unmap(window.buffer);
+        unmapCount++;
+    }
+
+    private void checkIndex(long position, long length) {
+        if (position < 0 || length < 0 || position > size - length) {
+            throw new IndexOutOfBoundsException("position " + position + ", length " + length + ", size " + size);
+        }
+    }
+
+    private static final class Window {
+
+        final long base;
+        final MappedByteBuffer buffer;
+        Prefetch prefetch;
+
+        Window(long base, MappedByteBuffer buffer) {
+            this.base = base;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * 后台 load() 一个窗口. Future.cancel(false) 在任务运行中也返回 true，不能据此判断 load() 是否已经结束，
+     * 因此由 started 决定任务与 cancelOrAwait() 谁先到：任务先到则 cancelOrAwait() 等它在 finally 中计数，
+     * cancelOrAwait() 先到则任务不再执行.
+     */
+    private static final class Prefetch implements Runnable {
+
+        private final MappedByteBuffer buffer;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        Prefetch(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                buffer.load();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        //返回之后 load() 不会再访问 buffer；等待期间被中断也要等到底，返回前恢复中断状态
+        void cancelOrAwait() {
+            if (started.compareAndSet(false, true)) {
+                return;
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 解除映射的方式：Java 9 起为 sun.misc.Unsafe.invokeCleaner()，Java 8 为 DirectBuffer.cleaner().clean()，
+     * 都通过反射调用，找不到时返回 null.
+     */
+    private interface Unmapper {
+
+        boolean unmap(MappedByteBuffer buffer);
+
+        static Unmapper find() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                Object unsafe = theUnsafe.get(null);
+                return buffer -> {
+                    try {
+                        invokeCleaner.invoke(unsafe, buffer);
+                        return true;
+                    } catch (ReflectiveOperationException e) {
+                        return false;
+                    }
+                };
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                //Java 8
+            }
+            try {
+                Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return buffer -> {
+                    try {
+                        Object c = cleaner.invoke(buffer);
+                        if (c != null) {
+                            clean.invoke(c);
+                        }
+                        return c != null;
+                    } catch (ReflectiveOperationException e) {
+                        return false;
+                    }
+                };
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
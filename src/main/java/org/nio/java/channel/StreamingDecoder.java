@@ -0,0 +1,121 @@
+package org.nio.java.channel;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 增量解码器：字节分多次到达时逐段解码到调用方提供的 CharBuffer
+ * <p>
+ * 对每次读到的缓冲区直接调用 CharsetDecoder.decode(ByteBuffer)，一旦一个多字节字符（如 UTF-8 中文的 3 个字节）
+ * 被拆在两次 read() 之间就会得到乱码。本类把缓冲区末尾不完整的字节序列保存下来，与下一段输入拼接后再解码，
+ * 因此调用方每次解码后都可以直接 clear() 读缓冲区
+ * <p>
+ * 每个连接（每个字节流）一个实例，非线程安全
+ */
+public class StreamingDecoder {
+
+    //任何字符集单个字符的最大字节数都不超过这个值
+    private static final int MAX_CARRY = 16;
+
+    private final CharsetDecoder decoder;
+    private final boolean asciiCompatible;
+
+    //上一段输入末尾不完整的字节，写模式
+    private final ByteBuffer carry = ByteBuffer.allocate(MAX_CARRY);
+
+    public StreamingDecoder(Charset charset) {
+        this.decoder = CharsetCodecs.newDecoder(charset);
+        this.asciiCompatible = CharsetCodecs.isAsciiCompatible(charset);
+    }
+
+    /**
+     * 解码 in 中剩余的字节到 out.
+     *
+     * @return UNDERFLOW 表示 in 已全部消费（末尾不完整的字节已保存在内部）；
+     * OVERFLOW 表示 out 已满，in 中还有剩余，腾出 out 空间后用同一个 in 继续调用
+     */
+    public CoderResult decode(ByteBuffer in, CharBuffer out) {
+        if (carry.position() > 0) {
+            CoderResult result = decodeCarry(in, out);
+            if (result != null) {
+                return result;
+            }
+        }
+        //两端都是堆缓冲区时 JDK 的 UTF-8 解码器自带更快的 ASCII 路径，只对直接缓冲区做快速拷贝
+        if (asciiCompatible && !(in.hasArray() && out.hasArray())) {
+            CharsetCodecs.decodeAscii(in, out);
+            if (!in.hasRemaining()) {
+                return CoderResult.UNDERFLOW;
+            }
+        }
+        CoderResult result = decoder.decode(in, out, false);
+        if (result.isUnderflow() && in.hasRemaining()) {
+            carry.put(in);
+        }
+        return result;
+    }
+
+    /**
+     * 输入结束：内部保存的不完整字节按非法输入处理（替换为替换字符），并重置解码器以便复用.
+     *
+     * @return OVERFLOW 表示 out 空间不足，腾出空间后再次调用
+     */
+    public CoderResult finish(CharBuffer out) {
+        carry.flip();
+        CoderResult result = decoder.decode(carry, out, true);
+        if (result.isUnderflow()) {
+            result = decoder.flush(out);
+        }
+        carry.compact();
+        if (result.isUnderflow()) {
+            reset();
+        }
+        return result;
+    }
+
+    /**
+     * 丢弃内部保存的字节，重新开始.
+     */
+    public void reset() {
+        carry.clear();
+        decoder.reset();
+    }
+
+    /**
+     * 内部保存的、尚未组成完整字符的字节数.
+     */
+    public int pendingBytes() {
+        return carry.position();
+    }
+
+    //逐个字节补齐上一段留下的不完整字符；补齐后返回 null 继续正常解码
+    private CoderResult decodeCarry(ByteBuffer in, CharBuffer out) {
+        while (carry.position() > 0) {
+            if (!in.hasRemaining()) {
+                return CoderResult.UNDERFLOW;
+            }
+            if (!out.hasRemaining()) {
+                return CoderResult.OVERFLOW;
+            }
+            carry.put(in.get());
+            carry.flip();
+            CoderResult result = decoder.decode(carry, out, false);
+            carry.compact();
+            if (result.isOverflow()) {
+                return result;
+            }
+            if (!carry.hasRemaining()) {
+                //仍不能组成字符且已达上限，只能是非法输入
+                carry.flip();
+                decoder.decode(carry, out, true);
+                carry.clear();
+                decoder.reset();
+            }
+        }
+        return null;
+    }
+}
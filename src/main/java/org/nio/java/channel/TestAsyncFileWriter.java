@@ -0,0 +1,269 @@
+package org.nio.java.channel;
+
+import org.junit.Test;
+import org.nio.java.buffer.BufferPool;
+import org.nio.java.nonblock.Connection;
+import org.nio.java.nonblock.ConnectionHandler;
+import org.nio.java.nonblock.ReactorConfig;
+import org.nio.java.nonblock.ReactorServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 异步写文件：顺序与批处理、慢磁盘下 write() 不阻塞且水位生效、线程池拒绝写任务，
+ * 以及 ReactorServer 上传时磁盘变慢不影响其它连接的延迟
+ */
+public class TestAsyncFileWriter {
+
+    //1 万个大小随机的缓冲区，文件内容与提交顺序一致，写任务按批处理，缓冲区全部归还
+    @Test
+    public void test01() throws Exception {
+        Path file = Files.createTempFile("async", ".bin");
+        BufferPool pool = new BufferPool(512, 4 * 1024 * 1024, 16L * 1024 * 1024);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncFileWriter writer = new AsyncFileWriter(file, 64L * 1024 * 1024, 0, executor, pool);
+            Random random = new Random(1);
+            byte[] expected = new byte[10000 * 4096];
+            int length = 0;
+            for (int i = 0; i < 10000; i++) {
+                int size = 1 + random.nextInt(4096);
+                ByteBuffer buffer = pool.acquire(size);
+                for (int j = 0; j < size; j++) {
+                    expected[length] = (byte) (length * 31 + 7);
+                    buffer.put(expected[length++]);
+                }
+                buffer.flip();
+                writer.write(buffer);
+            }
+            writer.flush(true).get(5, TimeUnit.SECONDS);
+            writer.close();
+            assertArrayEquals(Arrays.copyOf(expected, length), Files.readAllBytes(file));
+            assertEquals(length, writer.bytesWritten());
+            assertEquals(0, pool.outstandingCount());
+            System.out.printf("10000 buffers, %d batches, %d write() calls%n", writer.batches(), writer.writeCalls());
+            assertTrue(writer.batches() < 10000);
+        } finally {
+            executor.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    //每批写入前先等 100ms 模拟慢磁盘：write() 仍然立即返回，超过高水位后不可写，降到低水位以下回调监听器
+    @Test
+    public void test02() throws Exception {
+        Path file = Files.createTempFile("async", ".bin");
+        ExecutorService disk = Executors.newSingleThreadExecutor();
+        try {
+            AsyncFileWriter writer = new AsyncFileWriter(file, 1024 * 1024, 256 * 1024, slow(disk, 100),
+                    BufferPool.getDefault());
+            AtomicInteger resumed = new AtomicInteger();
+            writer.setWritabilityListener(resumed::incrementAndGet);
+            long maxNanos = 0;
+            int writes = 0;
+            boolean writable = true;
+            while (writable) {
+                ByteBuffer buffer = BufferPool.getDefault().acquire(64 * 1024);
+                long start = System.nanoTime();
+                writable = writer.write(buffer);
+                maxNanos = Math.max(maxNanos, System.nanoTime() - start);
+                writes++;
+            }
+            System.out.printf("%d writes before the high water mark, slowest write() %d us%n", writes,
+                    maxNanos / 1000);
+            assertFalse(writer.isWritable());
+            assertTrue(maxNanos < TimeUnit.MILLISECONDS.toNanos(50));
+            writer.flush(false).get(5, TimeUnit.SECONDS);
+            assertTrue(writer.isWritable());
+            assertEquals(1, resumed.get());
+            writer.close();
+            assertEquals(writes * 64L * 1024, Files.size(file));
+        } finally {
+            disk.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    //同一个 worker 上一个连接上传、一个连接 ping-pong；磁盘每批慢 50ms，上传连接被暂停读取，ping 的延迟不受影响
+    @Test
+    public void test03() throws Exception {
+        Path dir = Files.createTempDirectory("async");
+        ExecutorService disk = Executors.newSingleThreadExecutor();
+        Executor slowDisk = slow(disk, 50);
+        AtomicInteger pauses = new AtomicInteger();
+        CompletableFuture<Void> saved = new CompletableFuture<>();
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                new ReactorConfig().setWorkerCount(1).setJmxEnabled(false), new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+            }
+
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+                if (connection.attachment() == null) {
+                    //第一个字节区分连接类型：'P' 为 ping，其它为上传
+                    if (buffer.get(buffer.position()) == 'P') {
+                        connection.attach("ping");
+                    } else {
+                        AsyncFileWriter writer = new AsyncFileWriter(dir.resolve("upload-" + connection.id()),
+                                1024 * 1024, 256 * 1024, slowDisk, BufferPool.getDefault());
+                        writer.setWritabilityListener(connection::resumeReading);
+                        connection.attach(writer);
+                    }
+                }
+                if (connection.attachment() instanceof AsyncFileWriter) {
+                    AsyncFileWriter writer = (AsyncFileWriter) connection.attachment();
+                    //读缓冲区由 worker 共用，复制到池化缓冲区后交给写文件线程
+                    ByteBuffer copy = BufferPool.getDefault().acquire(buffer.remaining());
+                    copy.put(buffer).flip();
+                    if (!writer.write(copy)) {
+                        pauses.incrementAndGet();
+                        connection.pauseReading();
+                    }
+                } else {
+                    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                    copy.put(buffer).flip();
+                    connection.write(copy);
+                }
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+                if (connection.attachment() instanceof AsyncFileWriter) {
+                    //不阻塞 worker，写完后在写文件线程上关闭
+                    ((AsyncFileWriter) connection.attachment()).closeAsync().thenRun(() -> saved.complete(null));
+                }
+            }
+        });
+        server.start();
+        try {
+            int total = 32 * 1024 * 1024;
+            CompletableFuture<Void> upload = CompletableFuture.runAsync(() -> {
+                try (SocketChannel channel = SocketChannel.open(server.localAddress())) {
+                    ByteBuffer data = ByteBuffer.allocate(total);
+                    for (int i = 0; i < total; i++) {
+                        data.put((byte) ('U' + i));
+                    }
+                    data.flip();
+                    while (data.hasRemaining()) {
+                        channel.write(data);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            long maxRtt = 0;
+            try (SocketChannel ping = SocketChannel.open(server.localAddress())) {
+                ByteBuffer buffer = ByteBuffer.allocate(1);
+                while (!upload.isDone()) {
+                    long start = System.nanoTime();
+                    buffer.clear();
+                    buffer.put((byte) 'P').flip();
+                    ping.write(buffer);
+                    buffer.clear();
+                    ping.read(buffer);
+                    maxRtt = Math.max(maxRtt, System.nanoTime() - start);
+                    Thread.sleep(1);
+                }
+            }
+            upload.get();
+            //客户端写完时服务端可能还暂停着读取，等服务端读到连接关闭、文件写完
+            saved.get(30, TimeUnit.SECONDS);
+            System.out.printf("upload paused %d times, slowest ping %d us%n", pauses.get(), maxRtt / 1000);
+            assertTrue(pauses.get() > 0);
+            //每批磁盘写入要 50ms，同步写时 ping 至少要等这么久
+            assertTrue(maxRtt < TimeUnit.MILLISECONDS.toNanos(50));
+        } finally {
+            server.stop();
+            disk.shutdown();
+            disk.awaitTermination(30, TimeUnit.SECONDS);
+        }
+        try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+            Path upload = files.findFirst().orElseThrow(IllegalStateException::new);
+            byte[] bytes = Files.readAllBytes(upload);
+            assertEquals(32 * 1024 * 1024, bytes.length);
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != (byte) ('U' + i)) {
+                    throw new AssertionError("mismatch at " + i);
+                }
+            }
+            Files.delete(upload);
+        }
+        Files.delete(dir);
+    }
+
+    //每个写任务先睡 delayMillis，模拟磁盘变慢
+    //线程池拒绝写任务：write() 抛出 IOException、缓冲区归还，写入器以失败结束而不是永远等待一个不存在的写任务
+    @Test
+    public void test04() throws Exception {
+        Path file = Files.createTempFile("async", ".bin");
+        BufferPool pool = new BufferPool(512, 4 * 1024 * 1024, 16L * 1024 * 1024);
+        AtomicInteger submitted = new AtomicInteger();
+        Executor full = command -> {
+            submitted.incrementAndGet();
+            throw new RejectedExecutionException("queue full");
+        };
+        try {
+            AsyncFileWriter writer = new AsyncFileWriter(file, 1024 * 1024, 0, full, pool);
+            try {
+                writer.write(pool.acquire(100));
+                fail("rejected write task should fail the writer");
+            } catch (IOException e) {
+                System.out.println(e + ", cause: " + e.getCause());
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+            assertEquals(0, pool.outstandingCount());
+            assertEquals(0, writer.pendingBytes());
+            try {
+                writer.write(pool.acquire(100));
+                fail("writer has failed");
+            } catch (IOException e) {
+                assertEquals(0, pool.outstandingCount());
+            }
+            //flush 与关闭也被拒绝，但 future 以失败结束，不会挂起
+            try {
+                writer.closeAsync().get(5, TimeUnit.SECONDS);
+                fail("writer has failed");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertEquals(2, submitted.get());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Executor slow(ExecutorService executor, long delayMillis) {
+        return command -> executor.execute(() -> {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            command.run();
+        });
+    }
+}
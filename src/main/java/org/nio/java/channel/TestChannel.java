@@ -1,6 +1,8 @@
 package org.nio.java.channel;
 
 import org.junit.Test;
+import org.nio.java.buffer.BufferPool;
+import org.nio.java.buffer.CompositeBuffer;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -9,12 +11,12 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
@@ -69,6 +71,7 @@ public class TestChannel {
         FileOutputStream outputStream = null;
         FileChannel inChannel = null;
         FileChannel outChannel = null;
+        ByteBuffer buffer = null;
         try {
             inputStream = new FileInputStream("pic/20170407_070822000_iOS.png");
             outputStream = new FileOutputStream("pic/1.jpg");
@@ -77,8 +80,8 @@ public class TestChannel {
             inChannel = inputStream.getChannel();
             outChannel = outputStream.getChannel();
 
-            //②分配指定大小的缓冲区
-            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            //②从缓冲区池中取指定大小的缓冲区
+            buffer = BufferPool.getDefault().acquire(1024);
 
             //③将通道中的数据存入缓冲区中
             while (inChannel.read(buffer) != -1) {
@@ -91,6 +94,10 @@ public class TestChannel {
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
+            if (buffer != null) {
+                BufferPool.getDefault().release(buffer);
+            }
+
             try {
                 if (outputStream != null) {
                     outputStream.close();
@@ -130,21 +137,16 @@ public class TestChannel {
     public void test02() {
         Instant start = Instant.now();
 
-        FileChannel inChannel = null;
         FileChannel outChannel = null;
         try {
-            inChannel = FileChannel.open(Paths.get("pic/20170408_140516000_iOS.png"), StandardOpenOption.READ);
             outChannel = FileChannel.open(Paths.get("pic/2.jpg"), StandardOpenOption.WRITE, StandardOpenOption.READ,
                     StandardOpenOption.CREATE);
 
-            //内存映射文件
-            MappedByteBuffer inMappedBuffer = inChannel.map(FileChannel.MapMode.READ_ONLY, 0, inChannel.size());
-            MappedByteBuffer outMappedBuffer = outChannel.map(FileChannel.MapMode.READ_WRITE, 0, inChannel.size());
-
-            //直接对缓冲区进行数据的读写操作
-            byte[] bytes = new byte[inMappedBuffer.limit()];
-            inMappedBuffer.get(bytes);
-            outMappedBuffer.put(bytes);
+            //内存映射文件：按窗口分段映射，超过 2GB 的文件也可以，数据直接从映射区域写出，不复制到堆上的 byte[]
+            try (MappedFile inMappedFile = MappedFile.open(Paths.get("pic/20170408_140516000_iOS.png"),
+                    MappedFile.AccessHint.SEQUENTIAL)) {
+                inMappedFile.transferTo(0, inMappedFile.size(), outChannel);
+            }
 
             Instant end = Instant.now();
             System.out.println("所耗时间为：" + Duration.between(start, end).toMillis());
@@ -159,14 +161,6 @@ public class TestChannel {
                     e.printStackTrace();
                 }
             }
-
-            if (inChannel != null) {
-                try {
-                    inChannel.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
         }
     }
 
@@ -180,7 +174,8 @@ public class TestChannel {
             inChannel = FileChannel.open(Paths.get("pic/20170408_140516000_iOS.png"), StandardOpenOption.READ);
             outChannel = FileChannel.open(Paths.get("pic/3.jpg"), StandardOpenOption.WRITE, StandardOpenOption.READ,
                     StandardOpenOption.CREATE);
-            outChannel.transferFrom(inChannel, 0, inChannel.size());
+            //单次 transferFrom() 可能只传输一部分，循环到全部完成
+            FileCopier.transferFrom(inChannel, outChannel, 0, inChannel.size());
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
@@ -231,10 +226,11 @@ public class TestChannel {
                     buffer.flip();
                 }
 
-                System.out.println(new String(buffers[0].array(), 0, buffers[0].limit()));
-                System.out.println(new String(buffers[1].array(), 0, buffers[1].limit()));
+                //两个缓冲区当作一段连续区域处理，聚集写入也直接由它完成
+                CompositeBuffer composite = new CompositeBuffer(buffers);
+                System.out.println(composite.toString(Charset.defaultCharset()));
 
-                outChannel.write(buffers);
+                composite.write(outChannel);
 
                 for (ByteBuffer buffer : buffers) {
                     buffer.clear();
@@ -310,4 +306,34 @@ public class TestChannel {
             e.printStackTrace();
         }
     }
+
+    //增量解码：把编码后的字节按 5 个字节一段分批解码，多字节字符被拆开也不会乱码
+    @Test
+    public void test06() {
+        String str = "无善无恶心之体，\n" +
+                "有善有恶意之动。\n" +
+                "知善知恶是良知，\n" +
+                "为善去恶是格物。";
+
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        CharsetCodecs.encode(str, byteBuffer, StandardCharsets.UTF_8);
+        byteBuffer.flip();
+
+        StreamingDecoder decoder = new StreamingDecoder(StandardCharsets.UTF_8);
+        CharBuffer charBuffer = CharBuffer.allocate(1024);
+        ByteBuffer segment = ByteBuffer.allocate(5);
+        while (byteBuffer.hasRemaining()) {
+            segment.clear();
+            while (segment.hasRemaining() && byteBuffer.hasRemaining()) {
+                segment.put(byteBuffer.get());
+            }
+            segment.flip();
+            decoder.decode(segment, charBuffer);
+            System.out.println("未完成字节数：" + decoder.pendingBytes());
+        }
+        decoder.finish(charBuffer);
+        charBuffer.flip();
+        System.out.println(charBuffer.toString());
+        System.out.println(str.equals(charBuffer.toString()));
+    }
 }
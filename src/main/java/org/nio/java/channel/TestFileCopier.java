@@ -0,0 +1,229 @@
+package org.nio.java.channel;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 文件复制方式对比：TestChannel 中的四种方式（1KB 堆缓冲区、内存映射、通道传输、分散聚集）
+ * 与 FileCopier 的自适应选择，文件大小从 1KB 到 copy.maxSize（默认 256MB，可用 -Dcopy.maxSize=8g 调大）
+ */
+public class TestFileCopier {
+
+    private static final int ROUNDS = 3;
+
+    private interface CopyMode {
+        long copy(Path source, Path target) throws IOException;
+    }
+
+    //正确性：各种方式复制后内容一致，包括超过一个映射窗口的文件
+    @Test
+    public void test01() throws IOException {
+        Path dir = Files.createTempDirectory("copier");
+        try {
+            Path source = FileFixtures.createFile(dir.resolve("source"), FileCopier.MAP_WINDOW_SIZE + 12345);
+            byte[] expected = Files.readAllBytes(source);
+            for (FileCopier.Strategy strategy : FileCopier.Strategy.values()) {
+                Path target = dir.resolve(strategy.name());
+                assertEquals(expected.length, FileCopier.copy(source, target, strategy));
+                assertArrayEquals(strategy.name(), expected, Files.readAllBytes(target));
+                Files.delete(target);
+            }
+            System.out.println("自适应选择：" + FileCopier.choose(Files.getFileStore(source)));
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //吞吐量对比，单位 MB/s，每组取 ROUNDS 次中的最好成绩
+    @Test
+    public void test02() throws IOException {
+        long maxSize = parseSize(System.getProperty("copy.maxSize", "256m"));
+        String[] names = {"heap-1k", "mapped", "transfer", "scatter-gather", "adaptive"};
+        CopyMode[] modes = {
+                TestFileCopier::copyHeap,
+                (s, t) -> FileCopier.copy(s, t, FileCopier.Strategy.MAPPED),
+                (s, t) -> FileCopier.copy(s, t, FileCopier.Strategy.TRANSFER),
+                TestFileCopier::copyScatterGather,
+                FileCopier::copy
+        };
+
+        Path dir = Files.createTempDirectory("copier");
+        try {
+            System.out.println("文件系统：" + Files.getFileStore(dir).type());
+            System.out.println("size\t" + String.join("\t", names));
+            for (long size = 1024; size <= maxSize; size *= 16) {
+                Path source = FileFixtures.createFile(dir.resolve("source-" + size), size);
+                StringBuilder line = new StringBuilder(formatSize(size));
+                for (CopyMode mode : modes) {
+                    long best = Long.MAX_VALUE;
+                    for (int i = 0; i < ROUNDS; i++) {
+                        Path target = dir.resolve("target");
+                        long start = System.nanoTime();
+                        mode.copy(source, target);
+                        best = Math.min(best, System.nanoTime() - start);
+                        Files.delete(target);
+                    }
+                    line.append('\t').append(String.format("%.1f", size / 1024.0 / 1024.0 / (best / 1e9)));
+                }
+                System.out.println(line);
+                Files.delete(source);
+            }
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //transferTo() 的目标、transferFrom() 的源是非阻塞通道时直接拒绝，而不是原地空转
+    @Test
+    public void test03() throws IOException {
+        Path dir = Files.createTempDirectory("copier");
+        Pipe pipe = Pipe.open();
+        try (FileChannel inChannel = FileChannel.open(FileFixtures.createFile(dir.resolve("source"), 1024 * 1024),
+                StandardOpenOption.READ);
+             FileChannel outChannel = FileChannel.open(dir.resolve("target"), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE)) {
+            pipe.sink().configureBlocking(false);
+            try {
+                FileCopier.transferTo(inChannel, 0, inChannel.size(), pipe.sink());
+                fail("non-blocking target");
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+            pipe.source().configureBlocking(false);
+            try {
+                FileCopier.transferFrom(pipe.source(), outChannel, 0, 1024);
+                fail("non-blocking source");
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //目标暂时不接收数据时改用读写并完成复制；一直不接收时有限次数后抛出 IOException
+    @Test
+    public void test04() throws IOException {
+        Path dir = Files.createTempDirectory("copier");
+        try (FileChannel inChannel = FileChannel.open(FileFixtures.createFile(dir.resolve("source"), 1024 * 1024),
+                StandardOpenOption.READ)) {
+            byte[] expected = Files.readAllBytes(dir.resolve("source"));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(expected.length, FileCopier.transferTo(inChannel, 0, inChannel.size(), stalling(out, 20)));
+            assertArrayEquals(expected, out.toByteArray());
+
+            try {
+                FileCopier.transferTo(inChannel, 0, inChannel.size(), stalling(new ByteArrayOutputStream(),
+                        Integer.MAX_VALUE));
+                fail("target never accepts data");
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //前 stalls 次 write() 不接收任何数据，之后写入 out
+    private static WritableByteChannel stalling(ByteArrayOutputStream out, int stalls) {
+        WritableByteChannel channel = Channels.newChannel(out);
+        return new WritableByteChannel() {
+            private int calls;
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                return calls++ < stalls ? 0 : channel.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    //TestChannel.test01 的方式
+    private static long copyHeap(Path source, Path target) throws IOException {
+        try (FileChannel inChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel outChannel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            long total = 0;
+            while (inChannel.read(buffer) != -1) {
+                buffer.flip();
+                total += outChannel.write(buffer);
+                buffer.clear();
+            }
+            return total;
+        }
+    }
+
+    //TestChannel.test04 的方式
+    private static long copyScatterGather(Path source, Path target) throws IOException {
+        try (FileChannel inChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel outChannel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer[] buffers = {ByteBuffer.allocate(100), ByteBuffer.allocate(1024)};
+            long total = 0;
+            while (inChannel.read(buffers) != -1) {
+                for (ByteBuffer buffer : buffers) {
+                    buffer.flip();
+                }
+                total += outChannel.write(buffers);
+                for (ByteBuffer buffer : buffers) {
+                    buffer.clear();
+                }
+            }
+            return total;
+        }
+    }
+
+    static long parseSize(String value) {
+        String v = value.trim().toLowerCase();
+        long unit = 1;
+        switch (v.charAt(v.length() - 1)) {
+            case 'k':
+                unit = 1024;
+                break;
+            case 'm':
+                unit = 1024 * 1024;
+                break;
+            case 'g':
+                unit = 1024L * 1024 * 1024;
+                break;
+            default:
+                return Long.parseLong(v);
+        }
+        return Long.parseLong(v.substring(0, v.length() - 1)) * unit;
+    }
+
+    private static String formatSize(long size) {
+        if (size >= 1L << 30) {
+            return (size >> 30) + "G";
+        }
+        if (size >= 1 << 20) {
+            return (size >> 20) + "M";
+        }
+        return (size >> 10) + "K";
+    }
+}
@@ -0,0 +1,195 @@
+package org.nio.java.channel;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 内存映射追加日志：并发上传互不覆盖、段切换、重新打开后重建索引、组提交合并 force()
+ */
+public class TestMappedAppendLog {
+
+    private static final int UPLOADS = 200;
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+
+    //200 个上传在 8 个线程上交错分块写入，1MB 的段会切换多次；关闭后重新打开，索引与内容不变
+    @Test
+    public void test01() throws Exception {
+        Path dir = Files.createTempDirectory("append-log");
+        try {
+            byte[][] expected = new byte[UPLOADS][];
+            long[] ids = new long[UPLOADS];
+            try (MappedAppendLog log = new MappedAppendLog(dir, SEGMENT_SIZE, 10)) {
+                ExecutorService executor = Executors.newFixedThreadPool(8);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < UPLOADS; i++) {
+                    int index = i;
+                    ids[i] = log.newUploadId();
+                    expected[i] = randomBytes(index, 1 + new Random(index).nextInt(64 * 1024));
+                    futures.add(executor.submit(() -> {
+                        upload(log, ids[index], expected[index], index);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+                executor.shutdown();
+                log.commit().get(5, TimeUnit.SECONDS);
+                System.out.println("段数：" + log.segmentCount() + "，字节数：" + log.appendedBytes());
+                assertTrue(log.segmentCount() > 1);
+                verify(log, ids, expected);
+            }
+            try (MappedAppendLog log = new MappedAppendLog(dir, SEGMENT_SIZE, 10)) {
+                assertEquals(UPLOADS, log.uploadIds().size());
+                verify(log, ids, expected);
+                assertTrue(log.newUploadId() > ids[UPLOADS - 1]);
+            }
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //比段还大的数据拆成多条记录；reserve() 预留的区域可以直接写入
+    @Test
+    public void test02() throws IOException {
+        Path dir = Files.createTempDirectory("append-log");
+        try (MappedAppendLog log = new MappedAppendLog(dir, 64 * 1024, 10)) {
+            long id = log.newUploadId();
+            byte[] large = randomBytes(1, 200 * 1024);
+            log.append(id, ByteBuffer.wrap(large));
+            MappedAppendLog.Reservation reservation = log.reserve(id, 5);
+            reservation.buffer().put("hello".getBytes());
+            reservation.commit();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(large.length + 5, log.transferTo(id, Channels.newChannel(out)));
+            byte[] bytes = out.toByteArray();
+            assertArrayEquals(large, Arrays.copyOf(bytes, large.length));
+            assertEquals("hello", new String(bytes, large.length, 5));
+            System.out.println("记录数：" + log.extents(id).size() + "，段数：" + log.segmentCount());
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //每个上传写完都等待落盘：force() 次数远少于提交次数；并打印追加吞吐量
+    @Test
+    public void test03() throws Exception {
+        Path dir = Files.createTempDirectory("append-log");
+        try (MappedAppendLog log = new MappedAppendLog(dir, 64 * 1024 * 1024, 10)) {
+            int threads = 16;
+            int uploadsPerThread = 200;
+            byte[] chunk = randomBytes(0, 8192);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < uploadsPerThread; i++) {
+                        long id = log.newUploadId();
+                        for (int c = 0; c < 8; c++) {
+                            log.append(id, ByteBuffer.wrap(chunk));
+                        }
+                        CompletableFuture<Void> durable = log.commit();
+                        durable.get(5, TimeUnit.SECONDS);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            executor.shutdown();
+            System.out.printf("%.1f MB/s，提交 %d 次，force() %d 次%n",
+                    log.appendedBytes() / 1024.0 / 1024.0 / seconds, log.commitCount(), log.forceCount());
+            assertEquals(threads * uploadsPerThread, log.commitCount());
+            assertTrue(log.forceCount() < log.commitCount());
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //前面的预留一直没有提交（例如 read() 抛出异常后被放弃），后面的记录已提交并落盘：
+    //重新打开后跳过前者，后者仍在索引中，新的追加也不会覆盖它
+    @Test
+    public void test04() throws Exception {
+        Path dir = Files.createTempDirectory("append-log");
+        try {
+            long abandonedId;
+            long committedId;
+            try (MappedAppendLog log = new MappedAppendLog(dir, 64 * 1024, 10)) {
+                abandonedId = log.newUploadId();
+                committedId = log.newUploadId();
+                MappedAppendLog.Reservation abandoned = log.reserve(abandonedId, 100);
+                abandoned.buffer().put("partial".getBytes());
+                log.append(committedId, ByteBuffer.wrap("durable".getBytes()));
+                log.commit().get(5, TimeUnit.SECONDS);
+            }
+            try (MappedAppendLog log = new MappedAppendLog(dir, 64 * 1024, 10)) {
+                assertEquals(1, log.skippedRecords());
+                assertEquals(0, log.size(abandonedId));
+                assertEquals(7, log.size(committedId));
+                long id = log.newUploadId();
+                assertTrue(id > committedId);
+                log.append(id, ByteBuffer.wrap("after".getBytes()));
+                log.commit().get(5, TimeUnit.SECONDS);
+            }
+            try (MappedAppendLog log = new MappedAppendLog(dir, 64 * 1024, 10)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                log.transferTo(committedId, Channels.newChannel(out));
+                assertEquals("durable", out.toString());
+                assertEquals(2, log.uploadIds().size());
+            }
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //按随机大小分块追加，模拟一次次读就绪
+    private static void upload(MappedAppendLog log, long id, byte[] data, int seed) throws IOException {
+        Random random = new Random(seed);
+        int position = 0;
+        while (position < data.length) {
+            int n = Math.min(data.length - position, 1 + random.nextInt(8192));
+            log.append(id, ByteBuffer.wrap(data, position, n));
+            position += n;
+            Thread.yield();
+        }
+    }
+
+    private static void verify(MappedAppendLog log, long[] ids, byte[][] expected) throws IOException {
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(expected[i].length, log.size(ids[i]));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            log.transferTo(ids[i], Channels.newChannel(out));
+            assertArrayEquals(expected[i], out.toByteArray());
+        }
+    }
+
+    private static byte[] randomBytes(int seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,129 @@
+package org.nio.java.channel;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 分窗口的大文件内存映射：跨窗口读取、超过 2GB 的偏移量、窗口数上限与顺序扫描吞吐量
+ */
+public class TestMappedFile {
+
+    private static final long WINDOW = 64 * 1024;
+
+    //64KB 的窗口读 1MB 多的文件，基本类型与字节区间跨窗口边界时与 ByteBuffer 读到的一致
+    @Test
+    public void test01() throws IOException {
+        Path file = Files.createTempFile("mapped", ".bin");
+        try {
+            byte[] bytes = new byte[(int) (WINDOW * 16 + 123)];
+            new Random(1).nextBytes(bytes);
+            Files.write(file, bytes);
+            ByteBuffer expected = ByteBuffer.wrap(bytes);
+            try (MappedFile mapped = new MappedFile(file, WINDOW, 2, MappedFile.AccessHint.NORMAL)) {
+                assertEquals(bytes.length, mapped.size());
+                for (long boundary = WINDOW; boundary < bytes.length; boundary += WINDOW) {
+                    for (int i = -8; i <= 0; i++) {
+                        int p = (int) boundary + i;
+                        assertEquals(expected.getLong(p), mapped.getLong(p));
+                        assertEquals(expected.getInt(p + 4), mapped.getInt(p + 4));
+                        assertEquals(expected.getShort(p + 6), mapped.getShort(p + 6));
+                        assertEquals(expected.get(p + 7), mapped.get(p + 7));
+                    }
+                }
+                ByteBuffer range = ByteBuffer.allocate((int) (WINDOW * 3));
+                assertEquals(range.capacity(), mapped.read(WINDOW - 100, range));
+                byte[] slice = new byte[range.capacity()];
+                System.arraycopy(bytes, (int) WINDOW - 100, slice, 0, slice.length);
+                assertArrayEquals(slice, range.array());
+
+                //读到文件末尾为止
+                ByteBuffer tail = ByteBuffer.allocate(1000);
+                assertEquals(123, mapped.read(WINDOW * 16, tail));
+                assertEquals(-1, mapped.read(bytes.length, tail));
+                assertTrue(mapped.mappedWindows() <= 2);
+                System.out.println("映射 " + mapped.mapCount() + " 次，解除映射 " + mapped.unmapCount() + " 次");
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    //3GB 的稀疏文件：2GB 之后的偏移量照常读取
+    @Test
+    public void test02() throws IOException {
+        Path file = Files.createTempFile("mapped", ".bin");
+        try {
+            long size = 3L * 1024 * 1024 * 1024;
+            //第二个 long 跨过 2GB 处的窗口边界
+            long[] positions = {0, (1L << 31) - 4, (1L << 31) + 8, size - 8};
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(size);
+                for (long position : positions) {
+                    raf.seek(position);
+                    raf.writeLong(position);
+                }
+            }
+            try (MappedFile mapped = MappedFile.open(file)) {
+                for (long position : positions) {
+                    assertEquals(position, mapped.getLong(position));
+                }
+                assertEquals(0, mapped.getLong(size / 2 + 1));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    //顺序扫描 mapped.size（默认 256MB，可用 -Dmapped.size=4g 调大）的文件，对比两种提示，映射的窗口数始终不超过上限
+    @Test
+    public void test03() throws IOException {
+        long size = parseSize(System.getProperty("mapped.size", "256m"));
+        Path file = Files.createTempFile("mapped", ".bin");
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ByteBuffer chunk = ByteBuffer.allocateDirect(1024 * 1024);
+                new Random(2).ints(chunk.capacity() / 4).forEach(chunk::putInt);
+                for (long position = 0; position < size; position += chunk.capacity()) {
+                    chunk.clear();
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                }
+            }
+            System.out.println("hint\tMB/s\tchecksum");
+            for (MappedFile.AccessHint hint : MappedFile.AccessHint.values()) {
+                long start = System.nanoTime();
+                long sum = 0;
+                try (MappedFile mapped = new MappedFile(file, MappedFile.DEFAULT_WINDOW_SIZE, 2, hint)) {
+                    for (long position = 0; position + 8 <= mapped.size(); position += 8) {
+                        sum += mapped.getLong(position);
+                    }
+                    assertTrue(mapped.mappedWindows() <= 2);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%s\t%.1f\t%d%n", hint, size / 1024.0 / 1024.0 / seconds, sum);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static long parseSize(String value) {
+        char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+        long multiplier = unit == 'g' ? 1L << 30 : unit == 'm' ? 1L << 20 : unit == 'k' ? 1L << 10 : 1;
+        return Long.parseLong(multiplier == 1 ? value : value.substring(0, value.length() - 1)) * multiplier;
+    }
+}
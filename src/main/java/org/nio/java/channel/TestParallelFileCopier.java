@@ -0,0 +1,134 @@
+package org.nio.java.channel;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 多线程分块复制：内容与 CRC32 正确，以及与单线程方式的吞吐量对比
+ */
+public class TestParallelFileCopier {
+
+    private static final int ROUNDS = 3;
+
+    //CRC32 合并：任意切分位置合并后与整体计算一致
+    @Test
+    public void test01() {
+        byte[] bytes = new byte[100000];
+        new Random(1).nextBytes(bytes);
+        for (int split : new int[]{0, 1, 7, 4096, 65537, bytes.length}) {
+            CRC32 left = new CRC32();
+            left.update(bytes, 0, split);
+            CRC32 right = new CRC32();
+            right.update(bytes, split, bytes.length - split);
+            assertEquals(crc(bytes), ParallelFileCopier.crc32Combine(left.getValue(), right.getValue(),
+                    bytes.length - split));
+        }
+    }
+
+    //区间大小不整除文件大小、空文件、校验开关，复制结果都与源文件一致
+    @Test
+    public void test02() throws IOException {
+        Path dir = Files.createTempDirectory("parallel");
+        try {
+            for (int size : new int[]{0, 1, 1000, 1024 * 1024 + 17}) {
+                Path source = dir.resolve("source");
+                byte[] bytes = new byte[size];
+                new Random(size).nextBytes(bytes);
+                Files.write(source, bytes);
+                for (boolean checksum : new boolean[]{false, true}) {
+                    Path target = dir.resolve("target");
+                    long crc = new ParallelFileCopier().setChunkSize(100 * 1000).setParallelism(4)
+                            .setChecksum(checksum).copy(source, target);
+                    assertArrayEquals(bytes, Files.readAllBytes(target));
+                    assertEquals(checksum ? crc(bytes) : -1, crc);
+                }
+                assertEquals(crc(bytes), new ParallelFileCopier().setChunkSize(4096).checksum(source));
+            }
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //parallel.size（默认 512MB，可用 -Dparallel.size=4g 调大）的文件，单位 GB/s，每种方式取 ROUNDS 次中的最好成绩
+    @Test
+    public void test03() throws IOException {
+        long size = TestFileCopier.parseSize(System.getProperty("parallel.size", "512m"));
+        int cores = Runtime.getRuntime().availableProcessors();
+        Path dir = Files.createTempDirectory("parallel");
+        try {
+            Path source = dir.resolve("source");
+            FileFixtures.createFile(source, size);
+            Path target = dir.resolve("target");
+            System.out.println("核数：" + cores);
+            System.out.println("mode\tGB/s");
+            print("heap-1k", size, () -> copyHeap(source, target));
+            print("transfer", size, () -> FileCopier.copy(source, target, FileCopier.Strategy.TRANSFER));
+            print("parallel-transfer", size, () -> new ParallelFileCopier().copy(source, target));
+            print("crc32", size, () -> crc(source));
+            print("parallel-crc32", size, () -> new ParallelFileCopier().checksum(source));
+            print("parallel-copy-crc32", size, () -> new ParallelFileCopier().setChecksum(true).copy(source, target));
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    private interface Mode {
+        void run() throws IOException;
+    }
+
+    private static void print(String name, long size, Mode mode) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            mode.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%s\t%.2f%n", name, size / 1e9 / (best / 1e9));
+    }
+
+    //TestChannel.test01 的方式
+    private static void copyHeap(Path source, Path target) throws IOException {
+        try (FileChannel inChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel outChannel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            while (inChannel.read(buffer) != -1) {
+                buffer.flip();
+                outChannel.write(buffer);
+                buffer.clear();
+            }
+        }
+    }
+
+    //单线程计算 CRC32
+    private static long crc(Path source) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel inChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            while (inChannel.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+}
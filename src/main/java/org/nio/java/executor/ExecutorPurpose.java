@@ -0,0 +1,73 @@
+package org.nio.java.executor;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 线程池用途。每种用途一个独立的线程池，某一类任务堆积时不会占满其他任务的线程和队列
+ * <p>
+ * 默认值可以通过系统属性 executor.&lt;key&gt;.threads / .queue / .policy 覆盖，例如 -Dexecutor.io-offload.threads=32
+ */
+public enum ExecutorPurpose {
+
+    /**
+     * 从事件循环中卸载的阻塞操作（DNS、阻塞的第三方调用等）. 线程大部分时间在等待，线程数为核数的 2 倍；
+     * 队列满时拒绝（抛出 RejectedExecutionException），事件循环线程绝不能自己去执行阻塞任务
+     */
+    IO_OFFLOAD("io-offload", 2, 4096, RejectionPolicy.ABORT),
+
+    /**
+     * 解码、压缩、校验等纯计算任务. 线程数等于核数，再多只会增加切换；队列满时由提交者自己执行，自然地降低提交速度
+     */
+    CPU_DECODE("cpu-decode", 1, 1024, RejectionPolicy.CALLER_RUNS),
+
+    /**
+     * 文件写入. 线程数等于核数，最多 4 个，更多的并发写对同一块磁盘没有帮助；队列满时由提交者自己执行
+     */
+    FILE_WRITE("file-write", 1, 1024, RejectionPolicy.CALLER_RUNS) {
+        @Override
+        int defaultThreads(int cores) {
+            return Math.min(4, cores);
+        }
+    },
+
+    /**
+     * AsyncFileWriter 的写任务，由事件循环线程提交. 每个写入器同一时刻最多一个任务在排队，队列长度即同时等待写入的文件数；
+     * 队列满时拒绝，写入器以失败结束，事件循环线程绝不能自己去执行阻塞的磁盘写入
+     */
+    ASYNC_FILE_WRITE("async-file-write", 1, 4096, RejectionPolicy.ABORT) {
+        @Override
+        int defaultThreads(int cores) {
+            return Math.min(4, cores);
+        }
+    };
+
+    private final String key;
+    private final int threadsPerCore;
+    private final int defaultQueueCapacity;
+    private final RejectionPolicy defaultPolicy;
+
+    ExecutorPurpose(String key, int threadsPerCore, int defaultQueueCapacity, RejectionPolicy defaultPolicy) {
+        this.key = key;
+        this.threadsPerCore = threadsPerCore;
+        this.defaultQueueCapacity = defaultQueueCapacity;
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    /**
+     * 配置项前缀与线程名前缀.
+     */
+    public String key() {
+        return key;
+    }
+
+    int defaultThreads(int cores) {
+        return threadsPerCore * cores;
+    }
+
+    int defaultQueueCapacity() {
+        return defaultQueueCapacity;
+    }
+
+    RejectionPolicy defaultPolicy() {
+        return defaultPolicy;
+    }
+}
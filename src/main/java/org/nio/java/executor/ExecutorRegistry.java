@@ -0,0 +1,147 @@
+package org.nio.java.executor;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 按用途划分的线程池注册表，取代 ExecutorServiceSingleton 中写死的 newFixedThreadPool(20)：
+ * <p>
+ * 一、每个 ExecutorPurpose 一个 InstrumentedExecutor，首次使用时创建
+ * <p>
+ * 二、线程数、队列长度、拒绝策略默认按核数与用途确定，可通过配置覆盖：
+ * executor.&lt;key&gt;.threads、executor.&lt;key&gt;.queue、executor.&lt;key&gt;.policy
+ * <p>
+ * 三、getDefault() 从系统属性读取配置，并注册 JVM 关闭钩子，退出前等待已提交的任务执行完
+ */
+public final class ExecutorRegistry {
+
+    private static final String PREFIX = "executor.";
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final Properties config;
+    private final int cores;
+    private final Map<ExecutorPurpose, InstrumentedExecutor> executors = new EnumMap<>(ExecutorPurpose.class);
+    private boolean shutdown;
+
+    public ExecutorRegistry(Properties config) {
+        this(config, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param cores 计算默认线程数使用的核数
+     */
+    public ExecutorRegistry(Properties config, int cores) {
+        this.config = config;
+        this.cores = cores;
+    }
+
+    private static class ExecutorRegistryHolder {
+        private static final ExecutorRegistry INSTANCE = createDefault();
+
+        private static ExecutorRegistry createDefault() {
+            ExecutorRegistry registry = new ExecutorRegistry(System.getProperties());
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    registry.shutdown(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "executor-registry-shutdown"));
+            return registry;
+        }
+    }
+
+    /**
+     * 全局共享的注册表，配置取自系统属性.
+     */
+    public static ExecutorRegistry getDefault() {
+        return ExecutorRegistryHolder.INSTANCE;
+    }
+
+    /**
+     * 取得某种用途的线程池，不存在时按配置创建.
+     */
+    public synchronized InstrumentedExecutor executor(ExecutorPurpose purpose) {
+        if (shutdown) {
+            throw new IllegalStateException("executor registry is shut down");
+        }
+        InstrumentedExecutor executor = executors.get(purpose);
+        if (executor == null) {
+            executor = create(purpose);
+            executors.put(purpose, executor);
+        }
+        return executor;
+    }
+
+    /**
+     * 已创建的全部线程池.
+     */
+    public synchronized List<InstrumentedExecutor> executors() {
+        return new ArrayList<>(executors.values());
+    }
+
+    /**
+     * 不再接受新任务，等待已提交的任务执行完，超时后中断.
+     *
+     * @return 全部线程池都在超时前结束时返回 true
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        List<InstrumentedExecutor> snapshot;
+        synchronized (this) {
+            shutdown = true;
+            snapshot = new ArrayList<>(executors.values());
+        }
+        for (InstrumentedExecutor executor : snapshot) {
+            executor.shutdown();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean terminated = true;
+        for (InstrumentedExecutor executor : snapshot) {
+            if (!executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                executor.shutdownNow();
+                terminated = false;
+            }
+        }
+        return terminated;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("ExecutorRegistry");
+        for (InstrumentedExecutor executor : executors.values()) {
+            sb.append(System.lineSeparator()).append("  ").append(executor);
+        }
+        return sb.toString();
+    }
+
+    private InstrumentedExecutor create(ExecutorPurpose purpose) {
+        int threads = intProperty(purpose, "threads", Math.max(1, purpose.defaultThreads(cores)));
+        int queue = intProperty(purpose, "queue", purpose.defaultQueueCapacity());
+        String policy = config.getProperty(PREFIX + purpose.key() + ".policy");
+        return new InstrumentedExecutor(purpose.key(), threads, queue,
+                policy == null ? purpose.defaultPolicy() : RejectionPolicy.of(policy.trim()));
+    }
+
+    private int intProperty(ExecutorPurpose purpose, String name, int defaultValue) {
+        String key = PREFIX + purpose.key() + "." + name;
+        String value = config.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        int n;
+        try {
+            n = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " is not a number: " + value);
+        }
+        if (n <= 0) {
+            throw new IllegalArgumentException(key + " must be positive: " + value);
+        }
+        return n;
+    }
+}
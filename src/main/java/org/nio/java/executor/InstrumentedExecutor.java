@@ -0,0 +1,204 @@
+package org.nio.java.executor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 带统计的固定大小线程池：
+ * <p>
+ * 一、有界队列（ArrayBlockingQueue），队列满时按 RejectionPolicy 处理，不会像 newFixedThreadPool 那样无限堆积
+ * <p>
+ * 二、线程按 "名称-序号" 命名，守护线程，空闲 60 秒后退出
+ * <p>
+ * 三、统计提交数、完成数、失败数、拒绝数，以及任务在队列中的等待时间与执行时间；
+ * 由 CALLER_RUNS 在提交者线程上执行的任务同样计入
+ */
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final String name;
+    private final int queueCapacity;
+    private final RejectionPolicy policy;
+    private final CountingHandler rejections;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+    public InstrumentedExecutor(String name, int threads, int queueCapacity, RejectionPolicy policy) {
+        this(name, threads, queueCapacity, policy, new CountingHandler(policy.handler()));
+    }
+
+    private InstrumentedExecutor(String name, int threads, int queueCapacity, RejectionPolicy policy,
+                                 CountingHandler rejections) {
+        super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory(name), rejections);
+        allowCoreThreadTimeOut(true);
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.policy = policy;
+        this.rejections = rejections;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        submitted.increment();
+        super.execute(new TimedTask(command));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public RejectionPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * 队列中等待执行的任务数.
+     */
+    public int queueDepth() {
+        return getQueue().size();
+    }
+
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * 正在执行任务的线程数.
+     */
+    public int activeThreads() {
+        return getActiveCount();
+    }
+
+    public long submittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * 执行结束的任务数，包括抛出异常的任务.
+     */
+    public long completedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * 直接抛出异常的任务数. submit() 提交的任务异常保存在 Future 中，不计入.
+     */
+    public long failedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * 触发拒绝策略的次数，CALLER_RUNS 由提交者执行的任务也计入.
+     */
+    public long rejectedCount() {
+        return rejections.count.sum();
+    }
+
+    public double averageQueueMicros() {
+        long n = completed.sum();
+        return n == 0 ? 0 : queueNanos.sum() / 1000.0 / n;
+    }
+
+    public double averageRunMicros() {
+        long n = completed.sum();
+        return n == 0 ? 0 : runNanos.sum() / 1000.0 / n;
+    }
+
+    public long maxQueueMicros() {
+        return maxQueueNanos.get() / 1000;
+    }
+
+    public long maxRunMicros() {
+        return maxRunNanos.get() / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[threads=%d/%d, active=%d, queue=%d/%d, policy=%s, submitted=%d, completed=%d, "
+                        + "failed=%d, rejected=%d, queue avg/max=%.1f/%dus, run avg/max=%.1f/%dus]",
+                name, getPoolSize(), getMaximumPoolSize(), activeThreads(), queueDepth(), queueCapacity, policy,
+                submittedCount(), completedCount(), failedCount(), rejectedCount(),
+                averageQueueMicros(), maxQueueMicros(), averageRunMicros(), maxRunMicros());
+    }
+
+    //记录入队时间，执行时统计等待与执行耗时
+    private final class TimedTask implements Runnable {
+
+        private final Runnable task;
+        private final long enqueuedAt = System.nanoTime();
+
+        TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            long waited = start - enqueuedAt;
+            queueNanos.add(waited);
+            maxQueueNanos.accumulate(waited);
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                failed.increment();
+                throw e;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                runNanos.add(elapsed);
+                maxRunNanos.accumulate(elapsed);
+                completed.increment();
+            }
+        }
+    }
+
+    private static final class CountingHandler implements RejectedExecutionHandler {
+
+        private final RejectedExecutionHandler delegate;
+        private final LongAdder count = new LongAdder();
+
+        CountingHandler(RejectedExecutionHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            count.increment();
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger index = new AtomicInteger(1);
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + "-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.nio.java.executor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 队列满时的处理方式，对应 ThreadPoolExecutor 自带的四种 RejectedExecutionHandler
+ */
+public enum RejectionPolicy {
+
+    /**
+     * 抛出 RejectedExecutionException，由提交者决定重试、降级或关闭连接.
+     */
+    ABORT("abort") {
+        @Override
+        RejectedExecutionHandler handler() {
+            return new ThreadPoolExecutor.AbortPolicy();
+        }
+    },
+
+    /**
+     * 在提交者线程上直接执行，提交者变慢即形成背压.
+     */
+    CALLER_RUNS("caller-runs") {
+        @Override
+        RejectedExecutionHandler handler() {
+            return new ThreadPoolExecutor.CallerRunsPolicy();
+        }
+    },
+
+    /**
+     * 丢弃新任务.
+     */
+    DISCARD("discard") {
+        @Override
+        RejectedExecutionHandler handler() {
+            return new ThreadPoolExecutor.DiscardPolicy();
+        }
+    },
+
+    /**
+     * 丢弃队列中最早的任务，再提交新任务.
+     */
+    DISCARD_OLDEST("discard-oldest") {
+        @Override
+        RejectedExecutionHandler handler() {
+            return new ThreadPoolExecutor.DiscardOldestPolicy();
+        }
+    };
+
+    private final String key;
+
+    RejectionPolicy(String key) {
+        this.key = key;
+    }
+
+    abstract RejectedExecutionHandler handler();
+
+    /**
+     * 按配置值（如 caller-runs）查找.
+     */
+    public static RejectionPolicy of(String key) {
+        for (RejectionPolicy policy : values()) {
+            if (policy.key.equalsIgnoreCase(key) || policy.name().equalsIgnoreCase(key)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("unknown rejection policy: " + key);
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,116 @@
+package org.nio.java.executor;
+
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 线程池注册表：按配置创建、有界队列与拒绝策略、统计
+ */
+public class TestExecutorRegistry {
+
+    //默认值按核数计算，系统属性风格的配置可以覆盖
+    @Test
+    public void test01() throws Exception {
+        Properties config = new Properties();
+        config.setProperty("executor.cpu-decode.threads", "3");
+        config.setProperty("executor.cpu-decode.queue", "8");
+        config.setProperty("executor.file-write.policy", "discard");
+        ExecutorRegistry registry = new ExecutorRegistry(config, 8);
+
+        InstrumentedExecutor io = registry.executor(ExecutorPurpose.IO_OFFLOAD);
+        InstrumentedExecutor cpu = registry.executor(ExecutorPurpose.CPU_DECODE);
+        InstrumentedExecutor file = registry.executor(ExecutorPurpose.FILE_WRITE);
+        System.out.println(registry);
+        assertEquals(16, io.getMaximumPoolSize());
+        assertEquals(RejectionPolicy.ABORT, io.policy());
+        assertEquals(3, cpu.getMaximumPoolSize());
+        assertEquals(8, cpu.queueCapacity());
+        assertEquals(4, file.getMaximumPoolSize());
+        assertEquals(RejectionPolicy.DISCARD, file.policy());
+        assertTrue(registry.executor(ExecutorPurpose.IO_OFFLOAD) == io);
+        assertTrue(registry.shutdown(1, TimeUnit.SECONDS));
+    }
+
+    //队列满后 ABORT 抛出异常，CALLER_RUNS 在提交者线程执行，两者都计入拒绝数
+    @Test
+    public void test02() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        InstrumentedExecutor abort = new InstrumentedExecutor("abort", 1, 2, RejectionPolicy.ABORT);
+        for (int i = 0; i < 3; i++) {
+            abort.execute(() -> await(blocker));
+        }
+        try {
+            abort.execute(() -> {
+            });
+            fail("queue should be full");
+        } catch (RejectedExecutionException e) {
+            System.out.println("拒绝：" + e.getMessage());
+        }
+        assertEquals(2, abort.queueDepth());
+        assertEquals(1, abort.activeThreads());
+        assertEquals(1, abort.rejectedCount());
+
+        InstrumentedExecutor callerRuns = new InstrumentedExecutor("caller-runs", 1, 1, RejectionPolicy.CALLER_RUNS);
+        callerRuns.execute(() -> await(blocker));
+        callerRuns.execute(() -> await(blocker));
+        Thread[] ranOn = new Thread[1];
+        callerRuns.execute(() -> ranOn[0] = Thread.currentThread());
+        assertTrue(ranOn[0] == Thread.currentThread());
+        assertEquals(1, callerRuns.rejectedCount());
+
+        blocker.countDown();
+        abort.shutdown();
+        callerRuns.shutdown();
+        assertTrue(abort.awaitTermination(1, TimeUnit.SECONDS));
+        assertTrue(callerRuns.awaitTermination(1, TimeUnit.SECONDS));
+        System.out.println(abort);
+        System.out.println(callerRuns);
+        assertEquals(3, abort.completedCount());
+        assertEquals(3, callerRuns.completedCount());
+    }
+
+    //等待时间与执行时间
+    @Test
+    public void test03() throws Exception {
+        InstrumentedExecutor executor = new InstrumentedExecutor("latency", 1, 16, RejectionPolicy.ABORT);
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> sleep(10));
+        }
+        executor.execute(() -> {
+            throw new IllegalStateException("expected");
+        });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        System.out.println(executor);
+        assertEquals(6, executor.completedCount());
+        assertEquals(1, executor.failedCount());
+        assertTrue(executor.maxRunMicros() >= 10000);
+        //最后一个任务在队列中等了前面 5 个任务的时间
+        assertTrue(executor.maxQueueMicros() >= 40000);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.nio.java.metrics;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * EventLoopMetrics 在 JMX 中的视图，时间单位为微秒
+ */
+public interface EventLoopMetricsMXBean {
+
+    String getName();
+
+    long getSelectCount();
+
+    /**
+     * select() 在超时之前、没有就绪 key 也没有任务时返回的次数. 持续快速增长说明遇到了 epoll 空轮询.
+     */
+    long getPrematureWakeups();
+
+    double getSelectMeanMicros();
+
+    long getSelectP99Micros();
+
+    long getSelectMaxMicros();
+
+    double getReadyKeysMean();
+
+    long getReadyKeysMax();
+
+    long getHandlerCount();
+
+    long getHandlerP50Micros();
+
+    long getHandlerP99Micros();
+
+    long getHandlerP999Micros();
+
+    long getHandlerMaxMicros();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getWriteCalls();
+
+    long getFlushedBuffers();
+
+    long getPendingWriteBytes();
+
+    long getConnectionCount();
+
+    long getAcceptCount();
+
+    /**
+     * 读取预算用完、让出给其它连接的次数. 持续增长说明有连接在批量上传.
+     */
+    long getReadBudgetExhausted();
+
+    /**
+     * 通过 execute() 投递、在事件循环线程上执行的任务数.
+     */
+    long getTaskCount();
+}
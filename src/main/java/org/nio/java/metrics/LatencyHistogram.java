@@ -0,0 +1,99 @@
+package org.nio.java.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 对数-线性分桶的直方图，思路同 HdrHistogram：每个 2 的幂区间再等分为 SUB_BUCKETS 个桶，
+ * 相对误差不超过 1/SUB_BUCKETS（12.5%），覆盖 0 到 Long.MAX_VALUE，只占约 500 个 long
+ * <p>
+ * 只允许一个线程 record()（事件循环线程），计数用 lazySet 写入，不需要 CAS 也不需要锁；
+ * 其它线程可以随时读取，读到的是近似一致的快照
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    //sum 与 max 只由 record() 的线程写入，count 最后用 lazySet 写入，读取方先读 count 即可看到之前的 sum 与 max
+    private final AtomicLong count = new AtomicLong();
+    private long sum;
+    private long max;
+
+    /**
+     * 记录一个非负值，负值按 0 记录. 只能在同一个线程上调用.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int index = index(value);
+        counts.lazySet(index, counts.get(index) + 1);
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+        count.lazySet(count.get() + 1);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long max() {
+        count.get();
+        return max;
+    }
+
+    public double mean() {
+        long c = count.get();
+        return c == 0 ? 0 : (double) sum / c;
+    }
+
+    /**
+     * 百分位数，返回所在桶的上界（不超过 max()）.
+     *
+     * @param percentile 0 到 100
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return max;
+    }
+
+    //小于 SUB_BUCKETS 的值一值一桶；其余按最高位所在的 2 的幂区间，再取其后 SUB_BUCKET_BITS 位
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
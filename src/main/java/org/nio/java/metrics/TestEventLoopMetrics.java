@@ -0,0 +1,158 @@
+package org.nio.java.metrics;
+
+import org.junit.Test;
+import org.nio.java.nonblock.Connection;
+import org.nio.java.nonblock.ConnectionHandler;
+import org.nio.java.nonblock.MetricsHandler;
+import org.nio.java.nonblock.ReactorConfig;
+import org.nio.java.nonblock.ReactorServer;
+import org.nio.java.nonblock.ReactorWorker;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 事件循环统计：直方图精度、回显服务端上的读写统计、JMX 与文本端点、记录一次的开销
+ */
+public class TestEventLoopMetrics {
+
+    //百分位数与精确值的相对误差不超过 12.5%
+    @Test
+    public void test01() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100000];
+        Random random = new Random(1);
+        for (int i = 0; i < values.length; i++) {
+            //对数分布，从 1ns 到约 1s
+            values[i] = (long) Math.exp(random.nextDouble() * 21);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long estimate = histogram.percentile(percentile);
+            assertTrue(percentile + ": " + exact + " vs " + estimate,
+                    estimate >= exact && estimate <= exact + exact / 8 + 1);
+        }
+        assertEquals(values[values.length - 1], histogram.max());
+        assertEquals(values.length, histogram.count());
+    }
+
+    //回显 1MB：worker 统计的读写字节数一致，JMX 与文本端点都能读到
+    @Test
+    public void test02() throws Exception {
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                new ReactorConfig().setWorkerCount(1), new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+            }
+
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+                ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                copy.put(buffer).flip();
+                connection.write(copy);
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+            }
+        });
+        server.start();
+        ReactorServer endpoint = new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                new ReactorConfig().setWorkerCount(1).setJmxEnabled(false), new MetricsHandler(server::metricsText));
+        endpoint.start();
+        try {
+            int total = 1024 * 1024;
+            try (SocketChannel client = SocketChannel.open(server.localAddress())) {
+                ByteBuffer out = ByteBuffer.allocate(total);
+                ByteBuffer in = ByteBuffer.allocate(total);
+                while (out.hasRemaining() || in.hasRemaining()) {
+                    if (out.hasRemaining()) {
+                        client.write(out);
+                    }
+                    client.read(in);
+                }
+            }
+            ReactorWorker worker = server.workers()[0];
+            EventLoopMetrics metrics = worker.metrics();
+            //写出的字节数在 write() 返回后才记入，客户端可能先读到数据
+            long deadline = System.currentTimeMillis() + 5000;
+            while (metrics.getBytesWritten() < total && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(total, metrics.getBytesRead());
+            assertEquals(total, metrics.getBytesWritten());
+            assertEquals(0, metrics.getPendingWriteBytes());
+            assertTrue(metrics.getHandlerCount() > 0);
+            assertEquals(1, server.bossMetrics().getAcceptCount());
+            System.out.println(metrics);
+
+            int port = ((InetSocketAddress) server.localAddress()).getPort();
+            MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("org.nio.java:type=EventLoop,server=" + port
+                    + ",name=" + ObjectName.quote("reactor-worker-0"));
+            assertEquals((long) total, mbeans.getAttribute(name, "BytesRead"));
+
+            String response = httpGet((InetSocketAddress) endpoint.localAddress());
+            System.out.println(response);
+            assertTrue(response.startsWith("HTTP/1.0 200 OK"));
+            assertTrue(response.contains("eventloop_bytes_read_total{loop=\"reactor-worker-0\"} " + total));
+            assertTrue(response.contains("eventloop_accept_total{loop=\"reactor-boss\"} 1"));
+        } finally {
+            endpoint.stop();
+            server.stop();
+        }
+        assertTrue(ManagementFactory.getPlatformMBeanServer()
+                .queryNames(new ObjectName("org.nio.java:type=EventLoop,*"), null).isEmpty());
+    }
+
+    //每次回调多出的开销：两次 System.nanoTime() 加一次 recordHandler()
+    @Test
+    public void test03() {
+        EventLoopMetrics metrics = new EventLoopMetrics("overhead");
+        int n = 10000000;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                metrics.recordHandler(i & 0xffff);
+            }
+            long middle = System.nanoTime();
+            long sink = 0;
+            for (int i = 0; i < n; i++) {
+                sink += System.nanoTime();
+            }
+            long end = System.nanoTime();
+            System.out.printf("recordHandler() %.1f ns，System.nanoTime() %.1f ns%s%n", (double) (middle - start) / n,
+                    (double) (end - middle) / n, sink == 0 ? "!" : "");
+        }
+        assertEquals(3L * n, metrics.getHandlerCount());
+    }
+
+    private static String httpGet(InetSocketAddress address) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.write(ByteBuffer.wrap("GET / HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1)));
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                response.write(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+            return new String(response.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
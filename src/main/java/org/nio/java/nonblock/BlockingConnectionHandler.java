@@ -0,0 +1,17 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 阻塞式连接处理器，由 ThreadPerConnectionServer 在该连接独占的线程上调用
+ */
+public interface BlockingConnectionHandler {
+
+    /**
+     * 处理一个连接. channel 为阻塞模式，可以像 TestBlockingNIO 那样直接 read()/write()；
+     * 方法返回或抛出异常后服务端负责关闭 channel.
+     */
+    void handle(SocketChannel channel) throws IOException;
+}
@@ -0,0 +1,310 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 单个连接的状态，作为 SelectionKey 的 attachment，只能在所属 worker 线程上访问
+ * <p>
+ * 读写字节数、最近读写时间和状态位等热字段不在对象里，而是按 id() 存放在 worker 的 ConnectionRegistry 中
+ */
+public class Connection {
+
+    private final SocketChannel channel;
+    private final ReactorWorker worker;
+
+    //尚未写完的缓冲区，套接字写不进去时 key 上会带 OP_WRITE
+    private final OutboundQueue outbound = new OutboundQueue();
+
+    private SelectionKey key;
+    private Object attachment;
+    //连接上的编解码状态（如 FramingHandler 的 FrameDecoder），与处理器的 attachment 分开
+    private Object codec;
+    //在 worker 的 ConnectionRegistry 中的编号，注册到选择器之前和关闭之后为 -1
+    private int id = -1;
+    private boolean closed;
+    //释放编号时从 ConnectionRegistry 复制出来的最终读写字节数
+    private long finalBytesRead;
+    private long finalBytesWritten;
+
+    HashedTimingWheel.Timeout readIdleTimeout;
+    HashedTimingWheel.Timeout writeIdleTimeout;
+
+    Connection(SocketChannel channel, ReactorWorker worker) {
+        this.channel = channel;
+        this.worker = worker;
+    }
+
+    public SocketChannel channel() {
+        return channel;
+    }
+
+    public ReactorWorker worker() {
+        return worker;
+    }
+
+    /**
+     * 处理器自定义的连接状态.
+     */
+    public Object attachment() {
+        return attachment;
+    }
+
+    public void attach(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /**
+     * 在所属 worker 内唯一且连续的编号，处理器可以用它索引自己的数组. 连接关闭后编号会分给新的连接，
+     * 此时返回 -1.
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * 读到的字节数. 连接打开期间从 ConnectionRegistry 读取，关闭后返回关闭时的最终值.
+     */
+    public long bytesRead() {
+        return id < 0 ? finalBytesRead : worker.registry().bytesRead(id);
+    }
+
+    public long bytesWritten() {
+        return id < 0 ? finalBytesWritten : worker.registry().bytesWritten(id);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 写出数据. 缓冲区先进入待写队列，调用方不能再修改 buffer：
+     * <p>
+     * flushOnIdle 开启时（默认），worker 在处理完本轮全部事件后才把队列用一次聚集写入写出，
+     * 同一轮中写出的多个小响应合并成一次系统调用；关闭时立即写出
+     * <p>
+     * 待写字节超过高水位时 isWritable() 变为 false 并回调 onWritabilityChanged，处理器应暂停产生数据
+     */
+    public void write(ByteBuffer buffer) throws IOException {
+        if (closed || id < 0) {
+            throw new IOException(closed ? "connection closed" : "connection not registered");
+        }
+        worker.addPendingWriteBytes(buffer.remaining());
+        outbound.add(buffer);
+        ConnectionRegistry registry = worker.registry();
+        if (outbound.pendingBytes() > worker.config().getWriteHighWaterMark()
+                && !registry.hasFlag(id, ConnectionRegistry.UNWRITABLE)) {
+            registry.setFlag(id, ConnectionRegistry.UNWRITABLE, true);
+            updateReadInterest();
+            worker.fireWritabilityChanged(this);
+        }
+        if (worker.config().isFlushOnIdle()) {
+            worker.scheduleFlush(this);
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * 待写字节数不超过高水位（或已从高水位降到低水位以下）.
+     */
+    public boolean isWritable() {
+        return id < 0 || !worker.registry().hasFlag(id, ConnectionRegistry.UNWRITABLE);
+    }
+
+    /**
+     * 待写队列中尚未写出的字节数.
+     */
+    public long pendingWriteBytes() {
+        return outbound.pendingBytes();
+    }
+
+    /**
+     * 写出数据调用的 write() 次数.
+     */
+    public long writeCalls() {
+        return outbound.writeCalls();
+    }
+
+    /**
+     * 已全部写出的缓冲区个数.
+     */
+    public long flushedBuffers() {
+        return outbound.flushedBuffers();
+    }
+
+    /**
+     * 暂停读取：取消关注 OP_READ，处理器不再收到 onRead()，直到 resumeReading()，用于下游（如写文件）跟不上时反压.
+     * 暂停期间不计读空闲. 可以在 worker 线程以外调用
+     */
+    public void pauseReading() {
+        setReading(false);
+    }
+
+    public void resumeReading() {
+        setReading(true);
+    }
+
+    /**
+     * 待写队列全部写出后关闭连接，例如发完一个 HTTP/1.0 响应. 只能在 worker 线程上调用.
+     */
+    public void closeAfterFlush() throws IOException {
+        if (id < 0) {
+            close();
+            return;
+        }
+        worker.registry().setFlag(id, ConnectionRegistry.CLOSE_AFTER_FLUSH, true);
+        flush();
+    }
+
+    /**
+     * 关闭连接，可以在 worker 线程以外调用.
+     */
+    public void close() {
+        if (worker.inEventLoop()) {
+            worker.close(this);
+        } else {
+            worker.execute(() -> worker.close(this));
+        }
+    }
+
+    private void setReading(boolean reading) {
+        if (worker.inEventLoop()) {
+            doSetReading(reading);
+        } else {
+            worker.execute(() -> doSetReading(reading));
+        }
+    }
+
+    private void doSetReading(boolean reading) {
+        if (closed || id < 0) {
+            return;
+        }
+        worker.registry().setFlag(id, ConnectionRegistry.READ_PAUSED, !reading);
+        if (reading) {
+            //恢复时重新开始计算读空闲
+            worker.registry().lastReadNanos(id, System.nanoTime());
+        }
+        updateReadInterest();
+    }
+
+    //处理器暂停了读取，或对端读得慢、待写字节超过高水位
+    boolean isReadPaused() {
+        if (id < 0) {
+            return false;
+        }
+        ConnectionRegistry registry = worker.registry();
+        return registry.hasFlag(id, ConnectionRegistry.READ_PAUSED)
+                || (worker.config().isPauseReadWhenUnwritable() && registry.hasFlag(id, ConnectionRegistry.UNWRITABLE));
+    }
+
+    //按 isReadPaused() 设置是否关注 OP_READ；连接建立之前关注的是 OP_CONNECT，建立后由 finishConnect 再调用
+    void updateReadInterest() {
+        if (closed || id < 0 || !channel.isConnected()) {
+            return;
+        }
+        int ops = key.interestOps();
+        int updated = isReadPaused() ? ops & ~SelectionKey.OP_READ : ops | SelectionKey.OP_READ;
+        if (updated != ops) {
+            key.interestOps(updated);
+        }
+    }
+
+    void key(SelectionKey key) {
+        this.key = key;
+    }
+
+    SelectionKey key() {
+        return key;
+    }
+
+    Object codec() {
+        return codec;
+    }
+
+    void codec(Object codec) {
+        this.codec = codec;
+    }
+
+    void id(int id) {
+        this.id = id;
+    }
+
+    //关闭时释放编号：先把计数复制出来，编号分给新连接后 bytesRead()/bytesWritten() 仍返回本连接的值
+    void unregister(ConnectionRegistry registry) {
+        if (id < 0) {
+            return;
+        }
+        finalBytesRead = registry.bytesRead(id);
+        finalBytesWritten = registry.bytesWritten(id);
+        registry.remove(id);
+        id = -1;
+    }
+
+    boolean markClosed() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        worker.addPendingWriteBytes(-outbound.pendingBytes());
+        outbound.clear();
+        return true;
+    }
+
+    boolean flushScheduled() {
+        return id >= 0 && worker.registry().hasFlag(id, ConnectionRegistry.FLUSH_SCHEDULED);
+    }
+
+    void flushScheduled(boolean flushScheduled) {
+        if (id >= 0) {
+            worker.registry().setFlag(id, ConnectionRegistry.FLUSH_SCHEDULED, flushScheduled);
+        }
+    }
+
+    //聚集写入待写队列；写不完时注册 OP_WRITE，写完后取消
+    void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        ConnectionRegistry registry = worker.registry();
+        long calls = outbound.writeCalls();
+        long buffers = outbound.flushedBuffers();
+        long n = outbound.flush(channel);
+        registry.addBytesWritten(id, n);
+        //最近一次写出的时间只有写空闲检测用到
+        if (n > 0 && writeIdleTimeout != null) {
+            registry.lastWriteNanos(id, System.nanoTime());
+        }
+        worker.addWriteStats(n, outbound.writeCalls() - calls, outbound.flushedBuffers() - buffers);
+        int ops = key.interestOps();
+        if (outbound.isEmpty()) {
+            if ((ops & SelectionKey.OP_WRITE) != 0) {
+                key.interestOps(ops & ~SelectionKey.OP_WRITE);
+            }
+        } else if ((ops & SelectionKey.OP_WRITE) == 0) {
+            key.interestOps(ops | SelectionKey.OP_WRITE);
+        }
+        if (registry.hasFlag(id, ConnectionRegistry.UNWRITABLE)
+                && outbound.pendingBytes() < worker.config().getWriteLowWaterMark()) {
+            registry.setFlag(id, ConnectionRegistry.UNWRITABLE, false);
+            updateReadInterest();
+            worker.fireWritabilityChanged(this);
+        }
+        //回调中可能已经关闭了连接
+        if (!closed && registry.hasFlag(id, ConnectionRegistry.CLOSE_AFTER_FLUSH) && outbound.isEmpty()) {
+            worker.close(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return "Connection[" + channel.getRemoteAddress() + "]";
+        } catch (IOException e) {
+            return "Connection[closed]";
+        }
+    }
+}
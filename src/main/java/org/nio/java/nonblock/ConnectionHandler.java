@@ -0,0 +1,41 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 连接事件回调。所有方法都在连接所属的 worker 线程上调用，同一个连接的回调不会并发执行
+ */
+public interface ConnectionHandler {
+
+    /**
+     * 连接已建立并注册到 worker 选择器上.
+     */
+    void onOpen(Connection connection) throws IOException;
+
+    /**
+     * 收到数据. buffer 处于读模式且由 worker 复用，回调返回后其内容即失效，需要保留的数据必须自行拷贝.
+     */
+    void onRead(Connection connection, ByteBuffer buffer) throws IOException;
+
+    /**
+     * Connection.isWritable() 发生变化：待写字节超过高水位时变为 false，应暂停写出；降到低水位以下时恢复为 true.
+     */
+    default void onWritabilityChanged(Connection connection) throws IOException {
+    }
+
+    /**
+     * 连接空闲超时. 默认读空闲时关闭连接，写空闲时什么也不做；需要心跳时覆盖本方法，在 WRITE_IDLE 时写出心跳.
+     */
+    default void onIdle(Connection connection, IdleState state) throws IOException {
+        if (state == IdleState.READ_IDLE) {
+            connection.close();
+        }
+    }
+
+    /**
+     * 连接已关闭（对端关闭、异常或服务端关闭），每个连接只回调一次.
+     */
+    void onClose(Connection connection);
+}
@@ -0,0 +1,169 @@
+package org.nio.java.nonblock;
+
+import java.util.Arrays;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 一个 worker 上全部连接的登记表：每个注册到选择器的连接分到一个紧凑的 int 编号，
+ * 读写字节数、最近读写时间、状态位等热字段按编号存放在基本类型数组里（列式存储）
+ * <p>
+ * 1. 编号从 0 开始连续分配，关闭的编号放进空闲栈，后进先出地复用，数组始终保持紧凑，满了按 2 倍扩容
+ * <p>
+ * 2. 每个连接在这里只占 4 个 long、1 个 int 和 1 个引用（约 44 字节），没有装箱，也没有 HashMap 的 Entry；
+ * 事件循环通过 SelectionKey 的 attachment 拿到 Connection，再用它的编号索引数组，整个过程不分配对象
+ * <p>
+ * 3. 处理器也可以用 Connection.id() 索引自己的基本类型数组保存连接状态，代替以 SocketChannel 为键的 Map；
+ * 编号只在所属 worker 内唯一，多个 worker 共用一个处理器时需要再加上 worker 的 index()
+ * <p>
+ * 只能在所属 worker 线程上访问
+ */
+public class ConnectionRegistry {
+
+    //状态位
+    static final int FLUSH_SCHEDULED = 1;
+    static final int UNWRITABLE = 1 << 1;
+    static final int CLOSE_AFTER_FLUSH = 1 << 2;
+    static final int READ_PAUSED = 1 << 3;
+
+    private Connection[] connections;
+    private long[] bytesRead;
+    private long[] bytesWritten;
+    private long[] lastReadNanos;
+    private long[] lastWriteNanos;
+    private int[] flags;
+
+    //空闲编号栈
+    private int[] free;
+    private int freeCount;
+    //分配过的最大编号 + 1
+    private int limit;
+    private int size;
+
+    public ConnectionRegistry(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("initialCapacity must be positive: " + initialCapacity);
+        }
+        connections = new Connection[initialCapacity];
+        bytesRead = new long[initialCapacity];
+        bytesWritten = new long[initialCapacity];
+        lastReadNanos = new long[initialCapacity];
+        lastWriteNanos = new long[initialCapacity];
+        flags = new int[initialCapacity];
+        free = new int[initialCapacity];
+    }
+
+    /**
+     * 登记连接，返回分到的编号，各字段清零.
+     */
+    int add(Connection connection) {
+        int id;
+        if (freeCount > 0) {
+            id = free[--freeCount];
+        } else {
+            if (limit == connections.length) {
+                grow();
+            }
+            id = limit++;
+        }
+        connections[id] = connection;
+        bytesRead[id] = 0;
+        bytesWritten[id] = 0;
+        lastReadNanos[id] = 0;
+        lastWriteNanos[id] = 0;
+        flags[id] = 0;
+        size++;
+        return id;
+    }
+
+    /**
+     * 注销编号，之后它会分给新的连接.
+     */
+    void remove(int id) {
+        connections[id] = null;
+        free[freeCount++] = id;
+        size--;
+    }
+
+    /**
+     * 编号对应的连接，未分配时返回 null.
+     */
+    public Connection get(int id) {
+        return id < limit ? connections[id] : null;
+    }
+
+    /**
+     * 当前登记的连接数.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 编号的上界（不含），处理器可以按它确定自己数组的长度.
+     */
+    public int limit() {
+        return limit;
+    }
+
+    public long bytesRead(int id) {
+        return bytesRead[id];
+    }
+
+    public long bytesWritten(int id) {
+        return bytesWritten[id];
+    }
+
+    public long lastReadNanos(int id) {
+        return lastReadNanos[id];
+    }
+
+    public long lastWriteNanos(int id) {
+        return lastWriteNanos[id];
+    }
+
+    /**
+     * 各数组当前占用的字节数（不含数组头），引用按压缩指针 4 字节计.
+     */
+    public long footprintBytes() {
+        return (long) connections.length * (4 * 8 + 4 + 4 + 4);
+    }
+
+    void addBytesRead(int id, long n) {
+        bytesRead[id] += n;
+    }
+
+    void addBytesWritten(int id, long n) {
+        bytesWritten[id] += n;
+    }
+
+    void lastReadNanos(int id, long nanos) {
+        lastReadNanos[id] = nanos;
+    }
+
+    void lastWriteNanos(int id, long nanos) {
+        lastWriteNanos[id] = nanos;
+    }
+
+    boolean hasFlag(int id, int flag) {
+        return (flags[id] & flag) != 0;
+    }
+
+    void setFlag(int id, int flag, boolean on) {
+        if (on) {
+            flags[id] |= flag;
+        } else {
+            flags[id] &= ~flag;
+        }
+    }
+
+    private void grow() {
+        int capacity = connections.length << 1;
+        connections = Arrays.copyOf(connections, capacity);
+        bytesRead = Arrays.copyOf(bytesRead, capacity);
+        bytesWritten = Arrays.copyOf(bytesWritten, capacity);
+        lastReadNanos = Arrays.copyOf(lastReadNanos, capacity);
+        lastWriteNanos = Arrays.copyOf(lastWriteNanos, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        free = Arrays.copyOf(free, capacity);
+    }
+}
@@ -0,0 +1,16 @@
+package org.nio.java.nonblock;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * UdpIngestEngine 的数据报处理回调，在消费线程上调用
+ */
+public interface DatagramConsumer {
+
+    /**
+     * 处理一个数据报. data 处于读模式且属于环形队列的槽位，回调返回后即被复用，需要保留的数据必须自行拷贝.
+     */
+    void onDatagram(ByteBuffer data, SocketAddress sender);
+}
@@ -0,0 +1,135 @@
+package org.nio.java.nonblock;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 单生产者/单消费者的无锁环形队列，每个槽位预先分配一个直接缓冲区：
+ * <p>
+ * 生产者：claim() 取得下一个空槽位的缓冲区，直接 receive() 到其中，再 publish() 发布
+ * <p>
+ * 消费者：poll() 取得下一个已发布的槽位，处理完后 release() 归还
+ * <p>
+ * 数据报不经过任何拷贝和分配；队列满时 claim() 返回 null，由生产者决定丢弃
+ * <p>
+ * 每个槽位比 slotSize 多分配 1 个字节：receive() 会把超长数据报无声截断到缓冲区大小，
+ * 写入超过 slotSize 个字节就说明数据报被截断了，publish() 拒绝发布这样的槽位
+ */
+public class DatagramRing {
+
+    //head 与 tail 放在同一个 AtomicLongArray 中相隔 128 字节的位置，避免伪共享
+    private static final int PAD = 16;
+    private static final int HEAD = PAD;
+    private static final int TAIL = PAD * 2;
+
+    private final ByteBuffer[] slots;
+    private final SocketAddress[] senders;
+    private final int mask;
+    private final int slotSize;
+    private final AtomicLongArray sequences = new AtomicLongArray(PAD * 3);
+
+    //生产者本地缓存的 head，减少对共享变量的读取
+    private long cachedHead;
+    //消费者本地缓存的 tail
+    private long cachedTail;
+
+    /**
+     * @param capacity 槽位数，向上取整到 2 的幂
+     * @param slotSize 每个槽位可发布的最大字节数
+     */
+    public DatagramRing(int capacity, int slotSize) {
+        if (slotSize <= 0 || slotSize == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid slotSize: " + slotSize);
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new ByteBuffer[size];
+        this.senders = new SocketAddress[size];
+        this.mask = size - 1;
+        this.slotSize = slotSize;
+        for (int i = 0; i < size; i++) {
+            slots[i] = ByteBuffer.allocateDirect(slotSize + 1);
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public int slotSize() {
+        return slotSize;
+    }
+
+    /**
+     * 已发布未被消费的槽位数，近似值.
+     */
+    public int size() {
+        return (int) (sequences.get(TAIL) - sequences.get(HEAD));
+    }
+
+    /**
+     * 生产者：取得下一个空槽位的缓冲区（已 clear()，remaining() 为 slotSize + 1），队列满时返回 null.
+     */
+    public ByteBuffer claim() {
+        long tail = sequences.get(TAIL);
+        if (tail - cachedHead >= slots.length) {
+            cachedHead = sequences.get(HEAD);
+            if (tail - cachedHead >= slots.length) {
+                return null;
+            }
+        }
+        ByteBuffer slot = slots[(int) tail & mask];
+        slot.clear();
+        return slot;
+    }
+
+    /**
+     * 生产者：发布 claim() 得到的槽位，缓冲区由本方法 flip().
+     *
+     * @return 写入的字节数超过 slotSize（数据报被截断）时不发布、返回 false，槽位留给下一次 claim()
+     */
+    public boolean publish(SocketAddress sender) {
+        long tail = sequences.get(TAIL);
+        int index = (int) tail & mask;
+        ByteBuffer slot = slots[index];
+        if (slot.position() > slotSize) {
+            return false;
+        }
+        slot.flip();
+        senders[index] = sender;
+        //lazySet 保证槽位内容先于 tail 对消费者可见
+        sequences.lazySet(TAIL, tail + 1);
+        return true;
+    }
+
+    /**
+     * 消费者：取得下一个已发布槽位的缓冲区（读模式），没有时返回 null. 处理完后必须调用 release().
+     */
+    public ByteBuffer poll() {
+        long head = sequences.get(HEAD);
+        if (head >= cachedTail) {
+            cachedTail = sequences.get(TAIL);
+            if (head >= cachedTail) {
+                return null;
+            }
+        }
+        return slots[(int) head & mask];
+    }
+
+    /**
+     * 消费者：poll() 得到的槽位的发送方地址.
+     */
+    public SocketAddress sender() {
+        return senders[(int) sequences.get(HEAD) & mask];
+    }
+
+    /**
+     * 消费者：归还 poll() 得到的槽位.
+     */
+    public void release() {
+        long head = sequences.get(HEAD);
+        senders[(int) head & mask] = null;
+        sequences.lazySet(HEAD, head + 1);
+    }
+}
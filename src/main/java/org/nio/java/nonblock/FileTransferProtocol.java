@@ -0,0 +1,72 @@
+package org.nio.java.nonblock;
+
+import org.nio.java.channel.ChannelIO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 文件传输协议，一个连接上可以依次传输多个文件，所有整数均为大端序：
+ * <p>
+ * 1. 发送端 -> 接收端，文件头：
+ * int magic | short 文件名字节数 | 文件名(UTF-8) | long 文件长度 | long CRC32 校验和
+ * <p>
+ * 2. 接收端 -> 发送端，续传位置：long offset。接收端已有同名的未完成文件时为其长度，否则为 0
+ * <p>
+ * 3. 发送端 -> 接收端，文件内容：从 offset 到文件末尾，发送端用 transferTo() 直接从文件通道写入套接字
+ * <p>
+ * 4. 接收端 -> 发送端，结果：byte 状态，STATUS_OK 或 STATUS_CHECKSUM_MISMATCH
+ * <p>
+ * 发送端关闭输出（shutdownOutput()）表示不再有文件
+ */
+final class FileTransferProtocol {
+
+    static final int MAGIC = 0x4E494F46;
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_CHECKSUM_MISMATCH = 1;
+
+    //magic + 文件名字节数
+    static final int PREFIX_LENGTH = 4 + 2;
+
+    //文件长度 + 校验和
+    static final int SUFFIX_LENGTH = 8 + 8;
+
+    static final int MAX_NAME_LENGTH = Short.MAX_VALUE;
+
+    //计算校验和时每次映射的窗口大小
+    private static final long CHECKSUM_WINDOW = 64L * 1024 * 1024;
+
+    private FileTransferProtocol() {
+    }
+
+    /**
+     * 对文件前 length 个字节计算 CRC32，分段映射读取，不经过堆上的 byte[].
+     */
+    static long checksum(FileChannel channel, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        long position = 0;
+        while (position < length) {
+            long window = Math.min(CHECKSUM_WINDOW, length - position);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+            crc.update(mapped);
+            position += window;
+        }
+        return crc.getValue();
+    }
+
+    //实现在 ChannelIO 中，本包的发送端与接收端沿用原来的调用方式
+    static boolean readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        return ChannelIO.readFully(channel, buffer);
+    }
+
+    static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        ChannelIO.writeFully(channel, buffer);
+    }
+}
@@ -0,0 +1,134 @@
+package org.nio.java.nonblock;
+
+import org.nio.java.channel.FileCopier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 文件传输接收端，协议见 FileTransferProtocol
+ * <p>
+ * 文件先写入目标目录下的 “文件名.part”，校验通过后重命名为正式文件名。
+ * 连接中断时 .part 文件保留，发送端重新发送同名文件时从其末尾续传
+ * <p>
+ * 文件内容用 FileChannel.transferFrom(socket) 接收，不经过堆上的缓冲区
+ */
+public class FileTransferReceiver {
+
+    static final String PART_SUFFIX = ".part";
+
+    private final Path directory;
+    private final ByteBuffer header = ByteBuffer.allocateDirect(FileTransferProtocol.MAX_NAME_LENGTH
+            + FileTransferProtocol.SUFFIX_LENGTH);
+    private final ByteBuffer reply = ByteBuffer.allocateDirect(8);
+
+    public FileTransferReceiver(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 接收发送端在这个连接上发送的全部文件，直到发送端关闭输出.
+     *
+     * @param channel 已连接的阻塞模式通道
+     * @return 接收完成的文件
+     */
+    public List<Path> receiveAll(SocketChannel channel) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path file;
+        while ((file = receive(channel)) != null) {
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * 接收一个文件.
+     *
+     * @return 接收完成的文件；发送端已关闭输出时返回 null
+     */
+    public Path receive(SocketChannel channel) throws IOException {
+        //1. 文件头：先读定长部分得到文件名长度，再精确读取剩余部分，避免读入文件内容
+        header.clear().limit(FileTransferProtocol.PREFIX_LENGTH);
+        if (!FileTransferProtocol.readFully(channel, header)) {
+            return null;
+        }
+        header.flip();
+        int magic = header.getInt();
+        if (magic != FileTransferProtocol.MAGIC) {
+            throw new IOException("bad magic: " + Integer.toHexString(magic));
+        }
+        int nameLength = header.getShort() & 0xFFFF;
+        if (nameLength == 0 || nameLength > FileTransferProtocol.MAX_NAME_LENGTH) {
+            throw new IOException("invalid file name length: " + nameLength);
+        }
+        header.clear().limit(nameLength + FileTransferProtocol.SUFFIX_LENGTH);
+        FileTransferProtocol.readFully(channel, header);
+        header.flip();
+        byte[] nameBytes = new byte[nameLength];
+        header.get(nameBytes);
+        long length = header.getLong();
+        long checksum = header.getLong();
+
+        Path target = resolve(new String(nameBytes, StandardCharsets.UTF_8));
+        Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+
+        FileChannel outChannel = null;
+        boolean ok;
+        try {
+            outChannel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long offset = outChannel.size();
+            if (offset > length) {
+                outChannel.truncate(0);
+                offset = 0;
+            }
+
+            //2. 续传位置
+            reply.clear();
+            reply.putLong(offset).flip();
+            FileTransferProtocol.writeFully(channel, reply);
+
+            //3. 文件内容
+            FileCopier.transferFrom(channel, outChannel, offset, length - offset);
+
+            //4. 校验并回复结果
+            ok = FileTransferProtocol.checksum(outChannel, length) == checksum;
+            if (!ok) {
+                //整个文件作废，下次从头传
+                outChannel.truncate(0);
+            }
+        } finally {
+            if (outChannel != null) {
+                outChannel.close();
+            }
+        }
+
+        reply.clear();
+        reply.put(ok ? FileTransferProtocol.STATUS_OK : FileTransferProtocol.STATUS_CHECKSUM_MISMATCH).flip();
+        FileTransferProtocol.writeFully(channel, reply);
+        if (!ok) {
+            throw new IOException("checksum mismatch for " + target.getFileName());
+        }
+        return Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //只取文件名部分，防止 “../” 写到目标目录之外
+    private Path resolve(String name) throws IOException {
+        Path fileName = Paths.get(name).getFileName();
+        if (fileName == null || fileName.toString().isEmpty() || "..".equals(fileName.toString())) {
+            throw new IOException("invalid file name: " + name);
+        }
+        return directory.resolve(fileName);
+    }
+}
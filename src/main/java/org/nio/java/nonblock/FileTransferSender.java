@@ -0,0 +1,103 @@
+package org.nio.java.nonblock;
+
+import org.nio.java.channel.FileCopier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 文件传输发送端，协议见 FileTransferProtocol
+ * <p>
+ * 文件内容用 FileChannel.transferTo(socket) 发送，Linux 上为 sendfile，数据不进入用户空间
+ */
+public class FileTransferSender {
+
+    private final SocketChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocateDirect(
+            FileTransferProtocol.PREFIX_LENGTH + FileTransferProtocol.MAX_NAME_LENGTH
+                    + FileTransferProtocol.SUFFIX_LENGTH);
+    private final ByteBuffer reply = ByteBuffer.allocateDirect(8);
+
+    /**
+     * @param channel 已连接的阻塞模式通道
+     */
+    public FileTransferSender(SocketChannel channel) {
+        if (!channel.isBlocking()) {
+            throw new IllegalArgumentException("channel must be in blocking mode");
+        }
+        this.channel = channel;
+    }
+
+    /**
+     * 以文件自身的名字发送.
+     */
+    public long send(Path file) throws IOException {
+        return send(file, file.getFileName().toString());
+    }
+
+    /**
+     * 发送一个文件，接收端已有未完成的同名文件时从断点续传.
+     *
+     * @return 本次实际发送的字节数
+     * @throws IOException 接收端校验失败或连接异常
+     */
+    public long send(Path file, String name) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length == 0 || nameBytes.length > FileTransferProtocol.MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("invalid file name length: " + nameBytes.length);
+        }
+
+        FileChannel inChannel = null;
+        try {
+            inChannel = FileChannel.open(file, StandardOpenOption.READ);
+            long length = inChannel.size();
+
+            //1. 文件头
+            header.clear();
+            header.putInt(FileTransferProtocol.MAGIC);
+            header.putShort((short) nameBytes.length);
+            header.put(nameBytes);
+            header.putLong(length);
+            header.putLong(FileTransferProtocol.checksum(inChannel, length));
+            header.flip();
+            FileTransferProtocol.writeFully(channel, header);
+
+            //2. 续传位置
+            reply.clear();
+            FileTransferProtocol.readFully(channel, reply);
+            reply.flip();
+            long offset = reply.getLong();
+            if (offset < 0 || offset > length) {
+                throw new IOException("invalid resume offset " + offset + " for " + name);
+            }
+
+            //3. 文件内容
+            long sent = FileCopier.transferTo(inChannel, offset, length - offset, channel);
+
+            //4. 结果
+            reply.clear().limit(1);
+            FileTransferProtocol.readFully(channel, reply);
+            if (reply.get(0) != FileTransferProtocol.STATUS_OK) {
+                throw new IOException("receiver rejected " + name + ", status " + reply.get(0));
+            }
+            return sent;
+        } finally {
+            if (inChannel != null) {
+                inChannel.close();
+            }
+        }
+    }
+
+    /**
+     * 通知接收端不再发送文件.
+     */
+    public void finish() throws IOException {
+        channel.shutdownOutput();
+    }
+}
@@ -0,0 +1,169 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 长度前缀帧的增量解码器，每个连接一个实例，非线程安全：
+ * <p>
+ * 一、一次 read() 读到的多个完整帧在一次 decode() 中逐个交给 FrameListener，小消息可以批量处理
+ * <p>
+ * 二、完整的帧直接以只读视图的形式交给监听器，不拷贝；只有被拆在两次 read() 之间的帧
+ * 才把已到达的部分拷贝到累积缓冲区，并且只补齐这一个帧，之后的帧仍直接从输入缓冲区切出
+ * <p>
+ * 三、帧长度超过 maxFrameLength 时抛出 IOException，避免恶意或错误的长度导致分配超大的累积缓冲区
+ */
+public class FrameDecoder {
+
+    private static final int INITIAL_CUMULATION_SIZE = 1024;
+
+    private final LengthPrefix prefix;
+    private final int maxFrameLength;
+
+    //被拆开的帧已到达的部分，读模式
+    private ByteBuffer cumulation = ByteBuffer.allocate(0);
+
+    //输入缓冲区与累积缓冲区各自的只读视图，每个帧只调整 position/limit，不创建新对象
+    private ByteBuffer inputSource;
+    private ByteBuffer inputView;
+    private ByteBuffer cumulationView;
+
+    public FrameDecoder(LengthPrefix prefix, int maxFrameLength) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("maxFrameLength must be positive: " + maxFrameLength);
+        }
+        this.prefix = prefix;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    /**
+     * 解码 in 中剩余的字节，in 会被全部消费，不完整的帧保存在内部.
+     *
+     * @return 本次交给监听器的帧数
+     */
+    public int decode(ByteBuffer in, FrameListener listener) throws IOException {
+        int frames = 0;
+        if (cumulation.hasRemaining()) {
+            if (!completeCumulated(in, listener)) {
+                return 0;
+            }
+            frames++;
+        }
+        while (in.hasRemaining()) {
+            int start = in.position();
+            int length = prefix.readLength(in);
+            if (length < 0) {
+                break;
+            }
+            checkLength(length);
+            if (in.remaining() < length) {
+                in.position(start);
+                break;
+            }
+            int offset = in.position();
+            in.position(offset + length);
+            dispatch(in, offset, length, listener);
+            frames++;
+        }
+        if (in.hasRemaining()) {
+            append(in, in.remaining());
+        }
+        return frames;
+    }
+
+    /**
+     * 已到达但尚未组成完整帧的字节数.
+     */
+    public int pendingBytes() {
+        return cumulation.remaining();
+    }
+
+    //用 in 中的字节补齐累积缓冲区中的帧，补齐后交给监听器并返回 true
+    private boolean completeCumulated(ByteBuffer in, FrameListener listener) throws IOException {
+        while (true) {
+            int start = cumulation.position();
+            int length = prefix.readLength(cumulation);
+            if (length < 0) {
+                //前缀本身也不完整，逐字节补齐前缀
+                if (!in.hasRemaining()) {
+                    return false;
+                }
+                append(in, 1);
+                continue;
+            }
+            checkLength(length);
+            int header = cumulation.position() - start;
+            cumulation.position(start);
+            int need = header + length - cumulation.remaining();
+            if (need > 0) {
+                int n = Math.min(need, in.remaining());
+                append(in, n);
+                if (n < need) {
+                    return false;
+                }
+            }
+            int offset = cumulation.position() + header;
+            //先清空累积缓冲区，监听器抛出异常时也不会重复投递
+            cumulation.position(cumulation.limit());
+            dispatch(cumulation, offset, length, listener);
+            return true;
+        }
+    }
+
+    private void dispatch(ByteBuffer source, int offset, int length, FrameListener listener) throws IOException {
+        ByteBuffer view;
+        if (source == cumulation) {
+            if (cumulationView == null) {
+                cumulationView = cumulation.asReadOnlyBuffer();
+            }
+            view = cumulationView;
+        } else {
+            if (source != inputSource) {
+                inputSource = source;
+                inputView = source.asReadOnlyBuffer();
+            }
+            view = inputView;
+        }
+        view.clear();
+        view.position(offset);
+        view.limit(offset + length);
+        listener.onFrame(view);
+    }
+
+    //把 in 的 n 个字节追加到累积缓冲区
+    private void append(ByteBuffer in, int n) {
+        if (cumulation.capacity() - cumulation.remaining() < n) {
+            int size = Math.max(cumulation.remaining() + n,
+                    Math.max(INITIAL_CUMULATION_SIZE, cumulation.capacity() * 2));
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(size,
+                    Math.max(cumulation.remaining() + n, LengthPrefix.MAX_HEADER_LENGTH + maxFrameLength)));
+            larger.put(cumulation).flip();
+            cumulation = larger;
+            cumulationView = null;
+        }
+        cumulation.compact();
+        int limit = in.limit();
+        in.limit(in.position() + n);
+        cumulation.put(in);
+        in.limit(limit);
+        cumulation.flip();
+    }
+
+    private void checkLength(int length) throws IOException {
+        if (length > maxFrameLength) {
+            throw new IOException("frame length " + length + " exceeds limit " + maxFrameLength);
+        }
+    }
+
+    /**
+     * 收到完整帧的回调.
+     */
+    public interface FrameListener {
+
+        /**
+         * frame 是只读视图，内容为帧的全部字节（不含长度前缀），只在回调期间有效.
+         */
+        void onFrame(ByteBuffer frame) throws IOException;
+    }
+}
@@ -0,0 +1,21 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 按帧处理连接数据的回调，由 FramingHandler 调用，线程约定与 ConnectionHandler 相同
+ */
+public interface FrameHandler {
+
+    void onOpen(Connection connection) throws IOException;
+
+    /**
+     * 收到一个完整的帧. frame 是只读视图，只包含帧内容（不含长度前缀），回调返回后即失效，
+     * 需要保留的数据必须自行拷贝. 一次读就绪中到达的多个帧会连续回调.
+     */
+    void onFrame(Connection connection, ByteBuffer frame) throws IOException;
+
+    void onClose(Connection connection);
+}
@@ -0,0 +1,56 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 分帧层：把 ConnectionHandler 收到的字节流按长度前缀切分成帧，再交给 FrameHandler
+ * <p>
+ * 没有分帧时每次 read() 都被当成一条完整消息，一条消息被拆成两次 read() 或多条消息合并在一次 read() 中都会出错。
+ * 每个连接一个 FrameDecoder，保存在 Connection 的编解码状态中，处理器仍可以自由使用 attachment
+ * <pre>
+ * new ReactorServer(address, config, new FramingHandler(LengthPrefix.VARINT, 1024 * 1024, frameHandler));
+ * </pre>
+ */
+public class FramingHandler implements ConnectionHandler {
+
+    private final LengthPrefix prefix;
+    private final int maxFrameLength;
+    private final FrameHandler handler;
+
+    public FramingHandler(LengthPrefix prefix, int maxFrameLength, FrameHandler handler) {
+        this.prefix = prefix;
+        this.maxFrameLength = maxFrameLength;
+        this.handler = handler;
+    }
+
+    /**
+     * 以帧的形式写出 payload 剩余的字节.
+     */
+    public void write(Connection connection, ByteBuffer payload) throws IOException {
+        connection.write(prefix.encode(payload));
+    }
+
+    @Override
+    public void onOpen(Connection connection) throws IOException {
+        connection.codec(new FrameDecoder(prefix, maxFrameLength));
+        handler.onOpen(connection);
+    }
+
+    @Override
+    public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+        FrameDecoder decoder = (FrameDecoder) connection.codec();
+        decoder.decode(buffer, frame -> {
+            //前一个帧的处理器可能已经关闭了连接
+            if (!connection.isClosed()) {
+                handler.onFrame(connection, frame);
+            }
+        });
+    }
+
+    @Override
+    public void onClose(Connection connection) {
+        handler.onClose(connection);
+    }
+}
@@ -0,0 +1,197 @@
+package org.nio.java.nonblock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 哈希时间轮：ticksPerWheel 个槽位组成一个环，每个槽位是一个双向链表，截止时间落在同一槽位（对轮数取模）的定时器挂在一起
+ * <p>
+ * 1. schedule() 计算截止的 tick 并插到对应槽位的表头，cancel() 从链表中摘除，都是 O(1)
+ * <p>
+ * 2. advance() 由事件循环在每轮 select() 之后调用，逐个处理已经过去的 tick，每个 tick 只遍历一个槽位，
+ * 截止 tick 未到的定时器（还要再转几圈）留在原处
+ * <p>
+ * 3. 精度为一个 tick：定时器不会早于截止时间触发，最多晚一个 tick
+ * <p>
+ * 没有线程也没有锁，只能在同一个线程（ReactorWorker）上使用，定时任务也在这个线程上执行
+ */
+public class HashedTimingWheel {
+
+    private final long tickNanos;
+    private final int mask;
+    private final Timeout[] buckets;
+    private final LongSupplier clock;
+    private final long startNanos;
+
+    //下一个要处理的 tick
+    private long tick;
+    private int size;
+
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(tickDuration, unit, ticksPerWheel, System::nanoTime);
+    }
+
+    /**
+     * @param ticksPerWheel 槽位数，向上取整为 2 的幂
+     * @param clock         纳秒时钟，测试时可以替换
+     */
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel, LongSupplier clock) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("invalid ticksPerWheel: " + ticksPerWheel);
+        }
+        int n = Integer.highestOneBit(ticksPerWheel);
+        if (n < ticksPerWheel) {
+            n <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.mask = n - 1;
+        this.buckets = new Timeout[n];
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+    }
+
+    /**
+     * 在 delay 之后执行 task.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long elapsed = clock.getAsLong() - startNanos + unit.toNanos(Math.max(0, delay));
+        //向上取整，保证不早于截止时间触发
+        long deadline = Math.max((elapsed + tickNanos - 1) / tickNanos, tick);
+        Timeout timeout = new Timeout(this, task, deadline);
+        int index = (int) (deadline & mask);
+        Timeout head = buckets[index];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[index] = timeout;
+        size++;
+        return timeout;
+    }
+
+    /**
+     * 处理到当前时间为止已过去的全部 tick，执行到期的定时任务.
+     *
+     * @return 执行的任务数
+     */
+    public int advance() {
+        long target = (clock.getAsLong() - startNanos) / tickNanos;
+        if (size == 0) {
+            //没有定时器时直接跳到当前 tick
+            tick = Math.max(tick, target + 1);
+            return 0;
+        }
+        int fired = 0;
+        while (tick <= target) {
+            int index = (int) (tick & mask);
+            //先把到期的摘下来串成单链表，tick 前进后再执行，任务中新加的定时器不会落在正在处理的槽位上
+            Timeout expired = null;
+            Timeout node = buckets[index];
+            while (node != null) {
+                Timeout next = node.next;
+                if (node.deadline <= tick) {
+                    unlink(node);
+                    //同一 tick 中先执行的任务不能再取消它
+                    node.state = Timeout.EXPIRED;
+                    node.next = expired;
+                    expired = node;
+                }
+                node = next;
+            }
+            tick++;
+            while (expired != null) {
+                Timeout next = expired.next;
+                expired.next = null;
+                fired++;
+                try {
+                    expired.task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                expired = next;
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * 到下一个 tick 的纳秒数，事件循环用它缩短 select() 的超时.
+     */
+    public long nanosUntilNextTick() {
+        return Math.max(0, startNanos + tick * tickNanos - clock.getAsLong());
+    }
+
+    /**
+     * 尚未触发也未取消的定时器个数.
+     */
+    public int size() {
+        return size;
+    }
+
+    public long tickNanos() {
+        return tickNanos;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[(int) (timeout.deadline & mask)] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        size--;
+    }
+
+    /**
+     * 一个定时器，只能在时间轮所在的线程上 cancel().
+     */
+    public static final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final HashedTimingWheel wheel;
+        private final Runnable task;
+        private final long deadline;
+        private Timeout prev;
+        private Timeout next;
+        private int state;
+
+        private Timeout(HashedTimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消尚未触发的定时器.
+         *
+         * @return 已触发或已取消时返回 false
+         */
+        public boolean cancel() {
+            if (state != PENDING) {
+                return false;
+            }
+            state = CANCELLED;
+            wheel.unlink(this);
+            return true;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+    }
+}
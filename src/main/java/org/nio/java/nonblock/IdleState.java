@@ -0,0 +1,18 @@
+package org.nio.java.nonblock;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 连接空闲的类型，见 ReactorConfig.setReadIdleTimeoutMillis() / setWriteIdleTimeoutMillis()
+ */
+public enum IdleState {
+
+    /**
+     * 超过读空闲超时没有读到数据，常见于停滞或半开的连接.
+     */
+    READ_IDLE,
+
+    /**
+     * 超过写空闲超时没有写出数据.
+     */
+    WRITE_IDLE
+}
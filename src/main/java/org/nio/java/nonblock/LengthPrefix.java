@@ -0,0 +1,115 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 帧长度前缀的编码方式，长度只包括帧内容，不包括前缀本身
+ */
+public enum LengthPrefix {
+
+    /**
+     * 4 字节大端整数，与 DataOutputStream.writeInt() 相同.
+     */
+    FIXED32 {
+        @Override
+        public int headerLength(int length) {
+            return 4;
+        }
+
+        @Override
+        public void putLength(ByteBuffer out, int length) {
+            out.putInt(length);
+        }
+
+        @Override
+        public int readLength(ByteBuffer in) throws IOException {
+            if (in.remaining() < 4) {
+                return -1;
+            }
+            int length = in.getInt();
+            if (length < 0) {
+                throw new IOException("negative frame length: " + length);
+            }
+            return length;
+        }
+    },
+
+    /**
+     * 无符号变长整数（与 protobuf 的 varint 相同），每字节低 7 位为数据、最高位表示后面还有字节，
+     * 小于 128 字节的帧只需 1 字节前缀.
+     */
+    VARINT {
+        @Override
+        public int headerLength(int length) {
+            int n = 1;
+            while ((length >>>= 7) != 0) {
+                n++;
+            }
+            return n;
+        }
+
+        @Override
+        public void putLength(ByteBuffer out, int length) {
+            while ((length & ~0x7F) != 0) {
+                out.put((byte) ((length & 0x7F) | 0x80));
+                length >>>= 7;
+            }
+            out.put((byte) length);
+        }
+
+        @Override
+        public int readLength(ByteBuffer in) throws IOException {
+            int start = in.position();
+            int length = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (!in.hasRemaining()) {
+                    in.position(start);
+                    return -1;
+                }
+                byte b = in.get();
+                length |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    //第 5 个字节只能用低 3 位，否则超出 int 的正数范围
+                    if (shift == 28 && (b & 0x78) != 0) {
+                        break;
+                    }
+                    return length;
+                }
+            }
+            throw new IOException("malformed varint frame length");
+        }
+    };
+
+    /**
+     * 前缀的最大字节数.
+     */
+    public static final int MAX_HEADER_LENGTH = 5;
+
+    /**
+     * 长度为 length 的帧的前缀字节数.
+     */
+    public abstract int headerLength(int length);
+
+    public abstract void putLength(ByteBuffer out, int length);
+
+    /**
+     * 从 in 的 position 处读取长度前缀.
+     *
+     * @return 帧内容长度，position 移到前缀之后；前缀不完整时返回 -1，position 不变
+     * @throws IOException 前缀非法
+     */
+    public abstract int readLength(ByteBuffer in) throws IOException;
+
+    /**
+     * 把 payload 剩余的字节编码成一个帧（读模式），payload 的 position 移到 limit.
+     */
+    public ByteBuffer encode(ByteBuffer payload) {
+        int length = payload.remaining();
+        ByteBuffer frame = ByteBuffer.allocate(headerLength(length) + length);
+        putLength(frame, length);
+        frame.put(payload).flip();
+        return frame;
+    }
+}
@@ -0,0 +1,61 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 统计的文本端点：收到请求头后返回一个 HTTP/1.0 响应（Prometheus 文本格式）并关闭连接，
+ * 可以用 curl 或 Prometheus 直接抓取
+ * <pre>
+ * ReactorServer metrics = new ReactorServer(new InetSocketAddress(9100),
+ *         new ReactorConfig().setWorkerCount(1).setJmxEnabled(false), new MetricsHandler(server::metricsText));
+ * </pre>
+ */
+public class MetricsHandler implements ConnectionHandler {
+
+    //请求头最长字节数，超过即视为非法请求
+    private static final int MAX_REQUEST_LENGTH = 8192;
+
+    private final Supplier<String> body;
+
+    public MetricsHandler(Supplier<String> body) {
+        this.body = body;
+    }
+
+    @Override
+    public void onOpen(Connection connection) {
+        connection.attach(new StringBuilder());
+    }
+
+    @Override
+    public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+        StringBuilder request = (StringBuilder) connection.attachment();
+        if (request == null) {
+            //响应已发出，忽略之后的数据
+            return;
+        }
+        request.append(StandardCharsets.ISO_8859_1.decode(buffer));
+        if (request.indexOf("\r\n\r\n") < 0 && request.indexOf("\n\n") < 0) {
+            if (request.length() > MAX_REQUEST_LENGTH) {
+                connection.close();
+            }
+            return;
+        }
+        connection.attach(null);
+        byte[] content = body.get().getBytes(StandardCharsets.UTF_8);
+        String header = "HTTP/1.0 200 OK\r\n"
+                + "Content-Type: text/plain; version=0.0.4; charset=utf-8\r\n"
+                + "Content-Length: " + content.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        connection.write(ByteBuffer.wrap(header.getBytes(StandardCharsets.ISO_8859_1)));
+        connection.write(ByteBuffer.wrap(content));
+        connection.closeAfterFlush();
+    }
+
+    @Override
+    public void onClose(Connection connection) {
+    }
+}
@@ -0,0 +1,78 @@
+package org.nio.java.nonblock;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 多生产者/单消费者的无锁任务队列（Vyukov 链表队列），用作 ReactorWorker 的任务收件箱
+ * <p>
+ * 1. 生产者：offer() 只做一次 getAndSet() 交换尾结点，再有序写入前驱的 next，没有 CAS 重试，竞争时也不会退化成自旋
+ * <p>
+ * 2. 消费者：poll() 只读写自己的 head，不需要任何原子操作
+ * <p>
+ * 3. 生产者交换尾结点之后、链上前驱之前的极短窗口里，poll() 看不到这个任务而 isEmpty() 已经为 false，
+ * 消费者此时不能阻塞，下一轮再取即可
+ * <p>
+ * 与 ConcurrentLinkedQueue 相比：每个任务同样分配一个结点，但入队不需要 CAS 循环，出队没有原子操作
+ */
+public class MpscTaskQueue {
+
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+    //生产者共享的尾结点
+    private final AtomicReference<Node> tail;
+    //消费者独占的头结点（已取出的哨兵）
+    private Node head;
+
+    public MpscTaskQueue() {
+        Node stub = new Node(null);
+        head = stub;
+        tail = new AtomicReference<>(stub);
+    }
+
+    /**
+     * 任意线程调用.
+     */
+    public void offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        Node node = new Node(task);
+        Node prev = tail.getAndSet(node);
+        NEXT.lazySet(prev, node);
+    }
+
+    /**
+     * 只能由消费者线程调用，队列为空（或最新的任务还没链上）时返回 null.
+     */
+    public Runnable poll() {
+        Node next = head.next;
+        if (next == null) {
+            return null;
+        }
+        Runnable task = next.task;
+        //取出的结点成为新的哨兵，断开引用以便回收
+        next.task = null;
+        head = next;
+        return task;
+    }
+
+    /**
+     * 只能由消费者线程调用. 有正在入队的任务时也返回 false.
+     */
+    public boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    private static final class Node {
+
+        Runnable task;
+        volatile Node next;
+
+        Node(Runnable task) {
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package org.nio.java.nonblock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 非阻塞客户端：
+ * <p>
+ * 1. 连接由 ReactorWorker 发起：connect() 立即返回，OP_CONNECT 就绪后 finishConnect()，超过 connectTimeout 未完成则关闭
+ * <p>
+ * 2. 每个目标地址一个连接池，最多 maxConnectionsPerEndpoint 个长连接，连接复用，不是每个请求重新连接
+ * <p>
+ * 3. 流水线：同一连接上不等前一个响应返回就继续发送请求，每个连接最多 maxPipelinedRequests 个未完成的请求；
+ * 响应按发送顺序由 ResponseParser 切分并对应到请求
+ * <p>
+ * 4. 写出通过 Connection.write()，写不完的部分排队并注册 OP_WRITE，不会忽略 write() 的返回值
+ * <p>
+ * 5. 连接与请求超时挂在所属 worker 的 HashedTimingWheel 上，在 worker 线程上触发，没有单独的定时线程
+ * <p>
+ * 一个目标地址的连接池固定在一个 worker 上，池和连接的状态都只在该 worker 线程上访问，无需加锁
+ */
+public class NioClient implements Closeable {
+
+    private final ReactorConfig config;
+    private final ResponseParser parser;
+    private final ReactorWorker[] workers;
+    private final ConcurrentMap<InetSocketAddress, EndpointPool> pools = new ConcurrentHashMap<>();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    private long connectTimeoutMillis = 3000;
+    private long requestTimeoutMillis = 10000;
+    private int maxConnectionsPerEndpoint = 4;
+    private int maxPipelinedRequests = 128;
+
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    private volatile boolean closed;
+
+    public NioClient(ReactorConfig config, ResponseParser parser) throws IOException {
+        this.config = config;
+        this.parser = parser;
+        this.workers = new ReactorWorker[config.getWorkerCount()];
+        ClientHandler handler = new ClientHandler();
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new ReactorWorker(i, "nio-client-" + i, config, handler);
+        }
+        for (ReactorWorker worker : workers) {
+            worker.start();
+        }
+    }
+
+    public NioClient(ResponseParser parser) throws IOException {
+        this(new ReactorConfig().setWorkerCount(1), parser);
+    }
+
+    /**
+     * 连接超时，0 表示不限制.
+     */
+    public NioClient setConnectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * 请求超时，0 表示不限制. 超时的请求以 TimeoutException 结束，它的响应到达后被丢弃，连接继续使用.
+     */
+    public NioClient setRequestTimeoutMillis(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        return this;
+    }
+
+    public NioClient setMaxConnectionsPerEndpoint(int maxConnectionsPerEndpoint) {
+        if (maxConnectionsPerEndpoint <= 0) {
+            throw new IllegalArgumentException("maxConnectionsPerEndpoint must be positive: "
+                    + maxConnectionsPerEndpoint);
+        }
+        this.maxConnectionsPerEndpoint = maxConnectionsPerEndpoint;
+        return this;
+    }
+
+    public NioClient setMaxPipelinedRequests(int maxPipelinedRequests) {
+        if (maxPipelinedRequests <= 0) {
+            throw new IllegalArgumentException("maxPipelinedRequests must be positive: " + maxPipelinedRequests);
+        }
+        this.maxPipelinedRequests = maxPipelinedRequests;
+        return this;
+    }
+
+    /**
+     * 发送请求. request 处于读模式，调用后不能再修改；全部连接都已满时请求在池中排队.
+     *
+     * @return 响应，由 ResponseParser 切分得到；连接失败、连接断开或超时时异常结束
+     */
+    public CompletableFuture<ByteBuffer> send(InetSocketAddress endpoint, ByteBuffer request) {
+        CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new IOException("client closed"));
+            return future;
+        }
+        requests.increment();
+        EndpointPool pool = pools.computeIfAbsent(endpoint,
+                e -> new EndpointPool(e, workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)]));
+        PendingRequest pending = new PendingRequest(request, future);
+        long timeoutMillis = requestTimeoutMillis;
+        //截止时间从 send() 开始计算，worker 繁忙、任务排队的时间也算在超时内
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        pool.worker.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            //超时定时器挂在 worker 的时间轮上，只设置剩余的时间；已经过了截止时间的请求立即超时
+            if (timeoutMillis > 0) {
+                pending.timeout = pool.worker.schedule(() -> {
+                    //先计数再结束 future，等待 future 的线程看到的计数已经包含本次超时
+                    timeouts.increment();
+                    if (!future.completeExceptionally(new TimeoutException("request timed out after "
+                            + timeoutMillis + "ms"))) {
+                        timeouts.decrement();
+                    }
+                }, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            pool.send(pending);
+        });
+        //close() 可能恰好在上面的检查之后完成：worker 退出前已经清空过任务队列，刚投递的任务不会再执行
+        if (closed) {
+            future.completeExceptionally(new IOException("client closed"));
+        }
+        return future;
+    }
+
+    /**
+     * 发起过的连接数.
+     */
+    public long connectCount() {
+        return connects.sum();
+    }
+
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    public long timeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * 关闭全部连接，未完成的请求以 IOException 结束.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ReactorWorker worker : workers) {
+            worker.shutdown();
+        }
+        try {
+            for (ReactorWorker worker : workers) {
+                worker.awaitTermination();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        //worker 都已退出，可以在当前线程上访问池：结束关闭过程中仍留在池里的请求
+        IOException cause = new IOException("client closed");
+        for (EndpointPool pool : pools.values()) {
+            pool.failAll(cause);
+        }
+    }
+
+    private static final class PendingRequest {
+
+        final ByteBuffer request;
+        final CompletableFuture<ByteBuffer> future;
+        //只在 worker 线程上设置与取消
+        HashedTimingWheel.Timeout timeout;
+
+        PendingRequest(ByteBuffer request, CompletableFuture<ByteBuffer> future) {
+            this.request = request;
+            this.future = future;
+        }
+
+        void complete(ByteBuffer response) {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            future.complete(response);
+        }
+
+        void fail(IOException e) {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            future.completeExceptionally(e);
+        }
+    }
+
+    //一个目标地址的连接池，只在 worker 线程上访问
+    private final class EndpointPool {
+
+        final InetSocketAddress endpoint;
+        final ReactorWorker worker;
+        final List<ClientConnection> connections = new ArrayList<>();
+
+        //全部连接都达到流水线上限时排队的请求
+        final ArrayDeque<PendingRequest> waiting = new ArrayDeque<>();
+
+        EndpointPool(InetSocketAddress endpoint, ReactorWorker worker) {
+            this.endpoint = endpoint;
+            this.worker = worker;
+        }
+
+        void send(PendingRequest pending) {
+            if (pending.future.isDone()) {
+                return;
+            }
+            ClientConnection connection;
+            try {
+                connection = pick();
+            } catch (IOException e) {
+                pending.fail(e);
+                return;
+            }
+            if (connection == null) {
+                waiting.addLast(pending);
+            } else {
+                connection.send(pending);
+            }
+        }
+
+        //优先空闲连接；没有空闲连接且未达上限时新建连接；否则选未完成请求最少且未满的连接
+        private ClientConnection pick() throws IOException {
+            ClientConnection best = null;
+            for (ClientConnection connection : connections) {
+                if (best == null || connection.load() < best.load()) {
+                    best = connection;
+                }
+            }
+            if (best != null && best.load() == 0) {
+                return best;
+            }
+            if (connections.size() < maxConnectionsPerEndpoint) {
+                return open();
+            }
+            return best.load() < maxPipelinedRequests ? best : null;
+        }
+
+        private ClientConnection open() throws IOException {
+            if (closed) {
+                throw new IOException("client closed");
+            }
+            ClientConnection connection = new ClientConnection(this);
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, config.isTcpNoDelay());
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            //连接在 worker 的下一个任务中发起，onOpen/onClose 不会在这里重入
+            connection.connection = worker.connect(channel, endpoint, connection);
+            connections.add(connection);
+            connects.increment();
+            if (connectTimeoutMillis > 0) {
+                connection.connectTimeout = worker.schedule(connection::connectTimedOut,
+                        connectTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            return connection;
+        }
+
+        //有连接释放出流水线空位时，把排队的请求发出去
+        void drainWaiting() {
+            PendingRequest pending;
+            while ((pending = waiting.peekFirst()) != null) {
+                if (pending.future.isDone()) {
+                    waiting.pollFirst();
+                    continue;
+                }
+                ClientConnection connection;
+                try {
+                    connection = pick();
+                } catch (IOException e) {
+                    failWaiting(e);
+                    return;
+                }
+                if (connection == null) {
+                    return;
+                }
+                waiting.pollFirst();
+                connection.send(pending);
+            }
+        }
+
+        void failWaiting(IOException cause) {
+            PendingRequest pending;
+            while ((pending = waiting.pollFirst()) != null) {
+                pending.fail(cause);
+            }
+        }
+
+        void failAll(IOException cause) {
+            failWaiting(cause);
+            for (ClientConnection connection : connections) {
+                connection.failAll(cause);
+            }
+        }
+
+        void closed(ClientConnection connection, IOException cause) {
+            connections.remove(connection);
+            if (!connection.opened && connections.isEmpty()) {
+                //目标地址连不上，排队的请求不再重试
+                failWaiting(cause);
+            } else {
+                drainWaiting();
+            }
+        }
+    }
+
+    //池中的一个连接，作为 Connection 的 attachment
+    private final class ClientConnection {
+
+        final EndpointPool pool;
+
+        //连接建立前提交的请求
+        final ArrayDeque<PendingRequest> unsent = new ArrayDeque<>();
+        //已发送、等待响应的请求，按发送顺序
+        final ArrayDeque<PendingRequest> inflight = new ArrayDeque<>();
+
+        Connection connection;
+        HashedTimingWheel.Timeout connectTimeout;
+        boolean opened;
+        boolean timedOut;
+
+        //尚未组成完整响应的字节，读模式
+        ByteBuffer received = ByteBuffer.allocate(0);
+
+        ClientConnection(EndpointPool pool) {
+            this.pool = pool;
+        }
+
+        int load() {
+            return unsent.size() + inflight.size();
+        }
+
+        void send(PendingRequest pending) {
+            if (!opened) {
+                unsent.addLast(pending);
+                return;
+            }
+            try {
+                connection.write(pending.request);
+                inflight.addLast(pending);
+            } catch (IOException e) {
+                pending.fail(e);
+                connection.close();
+            }
+        }
+
+        void onOpen(Connection connection) throws IOException {
+            opened = true;
+            if (connectTimeout != null) {
+                connectTimeout.cancel();
+            }
+            PendingRequest pending;
+            while ((pending = unsent.pollFirst()) != null) {
+                if (!pending.future.isDone()) {
+                    connection.write(pending.request);
+                    inflight.addLast(pending);
+                }
+            }
+        }
+
+        void onRead(ByteBuffer buffer) {
+            ByteBuffer in = append(buffer);
+            boolean freed = false;
+            ByteBuffer response;
+            while (!inflight.isEmpty() && (response = parser.parse(in)) != null) {
+                //已超时的请求 future 已经结束，complete 不会生效，响应被丢弃
+                inflight.pollFirst().complete(response);
+                freed = true;
+            }
+            keep(in);
+            if (freed) {
+                pool.drainWaiting();
+            }
+        }
+
+        void connectTimedOut() {
+            if (!opened && !connection.isClosed()) {
+                timedOut = true;
+                connection.close();
+            }
+        }
+
+        void onClose(Connection connection) {
+            if (connectTimeout != null) {
+                connectTimeout.cancel();
+            }
+            IOException cause;
+            if (timedOut) {
+                cause = new SocketTimeoutException("connect to " + pool.endpoint + " timed out after "
+                        + connectTimeoutMillis + "ms");
+            } else if (!opened) {
+                cause = new ConnectException("connect to " + pool.endpoint + " failed");
+            } else {
+                cause = new IOException("connection to " + pool.endpoint + " closed");
+            }
+            failAll(cause);
+            pool.closed(this, cause);
+        }
+
+        void failAll(IOException cause) {
+            PendingRequest pending;
+            while ((pending = unsent.pollFirst()) != null) {
+                pending.fail(cause);
+            }
+            while ((pending = inflight.pollFirst()) != null) {
+                pending.fail(cause);
+            }
+        }
+
+        //上次剩下的字节为空时直接解析 worker 的读缓冲区，避免拷贝
+        private ByteBuffer append(ByteBuffer buffer) {
+            if (!received.hasRemaining()) {
+                return buffer;
+            }
+            if (received.capacity() - received.remaining() < buffer.remaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(received.remaining() + buffer.remaining(),
+                        received.capacity() * 2));
+                larger.put(received).flip();
+                received = larger;
+            }
+            received.compact();
+            received.put(buffer).flip();
+            return received;
+        }
+
+        //保存不完整响应的剩余字节，worker 的读缓冲区在回调返回后会被复用
+        private void keep(ByteBuffer in) {
+            if (in == received) {
+                return;
+            }
+            if (!in.hasRemaining()) {
+                received.clear().flip();
+                return;
+            }
+            if (received.capacity() < in.remaining()) {
+                received = ByteBuffer.allocate(Math.max(in.remaining(), 4096));
+            }
+            received.clear();
+            received.put(in).flip();
+        }
+    }
+
+    private final class ClientHandler implements ConnectionHandler {
+
+        @Override
+        public void onOpen(Connection connection) throws IOException {
+            ((ClientConnection) connection.attachment()).onOpen(connection);
+        }
+
+        @Override
+        public void onRead(Connection connection, ByteBuffer buffer) {
+            ((ClientConnection) connection.attachment()).onRead(buffer);
+        }
+
+        @Override
+        public void onClose(Connection connection) {
+            ((ClientConnection) connection.attachment()).onClose(connection);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 连接的待写队列：排队的多个缓冲区用一次聚集写入 write(ByteBuffer[], offset, length) 写出，
+ * 而不是每个缓冲区一次 write() 系统调用
+ * <p>
+ * 写不完时已写完的缓冲区出队，剩下的缓冲区保持原有顺序与 position，下次从断点继续
+ * <p>
+ * 只能在连接所属的 worker 线程上访问
+ */
+class OutboundQueue {
+
+    //一次聚集写入的最大缓冲区个数，Linux 的 IOV_MAX 为 1024
+    static final int MAX_GATHER = 1024;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final ByteBuffer[] EMPTY = new ByteBuffer[0];
+
+    //第一次 add() 时才分配：大多数连接的写都能立即写完，从不排队
+    private ByteBuffer[] buffers = EMPTY;
+    private int head;
+    private int tail;
+    private long pendingBytes;
+
+    //write() 调用次数与写完的缓冲区个数
+    private long writeCalls;
+    private long flushedBuffers;
+
+    boolean isEmpty() {
+        return head == tail;
+    }
+
+    int size() {
+        return tail - head;
+    }
+
+    long pendingBytes() {
+        return pendingBytes;
+    }
+
+    long writeCalls() {
+        return writeCalls;
+    }
+
+    long flushedBuffers() {
+        return flushedBuffers;
+    }
+
+    void add(ByteBuffer buffer) {
+        if (tail == buffers.length) {
+            if (head > 0) {
+                //前面已写完的位置腾出来
+                System.arraycopy(buffers, head, buffers, 0, tail - head);
+                Arrays.fill(buffers, tail - head, tail, null);
+                tail -= head;
+                head = 0;
+            }
+            if (tail == buffers.length) {
+                buffers = Arrays.copyOf(buffers, Math.max(INITIAL_CAPACITY, buffers.length * 2));
+            }
+        }
+        buffers[tail++] = buffer;
+        pendingBytes += buffer.remaining();
+    }
+
+    /**
+     * 聚集写入，直到队列为空或通道写不进去.
+     *
+     * @return 写出的字节数
+     */
+    long flush(GatheringByteChannel channel) throws IOException {
+        long total = 0;
+        while (head < tail) {
+            int length = Math.min(tail - head, MAX_GATHER);
+            long requested = 0;
+            for (int i = head; i < head + length; i++) {
+                requested += buffers[i].remaining();
+            }
+            long n = channel.write(buffers, head, length);
+            writeCalls++;
+            total += n;
+            pendingBytes -= n;
+            while (head < tail && !buffers[head].hasRemaining()) {
+                buffers[head++] = null;
+                flushedBuffers++;
+            }
+            if (n < requested) {
+                //套接字发送缓冲区已满
+                break;
+            }
+        }
+        if (head == tail) {
+            head = 0;
+            tail = 0;
+        }
+        return total;
+    }
+
+    void clear() {
+        Arrays.fill(buffers, head, tail, null);
+        head = 0;
+        tail = 0;
+        pendingBytes = 0;
+    }
+}
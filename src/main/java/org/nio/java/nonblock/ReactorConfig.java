@@ -0,0 +1,228 @@
+package org.nio.java.nonblock;
+
+import org.nio.java.buffer.BufferPool;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 主从 Reactor 服务端的配置项，所有 setter 返回自身，便于链式调用
+ */
+public class ReactorConfig {
+
+    //worker 选择器个数，默认每个核一个
+    private int workerCount = Runtime.getRuntime().availableProcessors();
+
+    //每个 worker 读缓冲区大小
+    private int readBufferSize = 64 * 1024;
+
+    //select() 最长阻塞时间，保证任务队列和关闭标志能被及时处理
+    private long selectTimeoutMillis = 1000;
+
+    //ServerSocketChannel 的 accept 队列长度
+    private int backlog = 1024;
+
+    private boolean tcpNoDelay = true;
+
+    //待写字节的高低水位，超过高水位时 Connection.isWritable() 为 false，降到低水位以下恢复
+    private int writeHighWaterMark = 64 * 1024;
+    private int writeLowWaterMark = 32 * 1024;
+
+    //每个就绪 key 每轮最多读几次、读多少字节，用完后让给其它 key，剩下的数据下一轮再读
+    private int maxReadsPerKey = 4;
+    private int readBudgetBytes = 256 * 1024;
+
+    //待写字节超过高水位（对端读得慢）时停止读取该连接，降到低水位以下恢复
+    private boolean pauseReadWhenUnwritable = true;
+
+    //true 时 Connection.write() 只入队，worker 处理完一轮事件后统一聚集写入；false 时立即写出
+    private boolean flushOnIdle = true;
+
+    //空闲超时，0 表示不检测：读空闲即这段时间内没有读到数据，写空闲即这段时间内没有写出数据
+    private long readIdleTimeoutMillis;
+    private long writeIdleTimeoutMillis;
+
+    //worker 时间轮的 tick 长度与槽位数，决定定时器的精度
+    private long timerTickMillis = 10;
+    private int timerWheelSize = 512;
+
+    //ReactorServer 启动时把 boss 与 worker 的 EventLoopMetrics 注册到 JMX
+    private boolean jmxEnabled = true;
+
+    //worker 读缓冲区从这里申请
+    private BufferPool bufferPool = BufferPool.getDefault();
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public ReactorConfig setWorkerCount(int workerCount) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be positive: " + workerCount);
+        }
+        this.workerCount = workerCount;
+        return this;
+    }
+
+    public int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    public ReactorConfig setReadBufferSize(int readBufferSize) {
+        if (readBufferSize <= 0) {
+            throw new IllegalArgumentException("readBufferSize must be positive: " + readBufferSize);
+        }
+        this.readBufferSize = readBufferSize;
+        return this;
+    }
+
+    public long getSelectTimeoutMillis() {
+        return selectTimeoutMillis;
+    }
+
+    public ReactorConfig setSelectTimeoutMillis(long selectTimeoutMillis) {
+        this.selectTimeoutMillis = selectTimeoutMillis;
+        return this;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public ReactorConfig setBacklog(int backlog) {
+        this.backlog = backlog;
+        return this;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public ReactorConfig setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    public int getWriteHighWaterMark() {
+        return writeHighWaterMark;
+    }
+
+    public int getWriteLowWaterMark() {
+        return writeLowWaterMark;
+    }
+
+    public ReactorConfig setWriteWaterMarks(int low, int high) {
+        if (low < 0 || high < low) {
+            throw new IllegalArgumentException("invalid water marks: " + low + ".." + high);
+        }
+        this.writeLowWaterMark = low;
+        this.writeHighWaterMark = high;
+        return this;
+    }
+
+    public int getMaxReadsPerKey() {
+        return maxReadsPerKey;
+    }
+
+    public int getReadBudgetBytes() {
+        return readBudgetBytes;
+    }
+
+    /**
+     * 每个就绪 key 每轮的读取预算：最多 maxReads 次 read()、最多 maxBytes 字节（至少读一次），两者先到为准.
+     * 一次读不满读缓冲区说明套接字已读空，提前结束
+     */
+    public ReactorConfig setReadBudget(int maxReads, int maxBytes) {
+        if (maxReads <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("invalid read budget: " + maxReads + " reads, " + maxBytes + " bytes");
+        }
+        this.maxReadsPerKey = maxReads;
+        this.readBudgetBytes = maxBytes;
+        return this;
+    }
+
+    public boolean isPauseReadWhenUnwritable() {
+        return pauseReadWhenUnwritable;
+    }
+
+    /**
+     * 默认 true：连接不可写（待写字节超过高水位）时取消关注 OP_READ，不再读入会产生更多响应的请求，
+     * 恢复可写后重新读取. 处理器自己处理 onWritabilityChanged() 时可以关闭
+     */
+    public ReactorConfig setPauseReadWhenUnwritable(boolean pauseReadWhenUnwritable) {
+        this.pauseReadWhenUnwritable = pauseReadWhenUnwritable;
+        return this;
+    }
+
+    public boolean isFlushOnIdle() {
+        return flushOnIdle;
+    }
+
+    public ReactorConfig setFlushOnIdle(boolean flushOnIdle) {
+        this.flushOnIdle = flushOnIdle;
+        return this;
+    }
+
+    public long getReadIdleTimeoutMillis() {
+        return readIdleTimeoutMillis;
+    }
+
+    /**
+     * 读空闲超时，默认 0 表示不检测. 超时后回调 ConnectionHandler.onIdle()，默认关闭连接.
+     */
+    public ReactorConfig setReadIdleTimeoutMillis(long readIdleTimeoutMillis) {
+        if (readIdleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("negative readIdleTimeoutMillis: " + readIdleTimeoutMillis);
+        }
+        this.readIdleTimeoutMillis = readIdleTimeoutMillis;
+        return this;
+    }
+
+    public long getWriteIdleTimeoutMillis() {
+        return writeIdleTimeoutMillis;
+    }
+
+    /**
+     * 写空闲超时，默认 0 表示不检测. 超时后回调 ConnectionHandler.onIdle()，可以用来发送心跳.
+     */
+    public ReactorConfig setWriteIdleTimeoutMillis(long writeIdleTimeoutMillis) {
+        if (writeIdleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("negative writeIdleTimeoutMillis: " + writeIdleTimeoutMillis);
+        }
+        this.writeIdleTimeoutMillis = writeIdleTimeoutMillis;
+        return this;
+    }
+
+    public long getTimerTickMillis() {
+        return timerTickMillis;
+    }
+
+    public int getTimerWheelSize() {
+        return timerWheelSize;
+    }
+
+    public ReactorConfig setTimer(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("invalid timer: tick " + tickMillis + "ms, wheel " + wheelSize);
+        }
+        this.timerTickMillis = tickMillis;
+        this.timerWheelSize = wheelSize;
+        return this;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public ReactorConfig setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+        return this;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public ReactorConfig setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        return this;
+    }
+}
@@ -0,0 +1,253 @@
+package org.nio.java.nonblock;
+
+import org.nio.java.metrics.EventLoopMetrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 主从 Reactor 服务端：
+ * <p>
+ * 1. 主 Reactor（boss）：一个线程、一个选择器，只监听 OP_ACCEPT
+ * <p>
+ * 2. 从 Reactor（worker）：N 个线程、N 个选择器，默认每个核一个。新连接按轮询方式交给某个 worker，
+ * 此后该连接的全部读写都在这个 worker 线程上完成
+ * <p>
+ * 与 TestNonBlockingNIO.server() 的单线程循环相比，读写负载可以分摊到所有核上
+ * <p>
+ * boss 与每个 worker 各有一个 EventLoopMetrics，默认注册到 JMX（org.nio.java:type=EventLoop,server=端口,name=线程名），
+ * metricsText() 返回 Prometheus 文本格式，可以用 MetricsHandler 在另一个端口上提供
+ */
+public class ReactorServer implements Server {
+
+    private final InetSocketAddress address;
+    private final ReactorConfig config;
+    private final ConnectionHandler handler;
+    private final ReactorWorker[] workers;
+    private final EventLoopMetrics bossMetrics = new EventLoopMetrics("reactor-boss");
+
+    private ServerSocketChannel serverChannel;
+    private Selector acceptSelector;
+    private Thread bossThread;
+    private volatile boolean running;
+    private int nextWorker;
+
+    public ReactorServer(InetSocketAddress address, ReactorConfig config, ConnectionHandler handler) {
+        this.address = address;
+        this.config = config;
+        this.handler = handler;
+        this.workers = new ReactorWorker[config.getWorkerCount()];
+    }
+
+    public ReactorServer(int port, ConnectionHandler handler) {
+        this(new InetSocketAddress(port), new ReactorConfig(), handler);
+    }
+
+    /**
+     * 绑定端口并启动 boss 与全部 worker 线程，立即返回.
+     */
+    @Override
+    public synchronized void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("server already started");
+        }
+        //先绑定端口，端口被占用等最常见的失败不必创建 worker
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(address, config.getBacklog());
+            acceptSelector = Selector.open();
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new ReactorWorker(i, "reactor-worker-" + i, config, handler);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeQuietly();
+            discardWorkers();
+            throw e;
+        }
+
+        if (config.isJmxEnabled()) {
+            String properties = "server=" + serverChannel.socket().getLocalPort();
+            bossMetrics.register(properties);
+            for (ReactorWorker worker : workers) {
+                worker.metrics().register(properties);
+            }
+        }
+        running = true;
+        for (ReactorWorker worker : workers) {
+            worker.start();
+        }
+        bossThread = new Thread(this::acceptLoop, "reactor-boss");
+        bossThread.start();
+    }
+
+    /**
+     * 实际监听的地址，绑定 0 端口时可用来获取系统分配的端口.
+     */
+    @Override
+    public SocketAddress localAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+
+    public ReactorWorker[] workers() {
+        return workers.clone();
+    }
+
+    /**
+     * boss 事件循环的统计，其中 accept 数即接入的连接总数.
+     */
+    public EventLoopMetrics bossMetrics() {
+        return bossMetrics;
+    }
+
+    /**
+     * boss 与全部 worker 的统计，Prometheus 文本格式.
+     */
+    public String metricsText() {
+        StringBuilder out = new StringBuilder();
+        bossMetrics.appendText(out);
+        for (ReactorWorker worker : workers) {
+            if (worker != null) {
+                worker.metrics().appendText(out);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 停止接收新连接，关闭所有已有连接并等待线程退出.
+     */
+    @Override
+    public void stop() throws InterruptedException {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        acceptSelector.wakeup();
+        bossThread.join();
+        for (ReactorWorker worker : workers) {
+            worker.shutdown();
+        }
+        for (ReactorWorker worker : workers) {
+            worker.awaitTermination();
+        }
+        bossMetrics.unregister();
+        for (ReactorWorker worker : workers) {
+            worker.metrics().unregister();
+        }
+    }
+
+    /**
+     * 阻塞直到服务端被 stop().
+     */
+    @Override
+    public void awaitTermination() throws InterruptedException {
+        Thread t = bossThread;
+        if (t != null) {
+            t.join();
+        }
+        for (ReactorWorker worker : workers) {
+            if (worker != null) {
+                worker.awaitTermination();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        try {
+            long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getSelectTimeoutMillis());
+            while (running) {
+                long start = System.nanoTime();
+                int keys = acceptSelector.select(config.getSelectTimeoutMillis());
+                long elapsed = System.nanoTime() - start;
+                bossMetrics.recordSelect(elapsed, keys, keys == 0 && running && elapsed < timeoutNanos / 2);
+                if (keys == 0) {
+                    continue;
+                }
+                Iterator<SelectionKey> iterator = acceptSelector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (key.isValid() && key.isAcceptable()) {
+                        long acceptStart = System.nanoTime();
+                        bossMetrics.addAccepted(accept());
+                        bossMetrics.recordHandler(System.nanoTime() - acceptStart);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            e.printStackTrace();
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    //返回接入的连接数
+    private int accept() {
+        int accepted = 0;
+        SocketChannel channel;
+        //一次就绪可能对应多个等待中的连接，一直 accept 到返回 null
+        while (true) {
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                //常见于文件句柄耗尽，留给下一轮 select 重试
+                e.printStackTrace();
+                return accepted;
+            }
+            if (channel == null) {
+                return accepted;
+            }
+            accepted++;
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, config.isTcpNoDelay());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            workers[nextWorker].register(channel);
+            nextWorker = (nextWorker + 1) % workers.length;
+        }
+    }
+
+    //启动失败时关闭已经创建、尚未启动的 worker
+    private void discardWorkers() {
+        for (int i = 0; i < workers.length; i++) {
+            if (workers[i] != null) {
+                workers[i].discard();
+                workers[i] = null;
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        if (serverChannel != null) {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        if (acceptSelector != null) {
+            try {
+                acceptSelector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,520 @@
+package org.nio.java.nonblock;
+
+import org.nio.java.metrics.EventLoopMetrics;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 从 Reactor：一个线程独占一个选择器，负责已接入连接的读写事件；NioClient 也用它发起非阻塞连接
+ * <p>
+ * 其它线程只能通过 execute() 向 worker 投递任务，由 worker 线程在下一轮循环中执行，
+ * 因此选择器、SelectionKey 与 Connection 的状态都只在 worker 线程上修改，无需加锁。
+ * worker 实现了 Executor，线程池中算出的结果可以用 CompletableFuture.thenAcceptAsync(action, worker) 交回 worker 线程
+ * <p>
+ * 任务放在无锁的 MpscTaskQueue 中，每轮循环取空；wakeupPending 为 true 表示 worker 醒着或已经有人唤醒过它，
+ * 一批连续投递的任务最多触发一次 selector.wakeup()，而不是每个任务一次系统调用
+ * <p>
+ * 定时器（空闲检测、连接与请求超时）放在 worker 自己的 HashedTimingWheel 上，每轮 select() 之后推进，
+ * 有定时器时 select() 的超时缩短到下一个 tick，不需要额外的定时线程
+ */
+public class ReactorWorker implements Runnable, Executor {
+
+    private final int index;
+    private final String name;
+    private final ReactorConfig config;
+    private final ConnectionHandler handler;
+    private final Selector selector;
+    private final MpscTaskQueue tasks = new MpscTaskQueue();
+
+    //worker 在 select() 之前置为 false，返回后置为 true；投递任务的线程只在把它从 false 改为 true 时才调用 wakeup()
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(true);
+    private final LongAdder wakeups = new LongAdder();
+
+    //worker 内所有连接共用一个读缓冲区，回调返回后即可复用
+    private final ByteBuffer readBuffer;
+
+    //本轮有数据待写的连接，在处理完全部事件后统一刷新
+    private final ArrayList<Connection> flushQueue = new ArrayList<>();
+
+    //连接编号与热字段，SelectionKey 的 attachment 是 Connection，用它的 id() 索引
+    private final ConnectionRegistry registry = new ConnectionRegistry(1024);
+
+    private final EventLoopMetrics metrics;
+    private final HashedTimingWheel timer;
+    private final long readIdleNanos;
+    private final long writeIdleNanos;
+    private final int maxReadsPerKey;
+    private final int readBudgetBytes;
+
+    private volatile boolean running = true;
+    private volatile Thread thread;
+
+    ReactorWorker(int index, String name, ReactorConfig config, ConnectionHandler handler) throws IOException {
+        this.index = index;
+        this.name = name;
+        this.config = config;
+        this.handler = handler;
+        this.selector = Selector.open();
+        this.readBuffer = config.getBufferPool().acquire(config.getReadBufferSize());
+        this.metrics = new EventLoopMetrics(name);
+        this.timer = new HashedTimingWheel(config.getTimerTickMillis(), TimeUnit.MILLISECONDS,
+                config.getTimerWheelSize());
+        this.readIdleNanos = TimeUnit.MILLISECONDS.toNanos(config.getReadIdleTimeoutMillis());
+        this.writeIdleNanos = TimeUnit.MILLISECONDS.toNanos(config.getWriteIdleTimeoutMillis());
+        this.maxReadsPerKey = config.getMaxReadsPerKey();
+        this.readBudgetBytes = config.getReadBudgetBytes();
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * 本 worker 事件循环的统计.
+     */
+    public EventLoopMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * 当前注册在该 worker 上的连接数，只在 worker 线程上读取才准确.
+     */
+    public int connectionCount() {
+        return registry.size();
+    }
+
+    /**
+     * 本 worker 的连接登记表，只能在 worker 线程上访问.
+     */
+    public ConnectionRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * 本 worker 上全部连接写出数据调用的 write() 次数.
+     */
+    public long writeCalls() {
+        return metrics.getWriteCalls();
+    }
+
+    /**
+     * 本 worker 上全部连接已写完的缓冲区个数，与 writeCalls() 之比即每次系统调用写出的消息数.
+     */
+    public long flushedBuffers() {
+        return metrics.getFlushedBuffers();
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * 投递任务到 worker 线程执行，任意线程都可以调用. 在 worker 线程上调用时任务在下一轮循环中执行.
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.offer(task);
+        //先读一次，worker 醒着时不做 CAS
+        if (!inEventLoop() && !wakeupPending.get() && wakeupPending.compareAndSet(false, true)) {
+            wakeups.increment();
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * 其它线程投递任务时实际调用 selector.wakeup() 的次数，与执行的任务数之比即唤醒合并的效果.
+     */
+    public long wakeupCount() {
+        return wakeups.sum();
+    }
+
+    /**
+     * 在 delay 之后于 worker 线程上执行 task，只能在 worker 线程上调用，返回的定时器也只能在 worker 线程上取消.
+     */
+    public HashedTimingWheel.Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!inEventLoop()) {
+            throw new IllegalStateException("schedule() must be called on " + name);
+        }
+        return timer.schedule(task, delay, unit);
+    }
+
+    void register(SocketChannel channel) {
+        execute(() -> doRegister(channel));
+    }
+
+    /**
+     * 在 worker 线程上发起非阻塞连接. 连接建立后回调 onOpen，失败时回调 onClose；
+     * attachment 在连接建立前就设置好，onClose 可以据此区分失败的是哪一次连接.
+     *
+     * @return 尚未建立的连接，可以用 close() 放弃连接（如连接超时）
+     */
+    Connection connect(SocketChannel channel, SocketAddress remote, Object attachment) {
+        Connection connection = new Connection(channel, this);
+        connection.attach(attachment);
+        execute(() -> doConnect(connection, remote));
+        return connection;
+    }
+
+    void start() {
+        Thread t = new Thread(this, name);
+        thread = t;
+        t.start();
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    //放弃一个没有 start() 的 worker（服务端启动失败）：关闭选择器、归还读缓冲区
+    void discard() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        config.getBufferPool().release(readBuffer);
+    }
+
+    void awaitTermination() throws InterruptedException {
+        Thread t = thread;
+        if (t != null) {
+            t.join();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                long timeoutMillis = config.getSelectTimeoutMillis();
+                if (timer.size() > 0) {
+                    long untilTick = TimeUnit.NANOSECONDS.toMillis(timer.nanosUntilNextTick() + 999999);
+                    //select(0) 表示一直阻塞，至少等 1ms
+                    timeoutMillis = Math.max(1, Math.min(timeoutMillis, untilTick));
+                }
+                long start = System.nanoTime();
+                //先声明要阻塞再检查队列：投递者要么在这之前入队、被这里看到，要么看到 false 并唤醒选择器
+                wakeupPending.set(false);
+                int keys = tasks.isEmpty() ? selector.select(timeoutMillis) : selector.selectNow();
+                //醒着时不需要唤醒；延迟可见只会多一次无害的 wakeup()
+                wakeupPending.lazySet(true);
+                long elapsed = System.nanoTime() - start;
+                //未到超时、没有就绪 key 也没有任务却返回了：wakeup() 之后的一次是正常的，持续出现则是空轮询
+                metrics.recordSelect(elapsed, keys, keys == 0 && tasks.isEmpty() && running
+                        && elapsed < TimeUnit.MILLISECONDS.toNanos(timeoutMillis) / 2);
+                runTasks();
+                timer.advance();
+                processSelectedKeys();
+                flushPending();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            e.printStackTrace();
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        int count = 0;
+        while ((task = tasks.poll()) != null) {
+            count++;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        if (count > 0) {
+            metrics.addTasks(count);
+        }
+    }
+
+    ReactorConfig config() {
+        return config;
+    }
+
+    void scheduleFlush(Connection connection) {
+        if (!connection.flushScheduled()) {
+            connection.flushScheduled(true);
+            flushQueue.add(connection);
+        }
+    }
+
+    //只在 worker 线程上调用
+    void addWriteStats(long bytes, long calls, long buffers) {
+        if (calls != 0) {
+            metrics.addWriteStats(bytes, calls, buffers);
+            metrics.addPendingWriteBytes(-bytes);
+        }
+    }
+
+    void addPendingWriteBytes(long delta) {
+        metrics.addPendingWriteBytes(delta);
+    }
+
+    void fireWritabilityChanged(Connection connection) {
+        try {
+            handler.onWritabilityChanged(connection);
+        } catch (IOException e) {
+            connection.close();
+        }
+    }
+
+    //本轮事件处理完后，把各连接累积的待写数据各用一次聚集写入写出
+    private void flushPending() {
+        //刷新过程中回调可能再次写入，按下标遍历
+        for (int i = 0; i < flushQueue.size(); i++) {
+            Connection connection = flushQueue.get(i);
+            if (connection.isClosed()) {
+                continue;
+            }
+            connection.flushScheduled(false);
+            try {
+                connection.flush();
+            } catch (IOException | CancelledKeyException e) {
+                close(connection);
+            }
+        }
+        flushQueue.clear();
+    }
+
+    private void processSelectedKeys() {
+        Set<SelectionKey> selectedKeys = selector.selectedKeys();
+        if (selectedKeys.isEmpty()) {
+            return;
+        }
+        Iterator<SelectionKey> iterator = selectedKeys.iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            //必须移除，否则下一轮 select 仍会返回这个 key
+            iterator.remove();
+            processKey(key);
+        }
+    }
+
+    private void processKey(SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (!key.isValid()) {
+                close(connection);
+                return;
+            }
+            if (key.isConnectable()) {
+                finishConnect(connection);
+                return;
+            }
+            if (key.isWritable()) {
+                connection.flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(connection);
+            }
+        } catch (IOException | CancelledKeyException e) {
+            close(connection);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            close(connection);
+        }
+    }
+
+    //按预算读取：读空、连接关闭或暂停读取时结束；预算用完时套接字里还有数据，
+    //选择器是水平触发的，这个 key 在下一轮 select() 中会立即再次就绪，其间先处理本轮其它就绪的 key
+    private void read(Connection connection) throws IOException {
+        SocketChannel channel = connection.channel();
+        int id = connection.id();
+        int reads = 0;
+        long bytes = 0;
+        while (true) {
+            readBuffer.clear();
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                close(connection);
+                return;
+            }
+            if (n == 0) {
+                return;
+            }
+            reads++;
+            bytes += n;
+            registry.addBytesRead(id, n);
+            metrics.addBytesRead(n);
+            readBuffer.flip();
+            long start = System.nanoTime();
+            registry.lastReadNanos(id, start);
+            try {
+                handler.onRead(connection, readBuffer);
+            } finally {
+                metrics.recordHandler(System.nanoTime() - start);
+            }
+            if (n < readBuffer.capacity() || connection.isClosed() || connection.isReadPaused()) {
+                return;
+            }
+            if (reads >= maxReadsPerKey || bytes >= readBudgetBytes) {
+                metrics.addReadBudgetExhausted();
+                return;
+            }
+        }
+    }
+
+    private void doRegister(SocketChannel channel) {
+        Connection connection = new Connection(channel, this);
+        try {
+            channel.configureBlocking(false);
+            connection.key(channel.register(selector, SelectionKey.OP_READ, connection));
+            connection.id(registry.add(connection));
+            metrics.addConnections(1);
+            startIdleTimers(connection);
+            handler.onOpen(connection);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            close(connection);
+        }
+    }
+
+    private void doConnect(Connection connection, SocketAddress remote) {
+        SocketChannel channel = connection.channel();
+        if (connection.isClosed()) {
+            return;
+        }
+        try {
+            channel.configureBlocking(false);
+            if (channel.connect(remote)) {
+                connection.key(channel.register(selector, SelectionKey.OP_READ, connection));
+                connection.id(registry.add(connection));
+                metrics.addConnections(1);
+                startIdleTimers(connection);
+                handler.onOpen(connection);
+            } else {
+                //连接未立即完成，等 OP_CONNECT 就绪后调用 finishConnect()
+                connection.key(channel.register(selector, SelectionKey.OP_CONNECT, connection));
+                connection.id(registry.add(connection));
+                metrics.addConnections(1);
+            }
+        } catch (IOException | RuntimeException e) {
+            close(connection);
+        }
+    }
+
+    private void finishConnect(Connection connection) throws IOException {
+        if (!connection.channel().finishConnect()) {
+            return;
+        }
+        connection.key().interestOps(SelectionKey.OP_READ);
+        //连接建立前可能已经暂停了读取
+        connection.updateReadInterest();
+        startIdleTimers(connection);
+        handler.onOpen(connection);
+    }
+
+    void close(Connection connection) {
+        if (!connection.markClosed()) {
+            return;
+        }
+        if (connection.readIdleTimeout != null) {
+            connection.readIdleTimeout.cancel();
+        }
+        if (connection.writeIdleTimeout != null) {
+            connection.writeIdleTimeout.cancel();
+        }
+        SelectionKey key = connection.key();
+        if (key != null) {
+            key.cancel();
+            metrics.addConnections(-1);
+        }
+        try {
+            connection.channel().close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            handler.onClose(connection);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        //onClose 之后才释放编号，回调中仍能读到登记表中的状态
+        connection.unregister(registry);
+    }
+
+    private void startIdleTimers(Connection connection) {
+        long now = System.nanoTime();
+        int id = connection.id();
+        if (readIdleNanos > 0) {
+            registry.lastReadNanos(id, now);
+            connection.readIdleTimeout = timer.schedule(() -> checkIdle(connection, IdleState.READ_IDLE),
+                    readIdleNanos, TimeUnit.NANOSECONDS);
+        }
+        if (writeIdleNanos > 0) {
+            registry.lastWriteNanos(id, now);
+            connection.writeIdleTimeout = timer.schedule(() -> checkIdle(connection, IdleState.WRITE_IDLE),
+                    writeIdleNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    //定时器到期时才检查最近一次读写的时间：仍在空闲期内就按剩余时间重新设置，否则回调 onIdle 并开始下一个周期
+    private void checkIdle(Connection connection, IdleState state) {
+        if (connection.isClosed()) {
+            return;
+        }
+        boolean read = state == IdleState.READ_IDLE;
+        long timeout = read ? readIdleNanos : writeIdleNanos;
+        int id = connection.id();
+        long now = System.nanoTime();
+        if (read && connection.isReadPaused()) {
+            //处理器主动暂停了读取，不算空闲
+            registry.lastReadNanos(id, now);
+        }
+        long idle = now - (read ? registry.lastReadNanos(id) : registry.lastWriteNanos(id));
+        long delay = idle >= timeout ? timeout : timeout - idle;
+        HashedTimingWheel.Timeout next = timer.schedule(() -> checkIdle(connection, state), delay,
+                TimeUnit.NANOSECONDS);
+        if (read) {
+            connection.readIdleTimeout = next;
+        } else {
+            connection.writeIdleTimeout = next;
+        }
+        if (idle >= timeout) {
+            try {
+                handler.onIdle(connection, state);
+            } catch (IOException | RuntimeException e) {
+                close(connection);
+            }
+        }
+    }
+
+    private void closeAll() {
+        runTasks();
+        for (int id = registry.limit() - 1; id >= 0; id--) {
+            Connection connection = registry.get(id);
+            if (connection != null) {
+                close(connection);
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        config.getBufferPool().release(readBuffer);
+    }
+}
@@ -0,0 +1,90 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 从字节流中切分出一个个完整的响应，NioClient 据此把流水线上的响应按顺序对应到请求
+ */
+public interface ResponseParser {
+
+    /**
+     * 从 in（读模式）中解析一个完整的响应.
+     *
+     * @return 完整响应时返回其内容，并把 in 的 position 移到该响应之后；
+     * 数据不完整时返回 null，且不能移动 in 的 position. in 由调用方复用，返回值不能引用它的内容
+     */
+    ByteBuffer parse(ByteBuffer in);
+
+    /**
+     * 固定长度的响应.
+     */
+    static ResponseParser fixedLength(int length) {
+        return in -> {
+            if (in.remaining() < length) {
+                return null;
+            }
+            ByteBuffer response = ByteBuffer.allocate(length);
+            int limit = in.limit();
+            in.limit(in.position() + length);
+            response.put(in).flip();
+            in.limit(limit);
+            return response;
+        };
+    }
+
+    /**
+     * 按 prefix 分帧的响应，返回的响应只包含帧内容.
+     *
+     * @throws IllegalStateException 长度前缀非法或超过 maxFrameLength，连接随之关闭
+     */
+    static ResponseParser framed(LengthPrefix prefix, int maxFrameLength) {
+        return in -> {
+            int start = in.position();
+            int length;
+            try {
+                length = prefix.readLength(in);
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            if (length > maxFrameLength) {
+                throw new IllegalStateException("frame length " + length + " exceeds limit " + maxFrameLength);
+            }
+            if (length < 0 || in.remaining() < length) {
+                in.position(start);
+                return null;
+            }
+            ByteBuffer response = ByteBuffer.allocate(length);
+            int limit = in.limit();
+            in.limit(in.position() + length);
+            response.put(in).flip();
+            in.limit(limit);
+            return response;
+        };
+    }
+
+    /**
+     * 4 字节大端长度 + 内容，返回的响应包含长度字段.
+     */
+    static ResponseParser lengthPrefixed() {
+        return in -> {
+            if (in.remaining() < 4) {
+                return null;
+            }
+            int length = in.getInt(in.position());
+            if (length < 0) {
+                throw new IllegalStateException("negative frame length: " + length);
+            }
+            if (in.remaining() < 4 + length) {
+                return null;
+            }
+            ByteBuffer response = ByteBuffer.allocate(4 + length);
+            int limit = in.limit();
+            in.limit(in.position() + 4 + length);
+            response.put(in).flip();
+            in.limit(limit);
+            return response;
+        };
+    }
+}
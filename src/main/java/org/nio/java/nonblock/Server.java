@@ -0,0 +1,32 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 服务端的公共生命周期，ReactorServer（选择器）与 ThreadPerConnectionServer（每连接一个线程）都实现它，
+ * 压测与调用方可以只依赖这个接口在两种模式之间切换
+ */
+public interface Server {
+
+    /**
+     * 绑定端口并启动服务线程，立即返回.
+     */
+    void start() throws IOException;
+
+    /**
+     * 实际监听的地址，绑定 0 端口时可用来获取系统分配的端口.
+     */
+    SocketAddress localAddress() throws IOException;
+
+    /**
+     * 停止接收新连接，关闭所有已有连接并等待线程退出.
+     */
+    void stop() throws InterruptedException;
+
+    /**
+     * 阻塞直到服务端被 stop().
+     */
+    void awaitTermination() throws InterruptedException;
+}
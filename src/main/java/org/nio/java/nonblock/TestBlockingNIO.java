@@ -1,19 +1,20 @@
 package org.nio.java.nonblock;
 
 import org.junit.Test;
+import org.nio.java.buffer.BufferPool;
+import org.nio.java.channel.CharsetCodecs;
+import org.nio.java.channel.StreamingDecoder;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.nio.channels.FileChannel;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.List;
 
 /**
  * Created by XJX on 2017/4/14.
@@ -40,48 +41,46 @@ public class TestBlockingNIO {
     @Test
     public void client() {
         SocketChannel channel = null;
-        FileChannel inChannel = null;
+        ByteBuffer buffer = null;
 
         //1. 获取通道
         try {
             channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", 9999));
-            inChannel = FileChannel.open(Paths.get("pic/20170407_070822000_iOS.png"), StandardOpenOption.READ);
 
-            //2. 分配指定大小的缓冲区
-            ByteBuffer buffer = ByteBuffer.allocate(1024);
-
-            //3. 读取本地文件，并发送到服务端
-            while (inChannel.read(buffer) != -1) {
-                buffer.flip();
-                channel.write(buffer);
-                buffer.clear();
-            }
+            //2. 读取本地文件，并发送到服务端：1MB 直接缓冲区，读文件与写套接字在两个线程上重叠
+            new DoubleBufferedTransfer().send(Paths.get("pic/20170407_070822000_iOS.png"), channel);
 
             channel.shutdownOutput();//告诉服务端发送完成
 
-            //接收服务端反馈
-            Charset charset = Charset.forName("utf-8");
-            CharsetDecoder decoder = charset.newDecoder();
+            //3. 从缓冲区池中取缓冲区接收反馈
+            buffer = BufferPool.getDefault().acquire(1024);
+
+            //接收服务端反馈：增量解码，被拆在两次 read() 之间的中文字符也能正确解码
+            StreamingDecoder decoder = new StreamingDecoder(StandardCharsets.UTF_8);
+            CharBuffer charBuffer = CharBuffer.allocate(1024);
             while (channel.read(buffer) != -1) {
                 buffer.flip();
-                System.out.println(decoder.decode(buffer).toString());
+                while (decoder.decode(buffer, charBuffer).isOverflow()) {
+                    charBuffer.flip();
+                    System.out.print(charBuffer);
+                    charBuffer.clear();
+                }
                 buffer.clear();
             }
+            decoder.finish(charBuffer);
+            charBuffer.flip();
+            System.out.println(charBuffer);
 
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
-            if (channel != null) {
-                try {
-                    channel.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+            if (buffer != null) {
+                BufferPool.getDefault().release(buffer);
             }
 
-            if (inChannel != null) {
+            if (channel != null) {
                 try {
-                    inChannel.close();
+                    channel.close();
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
@@ -94,41 +93,37 @@ public class TestBlockingNIO {
     public void server() {
         ServerSocketChannel serverSocketChannel = null;
         SocketChannel socketChannel = null;
-        FileChannel outChannel = null;
-        CharBuffer charBuffer = null;
+        ByteBuffer buffer = null;
 
         try {
+            DoubleBufferedTransfer transfer = new DoubleBufferedTransfer().setReceiveBufferSize(1024 * 1024);
             //1. 获取通道
             serverSocketChannel = ServerSocketChannel.open();
-            //2. 绑定连接
+            //2. 绑定连接：大接收缓冲区要在 bind() 之前设置
+            transfer.configure(serverSocketChannel);
             serverSocketChannel.bind(new InetSocketAddress(9999));
             //3. 获取客户端连接的通道
             socketChannel = serverSocketChannel.accept();
-            outChannel = FileChannel.open(Paths.get("pic/5.jpg"), StandardOpenOption.WRITE, StandardOpenOption.READ,
-                    StandardOpenOption.CREATE);
-            //4. 分配指定大小的缓冲区
-            ByteBuffer buffer = ByteBuffer.allocate(1024);
-            //5. 接收客户端的数据，并保存到本地
-            while (socketChannel.read(buffer) != -1) {
-                buffer.flip();
-                outChannel.write(buffer);
-                buffer.clear();
-            }
+            //4. 接收客户端的数据，并保存到本地：读套接字与写文件在两个线程上重叠
+            transfer.receive(socketChannel, Paths.get("pic/5.jpg"));
+            //5. 从缓冲区池中取缓冲区发送反馈
+            buffer = BufferPool.getDefault().acquire(1024);
 
-            //发送反馈给客户端
-            Charset charset = Charset.forName("utf-8");
-            CharsetEncoder encoder = charset.newEncoder();
-            charBuffer = CharBuffer.allocate(1024);
-            charBuffer.put("服务器已收到图片");
-            charBuffer.flip();
-            buffer = encoder.encode(charBuffer);
-            socketChannel.write(buffer);
-            charBuffer.clear();
+            //发送反馈给客户端：编码到已有的缓冲区，不再每次新建编码器和缓冲区
             buffer.clear();
+            CharsetCodecs.encode("服务器已收到图片", buffer, StandardCharsets.UTF_8);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                socketChannel.write(buffer);
+            }
 
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
+            if (buffer != null) {
+                BufferPool.getDefault().release(buffer);
+            }
+
             //6. 关闭通道
             if (serverSocketChannel != null) {
                 try {
@@ -145,10 +140,58 @@ public class TestBlockingNIO {
                     e.printStackTrace();
                 }
             }
+        }
+    }
 
-            if (outChannel != null) {
+    //客户端：按 FileTransferProtocol 发送文件，文件内容由 transferTo() 直接写入套接字
+    @Test
+    public void zeroCopyClient() {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", 9999));
+            FileTransferSender sender = new FileTransferSender(channel);
+            //一个连接上可以发送多个文件
+            sender.send(Paths.get("pic/20170407_070822000_iOS.png"), "5.jpg");
+            sender.send(Paths.get("pic/20170408_140516000_iOS.png"), "6.jpg");
+            sender.finish();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    //服务端：接收 zeroCopyClient() 发送的全部文件，保存到 pic 目录
+    @Test
+    public void zeroCopyServer() {
+        ServerSocketChannel serverSocketChannel = null;
+        SocketChannel socketChannel = null;
+        try {
+            serverSocketChannel = ServerSocketChannel.open();
+            serverSocketChannel.bind(new InetSocketAddress(9999));
+            socketChannel = serverSocketChannel.accept();
+            List<Path> files = new FileTransferReceiver(Paths.get("pic")).receiveAll(socketChannel);
+            System.out.println("服务器已收到：" + files);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (serverSocketChannel != null) {
                 try {
-                    outChannel.close();
+                    serverSocketChannel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            if (socketChannel != null) {
+                try {
+                    socketChannel.close();
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
@@ -0,0 +1,194 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 连接登记表：编号复用、扩容、关闭后保留读写字节数、服务端上编号紧凑，以及每个连接的内存占用与 HashMap 的对比
+ */
+public class TestConnectionRegistry {
+
+    //关闭的编号后进先出地复用，满了扩容，字段清零
+    @Test
+    public void test01() {
+        ConnectionRegistry registry = new ConnectionRegistry(2);
+        Connection a = new Connection(null, null);
+        Connection b = new Connection(null, null);
+        Connection c = new Connection(null, null);
+        assertEquals(0, registry.add(a));
+        assertEquals(1, registry.add(b));
+        assertEquals(2, registry.add(c));
+        registry.addBytesRead(1, 100);
+        registry.setFlag(1, ConnectionRegistry.UNWRITABLE, true);
+        registry.remove(1);
+        assertNull(registry.get(1));
+        assertEquals(2, registry.size());
+
+        Connection d = new Connection(null, null);
+        assertEquals(1, registry.add(d));
+        assertSame(d, registry.get(1));
+        assertEquals(0, registry.bytesRead(1));
+        assertTrue(!registry.hasFlag(1, ConnectionRegistry.UNWRITABLE));
+        assertEquals(3, registry.limit());
+        assertNull(registry.get(100));
+
+        //关闭时释放编号：读写字节数复制到 Connection 中，编号被新连接复用后仍返回原来的值
+        Connection e = new Connection(null, null);
+        e.id(registry.add(e));
+        registry.addBytesRead(e.id(), 42);
+        registry.addBytesWritten(e.id(), 7);
+        int released = e.id();
+        e.unregister(registry);
+        assertEquals(-1, e.id());
+        assertNull(registry.get(released));
+        Connection f = new Connection(null, null);
+        assertEquals(released, registry.add(f));
+        registry.addBytesRead(released, 1);
+        assertEquals(42, e.bytesRead());
+        assertEquals(7, e.bytesWritten());
+    }
+
+    //服务端：每个连接的编号在 worker 内唯一且紧凑，onClose 中仍能读到读取的字节数
+    @Test
+    public void test02() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        List<Long> closedBytes = new ArrayList<>();
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                new ReactorConfig().setWorkerCount(1).setJmxEnabled(false), new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+                synchronized (ids) {
+                    ids.add(connection.id());
+                    ids.notifyAll();
+                }
+            }
+
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) {
+                buffer.position(buffer.limit());
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+                synchronized (closedBytes) {
+                    closedBytes.add(connection.bytesRead());
+                    closedBytes.notifyAll();
+                }
+            }
+        });
+        server.start();
+        try {
+            int n = 50;
+            List<SocketChannel> clients = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                clients.add(SocketChannel.open(server.localAddress()));
+            }
+            //全部连接都打开后再关闭，否则关闭的编号会被后来的连接复用
+            synchronized (ids) {
+                long deadline = System.currentTimeMillis() + 5000;
+                while (ids.size() < n && System.currentTimeMillis() < deadline) {
+                    ids.wait(100);
+                }
+            }
+            for (SocketChannel client : clients) {
+                client.write(ByteBuffer.allocate(10));
+                client.close();
+            }
+            synchronized (closedBytes) {
+                long deadline = System.currentTimeMillis() + 5000;
+                while (closedBytes.size() < n && System.currentTimeMillis() < deadline) {
+                    closedBytes.wait(100);
+                }
+                assertEquals(n, closedBytes.size());
+                for (long bytes : closedBytes) {
+                    assertEquals(10, bytes);
+                }
+            }
+            synchronized (ids) {
+                assertEquals(n, ids.size());
+                assertEquals(n, ids.stream().distinct().count());
+                assertTrue(ids.stream().allMatch(id -> id >= 0 && id < n));
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    //10 万个连接的总堆占用：Connection 对象本身（含 OutboundQueue）加上热字段，
+    //热字段放在 HashMap<Connection, 装箱字段> 中与放在列式数组中对比
+    @Test
+    public void test03() {
+        int n = 100000;
+        for (int round = 0; round < 2; round++) {
+            Connection[] connections = new Connection[n];
+            long before = usedMemory();
+            for (int i = 0; i < n; i++) {
+                connections[i] = new Connection(null, null);
+            }
+            long connectionBytes = usedMemory() - before;
+
+            before = usedMemory();
+            Map<Connection, BoxedState> map = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                BoxedState state = new BoxedState();
+                //超出 Long 缓存范围的值才会真正分配
+                state.bytesRead = 1000L + i;
+                state.bytesWritten = 1000L + i;
+                state.lastReadNanos = System.nanoTime();
+                state.lastWriteNanos = System.nanoTime();
+                state.flags = 1000 + i;
+                map.put(connections[i], state);
+            }
+            long mapBytes = usedMemory() - before;
+
+            before = usedMemory();
+            ConnectionRegistry registry = new ConnectionRegistry(1024);
+            for (int i = 0; i < n; i++) {
+                int id = registry.add(connections[i]);
+                registry.addBytesRead(id, 1000L + i);
+                registry.addBytesWritten(id, 1000L + i);
+                registry.lastReadNanos(id, System.nanoTime());
+                registry.lastWriteNanos(id, System.nanoTime());
+            }
+            long registryBytes = usedMemory() - before;
+
+            System.out.printf("Connection %d B + HashMap %d B = %d B/connection; "
+                            + "Connection %d B + ConnectionRegistry %d B (arrays %d B) = %d B/connection%n",
+                    connectionBytes / n, mapBytes / n, (connectionBytes + mapBytes) / n,
+                    connectionBytes / n, registryBytes / n, registry.footprintBytes() / n,
+                    (connectionBytes + registryBytes) / n);
+            assertEquals(n, map.size());
+            assertEquals(n, registry.size());
+            assertTrue(registryBytes < mapBytes);
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class BoxedState {
+        Long bytesRead;
+        Long bytesWritten;
+        Long lastReadNanos;
+        Long lastWriteNanos;
+        Integer flags;
+    }
+}
@@ -0,0 +1,125 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 单生产者/单消费者环形队列：序号绕回、队列满、超长数据报被拒绝，以及两个线程之间按顺序交付
+ */
+public class TestDatagramRing {
+
+    //容量向上取整到 2 的幂；反复发布、消费，序号多次绕回后内容与发送方仍一一对应
+    @Test
+    public void test01() {
+        DatagramRing ring = new DatagramRing(3, 16);
+        assertEquals(4, ring.capacity());
+        assertNull(ring.poll());
+        for (int i = 0; i < 50; i++) {
+            //每轮发布 1~3 个，序号不断跨过数组末尾
+            int batch = 1 + i % 3;
+            for (int j = 0; j < batch; j++) {
+                ByteBuffer slot = ring.claim();
+                slot.putInt(i * 10 + j);
+                assertTrue(ring.publish(sender(i * 10 + j)));
+            }
+            assertEquals(batch, ring.size());
+            for (int j = 0; j < batch; j++) {
+                ByteBuffer data = ring.poll();
+                assertEquals(4, data.remaining());
+                assertEquals(i * 10 + j, data.getInt(0));
+                assertEquals(sender(i * 10 + j), ring.sender());
+                ring.release();
+            }
+            assertNull(ring.poll());
+        }
+    }
+
+    //队列满时 claim() 返回 null，消费一个之后又能取得槽位
+    @Test
+    public void test02() {
+        DatagramRing ring = new DatagramRing(4, 16);
+        for (int i = 0; i < ring.capacity(); i++) {
+            ring.claim().put((byte) i);
+            ring.publish(sender(i));
+        }
+        assertNull(ring.claim());
+        assertEquals(4, ring.size());
+
+        assertEquals(0, ring.poll().get(0));
+        ring.release();
+        ByteBuffer slot = ring.claim();
+        assertNotNull(slot);
+        slot.put((byte) 4);
+        ring.publish(sender(4));
+        assertNull(ring.claim());
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, ring.poll().get(0));
+            ring.release();
+        }
+        assertEquals(0, ring.size());
+    }
+
+    //正好 slotSize 字节可以发布；超过 slotSize（receive() 截断后写满了多出的 1 个字节）被拒绝，槽位被下一次 claim() 复用
+    @Test
+    public void test03() {
+        DatagramRing ring = new DatagramRing(4, 8);
+        ByteBuffer slot = ring.claim();
+        assertEquals(9, slot.remaining());
+        slot.put(new byte[9]);
+        assertFalse(ring.publish(sender(0)));
+        assertEquals(0, ring.size());
+        assertNull(ring.poll());
+
+        ByteBuffer again = ring.claim();
+        assertSame(slot, again);
+        assertEquals(0, again.position());
+        again.put(new byte[8]);
+        assertTrue(ring.publish(sender(1)));
+        assertEquals(8, ring.poll().remaining());
+        assertEquals(sender(1), ring.sender());
+        ring.release();
+    }
+
+    //生产者与消费者在两个线程上：全部按顺序交付，不丢失、不重复
+    @Test
+    public void test04() throws InterruptedException {
+        DatagramRing ring = new DatagramRing(64, 8);
+        int count = 1000000;
+        Thread producer = new Thread(() -> {
+            for (long i = 0; i < count; i++) {
+                ByteBuffer slot;
+                while ((slot = ring.claim()) == null) {
+                    Thread.yield();
+                }
+                slot.putLong(i);
+                ring.publish(null);
+            }
+        });
+        producer.start();
+        for (long i = 0; i < count; i++) {
+            ByteBuffer data;
+            while ((data = ring.poll()) == null) {
+                Thread.yield();
+            }
+            assertEquals(i, data.getLong(0));
+            ring.release();
+        }
+        producer.join();
+        assertEquals(0, ring.size());
+    }
+
+    private static SocketAddress sender(int port) {
+        return InetSocketAddress.createUnresolved("sender", port);
+    }
+}
@@ -0,0 +1,163 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+import org.nio.java.buffer.BufferPool;
+import org.nio.java.channel.FileFixtures;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 阻塞传输：单/双缓冲收发结果一致、出错时缓冲区全部归还，以及缓冲区大小的扫描
+ */
+public class TestDoubleBufferedTransfer {
+
+    //两端都用 DoubleBufferedTransfer，单缓冲与双缓冲收到的文件都与原文件一致
+    @Test
+    public void test01() throws Exception {
+        Path dir = Files.createTempDirectory("transfer");
+        Path source = dir.resolve("source");
+        FileFixtures.createFile(source, 20 * 1024 * 1024 + 12345);
+        BufferPool pool = new BufferPool(512, 4 * 1024 * 1024, 16L * 1024 * 1024);
+        try {
+            for (boolean doubleBuffering : new boolean[]{false, true}) {
+                DoubleBufferedTransfer transfer = new DoubleBufferedTransfer().setBufferPool(pool)
+                        .setBufferSize(64 * 1024).setDoubleBuffering(doubleBuffering)
+                        .setSendBufferSize(1024 * 1024).setReceiveBufferSize(1024 * 1024);
+                Path target = dir.resolve("target-" + doubleBuffering);
+                try (ServerSocketChannel server = ServerSocketChannel.open()) {
+                    transfer.configure(server);
+                    server.bind(new InetSocketAddress("127.0.0.1", 0));
+                    CompletableFuture<Long> received = CompletableFuture.supplyAsync(() -> {
+                        try (SocketChannel channel = server.accept()) {
+                            return transfer.receive(channel, target);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    });
+                    try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+                        assertEquals(Files.size(source), transfer.send(source, channel));
+                        channel.shutdownOutput();
+                    }
+                    assertEquals(Files.size(source), (long) received.get());
+                }
+                assertEquals(crc(source), crc(target));
+            }
+            assertEquals(0, pool.outstandingCount());
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //对端中途关闭：send() 抛出 IOException，后台线程退出后两个缓冲区都已归还
+    @Test
+    public void test02() throws Exception {
+        Path dir = Files.createTempDirectory("transfer");
+        Path source = dir.resolve("source");
+        FileFixtures.createFile(source, 64 * 1024 * 1024);
+        BufferPool pool = new BufferPool(512, 4 * 1024 * 1024, 16L * 1024 * 1024);
+        DoubleBufferedTransfer transfer = new DoubleBufferedTransfer().setBufferPool(pool);
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            CompletableFuture.runAsync(() -> {
+                try (SocketChannel channel = server.accept()) {
+                    channel.read(ByteBuffer.allocate(1024 * 1024));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+                transfer.send(source, channel);
+                fail("peer closed, send() should fail");
+            } catch (IOException e) {
+                System.out.println("send failed as expected: " + e);
+            }
+            assertEquals(0, pool.outstandingCount());
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //扫描缓冲区大小：1KB 堆缓冲区作为基线，64KB ~ 4MB 直接缓冲区，单缓冲与双缓冲
+    @Test
+    public void test03() throws Exception {
+        Path dir = Files.createTempDirectory("transfer");
+        Path source = dir.resolve("source");
+        long size = 256L * 1024 * 1024;
+        FileFixtures.createFile(source, size);
+        try {
+            System.out.printf("heap 1KB\t%.0f MB/s%n", measure(source, size, null));
+            System.out.println("buffer\tsingle MB/s\tdouble MB/s");
+            for (int bufferSize = 64 * 1024; bufferSize <= 4 * 1024 * 1024; bufferSize *= 4) {
+                double single = measure(source, size, new DoubleBufferedTransfer()
+                        .setBufferSize(bufferSize).setDoubleBuffering(false));
+                double doubled = measure(source, size, new DoubleBufferedTransfer()
+                        .setBufferSize(bufferSize).setDoubleBuffering(true));
+                System.out.printf("%dKB\t%.0f\t%.0f%n", bufferSize / 1024, single, doubled);
+            }
+        } finally {
+            FileFixtures.deleteDirectory(dir);
+        }
+    }
+
+    //发送整个文件的吞吐量，接收端只读不存，transfer 为 null 时用 1KB 堆缓冲区
+    private static double measure(Path source, long size, DoubleBufferedTransfer transfer) throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            CompletableFuture<Long> received = CompletableFuture.supplyAsync(() -> {
+                try (SocketChannel channel = server.accept()) {
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(4 * 1024 * 1024);
+                    long total = 0;
+                    int n;
+                    while ((n = channel.read(buffer)) >= 0) {
+                        total += n;
+                        buffer.clear();
+                    }
+                    return total;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            long start = System.nanoTime();
+            try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+                if (transfer != null) {
+                    transfer.send(source, channel);
+                } else {
+                    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                        ByteBuffer buffer = ByteBuffer.allocate(1024);
+                        while (in.read(buffer) >= 0) {
+                            buffer.flip();
+                            while (buffer.hasRemaining()) {
+                                channel.write(buffer);
+                            }
+                            buffer.clear();
+                        }
+                    }
+                }
+                channel.shutdownOutput();
+                assertEquals(size, (long) received.get());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return size / seconds / (1024 * 1024);
+        }
+    }
+
+    private static long crc(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(file));
+        return crc.getValue();
+    }
+}
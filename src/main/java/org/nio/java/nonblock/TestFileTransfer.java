@@ -0,0 +1,119 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+import org.nio.java.channel.FileFixtures;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNoException;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 文件传输协议：一个连接传多个文件、断点续传、非 ASCII 文件名
+ */
+public class TestFileTransfer {
+
+    //一个连接上依次发送三个文件
+    @Test
+    public void test01() throws Exception {
+        transferAll(new String[]{"a.bin", "b.bin", "c.jpg"}, new long[]{0, 1024, 3 * 1024 * 1024 + 17});
+    }
+
+    //接收端已有一半的 .part 文件，只需传输剩余部分
+    @Test
+    public void test02() throws Exception {
+        Path source = Files.createTempDirectory("transfer-src");
+        Path target = Files.createTempDirectory("transfer-dst");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            Path file = FileFixtures.createFile(source.resolve("resume.bin"), 1024 * 1024);
+            byte[] content = Files.readAllBytes(file);
+            Files.write(target.resolve("resume.bin" + FileTransferReceiver.PART_SUFFIX),
+                    Arrays.copyOf(content, content.length / 2));
+
+            Future<List<Path>> received = executor.submit(() -> {
+                try (SocketChannel channel = server.accept()) {
+                    return new FileTransferReceiver(target).receiveAll(channel);
+                }
+            });
+            long sent;
+            try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+                FileTransferSender sender = new FileTransferSender(channel);
+                sent = sender.send(file);
+                sender.finish();
+            }
+
+            System.out.println("续传字节数：" + sent);
+            assertEquals(content.length - content.length / 2, sent);
+            assertEquals(1, received.get().size());
+            assertArrayEquals(content, Files.readAllBytes(target.resolve("resume.bin")));
+        } finally {
+            executor.shutdownNow();
+            FileFixtures.deleteDirectory(source);
+            FileFixtures.deleteDirectory(target);
+        }
+    }
+
+    //非 ASCII 文件名按 UTF-8 传输；sun.jnu.encoding 不是 UTF-8 等平台无法表示这样的文件名时跳过
+    @Test
+    public void test03() throws Exception {
+        String name = "图片.jpg";
+        try {
+            Paths.get(name);
+        } catch (InvalidPathException e) {
+            assumeNoException("platform cannot encode file name " + name, e);
+        }
+        transferAll(new String[]{name}, new long[]{64 * 1024});
+    }
+
+    //在一个连接上依次发送 names 对应的文件，接收端内容与发送端相同
+    private static void transferAll(String[] names, long[] sizes) throws Exception {
+        Path source = Files.createTempDirectory("transfer-src");
+        Path target = Files.createTempDirectory("transfer-dst");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            Future<List<Path>> received = executor.submit(() -> {
+                try (SocketChannel channel = server.accept()) {
+                    return new FileTransferReceiver(target).receiveAll(channel);
+                }
+            });
+
+            Path[] files = new Path[names.length];
+            for (int i = 0; i < names.length; i++) {
+                files[i] = FileFixtures.createFile(source.resolve(names[i]), sizes[i]);
+            }
+            try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+                FileTransferSender sender = new FileTransferSender(channel);
+                for (Path file : files) {
+                    sender.send(file);
+                }
+                sender.finish();
+            }
+
+            assertEquals(files.length, received.get().size());
+            for (Path file : files) {
+                assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(target.resolve(file.getFileName())));
+            }
+        } finally {
+            executor.shutdownNow();
+            FileFixtures.deleteDirectory(source);
+            FileFixtures.deleteDirectory(target);
+        }
+    }
+}
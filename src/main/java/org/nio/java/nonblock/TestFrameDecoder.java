@@ -0,0 +1,178 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 长度前缀分帧：任意切分下的正确性、超长帧与非法前缀、服务端与客户端端到端的小消息吞吐量
+ */
+public class TestFrameDecoder {
+
+    //同一串帧按 1~64 字节的各种粒度切分后输入，解出的帧与原始内容一致
+    @Test
+    public void test01() throws IOException {
+        Random random = new Random(7);
+        List<byte[]> payloads = new ArrayList<>();
+        for (int size : new int[]{0, 1, 127, 128, 300, 16383, 16384, 70000}) {
+            byte[] payload = new byte[size];
+            random.nextBytes(payload);
+            payloads.add(payload);
+        }
+        for (LengthPrefix prefix : LengthPrefix.values()) {
+            ByteBuffer stream = ByteBuffer.allocate(200000);
+            for (byte[] payload : payloads) {
+                stream.put(prefix.encode(ByteBuffer.wrap(payload)));
+            }
+            stream.flip();
+            for (int chunk = 1; chunk <= 64; chunk++) {
+                List<byte[]> frames = new ArrayList<>();
+                FrameDecoder decoder = new FrameDecoder(prefix, 1024 * 1024);
+                ByteBuffer in = stream.duplicate();
+                while (in.hasRemaining()) {
+                    ByteBuffer slice = in.slice();
+                    slice.limit(Math.min(chunk, in.remaining()));
+                    in.position(in.position() + slice.limit());
+                    decoder.decode(slice, frame -> {
+                        assertTrue(frame.isReadOnly());
+                        byte[] bytes = new byte[frame.remaining()];
+                        frame.get(bytes);
+                        frames.add(bytes);
+                    });
+                    assertTrue(!slice.hasRemaining());
+                }
+                assertEquals(payloads.size(), frames.size());
+                for (int i = 0; i < payloads.size(); i++) {
+                    assertArrayEquals(payloads.get(i), frames.get(i));
+                }
+                assertEquals(0, decoder.pendingBytes());
+            }
+            System.out.println(prefix + "：1~64 字节切分全部正确");
+        }
+    }
+
+    //一次输入中的多个完整帧一次解出，且帧是输入缓冲区的只读视图
+    @Test
+    public void test02() throws IOException {
+        ByteBuffer stream = ByteBuffer.allocate(1000 * 33);
+        for (int i = 0; i < 1000; i++) {
+            ByteBuffer payload = ByteBuffer.allocate(32);
+            payload.putInt(0, i);
+            stream.put(LengthPrefix.VARINT.encode(payload));
+        }
+        stream.flip();
+        FrameDecoder decoder = new FrameDecoder(LengthPrefix.VARINT, 1024);
+        int[] next = new int[1];
+        int frames = decoder.decode(stream, frame -> {
+            assertEquals(next[0]++, frame.getInt(frame.position()));
+            try {
+                frame.put(0, (byte) 0);
+                fail("frame should be read-only");
+            } catch (ReadOnlyBufferException e) {
+                //帧不能被处理器修改
+            }
+        });
+        System.out.println("一次解码帧数：" + frames);
+        assertEquals(1000, frames);
+    }
+
+    //超长帧与非法前缀抛出 IOException，不会分配超大的缓冲区
+    @Test
+    public void test03() {
+        ByteBuffer huge = ByteBuffer.allocate(4);
+        huge.putInt(Integer.MAX_VALUE).flip();
+        try {
+            new FrameDecoder(LengthPrefix.FIXED32, 1024).decode(huge, frame -> fail());
+            fail("frame too long");
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+
+        ByteBuffer malformed = ByteBuffer.wrap(new byte[]{-1, -1, -1, -1, -1, 1});
+        try {
+            new FrameDecoder(LengthPrefix.VARINT, 1024).decode(malformed, frame -> fail());
+            fail("malformed varint");
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    //分帧回显：NioClient 流水线发送小消息，服务端每次读就绪批量解出多个帧
+    @Test
+    public void test04() throws Exception {
+        int requests = 200000;
+        LongAdder frames = new LongAdder();
+        LongAdder reads = new LongAdder();
+        FramingHandler[] framing = new FramingHandler[1];
+        framing[0] = new FramingHandler(LengthPrefix.VARINT, 1024, new FrameHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+            }
+
+            @Override
+            public void onFrame(Connection connection, ByteBuffer frame) throws IOException {
+                frames.increment();
+                framing[0].write(connection, frame);
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+            }
+        });
+        ConnectionHandler counting = new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) throws IOException {
+                framing[0].onOpen(connection);
+            }
+
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+                reads.increment();
+                framing[0].onRead(connection, buffer);
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+                framing[0].onClose(connection);
+            }
+        };
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0), new ReactorConfig(),
+                counting);
+        server.start();
+        try (NioClient client = new NioClient(ResponseParser.framed(LengthPrefix.VARINT, 1024))) {
+            InetSocketAddress address = (InetSocketAddress) server.localAddress();
+            long start = System.nanoTime();
+            List<CompletableFuture<ByteBuffer>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                ByteBuffer payload = ByteBuffer.allocate(16);
+                payload.putInt(0, i);
+                futures.add(client.send(address, LengthPrefix.VARINT.encode(payload)));
+            }
+            for (int i = 0; i < requests; i++) {
+                ByteBuffer response = futures.get(i).get(30, TimeUnit.SECONDS);
+                assertEquals(16, response.remaining());
+                assertEquals(i, response.getInt(0));
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d 条 16 字节消息，%.0f 条/秒，平均每次读就绪 %.1f 帧%n", requests,
+                    requests / seconds, (double) frames.sum() / reads.sum());
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 时间轮：触发精度、取消、调度开销，以及 ReactorServer 上的读空闲超时
+ */
+public class TestHashedTimingWheel {
+
+    //假时钟：延迟随机，跨越多圈，每个定时器不早于截止时间触发，最多晚一个 tick
+    @Test
+    public void test01() {
+        AtomicLong now = new AtomicLong();
+        long tick = TimeUnit.MILLISECONDS.toNanos(10);
+        HashedTimingWheel wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 64, now::get);
+        Random random = new Random(1);
+        int n = 10000;
+        long[] deadlines = new long[n];
+        long[] fired = new long[n];
+        for (int i = 0; i < n; i++) {
+            int index = i;
+            long delay = random.nextInt(5000) * 1000000L;
+            deadlines[i] = delay;
+            wheel.schedule(() -> fired[index] = now.get(), delay, TimeUnit.NANOSECONDS);
+        }
+        assertEquals(n, wheel.size());
+        while (wheel.size() > 0) {
+            //步长不是 tick 的整数倍，模拟 select() 提前或推迟返回
+            now.addAndGet(random.nextInt(3000000) + 1);
+            wheel.advance();
+        }
+        for (int i = 0; i < n; i++) {
+            assertTrue(i + ": early", fired[i] >= deadlines[i]);
+            //最多晚一个 tick，再加上一次推进的步长
+            assertTrue(i + ": late " + (fired[i] - deadlines[i]), fired[i] - deadlines[i] < tick + 3000000);
+        }
+    }
+
+    //取消后不再触发；任务中可以取消同一 tick 的其它定时器，也可以继续调度
+    @Test
+    public void test02() {
+        AtomicLong now = new AtomicLong();
+        HashedTimingWheel wheel = new HashedTimingWheel(1, TimeUnit.MILLISECONDS, 8, now::get);
+        List<String> fired = new ArrayList<>();
+        HashedTimingWheel.Timeout cancelled = wheel.schedule(() -> fired.add("cancelled"), 5, TimeUnit.MILLISECONDS);
+        HashedTimingWheel.Timeout[] second = new HashedTimingWheel.Timeout[1];
+        wheel.schedule(() -> {
+            fired.add("first");
+            second[0].cancel();
+            wheel.schedule(() -> fired.add("rescheduled"), 1, TimeUnit.MILLISECONDS);
+        }, 3, TimeUnit.MILLISECONDS);
+        second[0] = wheel.schedule(() -> fired.add("second"), 3, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+        assertEquals(2, wheel.size());
+
+        now.set(TimeUnit.MILLISECONDS.toNanos(10));
+        wheel.advance();
+        //任务中新调度的定时器从当前时间起算，这一轮不会触发
+        assertEquals(1, wheel.size());
+        //second 与 first 同一 tick 到期，先执行的任务看到的已是 EXPIRED，两个都执行
+        assertTrue(fired.contains("first"));
+        assertTrue(fired.contains("second"));
+        assertTrue(second[0].isExpired());
+        assertFalse(fired.contains("cancelled"));
+        assertFalse(fired.contains("rescheduled"));
+        now.set(TimeUnit.MILLISECONDS.toNanos(12));
+        wheel.advance();
+        assertEquals(0, wheel.size());
+        assertTrue(fired.contains("rescheduled"));
+    }
+
+    //调度、取消、推进的开销：空闲检测在每个连接上反复设置定时器，这几步必须是 O(1)
+    @Test
+    public void test03() {
+        HashedTimingWheel wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 512);
+        Runnable task = () -> {
+        };
+        int connections = 10000;
+        HashedTimingWheel.Timeout[] timeouts = new HashedTimingWheel.Timeout[connections];
+        for (int i = 0; i < connections; i++) {
+            timeouts[i] = wheel.schedule(task, 30, TimeUnit.SECONDS);
+        }
+        int n = 1000000;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                int index = i % connections;
+                timeouts[index].cancel();
+                timeouts[index] = wheel.schedule(task, 30, TimeUnit.SECONDS);
+                if ((i & 1023) == 0) {
+                    wheel.advance();
+                }
+            }
+            System.out.printf("cancel + schedule %.1f ns%n", (double) (System.nanoTime() - start) / n);
+        }
+        assertEquals(connections, wheel.size());
+    }
+
+    //读空闲超时：不发数据的连接被关闭，一直发数据的连接保留
+    @Test
+    public void test04() throws Exception {
+        List<IdleState> idle = new ArrayList<>();
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                new ReactorConfig().setWorkerCount(1).setJmxEnabled(false).setReadIdleTimeoutMillis(200),
+                new ConnectionHandler() {
+                    @Override
+                    public void onOpen(Connection connection) {
+                    }
+
+                    @Override
+                    public void onRead(Connection connection, ByteBuffer buffer) {
+                        buffer.position(buffer.limit());
+                    }
+
+                    @Override
+                    public void onIdle(Connection connection, IdleState state) throws IOException {
+                        synchronized (idle) {
+                            idle.add(state);
+                        }
+                        ConnectionHandler.super.onIdle(connection, state);
+                    }
+
+                    @Override
+                    public void onClose(Connection connection) {
+                    }
+                });
+        server.start();
+        try (SocketChannel quiet = SocketChannel.open(server.localAddress());
+             SocketChannel chatty = SocketChannel.open(server.localAddress())) {
+            long start = System.nanoTime();
+            ByteBuffer ping = ByteBuffer.allocate(1);
+            for (int i = 0; i < 10; i++) {
+                Thread.sleep(50);
+                ping.clear();
+                chatty.write(ping);
+            }
+            //空闲连接被服务端关闭，read() 返回 -1
+            quiet.socket().setSoTimeout(5000);
+            assertEquals(-1, quiet.socket().getInputStream().read());
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            System.out.println("idle connection closed after " + elapsed + "ms");
+            assertTrue(elapsed >= 200);
+
+            chatty.configureBlocking(false);
+            ping.clear();
+            assertEquals(1, chatty.write(ping));
+            assertEquals(0, chatty.read(ByteBuffer.allocate(1)));
+            synchronized (idle) {
+                assertEquals(1, idle.size());
+                assertEquals(IdleState.READ_IDLE, idle.get(0));
+            }
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 任务收件箱：多生产者下不丢不重、每个生产者内保持顺序；跨线程交给 worker 的延迟与吞吐量，
+ * 与“加锁队列 + 每个任务一次 wakeup()”的对比
+ */
+public class TestMpscTaskQueue {
+
+    private static final int PRODUCERS = 4;
+    private static final int TASKS_PER_PRODUCER = 250_000;
+
+    //4 个生产者并发入队，消费者按生产者检查顺序，总数一致
+    @Test
+    public void test01() throws Exception {
+        MpscTaskQueue queue = new MpscTaskQueue();
+        long[] last = new long[PRODUCERS];
+        Arrays.fill(last, -1);
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        try {
+            for (int p = 0; p < PRODUCERS; p++) {
+                int producer = p;
+                producers.execute(() -> {
+                    for (int i = 0; i < TASKS_PER_PRODUCER; i++) {
+                        long sequence = i;
+                        queue.offer(() -> {
+                            assertEquals(last[producer] + 1, sequence);
+                            last[producer] = sequence;
+                        });
+                    }
+                });
+            }
+            long consumed = 0;
+            while (consumed < (long) PRODUCERS * TASKS_PER_PRODUCER) {
+                Runnable task = queue.poll();
+                if (task != null) {
+                    task.run();
+                    consumed++;
+                }
+            }
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+            for (long sequence : last) {
+                assertEquals(TASKS_PER_PRODUCER - 1, sequence);
+            }
+        } finally {
+            producers.shutdown();
+        }
+    }
+
+    //线程池中算出的结果经 thenAcceptAsync(action, worker) 交回 worker 线程
+    @Test
+    public void test02() throws Exception {
+        ReactorServer server = newServer();
+        server.start();
+        try {
+            ReactorWorker worker = server.workers()[0];
+            String thread = CompletableFuture.supplyAsync(() -> 6 * 7)
+                    .thenApplyAsync(result -> Thread.currentThread().getName() + ":" + result, worker)
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(worker.name() + ":42", thread);
+        } finally {
+            server.stop();
+        }
+    }
+
+    //延迟：worker 空闲阻塞在 select() 时逐个投递，从 execute() 到任务开始执行的时间；
+    //吞吐量：4 个线程连续投递，每秒执行的任务数与 wakeup() 次数
+    @Test
+    public void test03() throws Exception {
+        ReactorServer server = newServer();
+        server.start();
+        NaiveLoop naive = new NaiveLoop();
+        naive.start();
+        try {
+            ReactorWorker worker = server.workers()[0];
+            System.out.println("inbox\t\t\tp50 us\tp99 us\ttasks/s\t\twakeups");
+            report("mpsc + coalescing", worker, worker::wakeupCount);
+            report("locked + wakeup", naive, naive.wakeups::get);
+        } finally {
+            server.stop();
+            naive.stop();
+        }
+    }
+
+    private static void report(String name, Executor executor, java.util.function.LongSupplier wakeups)
+            throws Exception {
+        long[] latencies = new long[20_000];
+        for (int i = 0; i < latencies.length; i++) {
+            CountDownLatch done = new CountDownLatch(1);
+            long submitted = System.nanoTime();
+            executor.execute(done::countDown);
+            done.await();
+            latencies[i] = System.nanoTime() - submitted;
+        }
+        Arrays.sort(latencies);
+
+        long before = wakeups.getAsLong();
+        AtomicLong executed = new AtomicLong();
+        CountDownLatch finished = new CountDownLatch(PRODUCERS);
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        long start = System.nanoTime();
+        for (int p = 0; p < PRODUCERS; p++) {
+            producers.execute(() -> {
+                for (int i = 0; i < TASKS_PER_PRODUCER; i++) {
+                    executor.execute(executed::incrementAndGet);
+                }
+                //最后一个任务执行时，这个生产者之前的任务都已执行
+                executor.execute(finished::countDown);
+            });
+        }
+        assertTrue(finished.await(60, TimeUnit.SECONDS));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        producers.shutdown();
+        assertEquals((long) PRODUCERS * TASKS_PER_PRODUCER, executed.get());
+        System.out.printf("%-20s\t%d\t%d\t%.0f\t%d%n", name, latencies[latencies.length / 2] / 1000,
+                latencies[latencies.length * 99 / 100] / 1000, executed.get() / seconds,
+                wakeups.getAsLong() - before);
+    }
+
+    private static ReactorServer newServer() {
+        return new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                new ReactorConfig().setWorkerCount(1).setJmxEnabled(false), new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+            }
+
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) {
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+            }
+        });
+    }
+
+    //对照组：synchronized 队列，每次投递都调用 selector.wakeup()
+    private static final class NaiveLoop implements Executor {
+
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        private final AtomicLong wakeups = new AtomicLong();
+        private final Selector selector;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        NaiveLoop() throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this::loop, "naive-loop");
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void stop() throws InterruptedException, IOException {
+            running = false;
+            selector.wakeup();
+            thread.join();
+            selector.close();
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (queue) {
+                queue.addLast(task);
+            }
+            wakeups.incrementAndGet();
+            selector.wakeup();
+        }
+
+        private void loop() {
+            try {
+                while (running) {
+                    selector.select(1000);
+                    while (true) {
+                        Runnable task;
+                        synchronized (queue) {
+                            task = queue.pollFirst();
+                        }
+                        if (task == null) {
+                            break;
+                        }
+                        task.run();
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 非阻塞客户端：流水线请求的正确性与吞吐量、连接失败、请求超时、发送与关闭并发
+ */
+public class TestNioClient {
+
+    private static final int REQUESTS = 200000;
+    private static final int PAYLOAD_SIZE = 60;
+
+    //回显服务端上发送长度前缀的请求，每个响应必须与对应的请求相同
+    @Test
+    public void test01() throws Exception {
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0), new ReactorConfig(),
+                echoHandler());
+        server.start();
+        try (NioClient client = new NioClient(ResponseParser.lengthPrefixed())) {
+            InetSocketAddress address = (InetSocketAddress) server.localAddress();
+            long start = System.nanoTime();
+            List<CompletableFuture<ByteBuffer>> futures = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(client.send(address, request(i)));
+            }
+            for (int i = 0; i < REQUESTS; i++) {
+                ByteBuffer response = futures.get(i).get(30, TimeUnit.SECONDS);
+                assertEquals(4 + PAYLOAD_SIZE, response.remaining());
+                assertEquals(i, response.getInt(4));
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d 个请求，%.0f 请求/秒，连接数：%d%n", REQUESTS, REQUESTS / seconds,
+                    client.connectCount());
+            assertTrue(client.connectCount() <= 4);
+        } finally {
+            server.stop();
+        }
+    }
+
+    //端口上没有服务端时以 ConnectException 结束，不会一直挂起
+    @Test
+    public void test02() throws Exception {
+        InetSocketAddress address;
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            channel.bind(new InetSocketAddress("127.0.0.1", 0));
+            address = (InetSocketAddress) channel.getLocalAddress();
+        }
+        try (NioClient client = new NioClient(ResponseParser.lengthPrefixed())) {
+            client.send(address, request(0)).get(5, TimeUnit.SECONDS);
+            fail("connect should fail");
+        } catch (ExecutionException e) {
+            System.out.println(e.getCause());
+            assertTrue(e.getCause() instanceof ConnectException);
+        }
+    }
+
+    //服务端不响应时请求超时，连接保持可用（超时请求的响应仍可能到达，所以它在连接上仍占一个流水线位置）
+    @Test
+    public void test03() throws Exception {
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0), new ReactorConfig(),
+                silentHandler());
+        server.start();
+        try (NioClient client = new NioClient(ResponseParser.lengthPrefixed()).setRequestTimeoutMillis(200)
+                .setMaxConnectionsPerEndpoint(1)) {
+            InetSocketAddress address = (InetSocketAddress) server.localAddress();
+            for (int i = 0; i < 3; i++) {
+                try {
+                    client.send(address, request(i)).get(5, TimeUnit.SECONDS);
+                    fail("request should time out");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof TimeoutException);
+                }
+            }
+            System.out.println("超时：" + client.timeoutCount() + "，连接数：" + client.connectCount());
+            assertEquals(3, client.timeoutCount());
+            assertEquals(1, client.connectCount());
+        } finally {
+            server.stop();
+        }
+    }
+
+    //send() 与 close() 并发：close() 恰好发生在 send() 检查 closed 之后、任务入队之前时，请求也必须结束，
+    //不能留在已经退出的 worker 的任务队列里永远挂起（没有请求超时兜底）
+    @Test
+    public void test04() throws Exception {
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0), new ReactorConfig(),
+                silentHandler());
+        server.start();
+        try {
+            InetSocketAddress address = (InetSocketAddress) server.localAddress();
+            for (int round = 0; round < 100; round++) {
+                NioClient client = new NioClient(ResponseParser.lengthPrefixed()).setRequestTimeoutMillis(0);
+                List<CompletableFuture<ByteBuffer>> futures = new ArrayList<>();
+                CountDownLatch started = new CountDownLatch(1);
+                Thread sender = new Thread(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        futures.add(client.send(address, request(i)));
+                        if (i == 100) {
+                            started.countDown();
+                        }
+                    }
+                });
+                sender.start();
+                started.await();
+                client.close();
+                sender.join();
+                for (CompletableFuture<ByteBuffer> future : futures) {
+                    try {
+                        future.get(5, TimeUnit.SECONDS);
+                        fail("silent server never responds");
+                    } catch (ExecutionException e) {
+                        assertTrue(e.getCause() instanceof IOException);
+                    }
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static ByteBuffer request(int id) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + PAYLOAD_SIZE);
+        buffer.putInt(PAYLOAD_SIZE).putInt(id);
+        buffer.position(buffer.capacity());
+        buffer.flip();
+        return buffer;
+    }
+
+    //不回应任何请求的服务端
+    private static ConnectionHandler silentHandler() {
+        return new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+            }
+
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) {
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+            }
+        };
+    }
+
+    private static ConnectionHandler echoHandler() {
+        return new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+            }
+
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+                //buffer 由 worker 复用，写不完排队时不能引用它
+                ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                copy.put(buffer).flip();
+                connection.write(copy);
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+            }
+        };
+    }
+}
@@ -1,7 +1,7 @@
 package org.nio.java.nonblock;
 
-import com.sun.org.apache.regexp.internal.RE;
 import org.junit.Test;
+import org.nio.java.channel.MappedAppendLog;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -10,14 +10,12 @@ import java.nio.CharBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
-import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.Iterator;
 
 /**
  * Created by XJX on 2017/4/14.
@@ -46,6 +44,7 @@ public class TestNonBlockingNIO {
 
         SocketChannel socketChannel = null;
         FileChannel inChannel = null;
+        Selector selector = null;
 
         try {
             //1. 获取通道
@@ -54,11 +53,18 @@ public class TestNonBlockingNIO {
             socketChannel.configureBlocking(false);
             //3. 分配指定大小的缓冲区
             ByteBuffer buffer = ByteBuffer.allocate(1024);
-            //4. 发送数据给服务端
+            //4. 发送数据给服务端：非阻塞 write() 可能只写出一部分，写不出时等待 OP_WRITE 再继续
             inChannel = FileChannel.open(Paths.get("pic/20170408_140516000_iOS.png"), StandardOpenOption.READ);
+            selector = Selector.open();
+            socketChannel.register(selector, SelectionKey.OP_WRITE);
             while (inChannel.read(buffer) != -1) {
                 buffer.flip();
-                socketChannel.write(buffer);
+                while (buffer.hasRemaining()) {
+                    if (socketChannel.write(buffer) == 0) {
+                        selector.select();
+                        selector.selectedKeys().clear();
+                    }
+                }
                 buffer.clear();
             }
 
@@ -89,99 +95,69 @@ public class TestNonBlockingNIO {
                     e.printStackTrace();
                 }
             }
+
+            if (selector != null) {
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
         }
     }
 
-    //服务端
+    //服务端：主从 Reactor，boss 线程负责接收连接，worker 线程（每核一个）负责读写
     @Test
-    public void server() {
-        ServerSocketChannel serverSocketChannel = null;
-        Selector selector = null;
-        SocketChannel socketChannel = null;
-        FileChannel outChannel = null;
-
-        try {
-            //1. 获取通道
-            serverSocketChannel = ServerSocketChannel.open();
-            //2. 切换非阻塞模式
-            serverSocketChannel.configureBlocking(false);
-            //3. 绑定连接
-            serverSocketChannel.bind(new InetSocketAddress(9999));
-            //4. 获取选择器
-            selector = Selector.open();
-            //5. 将通道注册到选择器上, 并且指定“监听接收事件”
-            serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
-            //6. 轮询式的获取选择器上已经“准备就绪”的事件
-            while (selector.select() > 0) {
-                //7. 获取当前选择器中所有注册的“选择键(已就绪的监听事件)”
-                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
-                while (iterator.hasNext()) {
-                    //8. 获取准备“就绪”的是事件
-                    SelectionKey selectionKey = iterator.next();
-                    //9. 判断具体是什么事件准备就绪
-                    if (selectionKey.isAcceptable()) {
-                        //10. 若“接收就绪”，获取客户端连接
-                        socketChannel = serverSocketChannel.accept();
-                        //11. 切换非阻塞模式
-                        socketChannel.configureBlocking(false);
-                        //12. 将该通道注册到选择器上
-                        socketChannel.register(selector, SelectionKey.OP_READ);
-                    }
+    public void server() throws IOException {
+        //所有上传追加到同一个内存映射日志，每个连接一个上传 ID，不再互相覆盖同一个文件
+        MappedAppendLog log = new MappedAppendLog(Paths.get("pic/uploads"));
+        //客户端 30 秒没有发送数据就关闭连接，不再一直占着 worker
+        ReactorServer server = new ReactorServer(new InetSocketAddress(9999),
+                new ReactorConfig().setReadIdleTimeoutMillis(30000), new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+                connection.attach(log.newUploadId());
+            }
 
-                    if (selectionKey.isReadable()) {
-                        outChannel = FileChannel.open(Paths.get("pic/7.jpg"), StandardOpenOption.WRITE,
-                                StandardOpenOption.READ, StandardOpenOption.CREATE);
-                        //13. 获取当前选择器上“读就绪”状态的通道
-                        socketChannel = (SocketChannel) selectionKey.channel();
-                        //14. 读取数据
-                        ByteBuffer buffer = ByteBuffer.allocate(1024);
-                        while (socketChannel.read(buffer) != -1) {
-                            buffer.flip();
-                            outChannel.write(buffer);
-                            buffer.clear();
-                        }
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+                log.append((Long) connection.attachment(), buffer);
+            }
 
-                        outChannel.close();
+            @Override
+            public void onClose(Connection connection) {
+                long uploadId = (Long) connection.attachment();
+                //客户端关闭连接即上传结束，组提交后再确认
+                log.commit().thenRun(() -> System.out.println("上传 " + uploadId + " 已落盘，"
+                        + log.size(uploadId) + " 字节"));
+            }
+        });
 
-                        //向客户端反馈
-//                        Charset charset = Charset.forName("utf-8");
-//                        CharsetEncoder encoder = charset.newEncoder();
-//                        CharBuffer charBuffer = CharBuffer.allocate(1024);
-//                        charBuffer.put("服务端已收到图片");
-//                        charBuffer.flip();
-//                        buffer = encoder.encode(charBuffer);
-//                        socketChannel.write(buffer);
-//                        charBuffer.clear();
-//                        buffer.clear();
+        //事件循环统计：curl http://localhost:9100/ ，或在 jconsole 中查看 org.nio.java/EventLoop
+        ReactorServer metrics = new ReactorServer(new InetSocketAddress(9100),
+                new ReactorConfig().setWorkerCount(1).setJmxEnabled(false), new MetricsHandler(server::metricsText));
 
-                    }
-                }
-            }
+        boolean interrupted = false;
+        try {
+            server.start();
+            metrics.start();
+            server.awaitTermination();
         } catch (IOException e) {
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            //中断标志留到停止服务端之后再恢复，否则 stop() 中的 join() 会立即抛出
+            interrupted = true;
         } finally {
-            if (outChannel != null) {
-                try {
-                    outChannel.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-
-            if (serverSocketChannel != null) {
-                try {
-                    serverSocketChannel.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+            try {
+                //先停止 worker，不再有线程向日志追加，再关闭日志
+                server.stop();
+                metrics.stop();
+            } catch (InterruptedException e) {
+                interrupted = true;
             }
-
-            if (selector != null) {
-                try {
-                    selector.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+            log.close();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
         }
     }
@@ -1,6 +1,10 @@
 package org.nio.java.nonblock;
 
 import org.junit.Test;
+import org.nio.java.buffer.BufferPool;
+import org.nio.java.buffer.EventRecord;
+import org.nio.java.buffer.Flyweight;
+import org.nio.java.metrics.EventLoopMetrics;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -8,33 +12,42 @@ import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.charset.Charset;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Iterator;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by XJX on 2017/4/14.
+ * 数据报内容为一条 EventRecord：发送时间 + 文本
  */
 public class TestNonBlockingUdp {
 
     @Test
     public void send() {
         DatagramChannel datagramChannel = null;
+        ByteBuffer buffer = BufferPool.getDefault().acquire(1024);
+        EventRecord record = new EventRecord();
         try {
             datagramChannel = DatagramChannel.open();
             datagramChannel.configureBlocking(false);
-            ByteBuffer buffer = ByteBuffer.allocate(1024);
 //            Scanner in = new Scanner(System.in);
 //            while (in.hasNext()) {
             String str = "空灭境";
-            buffer.put((LocalDateTime.now().toString() + ":\n" + str).getBytes());
-            buffer.flip();
+            record.wrapForEncode(buffer, 0)
+                    .timestampNanos(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()))
+                    .text(str);
+            buffer.limit(record.encodedLength());
             datagramChannel.send(buffer, new InetSocketAddress("127.0.0.1", 9999));
             buffer.clear();
 //            }
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
+            BufferPool.getDefault().release(buffer);
             if (datagramChannel != null) {
                 try {
                     datagramChannel.close();
@@ -49,29 +62,61 @@ public class TestNonBlockingUdp {
     public void receive() {
         DatagramChannel channel = null;
         Selector selector = null;
+        //select() 阻塞时间、每次唤醒的就绪 key 数与处理耗时，可以在 jconsole 的 org.nio.java/EventLoop 下查看
+        EventLoopMetrics metrics = new EventLoopMetrics("udp-receive");
+        metrics.register("");
+        EventRecord record = new EventRecord();
+        StringBuilder text = new StringBuilder();
         try {
             channel = DatagramChannel.open();
             channel.configureBlocking(false);
             channel.bind(new InetSocketAddress(9999));
             selector = Selector.open();
             channel.register(selector, SelectionKey.OP_READ);
-            while (selector.select() > 0) {
+            long start = System.nanoTime();
+            int keys;
+            while ((keys = selector.select()) > 0) {
+                long now = System.nanoTime();
+                metrics.recordSelect(now - start, keys, false);
                 Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
                 while (iterator.hasNext()) {
                     SelectionKey key = iterator.next();
+                    iterator.remove();
                     if (key.isReadable()) {
-                        ByteBuffer buffer = ByteBuffer.allocate(1024);
-                        channel.receive(buffer);
-                        buffer.flip();
-                        System.out.println(new String(buffer.array(), 0, buffer.limit()));
-                        buffer.clear();
+                        //从缓冲区池中取，用完归还，不再每个数据报分配一次
+                        ByteBuffer buffer = BufferPool.getDefault().acquire(1024);
+                        try {
+                            //一次唤醒读完所有已到达的数据报
+                            while (channel.receive(buffer) != null) {
+                                buffer.flip();
+                                metrics.addBytesRead(buffer.remaining());
+                                if (buffer.remaining() >= Flyweight.HEADER_LENGTH
+                                        && Flyweight.templateIdAt(buffer, 0) == EventRecord.TEMPLATE_ID) {
+                                    record.wrapForDecode(buffer, 0);
+                                    text.setLength(0);
+                                    record.getText(text);
+                                    System.out.println(LocalDateTime.ofInstant(
+                                            Instant.ofEpochSecond(0, record.timestampNanos()), ZoneId.systemDefault())
+                                            + ":\n" + text);
+                                } else {
+                                    //不是 EventRecord 的数据报（例如旧版本发送的字符串）原样打印
+                                    System.out.println(Charset.defaultCharset().decode(buffer));
+                                }
+                                buffer.clear();
+                            }
+                        } finally {
+                            BufferPool.getDefault().release(buffer);
+                        }
                     }
                 }
-                iterator.remove();
+                start = System.nanoTime();
+                metrics.recordHandler(start - now);
             }
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
+            metrics.unregister();
+            System.out.println(metrics);
             if (channel != null) {
                 try {
                     channel.close();
@@ -0,0 +1,198 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 聚集写入的待写队列：部分写出后的续写、高低水位、每次系统调用写出的消息数
+ */
+public class TestOutboundQueue {
+
+    //通道每次只接受 7 个字节，队列仍按顺序完整写出
+    @Test
+    public void test01() throws IOException {
+        OutboundQueue queue = new OutboundQueue();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = ("message-" + i + ";").getBytes();
+            expected.write(bytes);
+            queue.add(ByteBuffer.wrap(bytes));
+        }
+        LimitedChannel channel = new LimitedChannel(7);
+        while (!queue.isEmpty()) {
+            queue.flush(channel);
+        }
+        assertArrayEquals(expected.toByteArray(), channel.written.toByteArray());
+        assertEquals(0, queue.pendingBytes());
+        assertEquals(100, queue.flushedBuffers());
+        System.out.println("write() 次数：" + queue.writeCalls());
+
+        //通道不限量时 100 个缓冲区一次写出
+        for (int i = 0; i < 100; i++) {
+            queue.add(ByteBuffer.wrap(new byte[10]));
+        }
+        long calls = queue.writeCalls();
+        queue.flush(new LimitedChannel(Integer.MAX_VALUE));
+        assertEquals(calls + 1, queue.writeCalls());
+    }
+
+    //对端不读时待写字节超过高水位，isWritable() 变为 false；对端开始读后恢复
+    @Test
+    public void test02() throws Exception {
+        CountDownLatch unwritable = new CountDownLatch(1);
+        CountDownLatch writableAgain = new CountDownLatch(1);
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                new ReactorConfig().setWorkerCount(1).setWriteWaterMarks(32 * 1024, 64 * 1024),
+                new ConnectionHandler() {
+                    @Override
+                    public void onOpen(Connection connection) throws IOException {
+                        //一直写到不可写为止
+                        while (connection.isWritable()) {
+                            connection.write(ByteBuffer.allocate(4096));
+                        }
+                    }
+
+                    @Override
+                    public void onRead(Connection connection, ByteBuffer buffer) {
+                    }
+
+                    @Override
+                    public void onWritabilityChanged(Connection connection) {
+                        if (connection.isWritable()) {
+                            writableAgain.countDown();
+                        } else {
+                            unwritable.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void onClose(Connection connection) {
+                    }
+                });
+        server.start();
+        try (SocketChannel client = SocketChannel.open(server.localAddress())) {
+            assertTrue(unwritable.await(5, TimeUnit.SECONDS));
+            //非阻塞读：服务端写完全部数据后才回调可写，阻塞读可能在回调之前就把数据读完而一直等下去
+            client.configureBlocking(false);
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (writableAgain.getCount() > 0 && System.currentTimeMillis() < deadline) {
+                buffer.clear();
+                if (client.read(buffer) == 0) {
+                    Thread.sleep(1);
+                }
+            }
+            assertEquals(0, writableAgain.getCount());
+            System.out.println("超过高水位后不可写，对端读走数据后恢复可写");
+        } finally {
+            server.stop();
+        }
+    }
+
+    //分帧回显服务端在两种刷新策略下每次 write() 写出的消息数与吞吐量
+    @Test
+    public void test03() throws Exception {
+        System.out.println("flushOnIdle\tmessages/s\tmessages/write");
+        for (boolean flushOnIdle : new boolean[]{false, true}) {
+            echo(flushOnIdle);
+        }
+    }
+
+    private void echo(boolean flushOnIdle) throws Exception {
+        int requests = 200000;
+        FramingHandler[] framing = new FramingHandler[1];
+        framing[0] = new FramingHandler(LengthPrefix.VARINT, 1024, new FrameHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+            }
+
+            @Override
+            public void onFrame(Connection connection, ByteBuffer frame) throws IOException {
+                framing[0].write(connection, frame);
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+            }
+        });
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                new ReactorConfig().setWorkerCount(1).setFlushOnIdle(flushOnIdle), framing[0]);
+        server.start();
+        try (NioClient client = new NioClient(ResponseParser.framed(LengthPrefix.VARINT, 1024))) {
+            InetSocketAddress address = (InetSocketAddress) server.localAddress();
+            long start = System.nanoTime();
+            List<CompletableFuture<ByteBuffer>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                ByteBuffer payload = ByteBuffer.allocate(16);
+                payload.putInt(0, i);
+                futures.add(client.send(address, LengthPrefix.VARINT.encode(payload)));
+            }
+            for (int i = 0; i < requests; i++) {
+                assertEquals(i, futures.get(i).get(30, TimeUnit.SECONDS).getInt(0));
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            ReactorWorker worker = server.workers()[0];
+            System.out.printf("%s\t%.0f\t%.1f%n", flushOnIdle, requests / seconds,
+                    (double) worker.flushedBuffers() / Math.max(1, worker.writeCalls()));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static final class LimitedChannel implements GatheringByteChannel {
+
+        private final int maxPerWrite;
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+        LimitedChannel(int maxPerWrite) {
+            this.maxPerWrite = maxPerWrite;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long n = 0;
+            for (int i = offset; i < offset + length && n < maxPerWrite; i++) {
+                while (srcs[i].hasRemaining() && n < maxPerWrite) {
+                    written.write(srcs[i].get());
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            return (int) write(new ByteBuffer[]{src}, 0, 1);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
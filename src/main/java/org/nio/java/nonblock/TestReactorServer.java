@@ -0,0 +1,177 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+import org.nio.java.buffer.BufferPool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 主从 Reactor 吞吐量测试：分别用 1、2、4 ... 个 worker 启动 ReactorServer，
+ * 统计每秒建立的连接数（短连接）与每秒接收的字节数（长连接批量上传）
+ * <p>
+ * 服务端对收到的每个字节计算 CRC32，模拟真实的解码开销，这样才能看出 worker 数量带来的扩展性
+ */
+public class TestReactorServer {
+
+    private static final int CLIENTS = 16;
+    private static final int CONNECTS_PER_CLIENT = 500;
+    private static final long BYTES_PER_CLIENT = 64L * 1024 * 1024;
+
+    @Test
+    public void throughput() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> workerCounts = new TreeSet<>();
+        for (int n = 1; n < cores; n *= 2) {
+            workerCounts.add(n);
+        }
+        workerCounts.add(cores);
+
+        System.out.println("workers\tconnections/s\tMB/s");
+        for (int workerCount : workerCounts) {
+            LongAdder opened = new LongAdder();
+            LongAdder received = new LongAdder();
+            ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                    new ReactorConfig().setWorkerCount(workerCount), checksumHandler(opened, received));
+            server.start();
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            try {
+                SocketAddress address = server.localAddress();
+                double connectsPerSecond = connectPhase(clients, address, opened);
+                double mbPerSecond = uploadPhase(clients, address, received);
+                System.out.printf("%d\t%.0f\t%.1f%n", workerCount, connectsPerSecond, mbPerSecond);
+            } finally {
+                clients.shutdownNow();
+                server.stop();
+            }
+        }
+    }
+
+    //端口被占用时 start() 抛出异常，不留下 worker 的选择器与池中的读缓冲区
+    @Test
+    public void bindFailure() throws Exception {
+        BufferPool pool = new BufferPool(512, 4 * 1024 * 1024, 16L * 1024 * 1024);
+        ConnectionHandler handler = checksumHandler(new LongAdder(), new LongAdder());
+        ReactorServer first = new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                new ReactorConfig().setWorkerCount(2).setBufferPool(pool).setJmxEnabled(false), handler);
+        first.start();
+        try {
+            ReactorServer second = new ReactorServer((InetSocketAddress) first.localAddress(),
+                    new ReactorConfig().setWorkerCount(2).setBufferPool(pool).setJmxEnabled(false), handler);
+            try {
+                second.start();
+                fail("address in use");
+            } catch (IOException e) {
+                System.out.println(e);
+            }
+            assertEquals(2, pool.outstandingCount());
+            for (ReactorWorker worker : second.workers()) {
+                assertNull(worker);
+            }
+        } finally {
+            first.stop();
+        }
+        assertEquals(0, pool.outstandingCount());
+    }
+
+    //短连接：连接、写 1 个字节、关闭
+    private double connectPhase(ExecutorService clients, SocketAddress address, LongAdder opened)
+            throws Exception {
+        long expected = (long) CLIENTS * CONNECTS_PER_CLIENT;
+        Instant start = Instant.now();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            futures.add(clients.submit(() -> {
+                ByteBuffer one = ByteBuffer.allocateDirect(1);
+                for (int j = 0; j < CONNECTS_PER_CLIENT; j++) {
+                    try (SocketChannel channel = SocketChannel.open(address)) {
+                        one.clear();
+                        channel.write(one);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        awaitCount(opened, expected);
+        return expected * 1000.0 / Math.max(1, Duration.between(start, Instant.now()).toMillis());
+    }
+
+    //长连接：每个客户端上传 BYTES_PER_CLIENT 字节
+    private double uploadPhase(ExecutorService clients, SocketAddress address, LongAdder received)
+            throws Exception {
+        received.reset();
+        long expected = CLIENTS * BYTES_PER_CLIENT;
+        Instant start = Instant.now();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            futures.add(clients.submit(() -> {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+                try (SocketChannel channel = SocketChannel.open(address)) {
+                    long remaining = BYTES_PER_CLIENT;
+                    while (remaining > 0) {
+                        buffer.clear();
+                        buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                        while (buffer.hasRemaining()) {
+                            remaining -= channel.write(buffer);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        awaitCount(received, expected);
+        long millis = Math.max(1, Duration.between(start, Instant.now()).toMillis());
+        return expected / 1024.0 / 1024.0 * 1000.0 / millis;
+    }
+
+    private static void awaitCount(LongAdder adder, long expected) throws InterruptedException {
+        while (adder.sum() < expected) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static ConnectionHandler checksumHandler(LongAdder opened, LongAdder received) {
+        return new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) throws IOException {
+                connection.attach(new CRC32());
+                opened.increment();
+            }
+
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+                int n = buffer.remaining();
+                ((CRC32) connection.attachment()).update(buffer);
+                received.add(n);
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+            }
+        };
+    }
+}
@@ -0,0 +1,257 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 读取预算与公平调度：同一个 worker 上小请求客户端与批量上传混跑时的延迟分布，以及慢消费者暂停读取
+ */
+public class TestReadFairness {
+
+    private static final int PINGERS = 4;
+    private static final int UPLOADERS = 4;
+    private static final long DURATION_MILLIS = 2000;
+
+    //混合负载：4 个客户端 64 字节 ping-pong，4 个客户端不停上传、服务端对每个字节做 CRC32，
+    //比较不同读取预算下 ping 的 p50/p99 与上传吞吐量
+    @Test
+    public void test01() throws Exception {
+        System.out.println("budget\t\tp50 us\tp99 us\tupload MB/s\tbudget exhausted");
+        run("1 read", new ReactorConfig().setReadBudget(1, Integer.MAX_VALUE));
+        run("4 x 256KB", new ReactorConfig().setReadBudget(4, 256 * 1024));
+        run("16 x 1MB", new ReactorConfig().setReadBudget(16, 1024 * 1024));
+        run("unbounded", new ReactorConfig().setReadBudget(Integer.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    //慢消费者：客户端只写不读，服务端回显. 待写字节超过高水位后停止读取，积压不超过高水位加一轮读取预算；
+    //客户端开始读取后恢复，收到的数据与发出的一致
+    @Test
+    public void test02() throws Exception {
+        AtomicReference<Connection> server = new AtomicReference<>();
+        CountDownLatch opened = new CountDownLatch(1);
+        ReactorConfig config = new ReactorConfig().setWorkerCount(1).setJmxEnabled(false);
+        ReactorServer reactor = new ReactorServer(new InetSocketAddress("127.0.0.1", 0), config,
+                new ConnectionHandler() {
+                    @Override
+                    public void onOpen(Connection connection) {
+                        server.set(connection);
+                        opened.countDown();
+                    }
+
+                    @Override
+                    public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+                        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                        copy.put(buffer).flip();
+                        connection.write(copy);
+                    }
+
+                    @Override
+                    public void onClose(Connection connection) {
+                    }
+                });
+        reactor.start();
+        int total = 64 * 1024 * 1024;
+        try (SocketChannel client = SocketChannel.open(reactor.localAddress())) {
+            opened.await(5, TimeUnit.SECONDS);
+            CompletableFuture<Void> sent = CompletableFuture.runAsync(() -> {
+                ByteBuffer data = ByteBuffer.allocate(1024 * 1024);
+                try {
+                    for (int offset = 0; offset < total; offset += data.capacity()) {
+                        data.clear();
+                        for (int i = 0; i < data.capacity(); i++) {
+                            data.put((byte) (offset + i));
+                        }
+                        data.flip();
+                        while (data.hasRemaining()) {
+                            client.write(data);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            //等服务端读入停止增长
+            Connection connection = server.get();
+            long last = -1;
+            while (connection.bytesRead() != last) {
+                last = connection.bytesRead();
+                Thread.sleep(200);
+            }
+            long pending = onWorker(connection, connection::pendingWriteBytes);
+            boolean paused = onWorker(connection, connection::isReadPaused);
+            System.out.printf("stalled after reading %d KB, %d KB pending%n", last / 1024, pending / 1024);
+            assertTrue(paused);
+            assertTrue(last < total);
+            assertTrue(pending <= config.getWriteHighWaterMark() + config.getReadBudgetBytes()
+                    + config.getReadBufferSize());
+
+            ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+            long received = 0;
+            while (received < total) {
+                buffer.clear();
+                int n = client.read(buffer);
+                assertTrue(n > 0);
+                for (int i = 0; i < n; i++) {
+                    if (buffer.get(i) != (byte) (received + i)) {
+                        throw new AssertionError("mismatch at " + (received + i));
+                    }
+                }
+                received += n;
+            }
+            sent.get(5, TimeUnit.SECONDS);
+            assertEquals(total, received);
+        } finally {
+            reactor.stop();
+        }
+    }
+
+    private static void run(String name, ReactorConfig config) throws Exception {
+        LongAdder uploaded = new LongAdder();
+        ReactorServer server = new ReactorServer(new InetSocketAddress("127.0.0.1", 0),
+                config.setWorkerCount(1).setJmxEnabled(false), mixedHandler(uploaded));
+        server.start();
+        ExecutorService clients = Executors.newFixedThreadPool(PINGERS + UPLOADERS);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            SocketAddress address = server.localAddress();
+            List<Future<?>> uploads = new ArrayList<>();
+            for (int i = 0; i < UPLOADERS; i++) {
+                uploads.add(clients.submit(() -> upload(address, running)));
+            }
+            //先让上传跑起来
+            Thread.sleep(200);
+            List<Future<long[]>> pings = new ArrayList<>();
+            for (int i = 0; i < PINGERS; i++) {
+                pings.add(clients.submit(() -> ping(address, running)));
+            }
+            long start = System.nanoTime();
+            long startBytes = uploaded.sum();
+            Thread.sleep(DURATION_MILLIS);
+            running.set(false);
+            double mbPerSecond = (uploaded.sum() - startBytes) / ((System.nanoTime() - start) / 1e9) / (1024 * 1024);
+
+            List<Long> samples = new ArrayList<>();
+            for (Future<long[]> ping : pings) {
+                for (long rtt : ping.get()) {
+                    samples.add(rtt);
+                }
+            }
+            for (Future<?> upload : uploads) {
+                upload.get();
+            }
+            long[] sorted = samples.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            System.out.printf("%-12s\t%d\t%d\t%.0f\t%d%n", name, percentile(sorted, 0.50) / 1000,
+                    percentile(sorted, 0.99) / 1000, mbPerSecond,
+                    server.workers()[0].metrics().getReadBudgetExhausted());
+            assertTrue(sorted.length > 0);
+        } finally {
+            running.set(false);
+            clients.shutdownNow();
+            server.stop();
+        }
+    }
+
+    //第一个字节区分连接类型：'P' 为 ping，回显；其它为上传，做 CRC32 后丢弃
+    private static ConnectionHandler mixedHandler(LongAdder uploaded) {
+        return new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+            }
+
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+                if (connection.attachment() == null) {
+                    connection.attach(buffer.get(buffer.position()) == 'P' ? "ping" : new CRC32());
+                }
+                if (connection.attachment() instanceof CRC32) {
+                    uploaded.add(buffer.remaining());
+                    ((CRC32) connection.attachment()).update(buffer);
+                } else {
+                    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                    copy.put(buffer).flip();
+                    connection.write(copy);
+                }
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+            }
+        };
+    }
+
+    private static void upload(SocketAddress address, AtomicBoolean running) {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            ByteBuffer data = ByteBuffer.allocateDirect(256 * 1024);
+            while (running.get()) {
+                data.clear();
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //一次发 64 字节、读回 64 字节，记录每次的往返时间
+    private static long[] ping(SocketAddress address, AtomicBoolean running) throws IOException {
+        long[] samples = new long[1 << 16];
+        int count = 0;
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.socket().setTcpNoDelay(true);
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            while (running.get() && count < samples.length) {
+                long start = System.nanoTime();
+                buffer.clear();
+                buffer.put((byte) 'P');
+                buffer.position(buffer.limit()).flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("server closed");
+                    }
+                }
+                samples[count++] = System.nanoTime() - start;
+            }
+        }
+        return Arrays.copyOf(samples, count);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    //在所属 worker 线程上读取连接状态
+    private static <T> T onWorker(Connection connection, java.util.function.Supplier<T> supplier) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        connection.worker().execute(() -> result.complete(supplier.get()));
+        return result.get(5, TimeUnit.SECONDS);
+    }
+}
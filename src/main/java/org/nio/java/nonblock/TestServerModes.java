@@ -0,0 +1,233 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 两种服务端模式在大量并发长连接下的对比：ReactorServer（选择器）与 ThreadPerConnectionServer（虚拟线程 / 平台线程）
+ * <p>
+ * 客户端用一个选择器线程维持全部连接，每轮每个连接发送一条 64 字节消息并等待服务端回显，
+ * 统计建立全部连接的耗时、每秒回显的消息数，以及服务端进程的线程数与堆占用
+ * <p>
+ * 连接数用 -Dload.connections 指定（默认 5000），测 10k~100k 时需要把 ulimit -n 调到连接数的 2 倍以上；
+ * 只测一种模式用 -Dload.mode=reactor 或 -Dload.mode=blocking
+ * <p>
+ * 另测 ThreadPerConnectionServer.stop()：阻塞在 read() 上的处理器随连接关闭退出；不理会关闭的处理器不会让 stop() 无限等待
+ */
+public class TestServerModes {
+
+    private static final int CONNECTIONS = Integer.getInteger("load.connections", 5000);
+    private static final int ROUNDS = Integer.getInteger("load.rounds", 20);
+    private static final String MODE = System.getProperty("load.mode", "all");
+    private static final int MESSAGE_SIZE = 64;
+
+    //同时进行中的 connect 个数，避免超过服务端 accept 队列导致 SYN 重传
+    private static final int MAX_PENDING_CONNECTS = 512;
+
+    @Test
+    public void compare() throws Exception {
+        System.out.println("connections: " + CONNECTIONS + ", virtual threads: "
+                + ThreadPerConnectionServer.isVirtualThreadSupported());
+        System.out.println("mode\tconnect ms\tmessages/s\tthreads\theap MB");
+        if (!"blocking".equals(MODE)) {
+            run("reactor", new ReactorServer(new InetSocketAddress("127.0.0.1", 0), new ReactorConfig(),
+                    echoHandler()));
+        }
+        if (!"reactor".equals(MODE)) {
+            run(ThreadPerConnectionServer.isVirtualThreadSupported() ? "virtual" : "platform",
+                    new ThreadPerConnectionServer(new InetSocketAddress("127.0.0.1", 0), new ReactorConfig(),
+                            blockingEchoHandler()));
+        }
+    }
+
+    @Test
+    public void stopBlockingServer() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPerConnectionServer server = new ThreadPerConnectionServer(new InetSocketAddress("127.0.0.1", 0),
+                new ReactorConfig(), channel -> {
+            started.countDown();
+            if (channel.read(ByteBuffer.allocate(1)) == 1) {
+                //发来一个字节的连接之后不再读写通道，关闭连接也不会让它退出
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        server.start();
+        try (SocketChannel reader = SocketChannel.open(server.localAddress());
+             SocketChannel stuck = SocketChannel.open(server.localAddress())) {
+            assertTrue(reader.isConnected());
+            stuck.write(ByteBuffer.wrap(new byte[1]));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(2, server.connectionCount());
+
+            long start = System.nanoTime();
+            assertFalse(server.stop(200, TimeUnit.MILLISECONDS));
+            long millis = (System.nanoTime() - start) / 1000000;
+            System.out.println("stop() returned after " + millis + " ms, connections " + server.connectionCount());
+            assertTrue(millis < 2000);
+            //阻塞在 read() 上的处理器已退出，只剩不理会关闭的那个
+            assertEquals(1, server.connectionCount());
+
+            release.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (server.connectionCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, server.connectionCount());
+            assertTrue(server.stop(0, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void run(String mode, Server server) throws Exception {
+        server.start();
+        SocketChannel[] channels = new SocketChannel[CONNECTIONS];
+        try (Selector selector = Selector.open()) {
+            long start = System.nanoTime();
+            connectAll(selector, server.localAddress(), channels);
+            long connectMillis = (System.nanoTime() - start) / 1000000;
+            //第一轮过后服务端已经 accept 并开始处理全部连接，此时统计线程数与堆占用
+            echoRound(selector, channels);
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            int threadCount = threads.getThreadCount();
+            System.gc();
+            long heap = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+
+            start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                echoRound(selector, channels);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s\t%d\t%.0f\t%d\t%.1f%n", mode, connectMillis,
+                    (double) CONNECTIONS * ROUNDS / seconds, threadCount, heap / 1024.0 / 1024.0);
+        } finally {
+            for (SocketChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            server.stop();
+        }
+    }
+
+    private static void connectAll(Selector selector, SocketAddress address, SocketChannel[] channels)
+            throws IOException {
+        int opened = 0;
+        int connected = 0;
+        while (connected < channels.length) {
+            while (opened < channels.length && opened - connected < MAX_PENDING_CONNECTS) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channels[opened] = channel;
+                if (channel.connect(address)) {
+                    connected++;
+                } else {
+                    channel.register(selector, SelectionKey.OP_CONNECT);
+                }
+                opened++;
+            }
+            selector.select(100);
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+                if (((SocketChannel) key.channel()).finishConnect()) {
+                    key.interestOps(0);
+                    connected++;
+                }
+            }
+        }
+    }
+
+    //每个连接写一条消息，再等全部连接都收到完整回显
+    private static void echoRound(Selector selector, SocketChannel[] channels) throws IOException {
+        ByteBuffer message = ByteBuffer.allocateDirect(MESSAGE_SIZE);
+        ByteBuffer reply = ByteBuffer.allocateDirect(MESSAGE_SIZE);
+        for (SocketChannel channel : channels) {
+            message.clear();
+            while (message.hasRemaining()) {
+                channel.write(message);
+            }
+            SelectionKey key = channel.keyFor(selector);
+            if (key == null) {
+                key = channel.register(selector, 0);
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            key.attach(new int[1]);
+        }
+        int completed = 0;
+        while (completed < channels.length) {
+            selector.select(1000);
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+                int[] received = (int[]) key.attachment();
+                reply.clear();
+                int n = ((SocketChannel) key.channel()).read(reply);
+                if (n < 0) {
+                    throw new IOException("server closed connection");
+                }
+                received[0] += n;
+                if (received[0] >= MESSAGE_SIZE) {
+                    key.interestOps(0);
+                    completed++;
+                }
+            }
+        }
+    }
+
+    private static ConnectionHandler echoHandler() {
+        return new ConnectionHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+            }
+
+            @Override
+            public void onRead(Connection connection, ByteBuffer buffer) throws IOException {
+                //buffer 由 worker 复用，写不完排队时不能引用它
+                ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                copy.put(buffer).flip();
+                connection.write(copy);
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+            }
+        };
+    }
+
+    private static BlockingConnectionHandler blockingEchoHandler() {
+        return channel -> {
+            ByteBuffer buffer = ByteBuffer.allocate(MESSAGE_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,226 @@
+package org.nio.java.nonblock;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * UDP 接收压测：若干发送线程在 DURATION_MILLIS 内尽量快地向回环地址发送 64 字节数据报，
+ * 比较 TestNonBlockingUdp.receive() 的方式与 UdpIngestEngine 的每秒处理数据报数和丢包率
+ * <p>
+ * 丢包率 = 1 - 处理数 / 发送数，包括内核接收缓冲区溢出与环形队列满两种丢弃
+ * <p>
+ * 另有正确性测试：逐个发送带序号的数据报，全部按内容原样交付；超过 slotSize 的数据报被计数而不交付
+ */
+public class TestUdpIngestEngine {
+
+    private static final int SENDERS = 2;
+    private static final int DATAGRAM_SIZE = 64;
+    private static final long DURATION_MILLIS = 3000;
+
+    //低速逐个发送 COUNT 个带序号的数据报，夹杂超长数据报：每个序号恰好交付一次、内容正确、
+    //发送方地址正确；超长数据报只计入 truncatedCount()，不交给消费者
+    @Test
+    public void correctness() throws Exception {
+        int count = 2000;
+        int slotSize = 256;
+        BitSet seen = new BitSet(count);
+        AtomicInteger invalid = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+        try (DatagramChannel client = DatagramChannel.open()) {
+            client.bind(new InetSocketAddress("127.0.0.1", 0));
+            SocketAddress clientAddress = client.getLocalAddress();
+            UdpIngestEngine engine = new UdpIngestEngine(new InetSocketAddress("127.0.0.1", 0), 2, 1024, slotSize,
+                    (data, sender) -> {
+                        //序号 + 按序号生成的内容，长度随序号变化，最长正好 slotSize
+                        int sequence = data.getInt(data.position());
+                        boolean valid = sequence >= 0 && sequence < count && clientAddress.equals(sender)
+                                && data.remaining() == payloadLength(sequence, slotSize);
+                        for (int i = 4; valid && i < data.remaining(); i++) {
+                            valid = data.get(data.position() + i) == (byte) (sequence + i);
+                        }
+                        if (valid) {
+                            synchronized (seen) {
+                                valid = !seen.get(sequence);
+                                seen.set(sequence);
+                            }
+                        }
+                        if (!valid) {
+                            invalid.incrementAndGet();
+                        }
+                        done.countDown();
+                    });
+            engine.start();
+            try {
+                client.connect(engine.localAddress());
+                ByteBuffer buffer = ByteBuffer.allocate(slotSize + 100);
+                int oversize = 0;
+                for (int sequence = 0; sequence < count; sequence++) {
+                    buffer.clear();
+                    buffer.putInt(sequence);
+                    for (int i = 4; i < payloadLength(sequence, slotSize); i++) {
+                        buffer.put((byte) (sequence + i));
+                    }
+                    buffer.flip();
+                    client.write(buffer);
+                    if (sequence % 100 == 0) {
+                        //比 slotSize 多 1 个字节和多 100 个字节的数据报
+                        buffer.clear().limit(slotSize + 1 + sequence % 200 / 100 * 99);
+                        client.write(buffer);
+                        oversize++;
+                        Thread.sleep(1);
+                    }
+                }
+                assertTrue("delivered " + seen.cardinality(), done.await(10, TimeUnit.SECONDS));
+                engine.stop();
+                System.out.println("received " + engine.receivedCount() + ", truncated " + engine.truncatedCount()
+                        + ", dropped " + engine.droppedCount());
+                assertEquals(0, invalid.get());
+                assertEquals(count, seen.cardinality());
+                assertEquals(count, engine.receivedCount());
+                assertEquals(count, engine.consumedCount());
+                assertEquals(oversize, engine.truncatedCount());
+                assertEquals(0, engine.droppedCount());
+            } finally {
+                engine.stop();
+            }
+        }
+    }
+
+    @Test
+    public void throughput() throws Exception {
+        System.out.println("mode\tsent/s\thandled/s\tdrop%\tbatch");
+        baseline();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int receivers = 1; receivers <= Math.max(1, cores / 2); receivers *= 2) {
+            engine(receivers);
+        }
+    }
+
+    //TestNonBlockingUdp.receive() 的方式：每次唤醒只读一个数据报，每个数据报分配堆缓冲区并 new String()
+    private void baseline() throws Exception {
+        LongAdder handled = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        DatagramChannel channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress("127.0.0.1", 0));
+        Selector selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+        Thread receiver = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    if (selector.select(100) == 0) {
+                        continue;
+                    }
+                    Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                    while (iterator.hasNext()) {
+                        SelectionKey key = iterator.next();
+                        if (key.isReadable()) {
+                            ByteBuffer buffer = ByteBuffer.allocate(1024);
+                            channel.receive(buffer);
+                            buffer.flip();
+                            if (!new String(buffer.array(), 0, buffer.limit()).isEmpty()) {
+                                handled.increment();
+                            }
+                        }
+                    }
+                    iterator.remove();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        receiver.start();
+        long sent = send(channel.getLocalAddress());
+        Thread.sleep(200);
+        running.set(false);
+        receiver.join();
+        selector.close();
+        channel.close();
+        report("baseline", sent, handled.sum(), 1.0);
+        assertTrue(handled.sum() > 0);
+        assertTrue(handled.sum() <= sent);
+    }
+
+    private void engine(int receivers) throws Exception {
+        LongAdder handled = new LongAdder();
+        UdpIngestEngine engine = new UdpIngestEngine(new InetSocketAddress("127.0.0.1", 0), receivers,
+                64 * 1024, 2048, (data, sender) -> {
+            if (data.remaining() == DATAGRAM_SIZE) {
+                handled.increment();
+            }
+        });
+        engine.start();
+        long sent = send(engine.localAddress());
+        Thread.sleep(200);
+        engine.stop();
+        report("engine-" + receivers + (UdpIngestEngine.isReusePortSupported() ? "" : "(shared)"), sent,
+                handled.sum(), engine.datagramsPerWakeup());
+        //stop() 之后消费线程已处理完队列中的全部数据报，且每个都是完整的 DATAGRAM_SIZE 字节
+        assertTrue(handled.sum() > 0);
+        assertEquals(engine.receivedCount(), engine.consumedCount());
+        assertEquals(engine.consumedCount(), handled.sum());
+        assertEquals(0, engine.truncatedCount());
+        assertTrue(engine.receivedCount() + engine.droppedCount() <= sent);
+    }
+
+    //序号对应的数据报长度，在 4 与 slotSize 之间循环
+    private static int payloadLength(int sequence, int slotSize) {
+        return 4 + sequence % (slotSize - 3);
+    }
+
+    private long send(SocketAddress target) throws Exception {
+        LongAdder sent = new LongAdder();
+        long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+        Thread[] senders = new Thread[SENDERS];
+        for (int i = 0; i < SENDERS; i++) {
+            senders[i] = new Thread(() -> {
+                try (DatagramChannel channel = DatagramChannel.open()) {
+                    channel.connect(target);
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(DATAGRAM_SIZE);
+                    long count = 0;
+                    for (long n = 1; (n & 1023) != 0 || System.currentTimeMillis() < deadline; n++) {
+                        buffer.clear();
+                        try {
+                            channel.write(buffer);
+                            count++;
+                        } catch (IOException e) {
+                            //接收端缓冲区满时部分平台会返回 ECONNREFUSED/ENOBUFS，计为丢包
+                        }
+                    }
+                    sent.add(count);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            senders[i].start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        return sent.sum();
+    }
+
+    private static void report(String mode, long sent, long handled, double batch) {
+        double seconds = DURATION_MILLIS / 1000.0;
+        System.out.printf("%s\t%.0f\t%.0f\t%.2f\t%.1f%n", mode, sent / seconds, handled / seconds,
+                sent == 0 ? 0 : 100.0 * (sent - handled) / sent, batch);
+    }
+}
@@ -0,0 +1,261 @@
+package org.nio.java.nonblock;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 每个连接一个线程的阻塞式服务端：
+ * <p>
+ * 1. 一个 acceptor 线程在阻塞的 ServerSocketChannel 上循环 accept()，不像 TestBlockingNIO.server() 那样只接收一个连接
+ * <p>
+ * 2. 每个连接交给一个新线程执行 BlockingConnectionHandler，处理器可以按顺序写阻塞的 read()/write() 代码
+ * <p>
+ * 3. 运行在 JDK 21+ 时使用虚拟线程：阻塞的通道操作只会挂起虚拟线程、释放底层载体线程，
+ * 数万个连接只占用少量内核线程，扩展性接近 ReactorServer；更早的 JDK 上退化为小栈的平台线程
+ * <p>
+ * 与 ReactorServer 都实现 Server，可以互相替换
+ */
+public class ThreadPerConnectionServer implements Server {
+
+    //退化为平台线程时每个线程的栈大小，处理器只做简单的读写，不需要默认的 1MB
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+
+    //stop() 等待处理线程退出的默认时间
+    private static final long DEFAULT_STOP_TIMEOUT_MILLIS = 5000;
+
+    private final InetSocketAddress address;
+    private final ReactorConfig config;
+    private final BlockingConnectionHandler handler;
+    private final ThreadFactory threadFactory;
+
+    //活动连接，stop() 时逐个关闭，使阻塞在 read() 上的处理线程退出
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    //连接数降到 0 时在此通知 stop()
+    private final Object drained = new Object();
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptorThread;
+    private volatile boolean running;
+
+    /**
+     * @param config 只使用其中的 backlog 与 tcpNoDelay
+     */
+    public ThreadPerConnectionServer(InetSocketAddress address, ReactorConfig config,
+                                     BlockingConnectionHandler handler) {
+        this(address, config, handler, defaultThreadFactory("blocking-connection-"));
+    }
+
+    public ThreadPerConnectionServer(InetSocketAddress address, ReactorConfig config,
+                                     BlockingConnectionHandler handler, ThreadFactory threadFactory) {
+        this.address = address;
+        this.config = config;
+        this.handler = handler;
+        this.threadFactory = threadFactory;
+    }
+
+    public ThreadPerConnectionServer(int port, BlockingConnectionHandler handler) {
+        this(new InetSocketAddress(port), new ReactorConfig(), handler);
+    }
+
+    /**
+     * 当前 JVM 是否支持虚拟线程（JDK 21+）.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreads.BUILDER != null;
+    }
+
+    /**
+     * 支持时返回虚拟线程工厂，否则返回小栈的平台线程工厂.
+     */
+    public static ThreadFactory defaultThreadFactory(String namePrefix) {
+        ThreadFactory factory = VirtualThreads.newFactory(namePrefix);
+        if (factory != null) {
+            return factory;
+        }
+        AtomicInteger index = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(null, r, namePrefix + index.getAndIncrement(), PLATFORM_STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public synchronized void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("server already started");
+        }
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(address, config.getBacklog());
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+
+        running = true;
+        acceptorThread = new Thread(this::acceptLoop, "blocking-acceptor");
+        acceptorThread.start();
+    }
+
+    @Override
+    public SocketAddress localAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+
+    /**
+     * 当前活动连接数.
+     */
+    public int connectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * 停止服务，最多等待 5 秒让处理线程退出.
+     */
+    @Override
+    public void stop() throws InterruptedException {
+        stop(DEFAULT_STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止接收新连接，关闭全部活动连接，最多等待 timeout 让处理线程退出.
+     * 关闭连接会让阻塞在通道 read()/write() 上的处理器抛出异常；不读写通道的处理器（例如在做计算）只能等它自己返回.
+     *
+     * @return 全部处理线程都在超时前退出时返回 true，否则 connectionCount() 为仍在运行的处理线程数
+     */
+    public boolean stop(long timeout, TimeUnit unit) throws InterruptedException {
+        synchronized (this) {
+            if (!running) {
+                return connectionCount.get() == 0;
+            }
+            running = false;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        //关闭服务端通道会让阻塞在 accept() 上的 acceptor 抛出 AsynchronousCloseException
+        closeQuietly(serverChannel);
+        acceptorThread.join();
+        for (SocketChannel channel : connections) {
+            closeQuietly(channel);
+        }
+        synchronized (drained) {
+            long remaining;
+            while (connectionCount.get() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(drained, remaining);
+            }
+            return connectionCount.get() == 0;
+        }
+    }
+
+    @Override
+    public void awaitTermination() throws InterruptedException {
+        Thread t = acceptorThread;
+        if (t != null) {
+            t.join();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                //常见于文件句柄耗尽，稍后重试
+                e.printStackTrace();
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                continue;
+            }
+            connections.add(channel);
+            connectionCount.incrementAndGet();
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, config.isTcpNoDelay());
+                threadFactory.newThread(() -> serve(channel)).start();
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                //OutOfMemoryError: unable to create native thread，只放弃这一个连接
+                e.printStackTrace();
+                release(channel);
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try {
+            handler.handle(channel);
+        } catch (IOException e) {
+            if (running) {
+                e.printStackTrace();
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            release(channel);
+        }
+    }
+
+    private void release(SocketChannel channel) {
+        closeQuietly(channel);
+        if (connections.remove(channel) && connectionCount.decrementAndGet() == 0) {
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+        }
+    }
+
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    //通过反射调用 Thread.ofVirtual()，项目本身仍可以在 JDK 8 上编译运行
+    private static final class VirtualThreads {
+
+        private static final Object BUILDER = builder();
+
+        private static Object builder() {
+            try {
+                return Thread.class.getMethod("ofVirtual").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        static ThreadFactory newFactory(String namePrefix) {
+            if (BUILDER == null) {
+                return null;
+            }
+            try {
+                //Thread.Builder 是可变的，每个工厂用一个新的 builder
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object named = builderClass.getMethod("name", String.class, long.class)
+                        .invoke(builder(), namePrefix, 0L);
+                return (ThreadFactory) builderClass.getMethod("factory").invoke(named);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+    }
+}
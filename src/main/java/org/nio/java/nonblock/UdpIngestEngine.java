@@ -0,0 +1,358 @@
+package org.nio.java.nonblock;
+
+import org.nio.java.metrics.EventLoopMetrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 高速 UDP 接收：
+ * <p>
+ * 1. N 个接收线程，每个线程一个 DatagramChannel 和一个选择器。支持 SO_REUSEPORT 时
+ * N 个通道绑定同一端口，由内核按四元组把数据报分散到各个通道；不支持时 N 个线程共用一个通道
+ * <p>
+ * 2. 每次选择器唤醒都一直 receive() 到返回 null（或达到单次上限），而不是每次唤醒只读一个数据报
+ * <p>
+ * 3. 数据报直接 receive() 到 DatagramRing 预先分配的直接缓冲区中，
+ * 每个接收线程配一个消费线程，通过单生产者/单消费者无锁环形队列交给 DatagramConsumer
+ * <p>
+ * 4. 环形队列满时仍把数据报从内核读出（读到丢弃缓冲区）并计数，避免在内核中无声丢弃
+ * <p>
+ * 5. 超过 slotSize 的数据报会被 receive() 截断，这样的数据报不交给消费者，只计入 truncatedCount()
+ * <p>
+ * 每个接收线程一个 EventLoopMetrics：select() 阻塞时间、每次唤醒读完全部数据报的耗时（记为处理器耗时）与字节数
+ */
+public class UdpIngestEngine {
+
+    private static final SocketOption<Boolean> SO_REUSEPORT = reusePortOption();
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+    private final InetSocketAddress address;
+    private final int receiverCount;
+    private final int ringCapacity;
+    private final int slotSize;
+    private final DatagramConsumer consumer;
+
+    //单次唤醒最多读取的数据报个数，防止长时间不检查关闭标志
+    private int maxDatagramsPerWakeup = 1024;
+    private int receiveBufferSize = 4 * 1024 * 1024;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder truncated = new LongAdder();
+    private final LongAdder receivedBytes = new LongAdder();
+    private final LongAdder wakeups = new LongAdder();
+    private final LongAdder consumed = new LongAdder();
+
+    private DatagramChannel[] channels;
+    private EventLoopMetrics[] metrics = new EventLoopMetrics[0];
+    private Thread[] threads;
+    private volatile boolean running;
+
+    /**
+     * @param receiverCount 接收线程数，也是消费线程数
+     * @param ringCapacity  每个环形队列的槽位数
+     * @param slotSize      每个槽位的字节数，即可接收的最大数据报长度，更长的数据报被丢弃并计数
+     */
+    public UdpIngestEngine(InetSocketAddress address, int receiverCount, int ringCapacity, int slotSize,
+                           DatagramConsumer consumer) {
+        if (receiverCount <= 0) {
+            throw new IllegalArgumentException("receiverCount must be positive: " + receiverCount);
+        }
+        this.address = address;
+        this.receiverCount = receiverCount;
+        this.ringCapacity = ringCapacity;
+        this.slotSize = slotSize;
+        this.consumer = consumer;
+    }
+
+    public UdpIngestEngine setMaxDatagramsPerWakeup(int maxDatagramsPerWakeup) {
+        this.maxDatagramsPerWakeup = maxDatagramsPerWakeup;
+        return this;
+    }
+
+    public UdpIngestEngine setReceiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    /**
+     * 当前 JVM 与平台是否支持 SO_REUSEPORT.
+     */
+    public static boolean isReusePortSupported() {
+        if (SO_REUSEPORT == null) {
+            return false;
+        }
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            return channel.supportedOptions().contains(SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("engine already started");
+        }
+        boolean reusePort = receiverCount > 1 && isReusePortSupported();
+        channels = new DatagramChannel[receiverCount];
+        try {
+            for (int i = 0; i < receiverCount; i++) {
+                if (i == 0 || reusePort) {
+                    channels[i] = open(i == 0 ? address : (InetSocketAddress) channels[0].getLocalAddress(),
+                            reusePort);
+                } else {
+                    channels[i] = channels[0];
+                }
+            }
+        } catch (IOException e) {
+            closeChannels();
+            throw e;
+        }
+
+        //先打开全部选择器，任何一个失败都关闭已打开的资源，引擎保持未启动状态，可以再次 start()
+        Selector[] selectors = new Selector[receiverCount];
+        try {
+            for (int i = 0; i < receiverCount; i++) {
+                selectors[i] = Selector.open();
+            }
+        } catch (IOException e) {
+            for (Selector selector : selectors) {
+                if (selector != null) {
+                    selector.close();
+                }
+            }
+            closeChannels();
+            throw e;
+        }
+
+        Thread[] threads = new Thread[receiverCount * 2];
+        EventLoopMetrics[] metrics = new EventLoopMetrics[receiverCount];
+        for (int i = 0; i < receiverCount; i++) {
+            DatagramRing ring = new DatagramRing(ringCapacity, slotSize);
+            Selector selector = selectors[i];
+            DatagramChannel channel = channels[i];
+            EventLoopMetrics loopMetrics = new EventLoopMetrics("udp-receiver-" + i);
+            metrics[i] = loopMetrics;
+            threads[i * 2] = new Thread(() -> receiveLoop(channel, selector, ring, loopMetrics),
+                    "udp-receiver-" + i);
+            threads[i * 2 + 1] = new Thread(() -> consumeLoop(ring), "udp-consumer-" + i);
+        }
+        this.threads = threads;
+        this.metrics = metrics;
+        running = true;
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    public SocketAddress localAddress() throws IOException {
+        return channels[0].getLocalAddress();
+    }
+
+    /**
+     * 停止接收，消费线程处理完队列中剩余的数据报后退出.
+     */
+    public void stop() throws InterruptedException {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        closeChannels();
+    }
+
+    /**
+     * 各接收线程事件循环的统计.
+     */
+    public EventLoopMetrics[] metrics() {
+        return metrics.clone();
+    }
+
+    public long receivedCount() {
+        return received.sum();
+    }
+
+    /**
+     * 因环形队列已满而丢弃的数据报个数.
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 超过 slotSize 而被丢弃的数据报个数.
+     */
+    public long truncatedCount() {
+        return truncated.sum();
+    }
+
+    public long receivedBytes() {
+        return receivedBytes.sum();
+    }
+
+    public long consumedCount() {
+        return consumed.sum();
+    }
+
+    /**
+     * 平均每次选择器唤醒读取的数据报个数.
+     */
+    public double datagramsPerWakeup() {
+        long w = wakeups.sum();
+        return w == 0 ? 0 : (double) (received.sum() + dropped.sum() + truncated.sum()) / w;
+    }
+
+    private DatagramChannel open(InetSocketAddress bindAddress, boolean reusePort) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            if (reusePort) {
+                channel.setOption(SO_REUSEPORT, true);
+            }
+            channel.bind(bindAddress);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void receiveLoop(DatagramChannel channel, Selector selector, DatagramRing ring,
+                             EventLoopMetrics loopMetrics) {
+        ByteBuffer discard = ByteBuffer.allocateDirect(slotSize);
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(SELECT_TIMEOUT_MILLIS);
+        try {
+            channel.register(selector, SelectionKey.OP_READ);
+            while (running) {
+                long start = System.nanoTime();
+                int keys = selector.select(SELECT_TIMEOUT_MILLIS);
+                long now = System.nanoTime();
+                loopMetrics.recordSelect(now - start, keys, keys == 0 && running && now - start < timeoutNanos / 2);
+                if (keys == 0) {
+                    continue;
+                }
+                selector.selectedKeys().clear();
+                wakeups.increment();
+                loopMetrics.addBytesRead(drain(channel, ring, discard));
+                loopMetrics.recordHandler(System.nanoTime() - now);
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                e.printStackTrace();
+            }
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    //一次唤醒读完所有就绪的数据报，返回读入环形队列的字节数
+    private long drain(DatagramChannel channel, DatagramRing ring, ByteBuffer discard) throws IOException {
+        int count = 0;
+        int drops = 0;
+        int truncations = 0;
+        long bytes = 0;
+        while (count + drops + truncations < maxDatagramsPerWakeup) {
+            ByteBuffer slot = ring.claim();
+            if (slot == null) {
+                discard.clear();
+                if (channel.receive(discard) == null) {
+                    break;
+                }
+                drops++;
+                continue;
+            }
+            SocketAddress sender = channel.receive(slot);
+            if (sender == null) {
+                break;
+            }
+            int length = slot.position();
+            if (!ring.publish(sender)) {
+                truncations++;
+                continue;
+            }
+            bytes += length;
+            count++;
+        }
+        //批量更新计数器，而不是每个数据报更新一次
+        received.add(count);
+        dropped.add(drops);
+        truncated.add(truncations);
+        receivedBytes.add(bytes);
+        return bytes;
+    }
+
+    private void consumeLoop(DatagramRing ring) {
+        int idle = 0;
+        while (running || ring.size() > 0) {
+            ByteBuffer data = ring.poll();
+            if (data == null) {
+                //先自旋，再让出 CPU，最后短暂休眠
+                if (++idle < 100) {
+                    continue;
+                }
+                if (idle < 200) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(50000);
+                }
+                continue;
+            }
+            idle = 0;
+            try {
+                consumer.onDatagram(data, ring.sender());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                ring.release();
+                consumed.increment();
+            }
+        }
+    }
+
+    private void closeChannels() {
+        if (channels == null) {
+            return;
+        }
+        for (DatagramChannel channel : channels) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> reusePortOption() {
+        //StandardSocketOptions.SO_REUSEPORT 从 JDK 9 开始提供
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
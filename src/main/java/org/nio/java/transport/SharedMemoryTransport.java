@@ -0,0 +1,386 @@
+package org.nio.java.transport;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 同机进程间的共享内存传输：两端映射同一个文件（Linux 上放在 /dev/shm，只占内存、不落盘），
+ * 文件中有两个单生产者/单消费者的环形缓冲区，create() 的一端从环 0 发送、从环 1 接收，open() 的一端相反
+ * <p>
+ * 一、文件布局：128 字节文件头（魔数、容量、两端的关闭标记），之后依次是两个环；
+ * 每个环的 head（消费者已读到的位置）与 tail（生产者已写到的位置）各占一个 128 字节的块，
+ * 互不共享缓存行（相邻行预取按 128 字节成对取），再后面是 capacity 字节的数据区
+ * <p>
+ * 二、head、tail 是只增不减的 long，对 capacity 取模得到数据区下标；每条消息为 [4 字节长度][数据]，按 8 字节对齐，
+ * 放不到数据区末尾时写一个长度为 -1 的填充记录，从头开始写
+ * <p>
+ * 三、生产者写完数据后用有序写（putOrderedLong，即 release 语义）发布 tail，消费者用 volatile 读取 tail 之后再读数据；
+ * 消费者同样发布 head 归还空间。两端各自缓存对方的计数器，只在看起来没有数据 / 没有空间时才重新读取.
+ * 这几个跨进程的内存屏障操作通过反射取得的 sun.misc.Unsafe 方法句柄调用（与 MappedFile 一样不直接引用内部 API），
+ * 句柄为 static final，JIT 会内联；其余的普通读写直接用映射缓冲区的绝对位置方法
+ * <p>
+ * 四、等待策略：先自旋（多核时），再 Thread.yield()，最后 parkNanos() 从 1 微秒逐步加到 1 毫秒；
+ * 跨进程无法 unpark 对方，只能定时轮询，空闲时每端每毫秒醒来一次
+ * <p>
+ * close() 不解除映射（另一个线程可能仍在收发，访问已解除的映射会使 JVM 崩溃），映射随缓冲区被回收；
+ * create() 的一端关闭时删除文件，已映射的一端不受影响
+ */
+public class SharedMemoryTransport implements Transport {
+
+    private static final int MAGIC = 0x53484D31;
+    //缓存行（含相邻行预取）
+    private static final int LINE = 128;
+    private static final int FILE_HEADER = LINE;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    //两端的关闭标记，下标为环号：端 0（create）、端 1（open）
+    private static final int CLOSED_OFFSET = 64;
+    private static final int HEAD_OFFSET = 0;
+    private static final int TAIL_OFFSET = LINE;
+    private static final int RING_HEADER = 2 * LINE;
+    private static final int PADDING = -1;
+
+    //sun.misc.Unsafe 的方法句柄，已绑定到实例，参数为 (Object base, long offset[, value])，base 为 null 时 offset 是绝对地址
+    private static final MethodHandle GET_LONG;
+    private static final MethodHandle GET_LONG_VOLATILE;
+    private static final MethodHandle PUT_LONG_VOLATILE;
+    private static final MethodHandle PUT_ORDERED_LONG;
+    private static final MethodHandle GET_INT_VOLATILE;
+    private static final MethodHandle PUT_INT_VOLATILE;
+    //java.nio.Buffer.address 字段的偏移量，用来取得映射区域的起始地址
+    private static final long ADDRESS_OFFSET;
+
+    static {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType getLong = MethodType.methodType(long.class, Object.class, long.class);
+            MethodType putLong = MethodType.methodType(void.class, Object.class, long.class, long.class);
+            GET_LONG = lookup.findVirtual(unsafeClass, "getLong", getLong).bindTo(unsafe);
+            GET_LONG_VOLATILE = lookup.findVirtual(unsafeClass, "getLongVolatile", getLong).bindTo(unsafe);
+            PUT_LONG_VOLATILE = lookup.findVirtual(unsafeClass, "putLongVolatile", putLong).bindTo(unsafe);
+            PUT_ORDERED_LONG = lookup.findVirtual(unsafeClass, "putOrderedLong", putLong).bindTo(unsafe);
+            GET_INT_VOLATILE = lookup.findVirtual(unsafeClass, "getIntVolatile",
+                    MethodType.methodType(int.class, Object.class, long.class)).bindTo(unsafe);
+            PUT_INT_VOLATILE = lookup.findVirtual(unsafeClass, "putIntVolatile",
+                    MethodType.methodType(void.class, Object.class, long.class, int.class)).bindTo(unsafe);
+            ADDRESS_OFFSET = (long) unsafeClass.getMethod("objectFieldOffset", Field.class)
+                    .invoke(unsafe, Buffer.class.getDeclaredField("address"));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Path file;
+    private final boolean creator;
+    //持有映射，防止被回收
+    private final MappedByteBuffer mapped;
+    private final long address;
+    private final int capacity;
+    private final Ring sendRing;
+    private final Ring receiveRing;
+    private final long closedAddress;
+    private final long peerClosedAddress;
+    private volatile boolean closed;
+
+    /**
+     * 创建共享内存文件，已存在时覆盖.
+     *
+     * @param capacity 每个方向数据区的字节数，向上取整到 2 的幂. 单条消息（含 4 字节长度）不能超过它的一半，
+     *                 否则需要回绕时填充与消息加起来可能超过整个数据区，空环也放不下
+     */
+    public static SharedMemoryTransport create(Path file, int capacity) throws IOException {
+        if (capacity < LINE || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            //新映射的区域全部为 0，计数器与关闭标记无需初始化
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(size));
+        }
+        mapped.putInt(CAPACITY_OFFSET, size);
+        //魔数最后写入，对端看到它时容量已经可见
+        putIntVolatile(address(mapped) + MAGIC_OFFSET, MAGIC);
+        return new SharedMemoryTransport(file, true, mapped, size);
+    }
+
+    /**
+     * 打开对端 create() 的文件，文件还不存在或未初始化时最多等待 timeout.
+     */
+    public static SharedMemoryTransport open(Path file, long timeout, TimeUnit unit) throws IOException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!Files.exists(file) || Files.size(file) < FILE_HEADER) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IOException("timed out waiting for " + file);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        long address = address(mapped);
+        while (getIntVolatile(address + MAGIC_OFFSET) != MAGIC) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IOException("not a shared memory transport: " + file);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        int capacity = mapped.getInt(CAPACITY_OFFSET);
+        if (mapped.capacity() != fileSize(capacity)) {
+            throw new IOException("unexpected size " + mapped.capacity() + " for capacity " + capacity);
+        }
+        return new SharedMemoryTransport(file, false, mapped, capacity);
+    }
+
+    /**
+     * 放共享内存文件的目录：有 /dev/shm 时用它，否则用临时目录.
+     */
+    public static Path defaultDirectory() {
+        Path shm = Paths.get("/dev/shm");
+        return Files.isDirectory(shm) && Files.isWritable(shm) ? shm : Paths.get(System.getProperty("java.io.tmpdir"));
+    }
+
+    private SharedMemoryTransport(Path file, boolean creator, MappedByteBuffer mapped, int capacity) {
+        this.file = file;
+        this.creator = creator;
+        this.mapped = mapped;
+        this.address = address(mapped);
+        this.capacity = capacity;
+        int self = creator ? 0 : 1;
+        this.sendRing = new Ring(self, true);
+        this.receiveRing = new Ring(1 - self, false);
+        this.closedAddress = address + CLOSED_OFFSET + 8 * self;
+        this.peerClosedAddress = address + CLOSED_OFFSET + 8 * (1 - self);
+    }
+
+    /**
+     * 每个方向数据区的字节数.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void send(ByteBuffer message) throws IOException {
+        Ring ring = sendRing;
+        int length = message.remaining();
+        int record = align(4 + length);
+        if (record > capacity >> 1) {
+            throw new IllegalArgumentException("message of " + length + " bytes exceeds half the capacity "
+                    + capacity);
+        }
+        long tail = ring.position;
+        int index = (int) tail & (capacity - 1);
+        //末尾放不下，先填充到数据区末尾
+        int padding = index + record > capacity ? capacity - index : 0;
+        long required = tail + padding + record - capacity;
+        if (required > ring.cachedCounter) {
+            ring.backoff.reset();
+            while (required > (ring.cachedCounter = getLongVolatile(ring.headAddress))) {
+                checkOpen();
+                if (getLongVolatile(peerClosedAddress) != 0) {
+                    throw new IOException("peer closed");
+                }
+                ring.backoff.idle();
+            }
+        }
+        if (padding > 0) {
+            mapped.putInt(ring.dataOffset + index, PADDING);
+            index = 0;
+        }
+        mapped.putInt(ring.dataOffset + index, length);
+        ByteBuffer data = ring.data;
+        data.limit(ring.dataOffset + index + 4 + length);
+        data.position(ring.dataOffset + index + 4);
+        data.put(message);
+        ring.position = tail + padding + record;
+        putOrderedLong(ring.tailAddress, ring.position);
+    }
+
+    @Override
+    public int receive(ByteBuffer dst) throws IOException {
+        Ring ring = receiveRing;
+        while (true) {
+            long head = ring.position;
+            if (head == ring.cachedCounter) {
+                ring.backoff.reset();
+                while (head == (ring.cachedCounter = getLongVolatile(ring.tailAddress))) {
+                    checkOpen();
+                    //对端先发布 tail 再置关闭标记，看到关闭后再读一次 tail，确认没有剩余消息
+                    if (getLongVolatile(peerClosedAddress) != 0
+                            && head == getLongVolatile(ring.tailAddress)) {
+                        return -1;
+                    }
+                    ring.backoff.idle();
+                }
+            }
+            int index = (int) head & (capacity - 1);
+            int length = mapped.getInt(ring.dataOffset + index);
+            if (length == PADDING) {
+                ring.position = head + capacity - index;
+                putOrderedLong(ring.headAddress, ring.position);
+                continue;
+            }
+            if (dst.remaining() < length) {
+                throw new IOException("message of " + length + " bytes does not fit in " + dst.remaining());
+            }
+            ByteBuffer data = ring.data;
+            data.limit(ring.dataOffset + index + 4 + length);
+            data.position(ring.dataOffset + index + 4);
+            dst.put(data);
+            ring.position = head + align(4 + length);
+            putOrderedLong(ring.headAddress, ring.position);
+            return length;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        putLongVolatile(closedAddress, 1);
+        if (creator) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("transport closed");
+        }
+    }
+
+    private static int align(int n) {
+        return (n + 7) & ~7;
+    }
+
+    private static int fileSize(int capacity) {
+        return FILE_HEADER + 2 * (RING_HEADER + capacity);
+    }
+
+    private static long address(MappedByteBuffer mapped) {
+        try {
+            return (long) GET_LONG.invokeExact((Object) mapped, ADDRESS_OFFSET);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long getLongVolatile(long address) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void putLongVolatile(long address, long value) {
+        try {
+            PUT_LONG_VOLATILE.invokeExact((Object) null, address, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void putOrderedLong(long address, long value) {
+        try {
+            PUT_ORDERED_LONG.invokeExact((Object) null, address, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int getIntVolatile(long address) {
+        try {
+            return (int) GET_INT_VOLATILE.invokeExact((Object) null, address);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void putIntVolatile(long address, int value) {
+        try {
+            PUT_INT_VOLATILE.invokeExact((Object) null, address, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 本端在一个环上的状态：发送环上 position 是 tail、cachedCounter 是缓存的 head；接收环上相反.
+     */
+    private final class Ring {
+
+        final long headAddress;
+        final long tailAddress;
+        final int dataOffset;
+        //本端独占的视图，用来批量复制数据
+        final ByteBuffer data;
+        final Backoff backoff = new Backoff();
+        long position;
+        long cachedCounter;
+
+        Ring(int index, boolean sending) {
+            int base = FILE_HEADER + index * (RING_HEADER + capacity);
+            headAddress = address + base + HEAD_OFFSET;
+            tailAddress = address + base + TAIL_OFFSET;
+            dataOffset = base + RING_HEADER;
+            data = mapped.duplicate();
+            position = getLongVolatile(sending ? tailAddress : headAddress);
+            cachedCounter = getLongVolatile(sending ? headAddress : tailAddress);
+        }
+    }
+
+    /**
+     * 先自旋、再让出、最后逐步加长 park 的等待策略. 单核机器上自旋只会占着对端需要的 CPU，直接从让出开始.
+     */
+    private static final class Backoff {
+
+        private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 1000 : 0;
+        private static final int YIELDS = 100;
+        private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+        private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+        private int count;
+        private long parkNanos;
+
+        void reset() {
+            count = 0;
+            parkNanos = MIN_PARK_NANOS;
+        }
+
+        void idle() {
+            if (count < SPINS) {
+                count++;
+            } else if (count < SPINS + YIELDS) {
+                count++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos << 1, MAX_PARK_NANOS);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.nio.java.transport;
+
+import org.nio.java.channel.ChannelIO;
+import org.nio.java.nonblock.LengthPrefix;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 基于阻塞 SocketChannel 的消息传输，每条消息前加 LengthPrefix.FIXED32 长度前缀（4 字节大端），
+ * 与 FrameDecoder/FramingHandler 的帧格式相同
+ * <p>
+ * 发送时长度与消息用聚集写入（ChannelIO.writeFully）写出；默认开启 TCP_NODELAY，小消息不等 Nagle 合并
+ */
+public class SocketTransport implements Transport {
+
+    private static final LengthPrefix PREFIX = LengthPrefix.FIXED32;
+
+    private final SocketChannel channel;
+    private final ByteBuffer sendHeader = ByteBuffer.allocate(PREFIX.headerLength(0));
+    private final ByteBuffer[] sendBuffers = new ByteBuffer[2];
+    private final ByteBuffer receiveHeader = ByteBuffer.allocate(PREFIX.headerLength(0));
+    //已读到长度、但 dst 放不下而没有读取的消息长度，-1 表示没有
+    private int pendingLength = -1;
+
+    public SocketTransport(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.configureBlocking(true);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        sendBuffers[0] = sendHeader;
+    }
+
+    public static SocketTransport connect(SocketAddress remote) throws IOException {
+        return new SocketTransport(SocketChannel.open(remote));
+    }
+
+    public SocketChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public void send(ByteBuffer message) throws IOException {
+        sendHeader.clear();
+        PREFIX.putLength(sendHeader, message.remaining());
+        sendHeader.flip();
+        sendBuffers[1] = message;
+        try {
+            ChannelIO.writeFully(channel, sendBuffers);
+        } finally {
+            sendBuffers[1] = null;
+        }
+    }
+
+    @Override
+    public int receive(ByteBuffer dst) throws IOException {
+        int length = pendingLength;
+        if (length < 0) {
+            receiveHeader.clear();
+            //消息边界上连接关闭返回 -1，前缀读到一半关闭抛出 EOFException
+            if (!ChannelIO.readFully(channel, receiveHeader)) {
+                return -1;
+            }
+            receiveHeader.flip();
+            length = PREFIX.readLength(receiveHeader);
+        }
+        if (dst.remaining() < length) {
+            pendingLength = length;
+            throw new IOException("message of " + length + " bytes does not fit in " + dst.remaining());
+        }
+        pendingLength = -1;
+        int limit = dst.limit();
+        dst.limit(dst.position() + length);
+        try {
+            //消息内容读到一半（或还没开始读）连接就关闭了
+            if (!ChannelIO.readFully(channel, dst)) {
+                throw new EOFException("connection closed in the middle of a message");
+            }
+        } finally {
+            dst.limit(limit);
+        }
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,197 @@
+package org.nio.java.transport;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 消息传输：共享内存环的回绕与背压、两种传输对放不下的消息与对端关闭的处理一致，以及与回环 TCP 的延迟对比
+ */
+public class TestTransport {
+
+    //8KB 的环收发 10 万条 0 ~ 3000 字节的随机消息，不断回绕、发送端经常等待空间；对端关闭后 receive() 返回 -1
+    @Test
+    public void test01() throws Exception {
+        Path file = SharedMemoryTransport.defaultDirectory().resolve("transport-" + System.nanoTime());
+        int count = 100_000;
+        try (SharedMemoryTransport a = SharedMemoryTransport.create(file, 8192);
+             SharedMemoryTransport b = SharedMemoryTransport.open(file, 5, TimeUnit.SECONDS)) {
+            CompletableFuture<Void> sender = CompletableFuture.runAsync(() -> {
+                Random random = new Random(1);
+                ByteBuffer message = ByteBuffer.allocate(3000);
+                try {
+                    for (int i = 0; i < count; i++) {
+                        message.clear();
+                        fill(message, random.nextInt(3001), i);
+                        a.send(message);
+                        assertFalse(message.hasRemaining());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    //出错时也关闭，接收端不会一直等下去
+                    close(a);
+                }
+            });
+            Random random = new Random(1);
+            ByteBuffer expected = ByteBuffer.allocate(3000);
+            ByteBuffer received = ByteBuffer.allocate(3000);
+            for (int i = 0; i < count; i++) {
+                expected.clear();
+                fill(expected, random.nextInt(3001), i);
+                received.clear();
+                assertEquals(expected.remaining(), b.receive(received));
+                received.flip();
+                assertEquals(expected, received);
+            }
+            assertEquals(-1, b.receive(received));
+            sender.get(5, TimeUnit.SECONDS);
+        }
+        assertFalse(Files.exists(file));
+    }
+
+    //dst 放不下时抛出 IOException，消息保留，换大缓冲区重试能收到；对端关闭后返回 -1
+    @Test
+    public void test02() throws Exception {
+        for (boolean shm : new boolean[]{true, false}) {
+            Transport[] pair = shm ? sharedMemoryPair(4096) : socketPair();
+            try {
+                pair[0].send(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+                pair[0].send(ByteBuffer.allocate(0));
+                try {
+                    pair[1].receive(ByteBuffer.allocate(4));
+                    fail("8 bytes should not fit in 4");
+                } catch (IOException e) {
+                    System.out.println((shm ? "shm: " : "tcp: ") + e.getMessage());
+                }
+                ByteBuffer dst = ByteBuffer.allocate(16);
+                assertEquals(8, pair[1].receive(dst));
+                assertEquals(8, dst.position());
+                assertEquals(8, dst.get(7));
+                assertEquals(0, pair[1].receive(dst));
+                pair[0].close();
+                assertEquals(-1, pair[1].receive(dst));
+            } finally {
+                pair[0].close();
+                pair[1].close();
+            }
+        }
+    }
+
+    //64 字节 ping-pong 的往返延迟，以及 1KB 消息单向发送的吞吐量
+    @Test
+    public void test03() throws Exception {
+        System.out.println("transport\tp50 us\tp99 us\tp99.9 us\t1KB msgs/s");
+        for (boolean shm : new boolean[]{true, false}) {
+            Transport[] pair = shm ? sharedMemoryPair(1024 * 1024) : socketPair();
+            try {
+                long[] rtt = pingPong(pair[0], pair[1], 64, 100_000);
+                double rate = oneWay(pair[0], pair[1], 1024, 1_000_000);
+                System.out.printf("%s\t\t%.1f\t%.1f\t%.1f\t\t%.0f%n", shm ? "shm" : "tcp",
+                        rtt[rtt.length / 2] / 1000.0, rtt[rtt.length * 99 / 100] / 1000.0,
+                        rtt[rtt.length * 999 / 1000] / 1000.0, rate);
+            } finally {
+                pair[0].close();
+                pair[1].close();
+            }
+        }
+    }
+
+    private static long[] pingPong(Transport client, Transport server, int size, int rounds) throws Exception {
+        CompletableFuture<Void> echo = CompletableFuture.runAsync(() -> {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            try {
+                for (int i = 0; i < rounds; i++) {
+                    buffer.clear();
+                    server.receive(buffer);
+                    buffer.flip();
+                    server.send(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        long[] rtt = new long[rounds];
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            buffer.clear();
+            client.send(buffer);
+            buffer.clear();
+            client.receive(buffer);
+            rtt[i] = System.nanoTime() - start;
+        }
+        echo.get(10, TimeUnit.SECONDS);
+        Arrays.sort(rtt);
+        return rtt;
+    }
+
+    private static double oneWay(Transport sender, Transport receiver, int size, int count) throws Exception {
+        CompletableFuture<Void> consumer = CompletableFuture.runAsync(() -> {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            try {
+                for (int i = 0; i < count; i++) {
+                    buffer.clear();
+                    receiver.receive(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            buffer.clear();
+            sender.send(buffer);
+        }
+        consumer.get(60, TimeUnit.SECONDS);
+        return count / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static Transport[] sharedMemoryPair(int capacity) throws IOException {
+        Path file = SharedMemoryTransport.defaultDirectory().resolve("transport-" + System.nanoTime());
+        SharedMemoryTransport a = SharedMemoryTransport.create(file, capacity);
+        return new Transport[]{a, SharedMemoryTransport.open(file, 5, TimeUnit.SECONDS)};
+    }
+
+    private static Transport[] socketPair() throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            SocketTransport client = SocketTransport.connect(server.getLocalAddress());
+            return new Transport[]{client, new SocketTransport(server.accept())};
+        }
+    }
+
+    private static void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //第 i 条消息的内容
+    private static void fill(ByteBuffer buffer, int length, int i) {
+        for (int j = 0; j < length; j++) {
+            buffer.put((byte) (i * 31 + j));
+        }
+        buffer.flip();
+        assertTrue(buffer.remaining() == length);
+    }
+}
@@ -0,0 +1,30 @@
+package org.nio.java.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by XJX on 2026/10/18.
+ * 双向、按消息收发的阻塞传输，SocketTransport（TCP）与 SharedMemoryTransport（同机共享内存）都实现它，
+ * 调用方只依赖这个接口，同机部署时换成共享内存即可
+ * <p>
+ * 每个方向只允许一个线程发送、一个线程接收，收发可以在不同线程上同时进行
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * 把 message 中剩余的字节作为一条消息发送，返回时 position 移到 limit. 对端来不及接收时阻塞.
+     *
+     * @throws IOException 对端或本端已关闭
+     */
+    void send(ByteBuffer message) throws IOException;
+
+    /**
+     * 阻塞到收到一条完整的消息，复制到 dst 中.
+     *
+     * @return 消息长度，对端关闭且没有剩余消息时返回 -1
+     * @throws IOException dst 放不下这条消息（消息保留，换更大的缓冲区重试即可），或本端已关闭
+     */
+    int receive(ByteBuffer dst) throws IOException;
+}